@@ -747,7 +747,14 @@ public class HttpJsonServiceStubClassComposer extends AbstractTransportServiceSt
     String requestMethodPrefix = "get";
     String bodyParamName = null;
 
-    if (asteriskBody) {
+    // In case of `body: "*"` the request only needs to be rebuilt if some of its top level fields
+    // are bound to the path and must be cleared. Otherwise the request is serialized as is, to
+    // avoid copying the whole message on every call.
+    boolean rebuildAsteriskBody =
+        asteriskBody
+            && httpBindingFieldNames.stream()
+                .anyMatch(httpBinding -> !httpBinding.name().contains("."));
+    if (rebuildAsteriskBody) {
       bodyRequestExpr =
           MethodInvocationExpr.builder()
               .setExprReferenceExpr(requestVarExpr)
@@ -792,11 +799,13 @@ public class HttpJsonServiceStubClassComposer extends AbstractTransportServiceSt
     } else {
       ImmutableList.Builder<Expr> paramsPutArgs = ImmutableList.builder();
       if (asteriskBody) {
-        prevExpr =
-            MethodInvocationExpr.builder()
-                .setExprReferenceExpr(prevExpr)
-                .setMethodName("build")
-                .build();
+        if (rebuildAsteriskBody) {
+          prevExpr =
+              MethodInvocationExpr.builder()
+                  .setExprReferenceExpr(prevExpr)
+                  .setMethodName("build")
+                  .build();
+        }
         bodyParamName = "*";
       }
       paramsPutArgs.add(ValueExpr.withValue(StringObjectValue.withValue(bodyParamName)));
@@ -29,7 +29,9 @@
  */
 package com.google.api.gax.grpc;
 
+import com.google.api.core.ApiClock;
 import com.google.api.core.InternalApi;
+import com.google.api.core.NanoClock;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
@@ -44,20 +46,27 @@ import io.grpc.MethodDescriptor;
 import io.grpc.Status;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
 
 /**
- * A {@link ManagedChannel} that will send requests round-robin via a set of channels.
+ * A {@link ManagedChannel} that will send requests via a set of channels. By default requests are
+ * sent round-robin, see {@link ChannelPoolSettings#getLoadBalancingStrategy()} for alternatives.
  *
  * <p>In addition to spreading requests over a set of child connections, the pool will also actively
  * manage the lifecycle of the channels. Currently lifecycle management is limited to pre-emptively
@@ -68,42 +77,73 @@ import javax.annotation.Nullable;
  */
 class ChannelPool extends ManagedChannel {
   @VisibleForTesting static final Logger LOG = Logger.getLogger(ChannelPool.class.getName());
-  private static final java.time.Duration REFRESH_PERIOD = java.time.Duration.ofMinutes(50);
+
+  /** The maximum age of a channel before it is pre-emptively replaced. */
+  @VisibleForTesting
+  static final java.time.Duration REFRESH_PERIOD = java.time.Duration.ofMinutes(50);
+
+  /**
+   * Each channel is replaced at a random point in the last {@code REFRESH_JITTER} of its {@link
+   * #REFRESH_PERIOD}, so that channels created together don't all reconnect at the same time.
+   */
+  @VisibleForTesting
+  static final java.time.Duration REFRESH_JITTER = java.time.Duration.ofMinutes(10);
+
+  /** How often to check for channels that are due to be replaced. */
+  @VisibleForTesting
+  static final java.time.Duration REFRESH_CHECK_INTERVAL = java.time.Duration.ofMinutes(1);
 
   private final ChannelPoolSettings settings;
   private final ChannelFactory channelFactory;
   private final ScheduledExecutorService executor;
+  private final ApiClock clock;
 
   private final Object entryWriteLock = new Object();
   @VisibleForTesting final AtomicReference<ImmutableList<Entry>> entries = new AtomicReference<>();
   private final AtomicInteger indexTicker = new AtomicInteger();
   private final String authority;
 
+  // State of ChannelPoolSettings.ResizeStrategy.PREDICTIVE, guarded by entryWriteLock.
+  private double predictedOutstandingRpcs = -1;
+  private int lowDemandIntervals;
+
   static ChannelPool create(ChannelPoolSettings settings, ChannelFactory channelFactory)
       throws IOException {
     return new ChannelPool(settings, channelFactory, Executors.newSingleThreadScheduledExecutor());
   }
 
+  @VisibleForTesting
+  ChannelPool(
+      ChannelPoolSettings settings,
+      ChannelFactory channelFactory,
+      ScheduledExecutorService executor)
+      throws IOException {
+    this(settings, channelFactory, executor, NanoClock.getDefaultClock());
+  }
+
   /**
    * Initializes the channel pool. Assumes that all channels have the same authority.
    *
    * @param settings options for controling the ChannelPool sizing behavior
    * @param channelFactory method to create the channels
    * @param executor periodically refreshes the channels
+   * @param clock determines when channels are due to be refreshed
    */
   @VisibleForTesting
   ChannelPool(
       ChannelPoolSettings settings,
       ChannelFactory channelFactory,
-      ScheduledExecutorService executor)
+      ScheduledExecutorService executor,
+      ApiClock clock)
       throws IOException {
     this.settings = settings;
     this.channelFactory = channelFactory;
+    this.clock = clock;
 
     ImmutableList.Builder<Entry> initialListBuilder = ImmutableList.builder();
 
     for (int i = 0; i < settings.getInitialChannelCount(); i++) {
-      initialListBuilder.add(new Entry(channelFactory.createSingleChannel()));
+      initialListBuilder.add(newEntry(channelFactory.createSingleChannel()));
     }
 
     entries.set(initialListBuilder.build());
@@ -120,8 +160,8 @@ class ChannelPool extends ManagedChannel {
     if (settings.isPreemptiveRefreshEnabled()) {
       executor.scheduleAtFixedRate(
           this::refreshSafely,
-          REFRESH_PERIOD.getSeconds(),
-          REFRESH_PERIOD.getSeconds(),
+          REFRESH_CHECK_INTERVAL.getSeconds(),
+          REFRESH_CHECK_INTERVAL.getSeconds(),
           TimeUnit.SECONDS);
     }
   }
@@ -133,15 +173,48 @@ class ChannelPool extends ManagedChannel {
   }
 
   /**
-   * Create a {@link ClientCall} on a Channel from the pool chosen in a round-robin fashion to the
-   * remote operation specified by the given {@link MethodDescriptor}. The returned {@link
-   * ClientCall} does not trigger any remote behavior until {@link
-   * ClientCall#start(ClientCall.Listener, io.grpc.Metadata)} is invoked.
+   * Create a {@link ClientCall} on a Channel from the pool chosen according to the configured
+   * {@link ChannelPoolSettings.LoadBalancingStrategy} to the remote operation specified by the
+   * given {@link MethodDescriptor}. The returned {@link ClientCall} does not trigger any remote
+   * behavior until {@link ClientCall#start(ClientCall.Listener, io.grpc.Metadata)} is invoked.
    */
   @Override
   public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
       MethodDescriptor<ReqT, RespT> methodDescriptor, CallOptions callOptions) {
-    return getChannel(indexTicker.getAndIncrement()).newCall(methodDescriptor, callOptions);
+    return getChannel(pickAffinity()).newCall(methodDescriptor, callOptions);
+  }
+
+  /** Picks the affinity for a call that didn't request a specific channel. */
+  private int pickAffinity() {
+    switch (settings.getLoadBalancingStrategy()) {
+      case POWER_OF_TWO_LEAST_OUTSTANDING:
+        return pickLeastOutstandingOfTwo();
+      case ROUND_ROBIN:
+      default:
+        return indexTicker.getAndIncrement();
+    }
+  }
+
+  /**
+   * Samples two distinct entries at random and returns the index of the one with the fewest
+   * outstanding RPCs. The entries list might be swapped by a concurrent resize or refresh before
+   * the returned index is used, which is fine since the index is only a hint.
+   */
+  private int pickLeastOutstandingOfTwo() {
+    List<Entry> localEntries = entries.get();
+    int size = localEntries.size();
+    if (size < 2) {
+      return 0;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(size);
+    int second = random.nextInt(size - 1);
+    if (second >= first) {
+      second++;
+    }
+    int firstOutstanding = localEntries.get(first).outstandingRpcs.get();
+    int secondOutstanding = localEntries.get(second).outstandingRpcs.get();
+    return secondOutstanding < firstOutstanding ? second : first;
   }
 
   Channel getChannel(int affinity) {
@@ -245,6 +318,10 @@ class ChannelPool extends ManagedChannel {
    *       {@link ChannelPoolSettings#MAX_RESIZE_DELTA} to get closer to middle of that range.
    * </ul>
    *
+   * <p>With {@link ChannelPoolSettings.ResizeStrategy#PREDICTIVE}, the thresholds are computed from
+   * a moving average of the peaks instead, and the pool only shrinks after the predicted demand
+   * stayed low for {@link ChannelPoolSettings#PREDICTIVE_SHRINK_INTERVALS} invocations.
+   *
    * <p>Not threadsafe, must be called under the entryWriteLock monitor
    */
   @VisibleForTesting
@@ -253,6 +330,11 @@ class ChannelPool extends ManagedChannel {
     // Estimate the peak of RPCs in the last interval by summing the peak of RPCs per channel
     int actualOutstandingRpcs =
         localEntries.stream().mapToInt(Entry::getAndResetMaxOutstanding).sum();
+    boolean predictive =
+        settings.getResizeStrategy() == ChannelPoolSettings.ResizeStrategy.PREDICTIVE;
+    if (predictive) {
+      actualOutstandingRpcs = predictOutstandingRpcs(actualOutstandingRpcs);
+    }
 
     // Number of channels if each channel operated at max capacity
     int minChannels =
@@ -287,37 +369,92 @@ class ChannelPool extends ManagedChannel {
 
     // Only resize the pool when thresholds are crossed
     if (localEntries.size() < minChannels) {
+      lowDemandIntervals = 0;
       LOG.fine(
           String.format(
               "Detected throughput peak of %d, expanding channel pool size: %d -> %d.",
               actualOutstandingRpcs, currentSize, dampenedTarget));
 
-      expand(dampenedTarget);
+      expand(dampenedTarget, predictive);
     } else if (localEntries.size() > maxChannels) {
+      if (predictive && ++lowDemandIntervals < ChannelPoolSettings.PREDICTIVE_SHRINK_INTERVALS) {
+        return;
+      }
+      lowDemandIntervals = 0;
       LOG.fine(
           String.format(
               "Detected throughput drop to %d, shrinking channel pool size: %d -> %d.",
               actualOutstandingRpcs, currentSize, dampenedTarget));
 
-      shrink(dampenedTarget);
+      shrink(dampenedTarget, predictive);
+    } else {
+      lowDemandIntervals = 0;
     }
   }
 
-  /** Not threadsafe, must be called under the entryWriteLock monitor */
-  private void shrink(int desiredSize) {
+  /**
+   * Folds the peak of outstanding RPCs of the last interval into an exponentially weighted moving
+   * average. Returns the average, or the peak if it is higher so that bursts are served right away.
+   *
+   * <p>Not threadsafe, must be called under the entryWriteLock monitor
+   */
+  private int predictOutstandingRpcs(int peakOutstandingRpcs) {
+    if (predictedOutstandingRpcs < 0) {
+      predictedOutstandingRpcs = peakOutstandingRpcs;
+    } else {
+      predictedOutstandingRpcs =
+          ChannelPoolSettings.PREDICTIVE_DEMAND_WEIGHT * peakOutstandingRpcs
+              + (1 - ChannelPoolSettings.PREDICTIVE_DEMAND_WEIGHT) * predictedOutstandingRpcs;
+    }
+    return Math.max(peakOutstandingRpcs, (int) Math.ceil(predictedOutstandingRpcs));
+  }
+
+  /**
+   * Removes channels from the pool. Removed channels are closed once their outstanding RPCs
+   * complete.
+   *
+   * <p>Not threadsafe, must be called under the entryWriteLock monitor
+   *
+   * @param retireLeastLoaded remove the channels with the fewest outstanding RPCs instead of the
+   *     most recently added ones
+   */
+  private void shrink(int desiredSize, boolean retireLeastLoaded) {
     ImmutableList<Entry> localEntries = entries.get();
     Preconditions.checkState(
         localEntries.size() >= desiredSize, "current size is already smaller than the desired");
 
-    // Set the new list
-    entries.set(localEntries.subList(0, desiredSize));
+    List<Entry> removed;
+    if (retireLeastLoaded) {
+      List<Entry> byLoad = new ArrayList<>(localEntries);
+      byLoad.sort(Comparator.comparingInt(e -> e.outstandingRpcs.get()));
+      removed = byLoad.subList(0, localEntries.size() - desiredSize);
+      Set<Entry> removedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+      removedSet.addAll(removed);
+      // Keep the order of the remaining entries, so that affinities mostly stay stable
+      ImmutableList.Builder<Entry> remaining = ImmutableList.builder();
+      for (Entry entry : localEntries) {
+        if (!removedSet.contains(entry)) {
+          remaining.add(entry);
+        }
+      }
+      entries.set(remaining.build());
+    } else {
+      entries.set(localEntries.subList(0, desiredSize));
+      removed = localEntries.subList(desiredSize, localEntries.size());
+    }
     // clean up removed entries
-    List<Entry> removed = localEntries.subList(desiredSize, localEntries.size());
     removed.forEach(Entry::requestShutdown);
   }
 
-  /** Not threadsafe, must be called under the entryWriteLock monitor */
-  private void expand(int desiredSize) {
+  /**
+   * Adds channels to the pool. The channels are created, and primed if the factory does so, before
+   * any of them is handed out.
+   *
+   * <p>Not threadsafe, must be called under the entryWriteLock monitor
+   *
+   * @param connect start connecting the new channels before they are added to the pool
+   */
+  private void expand(int desiredSize, boolean connect) {
     List<Entry> localEntries = entries.get();
     Preconditions.checkState(
         localEntries.size() <= desiredSize, "current size is already bigger than the desired");
@@ -326,7 +463,11 @@ class ChannelPool extends ManagedChannel {
 
     for (int i = 0; i < desiredSize - localEntries.size(); i++) {
       try {
-        newEntries.add(new Entry(channelFactory.createSingleChannel()));
+        ManagedChannel channel = channelFactory.createSingleChannel();
+        if (connect) {
+          channel.getState(true);
+        }
+        newEntries.add(newEntry(channel));
       } catch (IOException e) {
         LOG.log(Level.WARNING, "Failed to add channel", e);
       }
@@ -337,7 +478,7 @@ class ChannelPool extends ManagedChannel {
 
   private void refreshSafely() {
     try {
-      refresh();
+      refreshExpired();
     } catch (Exception e) {
       LOG.log(Level.WARNING, "Failed to pre-emptively refresh channnels", e);
     }
@@ -352,6 +493,27 @@ class ChannelPool extends ManagedChannel {
    */
   @InternalApi("Visible for testing")
   void refresh() {
+    LOG.fine("Refreshing all channels");
+    refreshEntries(entry -> true, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Replaces the channel that is furthest past its refresh deadline. Only one channel is replaced
+   * per check, so that each replacement has a full {@link #REFRESH_CHECK_INTERVAL} to connect
+   * before the next one is swapped in, even when several channels are due at the same time.
+   */
+  @VisibleForTesting
+  void refreshExpired() {
+    long now = clock.nanoTime();
+    refreshEntries(entry -> now - entry.refreshDeadlineNanos >= 0, 1);
+  }
+
+  /**
+   * Replaces up to {@code maxReplacements} of the matching channels, most overdue first. Each
+   * replacement is created, primed if the factory does so, and starts connecting before it takes
+   * the place of the old channel, which then drains its outstanding RPCs before closing.
+   */
+  private void refreshEntries(Predicate<Entry> shouldRefresh, int maxReplacements) {
     // Note: synchronization is necessary in case refresh is called concurrently:
     // - thread1 fails to replace a single entry
     // - thread2 succeeds replacing an entry
@@ -359,28 +521,47 @@ class ChannelPool extends ManagedChannel {
     // - then thread2 will shut down channel that thread1 will put back into circulation (after it
     //   replaces the list)
     synchronized (entryWriteLock) {
-      LOG.fine("Refreshing all channels");
-      ArrayList<Entry> newEntries = new ArrayList<>(entries.get());
+      List<Entry> candidates = new ArrayList<>();
+      for (Entry entry : entries.get()) {
+        if (shouldRefresh.test(entry)) {
+          candidates.add(entry);
+        }
+      }
+      long now = clock.nanoTime();
+      candidates.sort(Comparator.comparingLong(e -> e.refreshDeadlineNanos - now));
 
-      for (int i = 0; i < newEntries.size(); i++) {
+      int replaced = 0;
+      for (Entry entry : candidates) {
+        if (replaced >= maxReplacements) {
+          break;
+        }
+        Entry replacement;
         try {
-          newEntries.set(i, new Entry(channelFactory.createSingleChannel()));
+          ManagedChannel channel = channelFactory.createSingleChannel();
+          channel.getState(true);
+          replacement = newEntry(channel);
         } catch (IOException e) {
           LOG.log(Level.WARNING, "Failed to refresh channel, leaving old channel", e);
+          continue;
         }
-      }
 
-      ImmutableList<Entry> replacedEntries = entries.getAndSet(ImmutableList.copyOf(newEntries));
+        List<Entry> newEntries = new ArrayList<>(entries.get());
+        newEntries.set(newEntries.indexOf(entry), replacement);
+        entries.set(ImmutableList.copyOf(newEntries));
+        replaced++;
 
-      // Shutdown the channels that were cycled out.
-      for (Entry e : replacedEntries) {
-        if (!newEntries.contains(e)) {
-          e.requestShutdown();
-        }
+        // Shutdown the channel that was cycled out.
+        entry.requestShutdown();
       }
     }
   }
 
+  /** Wraps a new channel, picking a random refresh deadline for it. */
+  private Entry newEntry(ManagedChannel channel) {
+    long jitterNanos = (long) (ThreadLocalRandom.current().nextDouble() * REFRESH_JITTER.toNanos());
+    return new Entry(channel, clock.nanoTime() + REFRESH_PERIOD.toNanos() - jitterNanos);
+  }
+
   /**
    * Get and retain a Channel Entry. The returned Entry will have its rpc count incremented,
    * preventing it from getting recycled.
@@ -421,7 +602,8 @@ class ChannelPool extends ManagedChannel {
 
   /** Bundles a gRPC {@link ManagedChannel} with some usage accounting. */
   static class Entry {
-    private final ManagedChannel channel;
+    @VisibleForTesting final ManagedChannel channel;
+    @VisibleForTesting final long refreshDeadlineNanos;
 
     /**
      * The primary purpose of keeping a count for outstanding RPCs is to track when a channel is
@@ -446,8 +628,9 @@ class ChannelPool extends ManagedChannel {
     // Flag that the channel has been closed.
     private final AtomicBoolean shutdownInitiated = new AtomicBoolean();
 
-    private Entry(ManagedChannel channel) {
+    private Entry(ManagedChannel channel, long refreshDeadlineNanos) {
       this.channel = channel;
+      this.refreshDeadlineNanos = refreshDeadlineNanos;
     }
 
     int getAndResetMaxOutstanding() {
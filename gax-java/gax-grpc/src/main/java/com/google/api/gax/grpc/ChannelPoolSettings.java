@@ -61,6 +61,18 @@ public abstract class ChannelPoolSettings {
   /** The maximum number of channels that can be added or removed at a time. */
   static final int MAX_RESIZE_DELTA = 2;
 
+  /**
+   * Weight of the latest peak in the moving average of demand used by {@link
+   * ResizeStrategy#PREDICTIVE}.
+   */
+  static final double PREDICTIVE_DEMAND_WEIGHT = 0.25;
+
+  /**
+   * Number of consecutive resize intervals the predicted demand must stay below the scale down
+   * threshold before {@link ResizeStrategy#PREDICTIVE} removes channels.
+   */
+  static final int PREDICTIVE_SHRINK_INTERVALS = 3;
+
   /**
    * Threshold to start scaling down the channel pool.
    *
@@ -106,9 +118,26 @@ public abstract class ChannelPoolSettings {
    * <p>The GFE will forcibly disconnect active channels after an hour. To minimize the cost of
    * reconnects, this will create a new channel asynchronuously, prime it and then swap it with an
    * old channel.
+   *
+   * <p>Each channel is replaced at a random point between 40 and 50 minutes after it was created,
+   * and at most one channel is replaced per minute, so that the pool never reconnects all at once.
    */
   public abstract boolean isPreemptiveRefreshEnabled();
 
+  /**
+   * The strategy used to pick a channel from the pool for a new RPC.
+   *
+   * <p>Defaults to {@link LoadBalancingStrategy#ROUND_ROBIN}.
+   */
+  public abstract LoadBalancingStrategy getLoadBalancingStrategy();
+
+  /**
+   * The policy used to turn the observed outstanding RPCs into a pool size.
+   *
+   * <p>Defaults to {@link ResizeStrategy#PEAK_OUTSTANDING}.
+   */
+  public abstract ResizeStrategy getResizeStrategy();
+
   /** Helper to check if the {@link ChannelPool} implementation can skip dynamic size logic */
   boolean isStaticSize() {
     // When range is restricted to a single size
@@ -142,7 +171,41 @@ public abstract class ChannelPoolSettings {
         .setMaxChannelCount(200)
         .setMinRpcsPerChannel(0)
         .setMaxRpcsPerChannel(Integer.MAX_VALUE)
-        .setPreemptiveRefreshEnabled(false);
+        .setPreemptiveRefreshEnabled(false)
+        .setLoadBalancingStrategy(LoadBalancingStrategy.ROUND_ROBIN)
+        .setResizeStrategy(ResizeStrategy.PEAK_OUTSTANDING);
+  }
+
+  /** Strategies to distribute new RPCs across the channels in a {@link ChannelPool}. */
+  public enum LoadBalancingStrategy {
+    /** Cycle through the channels in order, regardless of their current load. */
+    ROUND_ROBIN,
+    /**
+     * Pick two distinct channels at random and send the RPC on the one with fewer outstanding RPCs.
+     *
+     * <p>This avoids piling new RPCs onto channels that are already busy with long lived calls (ie.
+     * server streams), while keeping the selection cost constant regardless of the pool size.
+     */
+    POWER_OF_TWO_LEAST_OUTSTANDING
+  }
+
+  /** Policies to size a dynamically sized {@link ChannelPool}. */
+  public enum ResizeStrategy {
+    /**
+     * Size the pool for the peak of outstanding RPCs in the last resize interval. Channels are
+     * removed as soon as that peak drops, starting with the most recently added ones.
+     */
+    PEAK_OUTSTANDING,
+    /**
+     * Size the pool for an exponentially weighted moving average of the peaks of outstanding RPCs,
+     * or the last peak if that is higher.
+     *
+     * <p>Channels are only removed after the prediction stayed low for several intervals, so that
+     * bursty traffic doesn't repeatedly close and reopen connections. The least loaded channels are
+     * removed first and drain their outstanding RPCs before closing. New channels start connecting
+     * before they are added to the pool.
+     */
+    PREDICTIVE
   }
 
   @AutoValue.Builder
@@ -159,6 +222,10 @@ public abstract class ChannelPoolSettings {
 
     public abstract Builder setPreemptiveRefreshEnabled(boolean enabled);
 
+    public abstract Builder setLoadBalancingStrategy(LoadBalancingStrategy strategy);
+
+    public abstract Builder setResizeStrategy(ResizeStrategy strategy);
+
     abstract ChannelPoolSettings autoBuild();
 
     public ChannelPoolSettings build() {
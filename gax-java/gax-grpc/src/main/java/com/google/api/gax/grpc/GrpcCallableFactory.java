@@ -297,6 +297,8 @@ public class GrpcCallableFactory {
             clientContext.getTracerFactory(),
             getSpanName(grpcCallSettings.getMethodDescriptor()));
 
+    callable = Callables.prefetching(callable, streamingCallSettings);
+
     return callable.withDefaultCallContext(clientContext.getDefaultCallContext());
   }
 
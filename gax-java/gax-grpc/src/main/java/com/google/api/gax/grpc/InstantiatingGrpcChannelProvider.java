@@ -144,6 +144,8 @@ public final class InstantiatingGrpcChannelProvider implements TransportChannelP
   @Nullable private final java.time.Duration keepAliveTimeout;
   @Nullable private final Boolean keepAliveWithoutCalls;
   private final ChannelPoolSettings channelPoolSettings;
+  private final int perChannelExecutorThreadCount;
+  private final boolean pinEventLoopPerChannel;
   @Nullable private final Credentials credentials;
   @Nullable private final CallCredentials altsCallCredentials;
   @Nullable private final CallCredentials mtlsS2ACallCredentials;
@@ -197,6 +199,8 @@ public final class InstantiatingGrpcChannelProvider implements TransportChannelP
     this.keepAliveTimeout = builder.keepAliveTimeout;
     this.keepAliveWithoutCalls = builder.keepAliveWithoutCalls;
     this.channelPoolSettings = builder.channelPoolSettings;
+    this.perChannelExecutorThreadCount = builder.perChannelExecutorThreadCount;
+    this.pinEventLoopPerChannel = builder.pinEventLoopPerChannel;
     this.channelConfigurator = builder.channelConfigurator;
     this.credentials = builder.credentials;
     this.altsCallCredentials = builder.altsCallCredentials;
@@ -722,8 +726,13 @@ public final class InstantiatingGrpcChannelProvider implements TransportChannelP
             .intercept(new GrpcLoggingInterceptor())
             .intercept(headerInterceptor)
             .intercept(metadataHandlerInterceptor)
-            .userAgent(headerInterceptor.getUserAgentHeader())
-            .executor(executor);
+            .userAgent(headerInterceptor.getUserAgentHeader());
+
+    PerChannelResources channelResources =
+        new PerChannelResources(perChannelExecutorThreadCount, pinEventLoopPerChannel);
+    builder.executor(
+        channelResources.getExecutor() != null ? channelResources.getExecutor() : executor);
+    channelResources.applyTo(builder);
 
     if (maxInboundMetadataSize != null) {
       builder.maxInboundMetadataSize(maxInboundMetadataSize);
@@ -747,7 +756,13 @@ public final class InstantiatingGrpcChannelProvider implements TransportChannelP
       builder = channelConfigurator.apply(builder);
     }
 
-    ManagedChannel managedChannel = builder.build();
+    ManagedChannel managedChannel;
+    try {
+      managedChannel = channelResources.wrap(builder.build());
+    } catch (RuntimeException e) {
+      channelResources.release();
+      throw e;
+    }
     if (channelPrimer != null) {
       channelPrimer.primeChannel(managedChannel);
     }
@@ -839,6 +854,18 @@ public final class InstantiatingGrpcChannelProvider implements TransportChannelP
     return channelPoolSettings;
   }
 
+  /** The number of threads of the executor each channel owns, or 0 if channels share one. */
+  @BetaApi("Per-channel executor sharding is not yet stable")
+  public int getPerChannelExecutorThreadCount() {
+    return perChannelExecutorThreadCount;
+  }
+
+  /** Whether each Netty channel runs on its own event loop. */
+  @BetaApi("Per-channel event loop pinning is not yet stable")
+  public boolean getPinEventLoopPerChannel() {
+    return pinEventLoopPerChannel;
+  }
+
   @Override
   public boolean shouldAutoClose() {
     return true;
@@ -875,6 +902,8 @@ public final class InstantiatingGrpcChannelProvider implements TransportChannelP
     @Nullable private CallCredentials mtlsS2ACallCredentials;
     @Nullable private ChannelPrimer channelPrimer;
     private ChannelPoolSettings channelPoolSettings;
+    private int perChannelExecutorThreadCount;
+    private boolean pinEventLoopPerChannel;
     @Nullable private Boolean attemptDirectPath;
     @Nullable private Boolean attemptDirectPathXds;
     @Nullable private Boolean allowNonDefaultServiceAccount;
@@ -907,6 +936,8 @@ public final class InstantiatingGrpcChannelProvider implements TransportChannelP
       this.mtlsS2ACallCredentials = provider.mtlsS2ACallCredentials;
       this.channelPrimer = provider.channelPrimer;
       this.channelPoolSettings = provider.channelPoolSettings;
+      this.perChannelExecutorThreadCount = provider.perChannelExecutorThreadCount;
+      this.pinEventLoopPerChannel = provider.pinEventLoopPerChannel;
       this.attemptDirectPath = provider.attemptDirectPath;
       this.attemptDirectPathXds = provider.attemptDirectPathXds;
       this.allowNonDefaultServiceAccount = provider.allowNonDefaultServiceAccount;
@@ -1166,6 +1197,42 @@ public final class InstantiatingGrpcChannelProvider implements TransportChannelP
       return this;
     }
 
+    /**
+     * Gives every channel of the pool its own call executor with the given number of threads, so
+     * that the response callbacks of a busy channel don't queue behind those of the other channels.
+     * The executor set through {@link #setExecutor(Executor)} is then not used for calls. Each
+     * executor is shut down once its channel terminates.
+     *
+     * <p>Defaults to 0, which makes all channels share the provider's executor.
+     */
+    @BetaApi("Per-channel executor sharding is not yet stable")
+    public Builder setPerChannelExecutorThreadCount(int threadCount) {
+      Preconditions.checkArgument(threadCount >= 0, "threadCount must be non-negative");
+      this.perChannelExecutorThreadCount = threadCount;
+      return this;
+    }
+
+    @BetaApi("Per-channel executor sharding is not yet stable")
+    public int getPerChannelExecutorThreadCount() {
+      return perChannelExecutorThreadCount;
+    }
+
+    /**
+     * Runs every Netty channel of the pool on its own single threaded event loop instead of the
+     * event loop group shared by all channels. This has no effect on channels that don't use the
+     * Netty transport. Each event loop is shut down once its channel terminates.
+     */
+    @BetaApi("Per-channel event loop pinning is not yet stable")
+    public Builder setPinEventLoopPerChannel(boolean pinEventLoopPerChannel) {
+      this.pinEventLoopPerChannel = pinEventLoopPerChannel;
+      return this;
+    }
+
+    @BetaApi("Per-channel event loop pinning is not yet stable")
+    public boolean getPinEventLoopPerChannel() {
+      return pinEventLoopPerChannel;
+    }
+
     public Builder setCredentials(Credentials credentials) {
       this.credentials = credentials;
       return this;
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.grpc;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.MethodDescriptor;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * The call executor and Netty event loop owned by a single channel created by {@link
+ * InstantiatingGrpcChannelProvider}.
+ *
+ * <p>Giving every channel of a {@link ChannelPool} its own executor and event loop keeps the
+ * response callbacks of a hot channel from queueing behind the callbacks of the other channels. The
+ * resources are released once the owning channel terminates.
+ *
+ * <p>grpc-netty-shaded is only a runtime dependency of gax-grpc, so the event loop is created and
+ * installed reflectively. It is skipped when the channel builder is not a Netty builder.
+ */
+final class PerChannelResources {
+  private static final Logger LOG = Logger.getLogger(PerChannelResources.class.getName());
+
+  private static final String NETTY_PACKAGE = "io.grpc.netty.shaded.io.";
+
+  @VisibleForTesting
+  static final String NETTY_CHANNEL_BUILDER = NETTY_PACKAGE + "grpc.netty.NettyChannelBuilder";
+
+  private static final String EVENT_LOOP_GROUP = NETTY_PACKAGE + "netty.channel.EventLoopGroup";
+  private static final String NIO_EVENT_LOOP_GROUP =
+      NETTY_PACKAGE + "netty.channel.nio.NioEventLoopGroup";
+  private static final String NIO_SOCKET_CHANNEL =
+      NETTY_PACKAGE + "netty.channel.socket.nio.NioSocketChannel";
+
+  private static final long EVENT_LOOP_SHUTDOWN_TIMEOUT_MS = 5000;
+  private static final long TERMINATION_POLL_INTERVAL_MS = 250;
+  // How long a shut down channel may drain its calls before they're cancelled
+  private static final Duration DEFAULT_TERMINATION_TIMEOUT = Duration.ofMinutes(10);
+  private static final AtomicInteger CHANNEL_IDS = new AtomicInteger();
+
+  // Watches the termination of every shut down channel, so that draining channels don't hold a
+  // thread each.
+  private static final ScheduledExecutorService TERMINATION_WATCHER =
+      Executors.newSingleThreadScheduledExecutor(threadFactory("gax-grpc-channel-release"));
+
+  private final int channelId = CHANNEL_IDS.incrementAndGet();
+  private final boolean pinEventLoop;
+  private final Duration terminationTimeout;
+  @Nullable private final ExecutorService executor;
+  @Nullable private volatile Object eventLoopGroup;
+  private final AtomicBoolean released = new AtomicBoolean();
+
+  /**
+   * @param executorThreadCount the number of threads of the channel's own call executor, or 0 to
+   *     keep using the provider's executor
+   * @param pinEventLoop whether the channel gets its own single threaded Netty event loop
+   */
+  PerChannelResources(int executorThreadCount, boolean pinEventLoop) {
+    this(executorThreadCount, pinEventLoop, DEFAULT_TERMINATION_TIMEOUT);
+  }
+
+  @VisibleForTesting
+  PerChannelResources(int executorThreadCount, boolean pinEventLoop, Duration terminationTimeout) {
+    this.pinEventLoop = pinEventLoop;
+    this.terminationTimeout = terminationTimeout;
+    this.executor =
+        executorThreadCount > 0
+            ? Executors.newFixedThreadPool(
+                executorThreadCount, threadFactory("gax-grpc-channel-" + channelId + "-executor"))
+            : null;
+  }
+
+  /** The executor for the calls of this channel, or null if the shared executor should be used. */
+  @Nullable
+  ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /** The event loop pinned to this channel, or null if none was installed. */
+  @VisibleForTesting
+  @Nullable
+  Object getEventLoopGroup() {
+    return eventLoopGroup;
+  }
+
+  /** Installs a dedicated event loop on the builder if pinning is enabled and it uses Netty. */
+  void applyTo(ManagedChannelBuilder<?> builder) {
+    if (!pinEventLoop) {
+      return;
+    }
+    if (!NETTY_CHANNEL_BUILDER.equals(builder.getClass().getName())) {
+      LOG.log(
+          Level.FINE,
+          "Not pinning an event loop to a channel built by {0}",
+          builder.getClass().getName());
+      return;
+    }
+    Object group = null;
+    try {
+      ClassLoader loader = builder.getClass().getClassLoader();
+      Class<?> groupClass = Class.forName(EVENT_LOOP_GROUP, false, loader);
+      Class<?> socketChannelClass = Class.forName(NIO_SOCKET_CHANNEL, false, loader);
+      group =
+          Class.forName(NIO_EVENT_LOOP_GROUP, true, loader)
+              .getConstructor(int.class, ThreadFactory.class)
+              .newInstance(1, threadFactory("gax-grpc-channel-" + channelId + "-event-loop"));
+      // NettyChannelBuilder requires the channel type to match a custom event loop group.
+      builder.getClass().getMethod("eventLoopGroup", groupClass).invoke(builder, group);
+      builder.getClass().getMethod("channelType", Class.class).invoke(builder, socketChannelClass);
+      eventLoopGroup = group;
+    } catch (ReflectiveOperationException | LinkageError e) {
+      LOG.log(Level.WARNING, "Unable to pin a Netty event loop to the channel", e);
+      shutdownEventLoopGroup(group);
+    }
+  }
+
+  /** Wraps the channel so that the resources are released once it terminates. */
+  ManagedChannel wrap(ManagedChannel channel) {
+    if (executor == null && eventLoopGroup == null) {
+      return channel;
+    }
+    return new ReleasingManagedChannel(channel);
+  }
+
+  /** Releases the executor and event loop. Queued callbacks still run. */
+  void release() {
+    if (!released.compareAndSet(false, true)) {
+      return;
+    }
+    if (executor != null) {
+      executor.shutdown();
+    }
+    shutdownEventLoopGroup(eventLoopGroup);
+  }
+
+  boolean isReleased() {
+    return released.get();
+  }
+
+  private static void shutdownEventLoopGroup(@Nullable Object group) {
+    if (group == null) {
+      return;
+    }
+    try {
+      Method shutdownGracefully =
+          group.getClass().getMethod("shutdownGracefully", long.class, long.class, TimeUnit.class);
+      shutdownGracefully.invoke(group, 0L, EVENT_LOOP_SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (ReflectiveOperationException e) {
+      LOG.log(Level.WARNING, "Unable to shut down the channel's Netty event loop", e);
+    }
+  }
+
+  private static ThreadFactory threadFactory(String prefix) {
+    return new ThreadFactoryBuilder().setDaemon(true).setNameFormat(prefix + "-%d").build();
+  }
+
+  /**
+   * Forwards to the channel built with these resources and releases them when the channel
+   * terminates. Once the channel has been shut down, which only happens when a {@link ChannelPool}
+   * refreshes, shrinks or closes, its termination is polled on a thread shared by all the channels.
+   * If the channel doesn't drain its calls within the termination timeout, they're cancelled with
+   * {@link ManagedChannel#shutdownNow()}.
+   */
+  private final class ReleasingManagedChannel extends ManagedChannel {
+    private final ManagedChannel delegate;
+    private final AtomicBoolean awaitingTermination = new AtomicBoolean();
+
+    private ReleasingManagedChannel(ManagedChannel delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public ManagedChannel shutdown() {
+      delegate.shutdown();
+      releaseOnTermination();
+      return this;
+    }
+
+    @Override
+    public ManagedChannel shutdownNow() {
+      delegate.shutdownNow();
+      releaseOnTermination();
+      return this;
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+      if (delegate.isTerminated()) {
+        release();
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      if (delegate.awaitTermination(timeout, unit)) {
+        release();
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public <RequestT, ResponseT> ClientCall<RequestT, ResponseT> newCall(
+        MethodDescriptor<RequestT, ResponseT> methodDescriptor, CallOptions callOptions) {
+      return delegate.newCall(methodDescriptor, callOptions);
+    }
+
+    @Override
+    public String authority() {
+      return delegate.authority();
+    }
+
+    @Override
+    public ConnectivityState getState(boolean requestConnection) {
+      return delegate.getState(requestConnection);
+    }
+
+    @Override
+    public void notifyWhenStateChanged(ConnectivityState source, Runnable callback) {
+      delegate.notifyWhenStateChanged(source, callback);
+    }
+
+    @Override
+    public void resetConnectBackoff() {
+      delegate.resetConnectBackoff();
+    }
+
+    @Override
+    public void enterIdle() {
+      delegate.enterIdle();
+    }
+
+    private void releaseOnTermination() {
+      if (released.get() || !awaitingTermination.compareAndSet(false, true)) {
+        return;
+      }
+      checkTerminatedLater(System.nanoTime() + terminationTimeout.toNanos(), false);
+    }
+
+    private void checkTerminatedLater(long deadlineNanos, boolean forced) {
+      try {
+        TERMINATION_WATCHER.schedule(
+            () -> checkTerminated(deadlineNanos, forced),
+            TERMINATION_POLL_INTERVAL_MS,
+            TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        release();
+      }
+    }
+
+    private void checkTerminated(long deadlineNanos, boolean forced) {
+      if (released.get()) {
+        return;
+      }
+      if (delegate.isTerminated()) {
+        release();
+        return;
+      }
+      if (System.nanoTime() - deadlineNanos < 0) {
+        checkTerminatedLater(deadlineNanos, forced);
+      } else if (!forced) {
+        LOG.log(
+            Level.WARNING,
+            "Channel {0} did not terminate within {1}, cancelling its calls",
+            new Object[] {channelId, terminationTimeout});
+        delegate.shutdownNow();
+        checkTerminatedLater(
+            System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(EVENT_LOOP_SHUTDOWN_TIMEOUT_MS),
+            true);
+      } else {
+        // The cancelled calls should have completed by now, don't hold the resources forever
+        release();
+      }
+    }
+  }
+}
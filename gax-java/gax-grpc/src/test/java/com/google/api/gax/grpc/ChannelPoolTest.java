@@ -34,6 +34,7 @@ import static com.google.api.gax.grpc.testing.FakeServiceGrpc.METHOD_SERVER_STRE
 import static com.google.common.truth.Truth.assertThat;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.gax.core.FakeApiClock;
 import com.google.api.gax.grpc.testing.FakeChannelFactory;
 import com.google.api.gax.grpc.testing.FakeMethodDescriptor;
 import com.google.api.gax.rpc.ClientContext;
@@ -59,9 +60,15 @@ import io.grpc.MethodDescriptor;
 import io.grpc.Status;
 import io.grpc.stub.ClientCalls;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -140,6 +147,43 @@ class ChannelPoolTest {
     }
   }
 
+  @Test
+  void testPowerOfTwoLeastOutstanding() throws IOException {
+    ManagedChannel sub1 = Mockito.mock(ManagedChannel.class);
+    ManagedChannel sub2 = Mockito.mock(ManagedChannel.class);
+
+    MethodDescriptor<Color, Money> methodDescriptor = METHOD_RECOGNIZE;
+    CallOptions callOptions = CallOptions.DEFAULT;
+    @SuppressWarnings("unchecked")
+    ClientCall<Color, Money> clientCall = Mockito.mock(ClientCall.class);
+    Mockito.when(sub1.newCall(methodDescriptor, callOptions)).thenReturn(clientCall);
+    Mockito.when(sub2.newCall(methodDescriptor, callOptions)).thenReturn(clientCall);
+
+    pool =
+        ChannelPool.create(
+            ChannelPoolSettings.staticallySized(2).toBuilder()
+                .setLoadBalancingStrategy(
+                    ChannelPoolSettings.LoadBalancingStrategy.POWER_OF_TWO_LEAST_OUTSTANDING)
+                .build(),
+            new FakeChannelFactory(Arrays.asList(sub1, sub2)));
+
+    // Saturate the first channel with pinned calls that never complete
+    for (int i = 0; i < 3; i++) {
+      pool.getChannel(0).newCall(methodDescriptor, callOptions);
+    }
+    Mockito.verify(sub1, Mockito.times(3)).newCall(methodDescriptor, callOptions);
+
+    // New calls should avoid the busy channel until the load evens out
+    for (int i = 0; i < 3; i++) {
+      pool.newCall(methodDescriptor, callOptions);
+    }
+    Mockito.verify(sub1, Mockito.times(3)).newCall(methodDescriptor, callOptions);
+    Mockito.verify(sub2, Mockito.times(3)).newCall(methodDescriptor, callOptions);
+
+    assertThat(pool.entries.get().get(0).outstandingRpcs.get()).isEqualTo(3);
+    assertThat(pool.entries.get().get(1).outstandingRpcs.get()).isEqualTo(3);
+  }
+
   @Test
   void ensureEvenDistribution() throws InterruptedException, IOException {
     int numChannels = 10;
@@ -236,28 +280,135 @@ class ChannelPoolTest {
     FakeChannelFactory channelFactory =
         new FakeChannelFactory(Arrays.asList(channel1, channel2, channel3), mockChannelPrimer);
 
+    FakeApiClock clock = new FakeApiClock(0);
     pool =
         new ChannelPool(
             ChannelPoolSettings.staticallySized(1).toBuilder()
                 .setPreemptiveRefreshEnabled(true)
                 .build(),
             channelFactory,
-            scheduledExecutorService);
+            scheduledExecutorService,
+            clock);
     // 1 call during the creation
     Mockito.verify(mockChannelPrimer, Mockito.times(1))
         .primeChannel(Mockito.any(ManagedChannel.class));
 
+    clock.incrementNanoTime(ChannelPool.REFRESH_PERIOD.toNanos());
     channelRefreshers.get(0).run();
     // 1 more call during channel refresh
     Mockito.verify(mockChannelPrimer, Mockito.times(2))
         .primeChannel(Mockito.any(ManagedChannel.class));
 
+    clock.incrementNanoTime(ChannelPool.REFRESH_PERIOD.toNanos());
     channelRefreshers.get(0).run();
     // 1 more call during channel refresh
     Mockito.verify(mockChannelPrimer, Mockito.times(3))
         .primeChannel(Mockito.any(ManagedChannel.class));
   }
 
+  @Test
+  void channelsAreRefreshedOneAtATimeAfterJitteredDeadlines() throws IOException {
+    ScheduledExecutorService executor = Mockito.mock(ScheduledExecutorService.class);
+    FakeApiClock clock = new FakeApiClock(0);
+    int poolSize = 10;
+    List<ManagedChannel> channels = new ArrayList<>();
+    List<ManagedChannel> primed = new ArrayList<>();
+
+    ChannelFactory channelFactory =
+        () -> {
+          // Every earlier replacement must be primed, connecting and in rotation, and the channel
+          // it replaced must be draining, before the next replacement is created
+          if (pool != null) {
+            for (ManagedChannel channel : channels.subList(poolSize, channels.size())) {
+              assertThat(primed).contains(channel);
+              Mockito.verify(channel).getState(true);
+              assertThat(currentChannels()).contains(channel);
+            }
+            for (ManagedChannel channel : channels.subList(0, poolSize)) {
+              if (!currentChannels().contains(channel)) {
+                Mockito.verify(channel).shutdown();
+              }
+            }
+          }
+          ManagedChannel channel = Mockito.mock(ManagedChannel.class);
+          channels.add(channel);
+          // prime
+          primed.add(channel);
+          return channel;
+        };
+
+    pool =
+        new ChannelPool(
+            ChannelPoolSettings.staticallySized(poolSize).toBuilder()
+                .setPreemptiveRefreshEnabled(true)
+                .build(),
+            channelFactory,
+            executor,
+            clock);
+    List<ManagedChannel> initialChannels = currentChannels();
+
+    // The deadlines are spread over the jitter window
+    Set<Long> deadlines = new HashSet<>();
+    for (ChannelPool.Entry entry : pool.entries.get()) {
+      assertThat(entry.refreshDeadlineNanos)
+          .isGreaterThan(
+              ChannelPool.REFRESH_PERIOD.toNanos() - ChannelPool.REFRESH_JITTER.toNanos());
+      assertThat(entry.refreshDeadlineNanos).isAtMost(ChannelPool.REFRESH_PERIOD.toNanos());
+      deadlines.add(entry.refreshDeadlineNanos);
+    }
+    assertThat(deadlines.size()).isGreaterThan(1);
+
+    // Nothing is due before the jitter window
+    clock.incrementNanoTime(
+        ChannelPool.REFRESH_PERIOD.toNanos() - ChannelPool.REFRESH_JITTER.toNanos());
+    pool.refreshExpired();
+    assertThat(channels).hasSize(poolSize);
+
+    // Walk through the jitter window, refreshing the most overdue channel at each check. Walk one
+    // check further per channel, in case all of the deadlines fell into the last check.
+    long step = ChannelPool.REFRESH_CHECK_INTERVAL.toNanos();
+    long window = ChannelPool.REFRESH_JITTER.toNanos() + poolSize * step;
+    for (long waited = 0; waited < window; waited += step) {
+      clock.incrementNanoTime(step);
+      List<ChannelPool.Entry> due = new ArrayList<>();
+      for (ChannelPool.Entry entry : pool.entries.get()) {
+        if (entry.refreshDeadlineNanos <= clock.nanoTime()) {
+          due.add(entry);
+        }
+      }
+      int created = channels.size();
+      pool.refreshExpired();
+      assertThat(channels.size() - created).isEqualTo(Math.min(1, due.size()));
+      if (!due.isEmpty()) {
+        ChannelPool.Entry mostOverdue =
+            Collections.min(due, Comparator.comparingLong(e -> e.refreshDeadlineNanos));
+        assertThat(currentChannels()).doesNotContain(mostOverdue.channel);
+      }
+    }
+
+    // Every channel was replaced exactly once, in place
+    assertThat(channels).hasSize(2 * poolSize);
+    assertThat(currentChannels()).containsNoneIn(initialChannels);
+    for (ManagedChannel channel : initialChannels) {
+      Mockito.verify(channel).shutdown();
+    }
+
+    // The replacements are due a full period after they were created
+    for (ChannelPool.Entry entry : pool.entries.get()) {
+      assertThat(entry.refreshDeadlineNanos).isGreaterThan(clock.nanoTime());
+    }
+    pool.refreshExpired();
+    assertThat(channels).hasSize(2 * poolSize);
+  }
+
+  private List<ManagedChannel> currentChannels() {
+    List<ManagedChannel> current = new ArrayList<>();
+    for (ChannelPool.Entry entry : pool.entries.get()) {
+      current.add(entry.channel);
+    }
+    return current;
+  }
+
   // ----
   // call should be allowed to complete and the channel should not be shutdown
   @Test
@@ -615,6 +766,128 @@ class ChannelPoolTest {
     Mockito.verify(channels.get(1), Mockito.times(1)).shutdown();
   }
 
+  @Test
+  void predictiveResizeRetiresLeastLoadedChannelsAfterHysteresis() throws Exception {
+    ScheduledExecutorService executor = Mockito.mock(ScheduledExecutorService.class);
+    List<ManagedChannel> channels = new ArrayList<>();
+    Deque<ClientCall.Listener<?>> openCalls = new ArrayDeque<>();
+
+    pool =
+        new ChannelPool(
+            ChannelPoolSettings.builder()
+                .setInitialChannelCount(3)
+                .setMinRpcsPerChannel(5)
+                .setMaxRpcsPerChannel(10)
+                .setResizeStrategy(ChannelPoolSettings.ResizeStrategy.PREDICTIVE)
+                .build(),
+            recordingChannelFactory(channels, openCalls),
+            executor);
+
+    // Only the middle channel has an outstanding RPC
+    pool.getChannel(1)
+        .newCall(METHOD_RECOGNIZE, CallOptions.DEFAULT)
+        .start(new ClientCall.Listener<Money>() {}, new Metadata());
+
+    // Demand has to stay low for a few intervals before the pool shrinks
+    for (int i = 1; i < ChannelPoolSettings.PREDICTIVE_SHRINK_INTERVALS; i++) {
+      pool.resize();
+      assertThat(pool.entries.get()).hasSize(3);
+    }
+    pool.resize();
+    assertThat(pool.entries.get()).hasSize(1);
+
+    // The idle channels are retired, the busy one stays in the pool
+    Mockito.verify(channels.get(0)).shutdown();
+    Mockito.verify(channels.get(2)).shutdown();
+    Mockito.verify(channels.get(1), Mockito.never()).shutdown();
+    assertThat(pool.entries.get().get(0).outstandingRpcs.get()).isEqualTo(1);
+  }
+
+  @Test
+  void predictiveResizeChurnsLessUnderBurstyLoad() throws Exception {
+    BurstyLoadResult peak = simulateBurstyLoad(ChannelPoolSettings.ResizeStrategy.PEAK_OUTSTANDING);
+    BurstyLoadResult predictive = simulateBurstyLoad(ChannelPoolSettings.ResizeStrategy.PREDICTIVE);
+
+    assertThat(predictive.createdChannels).isLessThan(peak.createdChannels);
+    assertThat(predictive.underProvisionedBursts).isLessThan(peak.underProvisionedBursts);
+  }
+
+  private static class BurstyLoadResult {
+    int createdChannels;
+    int underProvisionedBursts;
+  }
+
+  /**
+   * Drives a pool with 20 cycles of one minute with a burst of 60 outstanding RPCs followed by
+   * three quiet minutes with 4 outstanding RPCs.
+   */
+  private BurstyLoadResult simulateBurstyLoad(ChannelPoolSettings.ResizeStrategy strategy)
+      throws IOException {
+    ScheduledExecutorService executor = Mockito.mock(ScheduledExecutorService.class);
+    List<ManagedChannel> channels = new ArrayList<>();
+    Deque<ClientCall.Listener<?>> openCalls = new ArrayDeque<>();
+    int maxRpcsPerChannel = 10;
+
+    pool =
+        new ChannelPool(
+            ChannelPoolSettings.builder()
+                .setInitialChannelCount(2)
+                .setMinChannelCount(1)
+                .setMaxChannelCount(20)
+                .setMinRpcsPerChannel(5)
+                .setMaxRpcsPerChannel(maxRpcsPerChannel)
+                .setResizeStrategy(strategy)
+                .build(),
+            recordingChannelFactory(channels, openCalls),
+            executor);
+
+    BurstyLoadResult result = new BurstyLoadResult();
+    int[] cycle = {60, 4, 4, 4};
+    for (int i = 0; i < 20 * cycle.length; i++) {
+      int outstanding = cycle[i % cycle.length];
+      if (outstanding > pool.entries.get().size() * maxRpcsPerChannel) {
+        result.underProvisionedBursts++;
+      }
+      while (openCalls.size() < outstanding) {
+        pool.newCall(METHOD_RECOGNIZE, CallOptions.DEFAULT)
+            .start(new ClientCall.Listener<Money>() {}, new Metadata());
+      }
+      while (openCalls.size() > outstanding) {
+        openCalls.poll().onClose(Status.OK, new Metadata());
+      }
+      pool.resize();
+    }
+    result.createdChannels = channels.size();
+    return result;
+  }
+
+  /**
+   * Creates mock channels that record the listeners of the calls started on them, so that the calls
+   * can be completed later.
+   */
+  private static ChannelFactory recordingChannelFactory(
+      List<ManagedChannel> channels, Deque<ClientCall.Listener<?>> openCalls) {
+    return () -> {
+      ManagedChannel channel = Mockito.mock(ManagedChannel.class);
+      Mockito.when(channel.newCall(Mockito.any(), Mockito.any()))
+          .thenAnswer(
+              invocation -> {
+                @SuppressWarnings("unchecked")
+                ClientCall<Object, Object> clientCall = Mockito.mock(ClientCall.class);
+                Mockito.doAnswer(
+                        start -> {
+                          openCalls.add(start.getArgument(0));
+                          return null;
+                        })
+                    .when(clientCall)
+                    .start(Mockito.any(), Mockito.any());
+                return clientCall;
+              });
+      channels.add(channel);
+      return channel;
+    };
+  }
+
   @Test
   void testReleasingClientCallCancelEarly() throws IOException {
     ClientCall mockClientCall = Mockito.mock(ClientCall.class);
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.grpc;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.api.gax.grpc.testing.FakeServiceGrpc;
+import com.google.api.gax.grpc.testing.FakeServiceGrpc.FakeServiceImplBase;
+import com.google.api.gax.rpc.FixedHeaderProvider;
+import com.google.api.gax.rpc.TransportChannel;
+import com.google.common.collect.ImmutableMap;
+import com.google.type.Color;
+import com.google.type.Money;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.Status;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.StreamObserver;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PerChannelResourcesTest {
+  private Server server;
+  // When false, the server leaves the calls open
+  private volatile boolean respond = true;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // A loopback Netty server, so that the client channels run on the Netty transport.
+    server =
+        ServerBuilder.forPort(0)
+            .addService(
+                new FakeServiceImplBase() {
+                  @Override
+                  public void recognize(Color request, StreamObserver<Money> responseObserver) {
+                    if (!respond) {
+                      return;
+                    }
+                    responseObserver.onNext(Money.newBuilder().setCurrencyCode("USD").build());
+                    responseObserver.onCompleted();
+                  }
+                })
+            .build()
+            .start();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    server.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void testDisabledKeepsChannel() {
+    PerChannelResources resources = new PerChannelResources(0, false);
+    ManagedChannelBuilder<?> builder =
+        ManagedChannelBuilder.forAddress("localhost", server.getPort()).usePlaintext();
+    resources.applyTo(builder);
+    ManagedChannel channel = builder.build();
+
+    assertThat(resources.getExecutor()).isNull();
+    assertThat(resources.getEventLoopGroup()).isNull();
+    assertThat(resources.wrap(channel)).isSameInstanceAs(channel);
+    channel.shutdownNow();
+  }
+
+  @Test
+  void testReleasedWhenChannelTerminates() throws Exception {
+    PerChannelResources resources = new PerChannelResources(2, true);
+    ManagedChannelBuilder<?> builder =
+        ManagedChannelBuilder.forAddress("localhost", server.getPort())
+            .usePlaintext()
+            .executor(resources.getExecutor());
+    assertThat(builder.getClass().getName()).isEqualTo(PerChannelResources.NETTY_CHANNEL_BUILDER);
+    resources.applyTo(builder);
+    assertThat(resources.getEventLoopGroup()).isNotNull();
+
+    ManagedChannel channel = resources.wrap(builder.build());
+    assertThat(recognizeOnThread(channel).get(10, TimeUnit.SECONDS))
+        .startsWith("gax-grpc-channel-");
+    assertThat(resources.isReleased()).isFalse();
+
+    channel.shutdown();
+    for (int i = 0; i < 100 && !resources.isReleased(); i++) {
+      Thread.sleep(100);
+    }
+    assertThat(channel.isTerminated()).isTrue();
+    assertThat(resources.isReleased()).isTrue();
+    assertThat(resources.getExecutor().awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  void testCallsCancelledWhenChannelDoesNotTerminate() throws Exception {
+    respond = false;
+    PerChannelResources resources = new PerChannelResources(1, false, Duration.ofMillis(500));
+    ManagedChannel channel =
+        resources.wrap(
+            ManagedChannelBuilder.forAddress("localhost", server.getPort())
+                .usePlaintext()
+                .executor(resources.getExecutor())
+                .build());
+    CompletableFuture<String> call = recognizeOnThread(channel);
+
+    // The open call keeps the channel from terminating, until it's cancelled
+    channel.shutdown();
+    Thread.sleep(200);
+    assertThat(resources.isReleased()).isFalse();
+    for (int i = 0; i < 100 && !resources.isReleased(); i++) {
+      Thread.sleep(100);
+    }
+    assertThat(resources.isReleased()).isTrue();
+    assertThat(channel.isTerminated()).isTrue();
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> call.get(10, TimeUnit.SECONDS));
+    assertThat(Status.fromThrowable(e.getCause()).getCode()).isEqualTo(Status.Code.UNAVAILABLE);
+  }
+
+  @Test
+  void testHotChannelCallbacksDoNotBlockOtherChannels() throws Exception {
+    InstantiatingGrpcChannelProvider provider =
+        InstantiatingGrpcChannelProvider.newBuilder()
+            .setEndpoint("localhost:" + server.getPort())
+            .setHeaderProvider(FixedHeaderProvider.create(ImmutableMap.<String, String>of()))
+            .setChannelConfigurator(ManagedChannelBuilder::usePlaintext)
+            .setChannelPoolSettings(ChannelPoolSettings.staticallySized(2))
+            .setPerChannelExecutorThreadCount(1)
+            .setPinEventLoopPerChannel(true)
+            .build();
+    TransportChannel transportChannel = provider.getTransportChannel();
+    try {
+      ChannelPool pool = (ChannelPool) ((GrpcTransportChannel) transportChannel).getChannel();
+      Channel hotChannel = pool.getChannel(0);
+      Channel otherChannel = pool.getChannel(1);
+
+      // Park the only callback thread of the hot channel.
+      CountDownLatch hotCallbackStarted = new CountDownLatch(1);
+      CountDownLatch releaseHotCallback = new CountDownLatch(1);
+      CompletableFuture<String> hotThread =
+          recognizeOnThread(
+              hotChannel,
+              () -> {
+                hotCallbackStarted.countDown();
+                releaseHotCallback.await();
+              });
+      assertThat(hotCallbackStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+      // A burst of calls on the other channel completes while the hot channel is stuck.
+      List<CompletableFuture<String>> burst = new ArrayList<>();
+      for (int i = 0; i < 500; i++) {
+        burst.add(recognizeOnThread(otherChannel));
+      }
+      Set<String> otherThreads = new HashSet<>();
+      for (CompletableFuture<String> call : burst) {
+        otherThreads.add(call.get(30, TimeUnit.SECONDS));
+      }
+      assertThat(hotThread.isDone()).isFalse();
+
+      releaseHotCallback.countDown();
+      assertThat(otherThreads).hasSize(1);
+      assertThat(otherThreads).doesNotContain(hotThread.get(10, TimeUnit.SECONDS));
+    } finally {
+      transportChannel.shutdownNow();
+      transportChannel.awaitTermination(10, TimeUnit.SECONDS);
+    }
+  }
+
+  private static CompletableFuture<String> recognizeOnThread(Channel channel) {
+    return recognizeOnThread(channel, () -> {});
+  }
+
+  /** Calls recognize and completes with the name of the thread the response callback ran on. */
+  private static CompletableFuture<String> recognizeOnThread(
+      Channel channel, InterruptibleRunnable onResponse) {
+    CompletableFuture<String> thread = new CompletableFuture<>();
+    ClientCalls.asyncUnaryCall(
+        channel.newCall(FakeServiceGrpc.METHOD_RECOGNIZE, CallOptions.DEFAULT),
+        Color.getDefaultInstance(),
+        new StreamObserver<Money>() {
+          @Override
+          public void onNext(Money value) {
+            try {
+              onResponse.run();
+              thread.complete(Thread.currentThread().getName());
+            } catch (InterruptedException e) {
+              thread.completeExceptionally(e);
+            }
+          }
+
+          @Override
+          public void onError(Throwable t) {
+            thread.completeExceptionally(t);
+          }
+
+          @Override
+          public void onCompleted() {}
+        });
+    return thread;
+  }
+
+  private interface InterruptibleRunnable {
+    void run() throws InterruptedException;
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.grpc;
+
+import static com.google.api.gax.grpc.testing.FakeServiceGrpc.METHOD_SERVER_STREAMING_RECOGNIZE;
+
+import com.google.api.gax.grpc.testing.FakeServiceImpl;
+import com.google.api.gax.grpc.testing.InProcessServer;
+import com.google.api.gax.rpc.ClientContext;
+import com.google.api.gax.rpc.EndpointContext;
+import com.google.api.gax.rpc.ServerStreamingCallSettings;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.auth.Credentials;
+import com.google.common.truth.Truth;
+import com.google.type.Color;
+import com.google.type.Money;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientInterceptors;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+/**
+ * Streams a large number of small messages through an in-process server and counts the flow control
+ * requests the client issues for them.
+ */
+class ServerStreamPrefetchTest {
+  private static final int MESSAGE_COUNT = 10_000;
+  private static final Color REQUEST = Color.newBuilder().setRed(0.5f).build();
+
+  private InProcessServer<FakeServiceImpl> inprocessServer;
+  private ManagedChannel managedChannel;
+  private ClientContext clientContext;
+  private final AtomicInteger requestCalls = new AtomicInteger();
+  private final AtomicInteger requestedMessages = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    String serverName = "prefetchservice";
+    inprocessServer = new InProcessServer<>(new ManyResponsesServiceImpl(), serverName);
+    inprocessServer.start();
+
+    EndpointContext endpointContext = Mockito.mock(EndpointContext.class);
+    Mockito.doNothing()
+        .when(endpointContext)
+        .validateUniverseDomain(Mockito.any(Credentials.class), Mockito.any(GrpcStatusCode.class));
+
+    managedChannel =
+        InProcessChannelBuilder.forName(serverName).directExecutor().usePlaintext().build();
+    Channel channel =
+        ClientInterceptors.intercept(managedChannel, new RequestCountingInterceptor());
+    clientContext =
+        ClientContext.newBuilder()
+            .setTransportChannel(GrpcTransportChannel.create(managedChannel))
+            .setDefaultCallContext(
+                GrpcCallContext.of(channel, CallOptions.DEFAULT)
+                    .withEndpointContext(endpointContext))
+            .build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    managedChannel.shutdown();
+    inprocessServer.stop();
+  }
+
+  @Test
+  void testWithoutPrefetchRequestsEveryMessage() {
+    consumeStream(1);
+
+    Truth.assertThat(requestCalls.get()).isAtLeast(MESSAGE_COUNT);
+  }
+
+  @Test
+  void testPrefetchRequestsInBatches() {
+    int prefetchSize = 64;
+    consumeStream(prefetchSize);
+
+    // One request for the initial window, then one per half window consumed.
+    Truth.assertThat(requestCalls.get()).isAtMost(MESSAGE_COUNT / (prefetchSize / 2) + 2);
+    Truth.assertThat(requestedMessages.get()).isAtLeast(MESSAGE_COUNT);
+  }
+
+  private void consumeStream(int prefetchSize) {
+    ServerStreamingCallable<Color, Money> callable =
+        GrpcCallableFactory.createServerStreamingCallable(
+            GrpcCallSettings.create(METHOD_SERVER_STREAMING_RECOGNIZE),
+            ServerStreamingCallSettings.<Color, Money>newBuilder()
+                .setPrefetchSize(prefetchSize)
+                .build(),
+            clientContext);
+
+    long expectedUnits = 0;
+    for (Money response : callable.call(REQUEST)) {
+      Truth.assertThat(response.getUnits()).isEqualTo(expectedUnits++);
+    }
+    Truth.assertThat(expectedUnits).isEqualTo(MESSAGE_COUNT);
+  }
+
+  private static class ManyResponsesServiceImpl extends FakeServiceImpl {
+    @Override
+    public void serverStreamingRecognize(Color color, StreamObserver<Money> responseObserver) {
+      for (int i = 0; i < MESSAGE_COUNT; i++) {
+        responseObserver.onNext(Money.newBuilder().setCurrencyCode("USD").setUnits(i).build());
+      }
+      responseObserver.onCompleted();
+    }
+  }
+
+  private class RequestCountingInterceptor implements ClientInterceptor {
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+        MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+      return new SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+        @Override
+        public void request(int numMessages) {
+          requestCalls.incrementAndGet();
+          requestedMessages.addAndGet(numMessages);
+          super.request(numMessages);
+        }
+      };
+    }
+  }
+}
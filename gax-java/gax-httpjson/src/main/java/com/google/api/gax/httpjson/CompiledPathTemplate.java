@@ -0,0 +1,313 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.httpjson;
+
+import com.google.api.pathtemplate.PathTemplate;
+import com.google.api.pathtemplate.ValidationException;
+import com.google.common.base.Splitter;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * A precompiled form of a {@link PathTemplate}, which instantiates a path and checks whether the
+ * produced path matches the template in the same pass.
+ *
+ * <p>It is equivalent to calling {@link PathTemplate#instantiate(Map)} followed by {@link
+ * PathTemplate#matches(String)}, but avoids re-parsing and URL decoding the path which was just
+ * built. Only the subset of the template syntax used by HTTP bindings is supported: literal
+ * segments, variable bindings made of literals and wildcards (with at most one {@code **}) and a
+ * trailing custom verb. {@link #compile(String, PathTemplate)} returns {@code null} for any other
+ * template, in which case the {@link PathTemplate} should be used directly.
+ *
+ * <p>Package-private for internal use.
+ */
+class CompiledPathTemplate {
+  // Same as in PathTemplate
+  private static final Pattern CUSTOM_VERB_PATTERN = Pattern.compile(":([^/*}{=]+)$");
+  private static final Splitter SLASH_SPLITTER = Splitter.on('/').trimResults();
+  // Literals made of these characters are not altered by URL decoding during matching.
+  private static final Pattern SIMPLE_LITERAL_PATTERN = Pattern.compile("[A-Za-z0-9._~\\-]+");
+  private static final Pattern VARIABLE_NAME_PATTERN = Pattern.compile("[A-Za-z0-9_.]+");
+
+  // Marks wildcards in the flattened matching pattern.
+  private static final String WILDCARD = "*";
+  private static final String PATH_WILDCARD = "**";
+
+  private final PathTemplate pathTemplate;
+  private final Element[] elements;
+  @Nullable private final String customVerb;
+  // The template flattened to the literal or wildcard expected at every path segment position.
+  private final String[] pattern;
+  // The position of the '**' wildcard in the pattern, or -1 if there is none.
+  private final int pathWildcardIndex;
+
+  private CompiledPathTemplate(
+      PathTemplate pathTemplate, List<Element> elements, @Nullable String customVerb) {
+    this.pathTemplate = pathTemplate;
+    this.elements = elements.toArray(new Element[0]);
+    this.customVerb = customVerb;
+
+    List<String> flattened = new ArrayList<>();
+    for (Element element : elements) {
+      if (element.variable == null) {
+        flattened.add(element.literal);
+      } else {
+        for (String subPattern : element.subPatterns) {
+          flattened.add(subPattern);
+        }
+      }
+    }
+    this.pattern = flattened.toArray(new String[0]);
+    this.pathWildcardIndex = flattened.indexOf(PATH_WILDCARD);
+  }
+
+  /**
+   * Compiles the {@code rawPath} template, which {@code pathTemplate} was created from. Returns
+   * {@code null} if the template uses a syntax which is not supported by this class.
+   */
+  @Nullable
+  static CompiledPathTemplate compile(String rawPath, PathTemplate pathTemplate) {
+    String template = rawPath.startsWith("/") ? rawPath.substring(1) : rawPath;
+
+    String customVerb = null;
+    Matcher matcher = CUSTOM_VERB_PATTERN.matcher(template);
+    if (matcher.find()) {
+      customVerb = matcher.group(1);
+      if (!SIMPLE_LITERAL_PATTERN.matcher(customVerb).matches()) {
+        return null;
+      }
+      template = template.substring(0, matcher.start(0));
+    }
+
+    List<Element> elements = new ArrayList<>();
+    Set<String> variables = new HashSet<>();
+    int pathWildcards = 0;
+    String variable = null;
+    List<String> subPatterns = null;
+    for (String segment : SLASH_SPLITTER.split(template)) {
+      if (variable == null && segment.startsWith("{")) {
+        segment = segment.substring(1);
+        int equalsIndex = segment.indexOf('=');
+        if (equalsIndex < 0) {
+          if (!segment.endsWith("}")) {
+            return null;
+          }
+          // "{var}" is the same as "{var=*}"
+          variable = segment.substring(0, segment.length() - 1).trim();
+          segment = WILDCARD + "}";
+        } else {
+          variable = segment.substring(0, equalsIndex).trim();
+          segment = segment.substring(equalsIndex + 1).trim();
+        }
+        if (!VARIABLE_NAME_PATTERN.matcher(variable).matches() || !variables.add(variable)) {
+          return null;
+        }
+        subPatterns = new ArrayList<>();
+      }
+
+      boolean bindingEnds = variable != null && segment.endsWith("}");
+      if (bindingEnds) {
+        segment = segment.substring(0, segment.length() - 1).trim();
+      }
+
+      if (variable == null) {
+        if (!SIMPLE_LITERAL_PATTERN.matcher(segment).matches() || "-".equals(segment)) {
+          // Free wildcards, complex resource ids and exotic literals
+          return null;
+        }
+        elements.add(Element.literal(segment));
+        continue;
+      }
+
+      if (PATH_WILDCARD.equals(segment)) {
+        pathWildcards++;
+      } else if (!WILDCARD.equals(segment)
+          && (!SIMPLE_LITERAL_PATTERN.matcher(segment).matches() || "-".equals(segment))) {
+        return null;
+      }
+      subPatterns.add(segment);
+
+      if (bindingEnds) {
+        elements.add(Element.binding(variable, subPatterns));
+        variable = null;
+        subPatterns = null;
+      }
+    }
+
+    if (variable != null
+        || elements.isEmpty()
+        || pathWildcards > 1
+        || !variables.equals(pathTemplate.vars())) {
+      return null;
+    }
+    return new CompiledPathTemplate(pathTemplate, elements, customVerb);
+  }
+
+  /**
+   * Appends the path instantiated from {@code values} to {@code path} and returns whether the
+   * produced path matches this template, as {@link PathTemplate#matches(String)} would have.
+   *
+   * @throws ValidationException if a variable occurs in the template without a binding.
+   */
+  boolean instantiate(Map<String, String> values, StringBuilder path) {
+    if (values.containsKey(PathTemplate.HOSTNAME_VAR)) {
+      String instantiated = pathTemplate.instantiate(values);
+      path.append(instantiated);
+      return pathTemplate.matches(instantiated);
+    }
+
+    int start = path.length();
+    // The values of the produced path segments, as they would be decoded during matching. Only
+    // collected when the '**' wildcard prevents matching the segments as they are produced.
+    List<String> segments = pathWildcardIndex < 0 ? null : new ArrayList<>();
+    int position = 0;
+    boolean matches = true;
+    for (Element element : elements) {
+      if (position > 0) {
+        path.append('/');
+      }
+      if (element.variable == null) {
+        path.append(element.literal);
+        matches &= matchSegment(element.literal, position++, segments);
+        continue;
+      }
+
+      String value = values.get(element.variable);
+      if (value == null) {
+        throw new ValidationException(
+            "Unbound variable '%s'. Bindings: %s", element.variable, values);
+      }
+      if (!element.pathEscape) {
+        path.append(encodeUrl(value));
+        matches &= matchSegment(value, position++, segments);
+        continue;
+      }
+      // For a path wildcard or path of length greater 1, split the value and escape every
+      // sub-segment.
+      boolean first = true;
+      for (String subSegment : SLASH_SPLITTER.split(value)) {
+        if (!first) {
+          path.append('/');
+        }
+        first = false;
+        path.append(encodeUrl(subSegment));
+        matches &= matchSegment(subSegment, position++, segments);
+      }
+    }
+    if (customVerb != null) {
+      path.append(':').append(customVerb);
+    }
+
+    if (segments != null) {
+      matches = matchWithPathWildcard(segments);
+    } else {
+      matches &= position == pattern.length;
+    }
+    if (path.length() - start > 1 && path.charAt(start) == '/' && path.charAt(start + 1) == '/') {
+      // Leading empty segments are interpreted as a host name, let PathTemplate sort it out.
+      matches = pathTemplate.matches(path.substring(start));
+    }
+    return matches;
+  }
+
+  private boolean matchSegment(String segment, int position, @Nullable List<String> segments) {
+    if (segments != null) {
+      segments.add(segment);
+      return true;
+    }
+    if (position >= pattern.length) {
+      return false;
+    }
+    String expected = pattern[position];
+    return WILDCARD.equals(expected) || expected.equals(segment);
+  }
+
+  private boolean matchWithPathWildcard(List<String> segments) {
+    int suffixLength = pattern.length - pathWildcardIndex - 1;
+    if (segments.size() < pathWildcardIndex + suffixLength) {
+      return false;
+    }
+    for (int i = 0; i < pathWildcardIndex; i++) {
+      if (!WILDCARD.equals(pattern[i]) && !pattern[i].equals(segments.get(i))) {
+        return false;
+      }
+    }
+    int offset = segments.size() - pattern.length;
+    for (int i = pathWildcardIndex + 1; i < pattern.length; i++) {
+      if (!WILDCARD.equals(pattern[i]) && !pattern[i].equals(segments.get(i + offset))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String encodeUrl(String text) {
+    try {
+      return URLEncoder.encode(text, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      throw new ValidationException("UTF-8 encoding is not supported on this platform");
+    }
+  }
+
+  /** A literal path segment or a variable binding. */
+  private static class Element {
+    @Nullable private final String literal;
+    @Nullable private final String variable;
+    private final List<String> subPatterns;
+    // Whether the value of the variable may span several path segments.
+    private final boolean pathEscape;
+
+    private Element(String literal, String variable, List<String> subPatterns) {
+      this.literal = literal;
+      this.variable = variable;
+      this.subPatterns = subPatterns;
+      this.pathEscape =
+          subPatterns.size() > 1
+              || (subPatterns.size() == 1 && PATH_WILDCARD.equals(subPatterns.get(0)));
+    }
+
+    static Element literal(String literal) {
+      return new Element(literal, null, new ArrayList<>());
+    }
+
+    static Element binding(String variable, List<String> subPatterns) {
+      return new Element(null, variable, subPatterns);
+    }
+  }
+}
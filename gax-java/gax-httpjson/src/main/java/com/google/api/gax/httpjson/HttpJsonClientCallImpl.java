@@ -29,7 +29,6 @@
  */
 package com.google.api.gax.httpjson;
 
-import com.google.api.client.http.HttpTransport;
 import com.google.api.gax.httpjson.ApiMethodDescriptor.MethodType;
 import com.google.api.gax.httpjson.HttpRequestRunnable.ResultListener;
 import com.google.api.gax.httpjson.HttpRequestRunnable.RunnableResult;
@@ -90,7 +89,7 @@ final class HttpJsonClientCallImpl<RequestT, ResponseT>
   private final HttpJsonCallOptions callOptions;
   private final String endpoint;
   private final ApiMethodDescriptor<RequestT, ResponseT> methodDescriptor;
-  private final HttpTransport httpTransport;
+  private final HttpRequestFactoryCache requestFactories;
   private final Executor executor;
   private final ScheduledExecutorService deadlineCancellationExecutor;
 
@@ -132,13 +131,13 @@ final class HttpJsonClientCallImpl<RequestT, ResponseT>
       ApiMethodDescriptor<RequestT, ResponseT> methodDescriptor,
       String endpoint,
       HttpJsonCallOptions callOptions,
-      HttpTransport httpTransport,
+      HttpRequestFactoryCache requestFactories,
       Executor executor,
       ScheduledExecutorService deadlineCancellationExecutor) {
     this.methodDescriptor = methodDescriptor;
     this.endpoint = endpoint;
     this.callOptions = callOptions;
-    this.httpTransport = httpTransport;
+    this.requestFactories = requestFactories;
     this.executor = executor;
     this.deadlineCancellationExecutor = deadlineCancellationExecutor;
     this.closed = false;
@@ -263,7 +262,7 @@ final class HttpJsonClientCallImpl<RequestT, ResponseT>
               methodDescriptor,
               endpoint,
               callOptions,
-              httpTransport,
+              requestFactories,
               requestHeaders,
               this);
       localRunnable = requestRunnable;
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.httpjson;
+
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpTransport;
+import com.google.auth.Credentials;
+import com.google.auth.http.HttpCredentialsAdapter;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import javax.annotation.Nullable;
+
+/**
+ * Holds the {@link HttpRequestFactory} instances of a channel, so that they are not recreated for
+ * every call.
+ *
+ * <p>Factories for credentials are keyed by the identity of the {@link Credentials} object and are
+ * held strongly, so the factory of the client's own credentials stays cached between calls. Each
+ * factory references its credentials, so per-call credentials are only released once their entry
+ * is evicted; the cache is bounded to {@link #MAX_CREDENTIALS_FACTORIES} entries for that reason.
+ */
+class HttpRequestFactoryCache {
+  @VisibleForTesting static final int MAX_CREDENTIALS_FACTORIES = 100;
+
+  private final HttpTransport httpTransport;
+  private final HttpRequestFactory defaultRequestFactory;
+  private final LoadingCache<Credentials, HttpRequestFactory> credentialsRequestFactories;
+
+  HttpRequestFactoryCache(HttpTransport httpTransport) {
+    this.httpTransport = httpTransport;
+    this.defaultRequestFactory = httpTransport.createRequestFactory();
+    // Weak keys are compared by identity
+    this.credentialsRequestFactories =
+        CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(MAX_CREDENTIALS_FACTORIES)
+            .build(
+                new CacheLoader<Credentials, HttpRequestFactory>() {
+                  @Override
+                  public HttpRequestFactory load(Credentials credentials) {
+                    return httpTransport.createRequestFactory(
+                        new HttpCredentialsAdapter(credentials));
+                  }
+                });
+  }
+
+  HttpTransport getHttpTransport() {
+    return httpTransport;
+  }
+
+  HttpRequestFactory getRequestFactory(@Nullable Credentials credentials) {
+    if (credentials == null) {
+      return defaultRequestFactory;
+    }
+    return credentialsRequestFactories.getUnchecked(credentials);
+  }
+
+  @VisibleForTesting
+  long getCachedFactoryCount() {
+    credentialsRequestFactories.cleanUp();
+    return credentialsRequestFactories.size();
+  }
+}
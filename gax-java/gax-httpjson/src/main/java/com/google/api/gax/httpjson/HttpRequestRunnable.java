@@ -32,20 +32,13 @@ package com.google.api.gax.httpjson;
 import com.google.api.client.http.EmptyContent;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpContent;
-import com.google.api.client.http.HttpMediaType;
 import com.google.api.client.http.HttpMethods;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestFactory;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
-import com.google.api.client.http.HttpTransport;
-import com.google.api.client.http.json.JsonHttpContent;
-import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.JsonObjectParser;
 import com.google.api.client.json.gson.GsonFactory;
-import com.google.api.client.util.GenericData;
-import com.google.auth.Credentials;
-import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auto.value.AutoValue;
 import com.google.common.base.Strings;
 import java.io.ByteArrayInputStream;
@@ -59,11 +52,15 @@ import javax.annotation.Nullable;
 
 /** A runnable object that creates and executes an HTTP request. */
 class HttpRequestRunnable<RequestT, ResponseT> implements Runnable {
+  // JsonObjectParser is immutable, so a single instance is shared by all requests.
+  private static final JsonObjectParser JSON_OBJECT_PARSER =
+      new JsonObjectParser(GsonFactory.getDefaultInstance());
+
   private final RequestT request;
   private final ApiMethodDescriptor<RequestT, ResponseT> methodDescriptor;
   private final String endpoint;
   private final HttpJsonCallOptions httpJsonCallOptions;
-  private final HttpTransport httpTransport;
+  private final HttpRequestFactoryCache requestFactories;
   private final HttpJsonMetadata headers;
   private final ResultListener resultListener;
 
@@ -74,14 +71,14 @@ class HttpRequestRunnable<RequestT, ResponseT> implements Runnable {
       ApiMethodDescriptor<RequestT, ResponseT> methodDescriptor,
       String endpoint,
       HttpJsonCallOptions httpJsonCallOptions,
-      HttpTransport httpTransport,
+      HttpRequestFactoryCache requestFactories,
       HttpJsonMetadata headers,
       ResultListener resultListener) {
     this.request = request;
     this.methodDescriptor = methodDescriptor;
     this.endpoint = endpoint;
     this.httpJsonCallOptions = httpJsonCallOptions;
-    this.httpTransport = httpTransport;
+    this.requestFactories = requestFactories;
     this.headers = headers;
     this.resultListener = resultListener;
   }
@@ -151,27 +148,17 @@ class HttpRequestRunnable<RequestT, ResponseT> implements Runnable {
   }
 
   HttpRequest createHttpRequest() throws IOException {
-    GenericData tokenRequest = new GenericData();
-
     HttpRequestFormatter<RequestT> requestFormatter = methodDescriptor.getRequestFormatter();
 
-    HttpRequestFactory requestFactory;
-    Credentials credentials = httpJsonCallOptions.getCredentials();
-    if (credentials != null) {
-      requestFactory = httpTransport.createRequestFactory(new HttpCredentialsAdapter(credentials));
-    } else {
-      requestFactory = httpTransport.createRequestFactory();
-    }
+    HttpRequestFactory requestFactory =
+        requestFactories.getRequestFactory(httpJsonCallOptions.getCredentials());
 
-    JsonFactory jsonFactory = GsonFactory.getDefaultInstance();
-    // Create HTTP request body.
+    // Create HTTP request body. The body is already serialized to JSON, so write it out directly
+    // instead of round tripping it through a GenericData object.
     String requestBody = requestFormatter.getRequestBody(request);
     HttpContent jsonHttpContent;
     if (!Strings.isNullOrEmpty(requestBody)) {
-      jsonFactory.createJsonParser(requestBody).parse(tokenRequest);
-      jsonHttpContent =
-          new JsonHttpContent(jsonFactory, tokenRequest)
-              .setMediaType((new HttpMediaType("application/json; charset=utf-8")));
+      jsonHttpContent = new JsonStringHttpContent(requestBody);
     } else {
       // Force underlying HTTP lib to set Content-Length header to avoid 411s.
       // See EmptyContent.java.
@@ -195,7 +182,7 @@ class HttpRequestRunnable<RequestT, ResponseT> implements Runnable {
           httpRequest.getHeaders(), entry.getKey(), (String) entry.getValue());
     }
 
-    httpRequest.setParser(new JsonObjectParser(jsonFactory));
+    httpRequest.setParser(JSON_OBJECT_PARSER);
 
     return httpRequest;
   }
@@ -215,7 +202,8 @@ class HttpRequestRunnable<RequestT, ResponseT> implements Runnable {
     // https://github.com/googleapis/google-http-java-client/issues/167
     //
     // In JDK11 there is java.net.http.HttpRequest with PATCH method support but, gax-httpjson must
-    // remain compatible with Java 8.
+    // remain compatible with Java 8. The optional JdkHttpTransport uses it when it is available,
+    // in which case the workaround is not needed.
     //
     // Using "X-HTTP-Method-Override" header is probably the cleanest way to fix it. Other options
     // would be: hideous reflection hacks (not a safe option in a generic library, which
@@ -224,7 +212,8 @@ class HttpRequestRunnable<RequestT, ResponseT> implements Runnable {
     // mtls etc).
     String actualHttpMethod = methodDescriptor.getHttpMethod();
     String originalHttpMethod = actualHttpMethod;
-    if (HttpMethods.PATCH.equals(actualHttpMethod)) {
+    if (HttpMethods.PATCH.equals(actualHttpMethod)
+        && !(requestFactories.getHttpTransport() instanceof JdkHttpTransport)) {
       actualHttpMethod = HttpMethods.POST;
     }
     HttpRequest httpRequest = requestFactory.buildRequest(actualHttpMethod, url, jsonHttpContent);
@@ -51,6 +51,8 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
 
 /**
  * InstantiatingHttpJsonChannelProvider is a TransportChannelProvider which constructs a {@link
@@ -75,6 +77,8 @@ public final class InstantiatingHttpJsonChannelProvider implements TransportChan
   private final HttpJsonInterceptorProvider interceptorProvider;
   private final String endpoint;
   private final HttpTransport httpTransport;
+  private final boolean useJdkHttpClient;
+  private final boolean useVirtualThreads;
   @Nullable private final MtlsProvider mtlsProvider;
   private final CertificateBasedAccess certificateBasedAccess;
 
@@ -84,6 +88,8 @@ public final class InstantiatingHttpJsonChannelProvider implements TransportChan
       HttpJsonInterceptorProvider interceptorProvider,
       String endpoint,
       HttpTransport httpTransport,
+      boolean useJdkHttpClient,
+      boolean useVirtualThreads,
       MtlsProvider mtlsProvider,
       CertificateBasedAccess certificateBasedAccess) {
     this.executor = executor;
@@ -91,6 +97,8 @@ public final class InstantiatingHttpJsonChannelProvider implements TransportChan
     this.interceptorProvider = interceptorProvider;
     this.endpoint = endpoint;
     this.httpTransport = httpTransport;
+    this.useJdkHttpClient = useJdkHttpClient;
+    this.useVirtualThreads = useVirtualThreads;
     this.mtlsProvider = mtlsProvider;
     this.certificateBasedAccess = certificateBasedAccess;
   }
@@ -185,18 +193,29 @@ public final class InstantiatingHttpJsonChannelProvider implements TransportChan
   }
 
   HttpTransport createHttpTransport() throws IOException, GeneralSecurityException {
-    if (mtlsProvider == null) {
-      return null;
+    KeyStore mtlsKeyStore = null;
+    if (mtlsProvider != null && certificateBasedAccess.useMtlsClientCertificate()) {
+      mtlsKeyStore = mtlsProvider.getKeyStore();
     }
-    if (certificateBasedAccess.useMtlsClientCertificate()) {
-      KeyStore mtlsKeyStore = mtlsProvider.getKeyStore();
-      if (mtlsKeyStore != null) {
-        return new NetHttpTransport.Builder().trustCertificates(null, mtlsKeyStore, "").build();
-      }
+    if (useJdkHttpClient) {
+      return new JdkHttpTransport(mtlsKeyStore != null ? createSslContext(mtlsKeyStore) : null);
+    }
+    if (mtlsKeyStore != null) {
+      return new NetHttpTransport.Builder().trustCertificates(null, mtlsKeyStore, "").build();
     }
     return null;
   }
 
+  private static SSLContext createSslContext(KeyStore mtlsKeyStore)
+      throws GeneralSecurityException {
+    KeyManagerFactory keyManagerFactory =
+        KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagerFactory.init(mtlsKeyStore, new char[0]);
+    SSLContext sslContext = SSLContext.getInstance("TLS");
+    sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+    return sslContext;
+  }
+
   private HttpJsonTransportChannel createChannel() throws IOException, GeneralSecurityException {
     HttpTransport httpTransportToUse = httpTransport;
     if (httpTransportToUse == null) {
@@ -209,6 +228,7 @@ public final class InstantiatingHttpJsonChannelProvider implements TransportChan
         ManagedHttpJsonChannel.newBuilder()
             .setEndpoint(endpoint)
             .setExecutor(executor)
+            .setUseVirtualThreads(useVirtualThreads)
             .setHttpTransport(httpTransportToUse)
             .build();
 
@@ -252,6 +272,8 @@ public final class InstantiatingHttpJsonChannelProvider implements TransportChan
     private HttpJsonInterceptorProvider interceptorProvider;
     private String endpoint;
     private HttpTransport httpTransport;
+    private boolean useJdkHttpClient;
+    private boolean useVirtualThreads;
     private MtlsProvider mtlsProvider;
     private CertificateBasedAccess certificateBasedAccess;
 
@@ -262,6 +284,8 @@ public final class InstantiatingHttpJsonChannelProvider implements TransportChan
       this.headerProvider = provider.headerProvider;
       this.endpoint = provider.endpoint;
       this.httpTransport = provider.httpTransport;
+      this.useJdkHttpClient = provider.useJdkHttpClient;
+      this.useVirtualThreads = provider.useVirtualThreads;
       this.mtlsProvider = provider.mtlsProvider;
       this.certificateBasedAccess = provider.certificateBasedAccess;
       this.interceptorProvider = provider.interceptorProvider;
@@ -324,6 +348,36 @@ public final class InstantiatingHttpJsonChannelProvider implements TransportChan
       return this;
     }
 
+    /**
+     * Sets whether the channel should use the {@code java.net.http.HttpClient} of JDK 11+ instead
+     * of {@link NetHttpTransport}. The JDK client multiplexes concurrent calls over HTTP/2 and
+     * supports the PATCH method natively.
+     *
+     * <p>The JDK client only has a client-wide connect timeout, which is fixed to the 20 second
+     * default of google-http-client. Connect timeouts set on individual requests are not applied,
+     * but the request timeout still bounds the time until the response headers are received.
+     *
+     * <p>This is ignored if a transport is set with {@link #setHttpTransport(HttpTransport)}.
+     * Building the provider fails if the runtime does not provide {@code java.net.http}.
+     */
+    public Builder setUseJdkHttpClient(boolean useJdkHttpClient) {
+      this.useJdkHttpClient = useJdkHttpClient;
+      return this;
+    }
+
+    /**
+     * Sets whether every call should run on its own virtual thread (Java 21+) instead of on the
+     * executor of this TransportChannelProvider. REST calls block a thread while waiting for the
+     * response, so this lets the number of concurrent calls grow past the size of the executor's
+     * thread pool.
+     *
+     * <p>Building the provider fails if the runtime does not support virtual threads.
+     */
+    public Builder setUseVirtualThreads(boolean useVirtualThreads) {
+      this.useVirtualThreads = useVirtualThreads;
+      return this;
+    }
+
     public String getEndpoint() {
       return endpoint;
     }
@@ -341,6 +395,13 @@ public final class InstantiatingHttpJsonChannelProvider implements TransportChan
     }
 
     public InstantiatingHttpJsonChannelProvider build() {
+      if (useJdkHttpClient && !JdkHttpTransport.isAvailable()) {
+        throw new IllegalStateException(
+            "java.net.http.HttpClient is not available, it requires Java 11 or newer");
+      }
+      if (useVirtualThreads && !ManagedHttpJsonChannel.isVirtualThreadAvailable()) {
+        throw new IllegalStateException("Virtual threads require Java 21 or newer");
+      }
       if (certificateBasedAccess == null) {
         certificateBasedAccess = CertificateBasedAccess.createWithSystemEnv();
       }
@@ -368,6 +429,8 @@ public final class InstantiatingHttpJsonChannelProvider implements TransportChan
           interceptorProvider,
           endpoint,
           httpTransport,
+          useJdkHttpClient,
+          useVirtualThreads,
           mtlsProvider,
           certificateBasedAccess);
     }
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.httpjson;
+
+import com.google.api.client.http.HttpMethods;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.util.StreamingContent;
+import com.google.common.collect.ImmutableSet;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLContext;
+
+/**
+ * An {@link HttpTransport} backed by the {@code java.net.http.HttpClient} of JDK 11+.
+ *
+ * <p>Unlike {@link com.google.api.client.http.javanet.NetHttpTransport}, which is built on top of
+ * {@link java.net.HttpURLConnection}, this transport multiplexes concurrent calls over HTTP/2
+ * connections and supports the PATCH method natively.
+ *
+ * <p>gax-httpjson is compiled for Java 8, so the {@code java.net.http} API is accessed via
+ * reflection. Only public and exported JDK APIs are used. Call {@link #isAvailable()} before
+ * creating an instance.
+ */
+class JdkHttpTransport extends HttpTransport {
+  // Headers which java.net.http manages itself and refuses to accept from the caller.
+  private static final Set<String> RESTRICTED_HEADERS =
+      ImmutableSet.of("connection", "content-length", "expect", "host", "upgrade");
+  // The default connect timeout of google-http-client's HttpRequest. java.net.http only supports
+  // a connect timeout for the whole client, so the per request connect timeouts are not applied.
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(20);
+
+  private final Object httpClient;
+
+  JdkHttpTransport(@Nullable SSLContext sslContext) throws IOException {
+    JdkHttp jdk = JdkHttp.get();
+    Object builder = jdk.invoke(jdk.clientNewBuilder, null);
+    builder = jdk.invoke(jdk.clientBuilderVersion, builder, jdk.http2Version);
+    builder = jdk.invoke(jdk.clientBuilderConnectTimeout, builder, CONNECT_TIMEOUT);
+    if (sslContext != null) {
+      builder = jdk.invoke(jdk.clientBuilderSslContext, builder, sslContext);
+    }
+    this.httpClient = jdk.invoke(jdk.clientBuilderBuild, builder);
+  }
+
+  /** Returns whether the {@code java.net.http} client is available in the current runtime. */
+  static boolean isAvailable() {
+    return JdkHttp.INSTANCE != null;
+  }
+
+  /** Returns whether the client can be shut down explicitly, which requires Java 21+. */
+  static boolean supportsShutdown() {
+    return JdkHttp.INSTANCE != null && JdkHttp.INSTANCE.clientShutdown != null;
+  }
+
+  @Override
+  public boolean supportsMethod(String method) {
+    return true;
+  }
+
+  @Override
+  protected LowLevelHttpRequest buildRequest(String method, String url) {
+    return new JdkLowLevelHttpRequest(method, url);
+  }
+
+  /**
+   * Starts an orderly shutdown of the client, which releases its selector thread and pooled
+   * connections once the calls in flight are done. The client can only be shut down explicitly on
+   * Java 21+. On older runtimes, these are released once the client is garbage collected.
+   */
+  @Override
+  public void shutdown() throws IOException {
+    JdkHttp jdk = JdkHttp.get();
+    if (jdk.clientShutdown != null) {
+      jdk.invoke(jdk.clientShutdown, httpClient);
+    }
+  }
+
+  private class JdkLowLevelHttpRequest extends LowLevelHttpRequest {
+    private final String method;
+    private final String url;
+    private final List<String> headers = new ArrayList<>();
+    private int readTimeoutMs;
+
+    private JdkLowLevelHttpRequest(String method, String url) {
+      this.method = method;
+      this.url = url;
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+      if (!RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+        headers.add(name);
+        headers.add(value);
+      }
+    }
+
+    @Override
+    public void setTimeout(int connectTimeout, int readTimeout) {
+      // java.net.http only has a client-wide connect timeout, see CONNECT_TIMEOUT. The per request
+      // timeout bounds the time until the response headers are received.
+      this.readTimeoutMs = readTimeout;
+    }
+
+    @Override
+    public LowLevelHttpResponse execute() throws IOException {
+      JdkHttp jdk = JdkHttp.get();
+      Object builder = jdk.invoke(jdk.requestNewBuilder, null, URI.create(url));
+      for (int i = 0; i < headers.size(); i += 2) {
+        builder = jdk.invoke(jdk.requestBuilderHeader, builder, headers.get(i), headers.get(i + 1));
+      }
+      if (getContentType() != null) {
+        builder = jdk.invoke(jdk.requestBuilderHeader, builder, "Content-Type", getContentType());
+      }
+      if (getContentEncoding() != null) {
+        builder =
+            jdk.invoke(jdk.requestBuilderHeader, builder, "Content-Encoding", getContentEncoding());
+      }
+      if (readTimeoutMs > 0) {
+        builder = jdk.invoke(jdk.requestBuilderTimeout, builder, Duration.ofMillis(readTimeoutMs));
+      }
+      builder = jdk.invoke(jdk.requestBuilderMethod, builder, method, createBodyPublisher(jdk));
+      Object request = jdk.invoke(jdk.requestBuilderBuild, builder);
+
+      Object response;
+      try {
+        response = jdk.clientSend.invoke(httpClient, request, jdk.ofInputStreamHandler);
+      } catch (InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof InterruptedException) {
+          Thread.currentThread().interrupt();
+          throw (InterruptedIOException)
+              new InterruptedIOException("Interrupted while waiting for the response")
+                  .initCause(cause);
+        }
+        throw JdkHttp.asIOException(e);
+      } catch (IllegalAccessException e) {
+        throw new IOException(e);
+      }
+      return new JdkLowLevelHttpResponse(jdk, response);
+    }
+
+    private Object createBodyPublisher(JdkHttp jdk) throws IOException {
+      StreamingContent content = getStreamingContent();
+      if (content == null
+          || (getContentLength() == 0
+              && (HttpMethods.GET.equals(method) || HttpMethods.HEAD.equals(method)))) {
+        return jdk.invoke(jdk.noBody, null);
+      }
+      ByteArrayOutputStream body =
+          new ByteArrayOutputStream(getContentLength() > 0 ? (int) getContentLength() : 256);
+      content.writeTo(body);
+      return jdk.invoke(jdk.ofByteArray, null, (Object) body.toByteArray());
+    }
+  }
+
+  private static class JdkLowLevelHttpResponse extends LowLevelHttpResponse {
+    private final int statusCode;
+    private final InputStream content;
+    private final List<String> headerNames = new ArrayList<>();
+    private final List<String> headerValues = new ArrayList<>();
+    private String contentType;
+    private String contentEncoding;
+    private long contentLength = -1;
+
+    private JdkLowLevelHttpResponse(JdkHttp jdk, Object response) throws IOException {
+      this.statusCode = (Integer) jdk.invoke(jdk.responseStatusCode, response);
+      this.content = (InputStream) jdk.invoke(jdk.responseBody, response);
+      Object httpHeaders = jdk.invoke(jdk.responseHeaders, response);
+      @SuppressWarnings("unchecked")
+      Map<String, List<String>> headerMap =
+          (Map<String, List<String>>) jdk.invoke(jdk.headersMap, httpHeaders);
+      for (Map.Entry<String, List<String>> header : headerMap.entrySet()) {
+        String name = header.getKey();
+        for (String value : header.getValue()) {
+          headerNames.add(name);
+          headerValues.add(value);
+          switch (name.toLowerCase(Locale.ROOT)) {
+            case "content-type":
+              contentType = value;
+              break;
+            case "content-encoding":
+              contentEncoding = value;
+              break;
+            case "content-length":
+              try {
+                contentLength = Long.parseLong(value.trim());
+              } catch (NumberFormatException e) {
+                // Unknown content length
+              }
+              break;
+            default:
+              break;
+          }
+        }
+      }
+    }
+
+    @Override
+    public InputStream getContent() {
+      return content;
+    }
+
+    @Override
+    public String getContentEncoding() {
+      return contentEncoding;
+    }
+
+    @Override
+    public long getContentLength() {
+      return contentLength;
+    }
+
+    @Override
+    public String getContentType() {
+      return contentType;
+    }
+
+    @Override
+    public String getStatusLine() {
+      // HTTP/2 responses do not have a status line
+      return null;
+    }
+
+    @Override
+    public int getStatusCode() {
+      return statusCode;
+    }
+
+    @Override
+    public String getReasonPhrase() {
+      return null;
+    }
+
+    @Override
+    public int getHeaderCount() {
+      return headerNames.size();
+    }
+
+    @Override
+    public String getHeaderName(int index) {
+      return headerNames.get(index);
+    }
+
+    @Override
+    public String getHeaderValue(int index) {
+      return headerValues.get(index);
+    }
+
+    @Override
+    public void disconnect() throws IOException {
+      content.close();
+    }
+  }
+
+  /** Reflective handles to the {@code java.net.http} API, resolved once. */
+  private static final class JdkHttp {
+    private static final JdkHttp INSTANCE = load();
+
+    private final Method clientNewBuilder;
+    private final Method clientBuilderVersion;
+    private final Method clientBuilderConnectTimeout;
+    private final Method clientBuilderSslContext;
+    private final Method clientBuilderBuild;
+    private final Method clientSend;
+    // HttpClient.shutdown() was added in Java 21
+    @Nullable private final Method clientShutdown;
+    private final Object http2Version;
+    private final Method requestNewBuilder;
+    private final Method requestBuilderHeader;
+    private final Method requestBuilderTimeout;
+    private final Method requestBuilderMethod;
+    private final Method requestBuilderBuild;
+    private final Method noBody;
+    private final Method ofByteArray;
+    private final Object ofInputStreamHandler;
+    private final Method responseStatusCode;
+    private final Method responseHeaders;
+    private final Method responseBody;
+    private final Method headersMap;
+
+    private JdkHttp() throws ReflectiveOperationException {
+      Class<?> client = Class.forName("java.net.http.HttpClient");
+      Class<?> clientBuilder = Class.forName("java.net.http.HttpClient$Builder");
+      Class<?> version = Class.forName("java.net.http.HttpClient$Version");
+      Class<?> request = Class.forName("java.net.http.HttpRequest");
+      Class<?> requestBuilder = Class.forName("java.net.http.HttpRequest$Builder");
+      Class<?> bodyPublisher = Class.forName("java.net.http.HttpRequest$BodyPublisher");
+      Class<?> bodyPublishers = Class.forName("java.net.http.HttpRequest$BodyPublishers");
+      Class<?> bodyHandler = Class.forName("java.net.http.HttpResponse$BodyHandler");
+      Class<?> bodyHandlers = Class.forName("java.net.http.HttpResponse$BodyHandlers");
+      Class<?> response = Class.forName("java.net.http.HttpResponse");
+      Class<?> headers = Class.forName("java.net.http.HttpHeaders");
+
+      clientNewBuilder = client.getMethod("newBuilder");
+      clientBuilderVersion = clientBuilder.getMethod("version", version);
+      clientBuilderConnectTimeout = clientBuilder.getMethod("connectTimeout", Duration.class);
+      clientBuilderSslContext = clientBuilder.getMethod("sslContext", SSLContext.class);
+      clientBuilderBuild = clientBuilder.getMethod("build");
+      clientSend = client.getMethod("send", request, bodyHandler);
+      clientShutdown = getOptionalMethod(client, "shutdown");
+      http2Version = version.getField("HTTP_2").get(null);
+      requestNewBuilder = request.getMethod("newBuilder", URI.class);
+      requestBuilderHeader = requestBuilder.getMethod("header", String.class, String.class);
+      requestBuilderTimeout = requestBuilder.getMethod("timeout", Duration.class);
+      requestBuilderMethod = requestBuilder.getMethod("method", String.class, bodyPublisher);
+      requestBuilderBuild = requestBuilder.getMethod("build");
+      noBody = bodyPublishers.getMethod("noBody");
+      ofByteArray = bodyPublishers.getMethod("ofByteArray", byte[].class);
+      ofInputStreamHandler = bodyHandlers.getMethod("ofInputStream").invoke(null);
+      responseStatusCode = response.getMethod("statusCode");
+      responseHeaders = response.getMethod("headers");
+      responseBody = response.getMethod("body");
+      headersMap = headers.getMethod("map");
+    }
+
+    @Nullable
+    private static Method getOptionalMethod(Class<?> clazz, String name) {
+      try {
+        return clazz.getMethod(name);
+      } catch (NoSuchMethodException e) {
+        return null;
+      }
+    }
+
+    @Nullable
+    private static JdkHttp load() {
+      try {
+        return new JdkHttp();
+      } catch (ReflectiveOperationException | LinkageError e) {
+        return null;
+      }
+    }
+
+    private static JdkHttp get() throws IOException {
+      if (INSTANCE == null) {
+        throw new IOException("java.net.http.HttpClient is not available in this runtime");
+      }
+      return INSTANCE;
+    }
+
+    private Object invoke(Method method, @Nullable Object target, Object... args)
+        throws IOException {
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw asIOException(e);
+      } catch (IllegalAccessException e) {
+        throw new IOException(e);
+      }
+    }
+
+    private static IOException asIOException(InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        return (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      return new IOException(cause);
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.httpjson;
+
+import com.google.api.client.http.AbstractHttpContent;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An {@link com.google.api.client.http.HttpContent} which writes an already serialized JSON request
+ * body to the output stream as is, without parsing it into an intermediate object tree first.
+ *
+ * <p>The body is encoded to UTF-8 once, and the bytes are reused for both {@link #getLength()} (the
+ * {@code Content-Length} header) and {@link #writeTo(OutputStream)}.
+ *
+ * <p>Package-private for internal use.
+ */
+class JsonStringHttpContent extends AbstractHttpContent {
+  static final String JSON_MEDIA_TYPE = "application/json; charset=utf-8";
+
+  private final String json;
+  private byte[] encoded;
+
+  JsonStringHttpContent(String json) {
+    super(JSON_MEDIA_TYPE);
+    this.json = json;
+  }
+
+  @Override
+  public long getLength() {
+    return getEncoded().length;
+  }
+
+  @Override
+  public boolean retrySupported() {
+    return true;
+  }
+
+  @Override
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(getEncoded());
+    out.flush();
+  }
+
+  private byte[] getEncoded() {
+    if (encoded == null) {
+      encoded = json.getBytes(StandardCharsets.UTF_8);
+    }
+    return encoded;
+  }
+}
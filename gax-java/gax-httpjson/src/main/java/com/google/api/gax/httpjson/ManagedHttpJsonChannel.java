@@ -36,6 +36,7 @@ import com.google.api.gax.core.InstantiatingExecutorProvider;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -45,11 +46,16 @@ import javax.annotation.Nullable;
 
 /** Implementation of HttpJsonChannel which can issue http-json calls. */
 public class ManagedHttpJsonChannel implements HttpJsonChannel, BackgroundResource {
+  // Executors.newVirtualThreadPerTaskExecutor() of JDK 21+, or null if it is not available.
+  @Nullable
+  private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR =
+      findVirtualThreadFactoryMethod();
 
   private final Executor executor;
   private final boolean usingDefaultExecutor;
   private final String endpoint;
   private final HttpTransport httpTransport;
+  private final HttpRequestFactoryCache requestFactories;
   private final ScheduledExecutorService deadlineScheduledExecutorService;
   private boolean isTransportShutdown;
 
@@ -70,6 +76,7 @@ public class ManagedHttpJsonChannel implements HttpJsonChannel, BackgroundResour
     this.usingDefaultExecutor = usingDefaultExecutor;
     this.endpoint = endpoint;
     this.httpTransport = httpTransport == null ? new NetHttpTransport() : httpTransport;
+    this.requestFactories = new HttpRequestFactoryCache(this.httpTransport);
     this.deadlineScheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
   }
 
@@ -81,7 +88,7 @@ public class ManagedHttpJsonChannel implements HttpJsonChannel, BackgroundResour
         methodDescriptor,
         endpoint,
         callOptions,
-        httpTransport,
+        requestFactories,
         executor,
         deadlineScheduledExecutorService);
   }
@@ -183,6 +190,30 @@ public class ManagedHttpJsonChannel implements HttpJsonChannel, BackgroundResour
     shutdown();
   }
 
+  /** Returns whether the current runtime supports virtual threads (JDK 21+). */
+  static boolean isVirtualThreadAvailable() {
+    return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+  }
+
+  @Nullable
+  private static Method findVirtualThreadFactoryMethod() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    Preconditions.checkState(
+        isVirtualThreadAvailable(), "Virtual threads require Java 21 or newer");
+    try {
+      return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Unable to create a virtual thread executor", e);
+    }
+  }
+
   public static Builder newBuilder() {
     return new Builder();
   }
@@ -193,6 +224,7 @@ public class ManagedHttpJsonChannel implements HttpJsonChannel, BackgroundResour
     private String endpoint;
     private HttpTransport httpTransport;
     private boolean usingDefaultExecutor;
+    private boolean useVirtualThreads;
 
     private Builder() {
       this.usingDefaultExecutor = false;
@@ -203,6 +235,19 @@ public class ManagedHttpJsonChannel implements HttpJsonChannel, BackgroundResour
       return this;
     }
 
+    /**
+     * Sets whether every call should run on its own virtual thread instead of on the executor.
+     * Calls block a thread until the response is received, so this lets the number of concurrent
+     * calls grow past the size of a thread pool. The virtual thread executor is owned by the
+     * channel and any executor set with {@link #setExecutor(Executor)} is ignored.
+     *
+     * <p>Virtual threads require Java 21 or newer, building the channel fails on older runtimes.
+     */
+    public Builder setUseVirtualThreads(boolean useVirtualThreads) {
+      this.useVirtualThreads = useVirtualThreads;
+      return this;
+    }
+
     public Builder setEndpoint(String endpoint) {
       this.endpoint = endpoint;
       return this;
@@ -220,7 +265,10 @@ public class ManagedHttpJsonChannel implements HttpJsonChannel, BackgroundResour
       // default executor to used for the calls. Only the default executor's
       // lifecycle will be managed by the channel. Any external executor needs to
       // managed by the user.
-      if (executor == null) {
+      if (useVirtualThreads) {
+        executor = newVirtualThreadPerTaskExecutor();
+        usingDefaultExecutor = true;
+      } else if (executor == null) {
         executor = InstantiatingExecutorProvider.newIOBuilder().build().getExecutor();
         usingDefaultExecutor = true;
       }
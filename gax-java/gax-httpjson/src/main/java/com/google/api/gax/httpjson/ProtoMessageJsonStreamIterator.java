@@ -29,45 +29,79 @@
  */
 package com.google.api.gax.httpjson;
 
-import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonToken;
-import com.google.gson.stream.JsonWriter;
+import java.io.CharArrayReader;
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.PipedReader;
-import java.io.PipedWriter;
 import java.io.Reader;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
-/** This class is not thread-safe and is expected to be used under external synchronization. */
+/**
+ * Splits a streamed JSON array into its top-level elements without re-tokenizing them.
+ *
+ * <p>The iterator only tracks string literals and bracket nesting to find where each element ends.
+ * The characters of an element are copied out of the internal buffer and handed to the caller as a
+ * {@link Reader}, leaving the actual parsing to the response parser. The copy keeps the element
+ * intact when the caller looks ahead with {@link #hasNext()} before parsing it, which may refill
+ * the buffer. The raw reader is consumed lazily, one element at a time, so the flow control of the
+ * caller is preserved.
+ *
+ * <p>This class is not thread-safe and is expected to be used under external synchronization.
+ */
 class ProtoMessageJsonStreamIterator implements Closeable, Iterator<Reader> {
-  private volatile boolean arrayStarted;
-  private final JsonReader jsonReader;
-  private final PipedReader reader;
-  private final PipedWriter writer;
+  private static final int INITIAL_BUFFER_SIZE = 0x2000; // 8K
+
+  private final Reader rawReader;
+  private char[] buffer;
+  // Unconsumed characters are buffer[pos, limit)
+  private int pos;
+  private int limit;
+  private boolean arrayStarted;
+  private boolean arrayEnded;
+  private boolean elementPending;
 
   ProtoMessageJsonStreamIterator(Reader rawReader) throws IOException {
-    this.arrayStarted = false;
-    this.jsonReader = new JsonReader(rawReader);
-    this.reader = new PipedReader(0x40000); // 256K
-    this.writer = new PipedWriter();
-    writer.connect(reader);
+    this.rawReader = rawReader;
+    this.buffer = new char[INITIAL_BUFFER_SIZE];
   }
 
   @Override
   public void close() throws IOException {
-    reader.close();
-    writer.close();
-    jsonReader.close();
+    rawReader.close();
   }
 
+  @Override
   public boolean hasNext() {
     try {
+      if (elementPending) {
+        return true;
+      }
+      if (arrayEnded) {
+        return false;
+      }
       if (!arrayStarted) {
-        jsonReader.beginArray();
+        expect('[');
         arrayStarted = true;
+        if (peekNonWhitespace() == ']') {
+          pos++;
+          arrayEnded = true;
+          return false;
+        }
+      } else {
+        char c = peekNonWhitespace();
+        pos++;
+        if (c == ']') {
+          arrayEnded = true;
+          return false;
+        }
+        if (c != ',') {
+          throw syntaxError("Expected ',' or ']' but was '" + c + "'");
+        }
       }
-      return jsonReader.hasNext();
+      elementPending = true;
+      return true;
     } catch (IOException e) {
       throw new RestSerializationException(e);
     }
@@ -75,60 +109,132 @@ class ProtoMessageJsonStreamIterator implements Closeable, Iterator<Reader> {
 
   @Override
   public Reader next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    elementPending = false;
     try {
-      int nestedObjectCount = 0;
-      JsonWriter jsonWriter = new JsonWriter(writer);
-      do {
-        JsonToken token = jsonReader.peek();
-        switch (token) {
-          case BEGIN_ARRAY:
-            jsonReader.beginArray();
-            jsonWriter.beginArray();
-            break;
-          case END_ARRAY:
-            jsonReader.endArray();
-            jsonWriter.endArray();
-            break;
-          case BEGIN_OBJECT:
-            nestedObjectCount++;
-            jsonReader.beginObject();
-            jsonWriter.beginObject();
-            break;
-          case END_OBJECT:
-            jsonReader.endObject();
-            jsonWriter.endObject();
-            nestedObjectCount--;
-            break;
-          case NAME:
-            String name = jsonReader.nextName();
-            jsonWriter.name(name);
-            break;
-          case STRING:
-            String s = jsonReader.nextString();
-            jsonWriter.value(s);
-            break;
-          case NUMBER:
-            String n = jsonReader.nextString();
-            jsonWriter.value(n);
-            break;
-          case BOOLEAN:
-            boolean b = jsonReader.nextBoolean();
-            jsonWriter.value(b);
+      peekNonWhitespace();
+      int length = scanValue();
+      return new CharArrayReader(Arrays.copyOfRange(buffer, pos - length, pos));
+    } catch (IOException e) {
+      throw new RestSerializationException(e);
+    }
+  }
+
+  /**
+   * Finds the end of the value starting at {@code pos}, moves {@code pos} past it and returns its
+   * length. The characters of the value are kept in the buffer while more input is loaded.
+   */
+  private int scanValue() throws IOException {
+    int depth = 0;
+    boolean inString = false;
+    boolean escaped = false;
+    int i = pos;
+    while (true) {
+      if (i == limit) {
+        int shift = fill(pos);
+        i -= shift;
+        if (i == limit) {
+          if (depth == 0 && !inString && i > pos) {
+            // A scalar value which is terminated by the end of the stream, the error about the
+            // missing ']' will be reported on the next hasNext() call.
             break;
-          case NULL:
-            jsonReader.nextNull();
-            jsonWriter.nullValue();
+          }
+          throw new EOFException("End of input inside of a JSON array element");
+        }
+      }
+      char c = buffer[i];
+      if (inString) {
+        if (escaped) {
+          escaped = false;
+        } else if (c == '\\') {
+          escaped = true;
+        } else if (c == '"') {
+          inString = false;
+          if (depth == 0) {
+            i++;
             break;
-          case END_DOCUMENT:
-            nestedObjectCount--;
+          }
+        }
+      } else if (c == '"') {
+        inString = true;
+      } else if (c == '{' || c == '[') {
+        depth++;
+      } else if (c == '}' || c == ']') {
+        if (depth == 0) {
+          // End of the enclosing array, terminates a scalar value
+          break;
         }
-      } while (nestedObjectCount > 0);
+        depth--;
+        if (depth == 0) {
+          i++;
+          break;
+        }
+      } else if (depth == 0 && (c == ',' || isWhitespace(c))) {
+        break;
+      }
+      i++;
+    }
+    int start = pos;
+    pos = i;
+    if (i == start) {
+      throw syntaxError("Expected a JSON value");
+    }
+    return i - start;
+  }
 
-      jsonWriter.flush();
+  private void expect(char expected) throws IOException {
+    char c = peekNonWhitespace();
+    if (c != expected) {
+      throw syntaxError("Expected '" + expected + "' but was '" + c + "'");
+    }
+    pos++;
+  }
 
-      return reader;
-    } catch (IOException e) {
-      throw new RestSerializationException(e);
+  private char peekNonWhitespace() throws IOException {
+    while (true) {
+      if (pos == limit) {
+        fill(pos);
+        if (pos == limit) {
+          throw new EOFException("End of input inside of a JSON array");
+        }
+      }
+      char c = buffer[pos];
+      if (!isWhitespace(c)) {
+        return c;
+      }
+      pos++;
+    }
+  }
+
+  /**
+   * Reads more characters from the raw reader, keeping {@code buffer[keep, limit)}. Returns the
+   * number of positions the kept characters were shifted towards the beginning of the buffer; all
+   * offsets into the buffer held by the caller must be adjusted by it.
+   */
+  private int fill(int keep) throws IOException {
+    int shift = keep;
+    int kept = limit - keep;
+    if (kept == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    } else if (shift > 0) {
+      System.arraycopy(buffer, keep, buffer, 0, kept);
     }
+    pos -= shift;
+    limit = kept;
+    int read = rawReader.read(buffer, limit, buffer.length - limit);
+    if (read > 0) {
+      limit += read;
+    }
+    return shift;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+
+  private static IOException syntaxError(String message) {
+    return new IOException("Malformed JSON stream: " + message);
   }
 }
@@ -32,10 +32,12 @@ package com.google.api.gax.httpjson;
 import com.google.api.core.InternalApi;
 import com.google.api.pathtemplate.PathTemplate;
 import com.google.protobuf.Message;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /** Creates parts of a HTTP request from a protobuf message. */
 public class ProtoMessageRequestFormatter<RequestT extends Message>
@@ -51,6 +53,9 @@ public class ProtoMessageRequestFormatter<RequestT extends Message>
   private final FieldsExtractor<RequestT, Map<String, String>> pathVarsExtractor;
   private final List<String> additionalRawPaths;
   private final List<PathTemplate> additionalPathTemplates;
+  // Precompiled forms of the templates above, null elements if a template can't be compiled.
+  private final CompiledPathTemplate compiledPathTemplate;
+  private final List<CompiledPathTemplate> compiledAdditionalPathTemplates;
 
   private ProtoMessageRequestFormatter(
       FieldsExtractor<RequestT, String> requestBodyExtractor,
@@ -67,6 +72,13 @@ public class ProtoMessageRequestFormatter<RequestT extends Message>
     this.pathVarsExtractor = pathVarsExtractor;
     this.additionalRawPaths = additionalRawPaths;
     this.additionalPathTemplates = additionalPathTemplates;
+    this.compiledPathTemplate = CompiledPathTemplate.compile(rawPath, pathTemplate);
+    List<CompiledPathTemplate> compiledAdditionalPathTemplates = new ArrayList<>();
+    for (int i = 0; i < additionalRawPaths.size(); i++) {
+      compiledAdditionalPathTemplates.add(
+          CompiledPathTemplate.compile(additionalRawPaths.get(i), additionalPathTemplates.get(i)));
+    }
+    this.compiledAdditionalPathTemplates = compiledAdditionalPathTemplates;
   }
 
   public static <RequestT extends Message>
@@ -105,14 +117,19 @@ public class ProtoMessageRequestFormatter<RequestT extends Message>
   @Override
   public String getPath(RequestT apiMessage) {
     Map<String, String> pathVarsMap = pathVarsExtractor.extract(apiMessage);
-    String path = pathTemplate.instantiate(pathVarsMap);
-    if (pathTemplate.matches(path)) {
-      return path;
+    StringBuilder pathBuilder = new StringBuilder();
+    if (instantiate(pathTemplate, compiledPathTemplate, pathVarsMap, pathBuilder)) {
+      return pathBuilder.toString();
     }
-    for (PathTemplate additionalPathTemplate : additionalPathTemplates) {
-      String additionalPath = additionalPathTemplate.instantiate(pathVarsMap);
-      if (additionalPathTemplate.matches(additionalPath)) {
-        return additionalPath;
+    String path = pathBuilder.toString();
+    for (int i = 0; i < additionalPathTemplates.size(); i++) {
+      pathBuilder.setLength(0);
+      if (instantiate(
+          additionalPathTemplates.get(i),
+          compiledAdditionalPathTemplates.get(i),
+          pathVarsMap,
+          pathBuilder)) {
+        return pathBuilder.toString();
       }
     }
     // If there are no matches, we return the default path, this is for backwards compatibility.
@@ -120,6 +137,20 @@ public class ProtoMessageRequestFormatter<RequestT extends Message>
     return path;
   }
 
+  // Appends the instantiated path and returns whether it matches the template.
+  private static boolean instantiate(
+      PathTemplate pathTemplate,
+      @Nullable CompiledPathTemplate compiledPathTemplate,
+      Map<String, String> pathVarsMap,
+      StringBuilder pathBuilder) {
+    if (compiledPathTemplate != null) {
+      return compiledPathTemplate.instantiate(pathVarsMap, pathBuilder);
+    }
+    String path = pathTemplate.instantiate(pathVarsMap);
+    pathBuilder.append(path);
+    return pathTemplate.matches(path);
+  }
+
   @Override
   public List<PathTemplate> getAdditionalPathTemplates() {
     return additionalPathTemplates;
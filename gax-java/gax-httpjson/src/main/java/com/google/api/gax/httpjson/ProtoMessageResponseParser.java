@@ -43,10 +43,12 @@ public class ProtoMessageResponseParser<ResponseT extends Message>
 
   private final ResponseT defaultInstance;
   private final TypeRegistry defaultRegistry;
+  private final ProtoRestSerializer<ResponseT> defaultSerializer;
 
   private ProtoMessageResponseParser(ResponseT defaultInstance, TypeRegistry defaultRegistry) {
     this.defaultInstance = defaultInstance;
     this.defaultRegistry = defaultRegistry;
+    this.defaultSerializer = ProtoRestSerializer.create(defaultRegistry);
   }
 
   public static <ResponseT extends Message>
@@ -72,14 +74,21 @@ public class ProtoMessageResponseParser<ResponseT extends Message>
 
   @Override
   public ResponseT parse(Reader httpContent, TypeRegistry registry) {
-    return ProtoRestSerializer.<ResponseT>create(registry)
-        .fromJson(httpContent, defaultInstance.newBuilderForType());
+    return getSerializer(registry).fromJson(httpContent, defaultInstance.newBuilderForType());
   }
 
   /* {@inheritDoc} */
   @Override
   public String serialize(ResponseT response) {
-    return ProtoRestSerializer.create(defaultRegistry).toJson(response, false);
+    return defaultSerializer.toJson(response, false);
+  }
+
+  // Callers usually pass the same registry the parser was built with, reuse its serializer then.
+  private ProtoRestSerializer<ResponseT> getSerializer(TypeRegistry registry) {
+    if (registry == defaultSerializer.getTypeRegistry()) {
+      return defaultSerializer;
+    }
+    return ProtoRestSerializer.create(registry);
   }
 
   // Convert to @AutoValue if this class gets more complicated
@@ -30,13 +30,26 @@
 package com.google.api.gax.httpjson;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.BaseEncoding;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor.JavaType;
+import com.google.protobuf.Duration;
+import com.google.protobuf.FieldMask;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
+import com.google.protobuf.Timestamp;
 import com.google.protobuf.TypeRegistry;
+import com.google.protobuf.util.Durations;
+import com.google.protobuf.util.FieldMaskUtil;
 import com.google.protobuf.util.JsonFormat;
+import com.google.protobuf.util.JsonFormat.Parser;
 import com.google.protobuf.util.JsonFormat.Printer;
+import com.google.protobuf.util.Timestamps;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
@@ -50,23 +63,53 @@ import java.util.Map;
  * message.
  */
 public class ProtoRestSerializer<RequestT extends Message> {
+  // The serializer is immutable and its type parameter is only used for compile time checks, so a
+  // single instance can be shared by all the callers which don't need a custom type registry.
+  private static final ProtoRestSerializer<?> DEFAULT_INSTANCE =
+      new ProtoRestSerializer<>(TypeRegistry.getEmptyTypeRegistry());
 
   private final TypeRegistry registry;
+  // JsonFormat printers and parsers are immutable and thread safe, but not free to build.
+  private final Printer printer;
+  private final Printer numericEnumPrinter;
+  // Request bodies are only read by the server, so they are printed without indentation.
+  private final Printer bodyPrinter;
+  private final Printer numericEnumBodyPrinter;
+  private final Parser parser;
 
   private ProtoRestSerializer(TypeRegistry registry) {
     this.registry = registry;
+    this.printer = JsonFormat.printer().usingTypeRegistry(registry);
+    this.numericEnumPrinter = printer.printingEnumsAsInts();
+    this.bodyPrinter = printer.omittingInsignificantWhitespace();
+    this.numericEnumBodyPrinter = numericEnumPrinter.omittingInsignificantWhitespace();
+    this.parser = JsonFormat.parser().usingTypeRegistry(registry).ignoringUnknownFields();
   }
 
-  /** Creates a new instance of ProtoRestSerializer. */
+  /**
+   * Returns an instance of ProtoRestSerializer. The returned instance is immutable and may be
+   * shared between callers.
+   */
+  @SuppressWarnings("unchecked")
   public static <RequestT extends Message> ProtoRestSerializer<RequestT> create() {
-    return create(TypeRegistry.getEmptyTypeRegistry());
+    return (ProtoRestSerializer<RequestT>) DEFAULT_INSTANCE;
   }
 
-  /** Creates a new instance of ProtoRestSerializer. */
+  /**
+   * Returns an instance of ProtoRestSerializer using the provided {@code registry}. The returned
+   * instance is immutable and may be shared between callers.
+   */
   static <RequestT extends Message> ProtoRestSerializer<RequestT> create(TypeRegistry registry) {
+    if (registry == DEFAULT_INSTANCE.registry) {
+      return create();
+    }
     return new ProtoRestSerializer<>(registry);
   }
 
+  TypeRegistry getTypeRegistry() {
+    return registry;
+  }
+
   /**
    * Serializes the data from {@code message} to a JSON string. The implementation relies on
    * protobuf native JSON formatter.
@@ -78,13 +121,12 @@ public class ProtoRestSerializer<RequestT extends Message> {
    *     format
    */
   String toJson(Message message, boolean numericEnum) {
+    return print(numericEnum ? numericEnumPrinter : printer, message);
+  }
+
+  private static String print(Printer printer, Message message) {
     try {
-      Printer printer = JsonFormat.printer().usingTypeRegistry(registry);
-      if (numericEnum) {
-        return printer.printingEnumsAsInts().print(message);
-      } else {
-        return printer.print(message);
-      }
+      return printer.print(message);
     } catch (InvalidProtocolBufferException e) {
       throw new RestSerializationException("Failed to serialize message to JSON", e);
     }
@@ -101,7 +143,7 @@ public class ProtoRestSerializer<RequestT extends Message> {
   @SuppressWarnings("unchecked")
   RequestT fromJson(Reader json, Message.Builder builder) {
     try {
-      JsonFormat.parser().usingTypeRegistry(registry).ignoringUnknownFields().merge(json, builder);
+      parser.merge(json, builder);
       return (RequestT) builder.build();
     } catch (IOException e) {
       throw new RestSerializationException("Failed to parse response message", e);
@@ -120,23 +162,154 @@ public class ProtoRestSerializer<RequestT extends Message> {
     fields.put(fieldName, String.valueOf(fieldValue));
   }
 
+  /**
+   * Flattens {@code message} into dotted query parameter names by walking its descriptor directly.
+   * The produced names and values are the same as if the message was printed with {@link
+   * JsonFormat} (using numeric enums) and the resulting JSON tree was flattened, but without
+   * building the intermediate JSON string and tree.
+   */
   private void putDecomposedMessageQueryParam(
+      Map<String, List<String>> fields, String fieldName, Message message) {
+    Descriptor descriptor = message.getDescriptorForType();
+    switch (descriptor.getFullName()) {
+      case "google.protobuf.Timestamp":
+        addQueryParamValue(fields, fieldName, Timestamps.toString(toTimestamp(message)));
+        return;
+      case "google.protobuf.Duration":
+        addQueryParamValue(fields, fieldName, Durations.toString(toDuration(message)));
+        return;
+      case "google.protobuf.FieldMask":
+        addQueryParamValue(fields, fieldName, FieldMaskUtil.toJsonString(toFieldMask(message)));
+        return;
+      case "google.protobuf.DoubleValue":
+      case "google.protobuf.FloatValue":
+      case "google.protobuf.Int64Value":
+      case "google.protobuf.UInt64Value":
+      case "google.protobuf.Int32Value":
+      case "google.protobuf.UInt32Value":
+      case "google.protobuf.BoolValue":
+      case "google.protobuf.StringValue":
+      case "google.protobuf.BytesValue":
+        // Wrappers are printed as their bare value, even when it is the default one.
+        FieldDescriptor valueField = descriptor.findFieldByName("value");
+        addQueryParamValue(
+            fields, fieldName, scalarToString(valueField, message.getField(valueField)));
+        return;
+      case "google.protobuf.Any":
+      case "google.protobuf.Struct":
+      case "google.protobuf.Value":
+      case "google.protobuf.ListValue":
+        // These have dynamic JSON representations, defer to the JSON printer for them.
+        putDecomposedJsonQueryParam(
+            fields, fieldName, JsonParser.parseString(toJson(message, true)));
+        return;
+      default:
+        break;
+    }
+
+    for (Map.Entry<FieldDescriptor, Object> field : message.getAllFields().entrySet()) {
+      FieldDescriptor fieldDescriptor = field.getKey();
+      String childName = fieldName + '.' + fieldDescriptor.getJsonName();
+      if (fieldDescriptor.isMapField()) {
+        FieldDescriptor keyField = fieldDescriptor.getMessageType().findFieldByName("key");
+        FieldDescriptor valueField = fieldDescriptor.getMessageType().findFieldByName("value");
+        for (Object entry : (List<?>) field.getValue()) {
+          Message mapEntry = (Message) entry;
+          putDecomposedFieldQueryParam(
+              fields,
+              childName + '.' + scalarToString(keyField, mapEntry.getField(keyField)),
+              valueField,
+              mapEntry.getField(valueField));
+        }
+      } else if (fieldDescriptor.isRepeated()) {
+        for (Object element : (List<?>) field.getValue()) {
+          putDecomposedFieldQueryParam(fields, childName, fieldDescriptor, element);
+        }
+      } else {
+        putDecomposedFieldQueryParam(fields, childName, fieldDescriptor, field.getValue());
+      }
+    }
+  }
+
+  private void putDecomposedFieldQueryParam(
+      Map<String, List<String>> fields,
+      String fieldName,
+      FieldDescriptor fieldDescriptor,
+      Object value) {
+    if (fieldDescriptor.getJavaType() == JavaType.MESSAGE) {
+      putDecomposedMessageQueryParam(fields, fieldName, (Message) value);
+    } else {
+      addQueryParamValue(fields, fieldName, scalarToString(fieldDescriptor, value));
+    }
+  }
+
+  private void putDecomposedJsonQueryParam(
       Map<String, List<String>> fields, String fieldName, JsonElement parsed) {
     if (parsed.isJsonPrimitive() || parsed.isJsonNull()) {
-      putQueryParam(fields, fieldName, parsed.getAsString());
+      addQueryParamValue(fields, fieldName, parsed.getAsString());
     } else if (parsed.isJsonArray()) {
       for (JsonElement element : parsed.getAsJsonArray()) {
-        putDecomposedMessageQueryParam(fields, fieldName, element);
+        putDecomposedJsonQueryParam(fields, fieldName, element);
       }
     } else {
       // it is a json object
-      for (String key : parsed.getAsJsonObject().keySet()) {
-        putDecomposedMessageQueryParam(
-            fields, String.format("%s.%s", fieldName, key), parsed.getAsJsonObject().get(key));
+      for (Map.Entry<String, JsonElement> entry : parsed.getAsJsonObject().entrySet()) {
+        putDecomposedJsonQueryParam(fields, fieldName + '.' + entry.getKey(), entry.getValue());
       }
     }
   }
 
+  private static void addQueryParamValue(
+      Map<String, List<String>> fields, String fieldName, String value) {
+    fields.computeIfAbsent(fieldName, k -> new ArrayList<>()).add(value);
+  }
+
+  // Mirrors how JsonFormat prints scalar values, with enums printed as numbers.
+  private static String scalarToString(FieldDescriptor fieldDescriptor, Object value) {
+    switch (fieldDescriptor.getType()) {
+      case UINT32:
+      case FIXED32:
+        return Integer.toUnsignedString((Integer) value);
+      case UINT64:
+      case FIXED64:
+        return Long.toUnsignedString((Long) value);
+      case BYTES:
+        return BaseEncoding.base64().encode(((ByteString) value).toByteArray());
+      case ENUM:
+        return String.valueOf(((EnumValueDescriptor) value).getNumber());
+      default:
+        return String.valueOf(value);
+    }
+  }
+
+  private static Timestamp toTimestamp(Message message) {
+    return message instanceof Timestamp
+        ? (Timestamp) message
+        : convert(message, Timestamp.newBuilder());
+  }
+
+  private static Duration toDuration(Message message) {
+    return message instanceof Duration
+        ? (Duration) message
+        : convert(message, Duration.newBuilder());
+  }
+
+  private static FieldMask toFieldMask(Message message) {
+    return message instanceof FieldMask
+        ? (FieldMask) message
+        : convert(message, FieldMask.newBuilder());
+  }
+
+  // Handles well known types passed in as DynamicMessage.
+  @SuppressWarnings("unchecked")
+  private static <T extends Message> T convert(Message message, Message.Builder builder) {
+    try {
+      return (T) builder.mergeFrom(message.toByteString()).build();
+    } catch (InvalidProtocolBufferException e) {
+      throw new RestSerializationException("Failed to convert well known type", e);
+    }
+  }
+
   /**
    * Puts a message field in {@code fields} map which will be used to populate query parameters of a
    * request.
@@ -151,9 +324,7 @@ public class ProtoRestSerializer<RequestT extends Message> {
         fieldValue instanceof List<?> ? (List<Object>) fieldValue : ImmutableList.of(fieldValue);
     for (Object fieldValueItem : toProcess) {
       if (fieldValueItem instanceof Message) {
-        String json = toJson(((Message) fieldValueItem), true);
-        JsonElement parsed = JsonParser.parseString(json);
-        putDecomposedMessageQueryParam(fields, fieldName, parsed);
+        putDecomposedMessageQueryParam(fields, fieldName, (Message) fieldValueItem);
       } else {
         currentParamValueList.add(String.valueOf(fieldValueItem));
       }
@@ -168,23 +339,25 @@ public class ProtoRestSerializer<RequestT extends Message> {
   }
 
   /**
-   * Serializes a message to a request body in a form of JSON-encoded string.
+   * Serializes a message to a request body in a form of JSON-encoded string, without insignificant
+   * whitespace.
    *
    * @param fieldName a name of a request message field this message belongs to
    * @param fieldValue a field value to serialize
    */
   public String toBody(String fieldName, RequestT fieldValue) {
-    return toJson(fieldValue, false);
+    return toBody(fieldName, fieldValue, false);
   }
 
   /**
-   * Serializes a message to a request body in a form of JSON-encoded string.
+   * Serializes a message to a request body in a form of JSON-encoded string, without insignificant
+   * whitespace.
    *
    * @param fieldName a name of a request message field this message belongs to
    * @param fieldValue a field value to serialize
    * @param numericEnum a boolean flag that determine if enum values should be serialized to number
    */
   public String toBody(String fieldName, RequestT fieldValue, boolean numericEnum) {
-    return toJson(fieldValue, numericEnum);
+    return print(numericEnum ? numericEnumBodyPrinter : bodyPrinter, fieldValue);
   }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.httpjson;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.api.pathtemplate.PathTemplate;
+import com.google.api.pathtemplate.ValidationException;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class CompiledPathTemplateTest {
+  private static final List<String> TEMPLATES =
+      Arrays.asList(
+          "/v1/{name}",
+          "/v1beta1/{name=projects/*/locations/*}:cancel",
+          "/v1/projects/{project}/zones/{zone}/instances/{instance}",
+          "/v1/{parent=projects/*}/things",
+          "/v1/{name=operations/**}",
+          "/v1/{name=projects/*/**}/info",
+          "/v1/{name=users}/{other=*/rooms/*}",
+          "/v1/{info.f_string}/{info.f_int32}:verb");
+
+  private static final List<String> VALUES =
+      Arrays.asList(
+          "",
+          "x",
+          "a b",
+          "a/b",
+          "projects/p1",
+          "projects/p1/locations/l1",
+          "projects/p1/locations/l1/extra",
+          " projects / p1 /locations/l1",
+          "operations",
+          "operations/op1/nested",
+          "users",
+          "u/rooms/r",
+          "%2F+:?☺",
+          "//");
+
+  @Test
+  void instantiate_matchesPathTemplate() {
+    for (String rawPath : TEMPLATES) {
+      PathTemplate pathTemplate = PathTemplate.create(rawPath);
+      CompiledPathTemplate compiled = CompiledPathTemplate.compile(rawPath, pathTemplate);
+      assertThat(compiled).isNotNull();
+
+      for (String first : VALUES) {
+        for (String second : VALUES) {
+          ImmutableMap.Builder<String, String> values = ImmutableMap.builder();
+          int i = 0;
+          for (String var : pathTemplate.vars()) {
+            values.put(var, i++ % 2 == 0 ? first : second);
+          }
+          assertSameAsPathTemplate(pathTemplate, compiled, values.build());
+        }
+      }
+    }
+  }
+
+  @Test
+  void instantiate_unboundVariable() {
+    String rawPath = "/v1/{name=projects/*}";
+    CompiledPathTemplate compiled =
+        CompiledPathTemplate.compile(rawPath, PathTemplate.create(rawPath));
+    ValidationException e =
+        assertThrows(
+            ValidationException.class,
+            () -> compiled.instantiate(ImmutableMap.of("other", "x"), new StringBuilder()));
+    assertThat(e).hasMessageThat().contains("Unbound variable 'name'");
+  }
+
+  @Test
+  void compile_unsupportedTemplates() {
+    for (String rawPath :
+        Arrays.asList(
+            "/v1/{user_a}~{user_b}", "/v1/*/things", "/v1/{name=projects/*}/**", "/v1/a+b/{x}")) {
+      assertThat(CompiledPathTemplate.compile(rawPath, PathTemplate.create(rawPath))).isNull();
+    }
+  }
+
+  private static void assertSameAsPathTemplate(
+      PathTemplate pathTemplate, CompiledPathTemplate compiled, Map<String, String> values) {
+    String expectedPath = pathTemplate.instantiate(values);
+    StringBuilder path = new StringBuilder();
+    boolean matches = compiled.instantiate(values, path);
+
+    assertThat(path.toString()).isEqualTo(expectedPath);
+    assertWithMessage(pathTemplate + " " + values)
+        .that(matches)
+        .isEqualTo(pathTemplate.matches(expectedPath));
+  }
+}
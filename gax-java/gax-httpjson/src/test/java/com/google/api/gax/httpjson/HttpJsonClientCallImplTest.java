@@ -29,7 +29,6 @@
  */
 package com.google.api.gax.httpjson;
 
-import com.google.api.client.http.HttpTransport;
 import com.google.common.truth.Truth;
 import com.google.protobuf.TypeRegistry;
 import java.io.ByteArrayInputStream;
@@ -50,7 +49,7 @@ class HttpJsonClientCallImplTest {
   @Mock private HttpResponseParser httpResponseParser;
   @Mock private HttpJsonCallOptions httpJsonCallOptions;
   @Mock private TypeRegistry typeRegistry;
-  @Mock private HttpTransport httpTransport;
+  @Mock private HttpRequestFactoryCache requestFactories;
   @Mock private Executor executor;
   @Mock private HttpJsonClientCall.Listener listener;
 
@@ -65,7 +64,7 @@ class HttpJsonClientCallImplTest {
             apiMethodDescriptor,
             "",
             httpJsonCallOptions,
-            httpTransport,
+            requestFactories,
             executor,
             deadlineSchedulerExecutor);
     httpJsonClientCall.start(listener, HttpJsonMetadata.newBuilder().build());
@@ -107,7 +106,7 @@ class HttpJsonClientCallImplTest {
             apiMethodDescriptor,
             "",
             httpJsonCallOptions,
-            httpTransport,
+            requestFactories,
             executor,
             deadlineSchedulerExecutor);
     httpJsonClientCall.start(listener, HttpJsonMetadata.newBuilder().build());
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.httpjson;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.auth.Credentials;
+import com.google.auth.http.HttpCredentialsAdapter;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import java.lang.ref.WeakReference;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class HttpRequestFactoryCacheTest {
+
+  @Test
+  void getRequestFactory_reusedPerCredentials() {
+    MockHttpTransport transport = new MockHttpTransport();
+    HttpRequestFactoryCache cache = new HttpRequestFactoryCache(transport);
+    Credentials credentials = Mockito.mock(Credentials.class);
+    Credentials otherCredentials = Mockito.mock(Credentials.class);
+
+    HttpRequestFactory defaultFactory = cache.getRequestFactory(null);
+    HttpRequestFactory credentialsFactory = cache.getRequestFactory(credentials);
+
+    assertThat(cache.getHttpTransport()).isSameInstanceAs(transport);
+    assertThat(defaultFactory.getTransport()).isSameInstanceAs(transport);
+    assertThat(defaultFactory.getInitializer()).isNull();
+    assertThat(cache.getRequestFactory(null)).isSameInstanceAs(defaultFactory);
+
+    assertThat(credentialsFactory.getInitializer()).isInstanceOf(HttpCredentialsAdapter.class);
+    assertThat(((HttpCredentialsAdapter) credentialsFactory.getInitializer()).getCredentials())
+        .isSameInstanceAs(credentials);
+    assertThat(cache.getRequestFactory(credentials)).isSameInstanceAs(credentialsFactory);
+    assertThat(cache.getRequestFactory(otherCredentials)).isNotSameInstanceAs(credentialsFactory);
+  }
+
+  @Test
+  void getRequestFactory_perCallCredentialsAreBounded() {
+    HttpRequestFactoryCache cache = new HttpRequestFactoryCache(new MockHttpTransport());
+    Credentials longLivedCredentials = GoogleCredentials.create(new AccessToken("token", null));
+    // Only a weak reference is kept, so that the test doesn't keep the factory alive by itself
+    WeakReference<HttpRequestFactory> longLivedFactory =
+        new WeakReference<>(cache.getRequestFactory(longLivedCredentials));
+
+    for (int i = 0; i < 10 * HttpRequestFactoryCache.MAX_CREDENTIALS_FACTORIES; i++) {
+      // Per-call credentials which are dropped right after the call
+      cache.getRequestFactory(GoogleCredentials.create(new AccessToken("token" + i, null)));
+      // The client's own credentials are used by the calls in between
+      cache.getRequestFactory(longLivedCredentials);
+      assertThat(cache.getCachedFactoryCount())
+          .isAtMost(HttpRequestFactoryCache.MAX_CREDENTIALS_FACTORIES);
+    }
+
+    // Nothing outside of the cache references the client's factory, and it is still cached
+    System.gc();
+    assertThat(longLivedFactory.get()).isNotNull();
+    assertThat(cache.getRequestFactory(longLivedCredentials))
+        .isSameInstanceAs(longLivedFactory.get());
+  }
+}
@@ -113,7 +113,7 @@ class HttpRequestRunnableTest {
             methodDescriptor,
             ENDPOINT,
             HttpJsonCallOptions.newBuilder().build(),
-            new MockHttpTransport(),
+            new HttpRequestFactoryCache(new MockHttpTransport()),
             HttpJsonMetadata.newBuilder().build(),
             (result) -> {});
 
@@ -139,7 +139,7 @@ class HttpRequestRunnableTest {
             methodDescriptor,
             "www.googleapis.com/animals/v1/projects",
             HttpJsonCallOptions.newBuilder().build(),
-            new MockHttpTransport(),
+            new HttpRequestFactoryCache(new MockHttpTransport()),
             HttpJsonMetadata.newBuilder().build(),
             (result) -> {});
 
@@ -168,7 +168,7 @@ class HttpRequestRunnableTest {
             methodDescriptor,
             "www.googleapis.com/animals/v1/projects",
             HttpJsonCallOptions.newBuilder().build(),
-            new MockHttpTransport(),
+            new HttpRequestFactoryCache(new MockHttpTransport()),
             HttpJsonMetadata.newBuilder().build(),
             (result) -> {});
 
@@ -226,7 +226,7 @@ class HttpRequestRunnableTest {
             methodDescriptor,
             "www.googleapis.com/animals/v1/projects",
             HttpJsonCallOptions.newBuilder().build(),
-            new MockHttpTransport(),
+            new HttpRequestFactoryCache(new MockHttpTransport()),
             HttpJsonMetadata.newBuilder().build(),
             (result) -> {});
 
@@ -262,7 +262,7 @@ class HttpRequestRunnableTest {
             HttpJsonCallOptions.newBuilder()
                 .setTimeoutDuration(java.time.Duration.ofMillis(5000L))
                 .build(),
-            new MockHttpTransport(),
+            new HttpRequestFactoryCache(new MockHttpTransport()),
             HttpJsonMetadata.newBuilder().build(),
             (result) -> {});
 
@@ -289,7 +289,7 @@ class HttpRequestRunnableTest {
             HttpJsonCallOptions.newBuilder()
                 .setTimeoutDuration(java.time.Duration.ofMillis(30000L))
                 .build(),
-            new MockHttpTransport(),
+            new HttpRequestFactoryCache(new MockHttpTransport()),
             HttpJsonMetadata.newBuilder().build(),
             (result) -> {});
 
@@ -31,19 +31,37 @@ package com.google.api.gax.httpjson;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
+import com.google.api.core.ApiFuture;
 import com.google.api.gax.rpc.HeaderProvider;
 import com.google.api.gax.rpc.TransportChannelProvider;
 import com.google.api.gax.rpc.mtls.AbstractMtlsTransportChannelTest;
 import com.google.api.gax.rpc.mtls.CertificateBasedAccess;
 import com.google.auth.mtls.MtlsProvider;
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.Field;
+import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -52,6 +70,31 @@ class InstantiatingHttpJsonChannelProviderTest extends AbstractMtlsTransportChan
 
   private static final String DEFAULT_ENDPOINT = "localhost:8080";
   private static final Map<String, String> DEFAULT_HEADER_MAP = Collections.emptyMap();
+
+  private static final ApiMethodDescriptor<Field, Field> FAKE_METHOD_DESCRIPTOR =
+      ApiMethodDescriptor.<Field, Field>newBuilder()
+          .setFullMethodName("google.cloud.v1.Fake/FakeMethod")
+          .setHttpMethod("POST")
+          .setRequestFormatter(
+              ProtoMessageRequestFormatter.<Field>newBuilder()
+                  .setPath(
+                      "/fake/v1/name/{name}",
+                      request -> {
+                        Map<String, String> fields = new HashMap<>();
+                        ProtoRestSerializer<Field> serializer = ProtoRestSerializer.create();
+                        serializer.putPathParam(fields, "name", request.getName());
+                        return fields;
+                      })
+                  .setQueryParamsExtractor(request -> new HashMap<>())
+                  .setRequestBodyExtractor(
+                      request -> ProtoRestSerializer.create().toBody("*", request, false))
+                  .build())
+          .setResponseParser(
+              ProtoMessageResponseParser.<Field>newBuilder()
+                  .setDefaultInstance(Field.getDefaultInstance())
+                  .build())
+          .build();
+
   private CertificateBasedAccess certificateBasedAccess;
 
   @BeforeEach
@@ -180,6 +223,97 @@ class InstantiatingHttpJsonChannelProviderTest extends AbstractMtlsTransportChan
     instantiatingHttpJsonChannelProvider.getTransportChannel().shutdownNow();
   }
 
+  @Test
+  void createHttpTransport_useJdkHttpClient() throws IOException, GeneralSecurityException {
+    assumeTrue(JdkHttpTransport.isAvailable());
+    InstantiatingHttpJsonChannelProvider channelProvider =
+        InstantiatingHttpJsonChannelProvider.newBuilder()
+            .setEndpoint(DEFAULT_ENDPOINT)
+            .setUseJdkHttpClient(true)
+            .setCertificateBasedAccess(certificateBasedAccess)
+            .build();
+
+    assertThat(channelProvider.createHttpTransport()).isInstanceOf(JdkHttpTransport.class);
+    assertThat(channelProvider.toBuilder().build().createHttpTransport())
+        .isInstanceOf(JdkHttpTransport.class);
+  }
+
+  @Test
+  void virtualThreads_concurrencyScalesPastPoolSize() throws Exception {
+    assumeTrue(ManagedHttpJsonChannel.isVirtualThreadAvailable());
+    int concurrentCalls = 200;
+    // The server holds every response until all the calls have arrived, so the calls only
+    // complete if they are all in flight at the same time.
+    CountDownLatch arrived = new CountDownLatch(concurrentCalls);
+    ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    HttpServer server =
+        HttpServer.create(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), concurrentCalls);
+    server.setExecutor(serverExecutor);
+    server.createContext(
+        "/",
+        exchange -> {
+          ByteStreams.exhaust(exchange.getRequestBody());
+          arrived.countDown();
+          boolean allArrived;
+          try {
+            allArrived = arrived.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            allArrived = false;
+          }
+          byte[] response = "{\"name\": \"cat\"}".getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(allArrived ? 200 : 503, response.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+          }
+        });
+    server.start();
+
+    // A single thread could only run one blocking call at a time
+    ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+    InstantiatingHttpJsonChannelProvider provider =
+        InstantiatingHttpJsonChannelProvider.newBuilder()
+            .setEndpoint("http://localhost:" + server.getAddress().getPort())
+            .setExecutor(executor)
+            .setUseVirtualThreads(true)
+            .setHeaderProvider(Mockito.mock(HeaderProvider.class))
+            .setCertificateBasedAccess(certificateBasedAccess)
+            .build();
+    HttpJsonTransportChannel transportChannel = provider.getTransportChannel();
+    try {
+      HttpJsonChannel channel = transportChannel.getManagedChannel();
+      List<ApiFuture<Field>> responses = new ArrayList<>();
+      for (int i = 0; i < concurrentCalls; i++) {
+        responses.add(
+            HttpJsonClientCalls.futureUnaryCall(
+                channel.newCall(FAKE_METHOD_DESCRIPTOR, HttpJsonCallOptions.DEFAULT),
+                Field.newBuilder().setName("cat").build(),
+                HttpJsonCallContext.createDefault()));
+      }
+      for (ApiFuture<Field> response : responses) {
+        assertThat(response.get(30, TimeUnit.SECONDS).getName()).isEqualTo("cat");
+      }
+    } finally {
+      transportChannel.shutdownNow();
+      executor.shutdown();
+      server.stop(0);
+      serverExecutor.shutdownNow();
+    }
+  }
+
+  @Test
+  void virtualThreads_unavailable() {
+    assumeFalse(ManagedHttpJsonChannel.isVirtualThreadAvailable());
+    InstantiatingHttpJsonChannelProvider.Builder builder =
+        InstantiatingHttpJsonChannelProvider.newBuilder()
+            .setEndpoint(DEFAULT_ENDPOINT)
+            .setUseVirtualThreads(true)
+            .setCertificateBasedAccess(certificateBasedAccess);
+    assertThrows(IllegalStateException.class, builder::build);
+  }
+
   @Override
   protected Object getMtlsObjectFromTransportChannel(
       MtlsProvider provider, CertificateBasedAccess certificateBasedAccess)
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.httpjson;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class JdkHttpTransportTest {
+  private HttpServer server;
+  private String baseUrl;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    assumeTrue(JdkHttpTransport.isAvailable());
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(
+        "/echo",
+        exchange -> {
+          byte[] requestBody = ByteStreams.toByteArray(exchange.getRequestBody());
+          String responseBody =
+              exchange.getRequestMethod()
+                  + " "
+                  + exchange.getRequestHeaders().getFirst("Content-Type")
+                  + " "
+                  + new String(requestBody, StandardCharsets.UTF_8);
+          byte[] response = responseBody.getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "text/plain");
+          exchange.getResponseHeaders().add("x-test", "value");
+          exchange.sendResponseHeaders(200, response.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+          }
+        });
+    server.createContext(
+        "/missing",
+        exchange -> {
+          exchange.sendResponseHeaders(404, -1);
+          exchange.close();
+        });
+    server.start();
+    baseUrl = "http://localhost:" + server.getAddress().getPort();
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void execute_nativePatch() throws IOException {
+    JdkHttpTransport transport = new JdkHttpTransport(null);
+    assertThat(transport.supportsMethod("PATCH")).isTrue();
+
+    HttpRequest request =
+        transport
+            .createRequestFactory()
+            .buildRequest(
+                "PATCH",
+                new GenericUrl(baseUrl + "/echo"),
+                new JsonStringHttpContent("{\"name\":\"cat\"}"));
+    HttpResponse response = request.execute();
+
+    assertThat(response.getStatusCode()).isEqualTo(200);
+    assertThat(response.getHeaders().getFirstHeaderStringValue("x-test")).isEqualTo("value");
+    assertThat(response.parseAsString())
+        .isEqualTo("PATCH application/json; charset=utf-8 {\"name\":\"cat\"}");
+  }
+
+  @Test
+  void execute_errorStatus() throws IOException {
+    JdkHttpTransport transport = new JdkHttpTransport(null);
+    HttpRequest request =
+        transport.createRequestFactory().buildGetRequest(new GenericUrl(baseUrl + "/missing"));
+
+    HttpResponseException e = assertThrows(HttpResponseException.class, request::execute);
+    assertThat(e.getStatusCode()).isEqualTo(404);
+  }
+
+  @Test
+  void shutdown_closesClient() throws IOException {
+    assumeTrue(JdkHttpTransport.supportsShutdown());
+    JdkHttpTransport transport = new JdkHttpTransport(null);
+    HttpRequestFactory requestFactory = transport.createRequestFactory();
+    HttpResponse response =
+        requestFactory.buildGetRequest(new GenericUrl(baseUrl + "/echo")).execute();
+    assertThat(response.getStatusCode()).isEqualTo(200);
+    response.disconnect();
+
+    transport.shutdown();
+    HttpRequest request = requestFactory.buildGetRequest(new GenericUrl(baseUrl + "/echo"));
+    assertThrows(IOException.class, request::execute);
+  }
+}
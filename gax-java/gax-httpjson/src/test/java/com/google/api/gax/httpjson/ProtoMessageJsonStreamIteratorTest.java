@@ -30,13 +30,19 @@
 
 package com.google.api.gax.httpjson;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 import com.google.common.truth.Truth;
 import com.google.protobuf.Field;
 import com.google.protobuf.Int64Value;
 import com.google.protobuf.Option;
 import com.google.protobuf.util.JsonFormat;
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import org.junit.jupiter.api.Test;
 
 class ProtoMessageJsonStreamIteratorTest {
@@ -235,4 +241,118 @@ class ProtoMessageJsonStreamIteratorTest {
 
     streamIter.close();
   }
+
+  @Test
+  void testElementsLargerThanBuffer() throws IOException {
+    StringBuilder longName = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      longName.append(i % 10 == 0 ? "]}\\\"," : "x");
+    }
+    Field expectedData =
+        Field.newBuilder().setName(longName.toString()).setDefaultValue("{[").build();
+    String element = JsonFormat.printer().print(expectedData);
+    String jsonData = "[" + element + " ,\n" + element + "]";
+
+    // Deliver the input in small chunks to exercise elements spanning several reads
+    ProtoMessageJsonStreamIterator streamIter =
+        new ProtoMessageJsonStreamIterator(new ChunkedReader(new StringReader(jsonData), 7));
+
+    for (int i = 0; i < 2; i++) {
+      Truth.assertThat(streamIter.hasNext()).isTrue();
+      Field.Builder builder = Field.newBuilder();
+      JsonFormat.parser().merge(streamIter.next(), builder);
+      Truth.assertThat(builder.build()).isEqualTo(expectedData);
+    }
+    Truth.assertThat(streamIter.hasNext()).isFalse();
+
+    streamIter.close();
+  }
+
+  @Test
+  void testElementSurvivesLookAhead() throws IOException {
+    // The caller checks hasNext() before parsing the element it just got, which may refill the
+    // buffer when the element ends at a read boundary.
+    ProtoMessageJsonStreamIterator streamIter =
+        new ProtoMessageJsonStreamIterator(
+            new ScriptedReader("[{\"name\":\"a\"}", ",{\"name\":\"b\"}]"));
+    assertElementsAfterLookAhead(streamIter, "a", "b");
+
+    // One character per read splits every element in the middle and right after its end.
+    String jsonData = "[{\"name\":\"a\"}, {\"name\":\"b\"},{\"name\":\"c\"}]";
+    streamIter =
+        new ProtoMessageJsonStreamIterator(new ChunkedReader(new StringReader(jsonData), 1));
+    assertElementsAfterLookAhead(streamIter, "a", "b", "c");
+  }
+
+  @Test
+  void testMalformedStream() throws IOException {
+    ProtoMessageJsonStreamIterator streamIter =
+        new ProtoMessageJsonStreamIterator(new StringReader("[{\"name\": \"cat\"} {}]"));
+    Truth.assertThat(streamIter.hasNext()).isTrue();
+    streamIter.next();
+    assertThrows(RestSerializationException.class, streamIter::hasNext);
+    streamIter.close();
+
+    ProtoMessageJsonStreamIterator truncatedIter =
+        new ProtoMessageJsonStreamIterator(new StringReader("[{\"name\": \"ca"));
+    Truth.assertThat(truncatedIter.hasNext()).isTrue();
+    assertThrows(RestSerializationException.class, truncatedIter::next);
+    truncatedIter.close();
+  }
+
+  private static void assertElementsAfterLookAhead(
+      ProtoMessageJsonStreamIterator streamIter, String... expectedNames) throws IOException {
+    Reader[] elements = new Reader[expectedNames.length];
+    Truth.assertThat(streamIter.hasNext()).isTrue();
+    for (int i = 0; i < expectedNames.length; i++) {
+      elements[i] = streamIter.next();
+      Truth.assertThat(streamIter.hasNext()).isEqualTo(i < expectedNames.length - 1);
+    }
+    for (int i = 0; i < expectedNames.length; i++) {
+      Field.Builder builder = Field.newBuilder();
+      JsonFormat.parser().merge(elements[i], builder);
+      Truth.assertThat(builder.getName()).isEqualTo(expectedNames[i]);
+    }
+    streamIter.close();
+  }
+
+  /** Returns the given chunks one per read. */
+  private static class ScriptedReader extends Reader {
+    private final ArrayDeque<String> chunks;
+
+    ScriptedReader(String... chunks) {
+      this.chunks = new ArrayDeque<>(Arrays.asList(chunks));
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+      String chunk = chunks.poll();
+      if (chunk == null) {
+        return -1;
+      }
+      int count = Math.min(len, chunk.length());
+      chunk.getChars(0, count, cbuf, off);
+      if (count < chunk.length()) {
+        chunks.addFirst(chunk.substring(count));
+      }
+      return count;
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  private static class ChunkedReader extends FilterReader {
+    private final int chunkSize;
+
+    ChunkedReader(Reader in, int chunkSize) {
+      super(in);
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      return super.read(cbuf, off, Math.min(len, chunkSize));
+    }
+  }
 }
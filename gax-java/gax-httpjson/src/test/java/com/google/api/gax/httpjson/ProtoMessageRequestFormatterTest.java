@@ -104,16 +104,8 @@ class ProtoMessageRequestFormatterTest {
   void getRequestBody() {
     String bodyJson = formatter.getRequestBody(field);
     String expectedBodyJson =
-        "{\n"
-            + "  \"cardinality\": \"CARDINALITY_OPTIONAL\",\n"
-            + "  \"number\": 2,\n"
-            + "  \"name\": \"field_name1\",\n"
-            + "  \"options\": [{\n"
-            + "    \"name\": \"opt_name1\"\n"
-            + "  }, {\n"
-            + "    \"name\": \"opt_name2\"\n"
-            + "  }]\n"
-            + "}";
+        "{\"cardinality\":\"CARDINALITY_OPTIONAL\",\"number\":2,\"name\":\"field_name1\","
+            + "\"options\":[{\"name\":\"opt_name1\"},{\"name\":\"opt_name2\"}]}";
     Truth.assertThat(bodyJson).isEqualTo(expectedBodyJson);
 
     // Test toBuilder() case
@@ -31,19 +31,33 @@
 package com.google.api.gax.httpjson;
 
 import com.google.common.truth.Truth;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.protobuf.BoolValue;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.BytesValue;
+import com.google.protobuf.DoubleValue;
 import com.google.protobuf.Duration;
 import com.google.protobuf.Field;
 import com.google.protobuf.Field.Cardinality;
 import com.google.protobuf.FieldMask;
 import com.google.protobuf.FloatValue;
 import com.google.protobuf.Int32Value;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Message;
 import com.google.protobuf.Option;
+import com.google.protobuf.Struct;
 import com.google.protobuf.Timestamp;
 import com.google.protobuf.TypeRegistry;
+import com.google.protobuf.UInt32Value;
+import com.google.protobuf.UInt64Value;
+import com.google.protobuf.Value;
+import com.google.rpc.ErrorInfo;
 import com.google.rpc.RetryInfo;
 import com.google.type.Interval;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -127,6 +141,18 @@ class ProtoRestSerializerTest {
     Truth.assertThat(fieldToJson).isEqualTo(fieldJson);
   }
 
+  @Test
+  void create_sharesDefaultInstance() {
+    Truth.assertThat(ProtoRestSerializer.<Field>create())
+        .isSameInstanceAs(ProtoRestSerializer.<Field>create());
+    Truth.assertThat(ProtoRestSerializer.<Field>create(TypeRegistry.getEmptyTypeRegistry()))
+        .isSameInstanceAs(ProtoRestSerializer.<Field>create());
+
+    TypeRegistry customRegistry = TypeRegistry.newBuilder().add(Field.getDescriptor()).build();
+    Truth.assertThat(ProtoRestSerializer.<Field>create(customRegistry).getTypeRegistry())
+        .isSameInstanceAs(customRegistry);
+  }
+
   @Test
   void fromJson_numericEnumTrue() {
     Field fieldFromJson =
@@ -265,6 +291,88 @@ class ProtoRestSerializerTest {
     queryParamHelper(FloatValue.of(1.1f), "1.1");
   }
 
+  @Test
+  void putQueryParamMatchesJsonFlattening() {
+    ErrorInfo errorInfo =
+        ErrorInfo.newBuilder()
+            .setReason("reason")
+            .setDomain("domain")
+            .putMetadata("key1", "value1")
+            .putMetadata("key2", "value2")
+            .build();
+    Field fieldWithAny =
+        field.toBuilder()
+            .addOptions(
+                Option.newBuilder()
+                    .setName("opt_name3")
+                    .setValue(com.google.protobuf.Any.pack(Int32Value.of(3))))
+            .build();
+    Struct struct =
+        Struct.newBuilder()
+            .putFields("number", Value.newBuilder().setNumberValue(1.5).build())
+            .putFields(
+                "list",
+                Value.newBuilder()
+                    .setListValue(
+                        ListValue.newBuilder()
+                            .addValues(Value.newBuilder().setStringValue("a"))
+                            .addValues(Value.newBuilder().setBoolValue(true)))
+                    .build())
+            .build();
+
+    List<Object> inputs =
+        Arrays.asList(
+            field,
+            errorInfo,
+            struct,
+            UInt64Value.of(-1L),
+            UInt32Value.of(-1),
+            BytesValue.of(ByteString.copyFromUtf8("bytes ☺")),
+            DoubleValue.of(Double.NaN),
+            BoolValue.of(false),
+            Interval.newBuilder().setStartTime(Timestamp.newBuilder().setSeconds(3)).build());
+    for (Object input : inputs) {
+      Map<String, List<String>> fields = new HashMap<>();
+      requestSerializer.putQueryParam(fields, "object", input);
+      Truth.assertThat(fields).isEqualTo(flattenJson("object", (Message) input));
+    }
+
+    ProtoRestSerializer<Field> anySerializer =
+        ProtoRestSerializer.create(
+            TypeRegistry.newBuilder().add(Int32Value.getDescriptor()).build());
+    Map<String, List<String>> fields = new HashMap<>();
+    anySerializer.putQueryParam(fields, "object", fieldWithAny);
+    Truth.assertThat(fields).isEqualTo(flattenJson(anySerializer, "object", fieldWithAny));
+    Truth.assertThat(fields.get("object.options.value.value")).containsExactly("3");
+  }
+
+  private Map<String, List<String>> flattenJson(String fieldName, Message message) {
+    return flattenJson(requestSerializer, fieldName, message);
+  }
+
+  // Reference implementation: flattens the JSON representation of the message.
+  private static Map<String, List<String>> flattenJson(
+      ProtoRestSerializer<?> serializer, String fieldName, Message message) {
+    Map<String, List<String>> fields = new HashMap<>();
+    flattenJson(fields, fieldName, JsonParser.parseString(serializer.toJson(message, true)));
+    return fields;
+  }
+
+  private static void flattenJson(
+      Map<String, List<String>> fields, String fieldName, JsonElement parsed) {
+    if (parsed.isJsonPrimitive()) {
+      fields.computeIfAbsent(fieldName, k -> new ArrayList<>()).add(parsed.getAsString());
+    } else if (parsed.isJsonArray()) {
+      for (JsonElement element : parsed.getAsJsonArray()) {
+        flattenJson(fields, fieldName, element);
+      }
+    } else {
+      for (Map.Entry<String, JsonElement> entry : parsed.getAsJsonObject().entrySet()) {
+        flattenJson(fields, fieldName + "." + entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
   private void queryParamHelper(Object value, String expected) {
     Map<String, List<String>> fields = new HashMap<>();
     requestSerializer.putQueryParam(fields, "value", value);
@@ -276,6 +384,11 @@ class ProtoRestSerializerTest {
   @Test
   void toBody() {
     String body = requestSerializer.toBody("bodyField1", field, false);
-    Truth.assertThat(body).isEqualTo(fieldJson);
+    Truth.assertThat(body)
+        .isEqualTo(
+            "{\"cardinality\":\"CARDINALITY_OPTIONAL\",\"number\":2,\"name\":\"field_name1\","
+                + "\"options\":[{\"name\":\"opt_name1\"},{\"name\":\"opt_name2\"}]}");
+    Truth.assertThat(requestSerializer.toBody("bodyField1", field, true))
+        .isEqualTo(body.replace("\"CARDINALITY_OPTIONAL\"", "1"));
   }
 }
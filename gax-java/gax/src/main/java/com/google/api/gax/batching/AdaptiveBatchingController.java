@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.batching;
+
+import com.google.api.gax.batching.FlowControlEventStats.BatchingThresholdsEvent;
+import com.google.common.base.Preconditions;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import java.time.Duration;
+import javax.annotation.Nullable;
+
+/**
+ * Adapts the thresholds of a {@link BatcherImpl} to the latency of its batch requests, as
+ * configured by {@link AdaptiveBatchingSettings}.
+ *
+ * <p>The thresholds are read on every added element, so they're published through volatile fields
+ * and only updated under the lock. The limits of the {@link FlowController} are adjusted by its
+ * {@link AdaptiveFlowControlAdjuster}, which is shared with the other batchers using it.
+ */
+final class AdaptiveBatchingController {
+
+  private final FlowController flowController;
+  private final AdaptiveFlowControlAdjuster flowControlAdjuster;
+  private final long maxElementCountThreshold;
+  private final long maxRequestByteThreshold;
+  @Nullable private final Duration maxDelayThreshold;
+
+  @GuardedBy("this")
+  private final AdaptiveRatio ratio;
+
+  private volatile long elementCountThreshold;
+  private volatile long requestByteThreshold;
+  @Nullable private volatile Duration delayThreshold;
+
+  AdaptiveBatchingController(BatchingSettings batchingSettings, FlowController flowController) {
+    AdaptiveBatchingSettings settings =
+        Preconditions.checkNotNull(
+            batchingSettings.getAdaptiveBatchingSettings(), "adaptive settings cannot be null");
+    this.flowController = flowController;
+    // The limits of a shared flow controller are adjusted once for all the batchers using it
+    this.flowControlAdjuster = flowController.getAdaptiveAdjuster(settings);
+    Long elementCount = batchingSettings.getElementCountThreshold();
+    this.maxElementCountThreshold = elementCount == null ? 0 : elementCount;
+    Long requestBytes = batchingSettings.getRequestByteThreshold();
+    this.maxRequestByteThreshold = requestBytes == null ? 0 : requestBytes;
+    this.maxDelayThreshold = batchingSettings.getDelayThresholdDuration();
+    this.ratio = new AdaptiveRatio(settings);
+    synchronized (this) {
+      updateThresholds();
+    }
+  }
+
+  /** Returns the current element count threshold, or 0 if it's disabled. */
+  long getElementCountThreshold() {
+    return elementCountThreshold;
+  }
+
+  /** Returns the current request byte threshold, or 0 if it's disabled. */
+  long getRequestByteThreshold() {
+    return requestByteThreshold;
+  }
+
+  /** Returns the current delay threshold, or null if there's no delay threshold. */
+  @Nullable
+  Duration getDelayThreshold() {
+    return delayThreshold;
+  }
+
+  /**
+   * Adjusts the thresholds after a batch request completed.
+   *
+   * @param sentNanos the {@link System#nanoTime()} when the batch request was sent
+   * @param completedNanos the {@link System#nanoTime()} when the batch request completed
+   * @param failed whether the batch request failed
+   */
+  void onBatchCompleted(long sentNanos, long completedNanos, boolean failed) {
+    flowControlAdjuster.onBatchCompleted(sentNanos, completedNanos, failed);
+    BatchingThresholdsEvent event;
+    synchronized (this) {
+      double oldRatio = ratio.get();
+      if (!ratio.update(sentNanos, completedNanos, failed)) {
+        return;
+      }
+      updateThresholds();
+      event =
+          new BatchingThresholdsEvent(
+              System.currentTimeMillis(),
+              ratio.get() < oldRatio,
+              elementCountThreshold,
+              requestByteThreshold,
+              delayThreshold);
+    }
+    flowController.getFlowControlEventStats().recordBatchingThresholdsEvent(event);
+  }
+
+  @GuardedBy("this")
+  private void updateThresholds() {
+    elementCountThreshold = scale(maxElementCountThreshold);
+    requestByteThreshold = scale(maxRequestByteThreshold);
+    if (maxDelayThreshold != null) {
+      delayThreshold = Duration.ofNanos(Math.max(1_000_000, scale(maxDelayThreshold.toNanos())));
+    }
+  }
+
+  @GuardedBy("this")
+  private long scale(long threshold) {
+    return threshold == 0 ? 0 : Math.max(1, Math.round(threshold * ratio.get()));
+  }
+}
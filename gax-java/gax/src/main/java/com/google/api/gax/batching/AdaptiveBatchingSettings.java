@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.batching;
+
+import com.google.api.core.BetaApi;
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Preconditions;
+import java.time.Duration;
+
+/**
+ * Settings for adapting the batch thresholds to the latency of the batch requests.
+ *
+ * <p>The thresholds of the {@link BatchingSettings} (element count, request bytes and delay) are
+ * used as upper bounds, and are scaled by a ratio between {@link #getMinThresholdRatio()} and 1.
+ * The ratio starts at 1 and follows an additive-increase, multiplicative-decrease policy:
+ *
+ * <ul>
+ *   <li>When a batch completes within {@link #getTargetLatency()}, the ratio is increased by {@link
+ *       #getIncreaseStep()}.
+ *   <li>When a batch fails or takes longer than the target latency, the ratio is multiplied by
+ *       {@link #getDecreaseFactor()}. Batches which were sent before the last decrease don't
+ *       decrease the ratio again.
+ * </ul>
+ *
+ * <p>The limits of a dynamic {@link FlowController} are adjusted the same way, within the bounds of
+ * its {@link DynamicFlowControlSettings}. The adjustments are reported by {@link
+ * FlowControlEventStats#getLastBatchingThresholdsEvent()}.
+ */
+@BetaApi("The surface for adaptive batching is not stable yet and may change in the future.")
+@AutoValue
+public abstract class AdaptiveBatchingSettings {
+
+  /** Get the latency of a batch request above which the thresholds are decreased. */
+  public abstract Duration getTargetLatency();
+
+  /** Get the lowest ratio of the configured thresholds which can be used. Default to 0.1. */
+  public abstract double getMinThresholdRatio();
+
+  /** Get the ratio added to the thresholds after a successful batch. Default to 0.05. */
+  public abstract double getIncreaseStep();
+
+  /** Get the factor that the thresholds are multiplied by after a slow batch. Default to 0.5. */
+  public abstract double getDecreaseFactor();
+
+  /** Get a new builder. */
+  public static Builder newBuilder() {
+    return new AutoValue_AdaptiveBatchingSettings.Builder()
+        .setMinThresholdRatio(0.1)
+        .setIncreaseStep(0.05)
+        .setDecreaseFactor(0.5);
+  }
+
+  /** Get a builder with the same values as this object. */
+  public abstract Builder toBuilder();
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    /** Set the latency of a batch request above which the thresholds are decreased. */
+    public abstract Builder setTargetLatency(Duration targetLatency);
+
+    /** Set the lowest ratio of the configured thresholds which can be used. */
+    public abstract Builder setMinThresholdRatio(double minThresholdRatio);
+
+    /** Set the ratio added to the thresholds after a successful batch. */
+    public abstract Builder setIncreaseStep(double increaseStep);
+
+    /** Set the factor that the thresholds are multiplied by after a slow batch. */
+    public abstract Builder setDecreaseFactor(double decreaseFactor);
+
+    abstract AdaptiveBatchingSettings autoBuild();
+
+    /** Build the AdaptiveBatchingSettings object. */
+    public AdaptiveBatchingSettings build() {
+      AdaptiveBatchingSettings settings = autoBuild();
+      Preconditions.checkArgument(
+          !settings.getTargetLatency().isNegative() && !settings.getTargetLatency().isZero(),
+          "targetLatency must be positive");
+      Preconditions.checkArgument(
+          settings.getMinThresholdRatio() > 0 && settings.getMinThresholdRatio() <= 1,
+          "minThresholdRatio must be in (0, 1]");
+      Preconditions.checkArgument(
+          settings.getIncreaseStep() > 0 && settings.getIncreaseStep() <= 1,
+          "increaseStep must be in (0, 1]");
+      Preconditions.checkArgument(
+          settings.getDecreaseFactor() > 0 && settings.getDecreaseFactor() < 1,
+          "decreaseFactor must be in (0, 1)");
+      return settings;
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.batching;
+
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import javax.annotation.Nullable;
+
+/**
+ * Applies adaptive batching to the limits of a {@link FlowController}.
+ *
+ * <p>A flow controller can be shared by several batchers, for example by the partitions of a {@link
+ * PartitionedBatcherImpl}. There's a single adjuster per flow controller, which all of them report
+ * their batch requests to, so that a latency spike seen by every batcher cuts the limits only once.
+ * See {@link FlowController#getAdaptiveAdjuster(AdaptiveBatchingSettings)}.
+ */
+final class AdaptiveFlowControlAdjuster {
+  private final FlowController flowController;
+
+  @GuardedBy("this")
+  private final AdaptiveRatio ratio;
+
+  AdaptiveFlowControlAdjuster(FlowController flowController, AdaptiveBatchingSettings settings) {
+    this.flowController = flowController;
+    this.ratio = new AdaptiveRatio(settings);
+  }
+
+  /**
+   * Adjusts the limits of the flow controller after a batch request completed. It's a no-op when
+   * the flow controller isn't dynamic, as its limits are bounded by its min and max limits.
+   */
+  synchronized void onBatchCompleted(long sentNanos, long completedNanos, boolean failed) {
+    double oldRatio = ratio.get();
+    if (!ratio.update(sentNanos, completedNanos, failed)) {
+      return;
+    }
+    double newRatio = ratio.get();
+    if (newRatio < oldRatio) {
+      double decreasedShare = 1 - newRatio / oldRatio;
+      flowController.decreaseThresholds(
+          share(flowController.getCurrentElementCountLimit(), decreasedShare),
+          share(flowController.getCurrentRequestBytesLimit(), decreasedShare));
+    } else {
+      double increasedShare = newRatio - oldRatio;
+      flowController.increaseThresholds(
+          share(flowController.getMaxElementCountLimit(), increasedShare),
+          share(flowController.getMaxRequestBytesLimit(), increasedShare));
+    }
+  }
+
+  private static long share(@Nullable Long limit, double share) {
+    return limit == null ? 0 : Math.round(limit * share);
+  }
+}
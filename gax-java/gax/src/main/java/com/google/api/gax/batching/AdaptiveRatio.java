@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.batching;
+
+/**
+ * The ratio by which adaptive batching scales its limits, as configured by {@link
+ * AdaptiveBatchingSettings}: it's decreased multiplicatively when a batch request is slow or fails,
+ * and increased additively otherwise.
+ *
+ * <p>This class is not thread-safe, its owner must synchronize the calls.
+ */
+final class AdaptiveRatio {
+  private final AdaptiveBatchingSettings settings;
+  private final long targetLatencyNanos;
+  private double ratio = 1;
+  private boolean hasDecreased;
+  private long lastDecreaseNanos;
+
+  AdaptiveRatio(AdaptiveBatchingSettings settings) {
+    this.settings = settings;
+    this.targetLatencyNanos = settings.getTargetLatency().toNanos();
+  }
+
+  double get() {
+    return ratio;
+  }
+
+  /**
+   * Updates the ratio after a batch request completed.
+   *
+   * @param sentNanos the {@link System#nanoTime()} when the batch request was sent
+   * @param completedNanos the {@link System#nanoTime()} when the batch request completed
+   * @param failed whether the batch request failed
+   * @return whether the ratio changed
+   */
+  boolean update(long sentNanos, long completedNanos, boolean failed) {
+    boolean decrease = failed || completedNanos - sentNanos > targetLatencyNanos;
+    if (decrease) {
+      // The batch was sent before the last decrease, so its latency doesn't reflect the current
+      // ratio yet
+      if (hasDecreased && sentNanos - lastDecreaseNanos < 0) {
+        return false;
+      }
+      hasDecreased = true;
+      lastDecreaseNanos = completedNanos;
+    }
+    double newRatio =
+        decrease
+            ? Math.max(settings.getMinThresholdRatio(), ratio * settings.getDecreaseFactor())
+            : Math.min(1, ratio + settings.getIncreaseStep());
+    if (newRatio == ratio) {
+      return false;
+    }
+    ratio = newRatio;
+    return true;
+  }
+}
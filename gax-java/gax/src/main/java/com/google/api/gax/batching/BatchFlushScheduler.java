@@ -0,0 +1,270 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.batching;
+
+import com.google.api.core.InternalApi;
+import com.google.common.base.Preconditions;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Schedules the delayed flushes of many {@link Batcher}s on a single timer wheel.
+ *
+ * <p>Without a scheduler, every {@link BatcherImpl} runs a periodic task on the executor to push
+ * its open batch, even while it's idle. With a scheduler, a batcher only arms a flush when its open
+ * batch receives its first element, and all the armed flushes are driven by a single one-shot task
+ * on the executor, which is scheduled for the earliest armed deadline. Once it ran the expired
+ * flushes, it schedules itself again for the next deadline, if any.
+ *
+ * <p>The wheel has a fixed number of buckets, each covering one tick. Flushes further away than a
+ * full turn of the wheel stay in their bucket until their deadline is reached. Deadlines are
+ * rounded up to the next tick, so a flush runs at most one tick late. The armed deadlines are also
+ * counted in a sorted map, so finding the next deadline doesn't scan the buckets.
+ */
+@InternalApi("For google-cloud-java client use only")
+public final class BatchFlushScheduler {
+
+  private static final Logger LOG = Logger.getLogger(BatchFlushScheduler.class.getName());
+
+  private static final int DEFAULT_WHEEL_SIZE = 512;
+  private static final Duration DEFAULT_TICK_DURATION = Duration.ofMillis(1);
+
+  private final ScheduledExecutorService executor;
+  private final long tickNanos;
+  private final long startNanos;
+
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  private final List<List<FlushTimeout>> wheel;
+
+  @GuardedBy("lock")
+  private long currentTick;
+
+  @GuardedBy("lock")
+  private int pendingCount;
+
+  // The number of armed, not cancelled flushes for each deadline tick
+  @GuardedBy("lock")
+  private final TreeMap<Long, Integer> armedTicks = new TreeMap<>();
+
+  // The number of timeouts which the last tick looked at, for tests
+  @GuardedBy("lock")
+  private int lastTickVisitCount;
+
+  @GuardedBy("lock")
+  private Future<?> tickFuture;
+
+  // The tick which tickFuture runs at
+  @GuardedBy("lock")
+  private long scheduledTick;
+
+  /** Creates a scheduler with a 1 ms tick, which runs on the passed executor. */
+  public static BatchFlushScheduler create(ScheduledExecutorService executor) {
+    return new BatchFlushScheduler(executor, DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE);
+  }
+
+  BatchFlushScheduler(ScheduledExecutorService executor, Duration tickDuration, int wheelSize) {
+    this.executor = Preconditions.checkNotNull(executor, "executor cannot be null");
+    Preconditions.checkArgument(
+        !tickDuration.isNegative() && !tickDuration.isZero(), "tickDuration must be positive");
+    Preconditions.checkArgument(wheelSize > 0, "wheelSize must be positive");
+    this.tickNanos = tickDuration.toNanos();
+    this.startNanos = System.nanoTime();
+    this.wheel = new ArrayList<>(wheelSize);
+    for (int i = 0; i < wheelSize; i++) {
+      wheel.add(new ArrayList<>());
+    }
+  }
+
+  /**
+   * Runs the task once the delay elapsed, unless the returned {@link FlushTimeout} is cancelled
+   * first. The task runs on the executor of the scheduler and should not block.
+   */
+  public FlushTimeout schedule(Runnable task, Duration delay) {
+    Preconditions.checkNotNull(task, "task cannot be null");
+    long deadlineNanos = System.nanoTime() - startNanos + delay.toNanos();
+    // Round up to the next tick, so the task never runs early
+    long deadlineTick = (deadlineNanos + tickNanos - 1) / tickNanos;
+
+    synchronized (lock) {
+      // Ticks up to currentTick were processed already
+      deadlineTick = Math.max(deadlineTick, currentTick + 1);
+      if (tickFuture == null || deadlineTick < scheduledTick) {
+        scheduleTick(deadlineTick);
+      }
+      FlushTimeout timeout = new FlushTimeout(this, task, deadlineTick);
+      wheel.get((int) (deadlineTick % wheel.size())).add(timeout);
+      pendingCount++;
+      armedTicks.merge(deadlineTick, 1, Integer::sum);
+      return timeout;
+    }
+  }
+
+  /** Returns the number of flushes which are armed and not cancelled. */
+  int getPendingCount() {
+    synchronized (lock) {
+      return pendingCount;
+    }
+  }
+
+  /** Returns true if the scheduler has a task scheduled on the executor. */
+  boolean isTicking() {
+    synchronized (lock) {
+      return tickFuture != null;
+    }
+  }
+
+  /** Returns the number of timeouts which the last tick looked at. */
+  int getLastTickVisitCount() {
+    synchronized (lock) {
+      return lastTickVisitCount;
+    }
+  }
+
+  private void cancel(FlushTimeout timeout) {
+    synchronized (lock) {
+      if (timeout.state != FlushTimeout.PENDING) {
+        return;
+      }
+      // The bucket drops the cancelled timeouts lazily, when the wheel gets to it
+      timeout.state = FlushTimeout.CANCELLED;
+      pendingCount--;
+      disarm(timeout.deadlineTick);
+      stopTickingIfIdle();
+    }
+  }
+
+  private void tick() {
+    List<FlushTimeout> expired = new ArrayList<>();
+    synchronized (lock) {
+      long targetTick = (System.nanoTime() - startNanos) / tickNanos;
+      // After a full turn, every bucket was visited already
+      long tickCount = Math.min(targetTick - currentTick, wheel.size());
+      int visitCount = 0;
+      for (long i = 1; i <= tickCount; i++) {
+        Iterator<FlushTimeout> bucket =
+            wheel.get((int) ((currentTick + i) % wheel.size())).iterator();
+        while (bucket.hasNext()) {
+          FlushTimeout timeout = bucket.next();
+          visitCount++;
+          if (timeout.state == FlushTimeout.CANCELLED) {
+            bucket.remove();
+          } else if (timeout.deadlineTick <= targetTick) {
+            bucket.remove();
+            timeout.state = FlushTimeout.EXPIRED;
+            pendingCount--;
+            disarm(timeout.deadlineTick);
+            expired.add(timeout);
+          }
+        }
+      }
+      lastTickVisitCount = visitCount;
+      currentTick = Math.max(currentTick, targetTick);
+      if (pendingCount > 0) {
+        scheduleTick(armedTicks.firstKey());
+      } else {
+        stopTickingIfIdle();
+      }
+    }
+
+    for (FlushTimeout timeout : expired) {
+      try {
+        timeout.task.run();
+      } catch (RuntimeException e) {
+        LOG.log(Level.WARNING, "Batch flush failed", e);
+      }
+    }
+  }
+
+  @GuardedBy("lock")
+  private void scheduleTick(long tick) {
+    if (tickFuture != null) {
+      // Doesn't interrupt the current tick, when it reschedules itself
+      tickFuture.cancel(false);
+    }
+    long delayNanos = Math.max(0, startNanos + tick * tickNanos - System.nanoTime());
+    tickFuture = executor.schedule(this::tick, delayNanos, TimeUnit.NANOSECONDS);
+    scheduledTick = tick;
+  }
+
+  @GuardedBy("lock")
+  private void disarm(long deadlineTick) {
+    armedTicks.computeIfPresent(deadlineTick, (tick, count) -> count > 1 ? count - 1 : null);
+  }
+
+  @GuardedBy("lock")
+  private void stopTickingIfIdle() {
+    if (pendingCount > 0 || tickFuture == null) {
+      return;
+    }
+    tickFuture.cancel(false);
+    tickFuture = null;
+    // Only cancelled timeouts are left in the buckets
+    for (List<FlushTimeout> bucket : wheel) {
+      bucket.clear();
+    }
+  }
+
+  /** A flush armed on a {@link BatchFlushScheduler}. */
+  @InternalApi("For google-cloud-java client use only")
+  public static final class FlushTimeout {
+    private static final int PENDING = 0;
+    private static final int EXPIRED = 1;
+    private static final int CANCELLED = 2;
+
+    private final BatchFlushScheduler scheduler;
+    private final Runnable task;
+    private final long deadlineTick;
+
+    @GuardedBy("scheduler.lock")
+    private int state = PENDING;
+
+    private FlushTimeout(BatchFlushScheduler scheduler, Runnable task, long deadlineTick) {
+      this.scheduler = scheduler;
+      this.task = task;
+      this.deadlineTick = deadlineTick;
+    }
+
+    /** Cancels the flush if it didn't run yet. */
+    public void cancel() {
+      scheduler.cancel(this);
+    }
+  }
+}
@@ -46,6 +46,7 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.util.concurrent.Futures;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
@@ -59,9 +60,12 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nonnull;
@@ -97,14 +101,37 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
   private final Object elementLock = new Object();
   private final Future<?> scheduledFuture;
   private SettableApiFuture<Void> closeFuture;
-  private final BatcherStats batcherStats = new BatcherStats();
+  private final BatcherStats batcherStats;
   private final FlowController flowController;
   private final ApiCallContext callContext;
+  // Invoked before blocking on the FlowController, or null to send this batcher's open batch
+  @Nullable private final Runnable flowControlBlockedHandler;
 
   // If element threshold or bytes threshold is 0, it means that it'll always flush every element
   // without batching
   private final long elementThreshold;
   private final long bytesThreshold;
+  // Overrides the thresholds above when BatchingSettings#getAdaptiveBatchingSettings() is set
+  @Nullable private final AdaptiveBatchingController adaptiveController;
+  // Arms the delay threshold of every batch, instead of the periodic push of the open batch
+  @Nullable private final BatchFlushScheduler flushScheduler;
+  // Whether a delayed flush of the stripes is armed on flushScheduler
+  private final AtomicBoolean stripeFlushArmed = new AtomicBoolean();
+
+  @Nullable
+  private final AdaptivePushCurrentBatchRunnable<ElementT, ElementResultT, RequestT, ResponseT>
+      adaptivePushRunnable;
+
+  // Stripes that elements are accumulated in before being merged into currentOpenBatch, or null if
+  // elements are added to currentOpenBatch directly. See
+  // BatchingSettings#getAccumulationStripeCount().
+  @Nullable private final List<Stripe<ElementT, ElementResultT>> stripes;
+  // Resources of the elements added to the stripes since they were last merged, only used with
+  // stripes. It can briefly include elements which were merged already, which only causes an early
+  // merge, but it never misses an element which is still in a stripe.
+  @Nullable private final AtomicReference<BatchResource> stripeResource;
+  // The resource of currentOpenBatch, readable without holding elementLock. Only used with stripes.
+  @Nullable private volatile BatchResource openBatchResource;
 
   /**
    * @param batchingDescriptor a {@link BatchingDescriptor} for transforming individual elements
@@ -174,6 +201,69 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
       @Nullable FlowController flowController,
       @Nullable ApiCallContext callContext) {
 
+    this(
+        batchingDescriptor,
+        unaryCallable,
+        prototype,
+        batchingSettings,
+        executor,
+        flowController,
+        callContext,
+        null);
+  }
+
+  /**
+   * @param batchingDescriptor a {@link BatchingDescriptor} for transforming individual elements
+   *     into wrappers request and response
+   * @param unaryCallable a {@link UnaryCallable} object
+   * @param prototype a {@link RequestT} object
+   * @param batchingSettings a {@link BatchingSettings} with configuration of thresholds
+   * @param flowController a {@link FlowController} for throttling requests. If it's null, create a
+   *     {@link FlowController} object from {@link BatchingSettings#getFlowControlSettings()}.
+   * @param callContext a {@link ApiCallContext} object that'll be merged in unaryCallable
+   * @param flushScheduler a {@link BatchFlushScheduler} shared between batchers, which arms the
+   *     delay threshold only when a batch receives its first element. If it's null, the open batch
+   *     is pushed periodically on the executor.
+   */
+  public BatcherImpl(
+      BatchingDescriptor<ElementT, ElementResultT, RequestT, ResponseT> batchingDescriptor,
+      UnaryCallable<RequestT, ResponseT> unaryCallable,
+      RequestT prototype,
+      BatchingSettings batchingSettings,
+      ScheduledExecutorService executor,
+      @Nullable FlowController flowController,
+      @Nullable ApiCallContext callContext,
+      @Nullable BatchFlushScheduler flushScheduler) {
+
+    this(
+        batchingDescriptor,
+        unaryCallable,
+        prototype,
+        batchingSettings,
+        executor,
+        flowController,
+        callContext,
+        flushScheduler,
+        new BatcherStats(),
+        null);
+  }
+
+  /**
+   * Used by {@link PartitionedBatcherImpl} to share the statistics between the partitions, and to
+   * send the open batches of all the partitions when an element is blocked by flow control.
+   */
+  BatcherImpl(
+      BatchingDescriptor<ElementT, ElementResultT, RequestT, ResponseT> batchingDescriptor,
+      UnaryCallable<RequestT, ResponseT> unaryCallable,
+      RequestT prototype,
+      BatchingSettings batchingSettings,
+      ScheduledExecutorService executor,
+      @Nullable FlowController flowController,
+      @Nullable ApiCallContext callContext,
+      @Nullable BatchFlushScheduler flushScheduler,
+      BatcherStats batcherStats,
+      @Nullable Runnable flowControlBlockedHandler) {
+
     this.batchingDescriptor =
         Preconditions.checkNotNull(batchingDescriptor, "batching descriptor cannot be null");
     this.unaryCallable = Preconditions.checkNotNull(unaryCallable, "callable cannot be null");
@@ -203,15 +293,38 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
               + "#maxOutstandingRequestBytes must be greater or equal to requestByteThreshold");
     }
     this.flowController = flowController;
+    this.batcherStats = batcherStats;
+    this.flowControlBlockedHandler = flowControlBlockedHandler;
     currentOpenBatch = new Batch<>(prototype, batchingDescriptor, batcherStats);
-    if (batchingSettings.getDelayThresholdDuration() != null) {
+    if (batchingSettings.getAdaptiveBatchingSettings() != null) {
+      adaptiveController = new AdaptiveBatchingController(batchingSettings, flowController);
+    } else {
+      adaptiveController = null;
+    }
+    if (batchingSettings.getDelayThresholdDuration() == null) {
+      this.flushScheduler = null;
+      adaptivePushRunnable = null;
+      scheduledFuture = Futures.immediateCancelledFuture();
+    } else if (flushScheduler != null) {
+      // The flushes are armed when the batches receive their first element
+      this.flushScheduler = flushScheduler;
+      adaptivePushRunnable = null;
+      scheduledFuture = Futures.immediateCancelledFuture();
+    } else if (adaptiveController != null) {
+      this.flushScheduler = null;
+      // The delay changes over time, so the runnable reschedules itself after every execution
+      adaptivePushRunnable =
+          new AdaptivePushCurrentBatchRunnable<>(this, executor, adaptiveController);
+      adaptivePushRunnable.schedule();
+      scheduledFuture = Futures.immediateCancelledFuture();
+    } else {
+      this.flushScheduler = null;
+      adaptivePushRunnable = null;
       long delay = batchingSettings.getDelayThresholdDuration().toMillis();
       PushCurrentBatchRunnable<ElementT, ElementResultT, RequestT, ResponseT> runnable =
           new PushCurrentBatchRunnable<>(this);
       scheduledFuture =
           executor.scheduleWithFixedDelay(runnable, delay, delay, TimeUnit.MILLISECONDS);
-    } else {
-      scheduledFuture = Futures.immediateCancelledFuture();
     }
     currentBatcherReference = new BatcherReference(this);
     this.callContext = callContext;
@@ -220,6 +333,20 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
     this.elementThreshold = elementCountThreshold == null ? 0 : elementCountThreshold;
     Long requestByteThreshold = batchingSettings.getRequestByteThreshold();
     this.bytesThreshold = requestByteThreshold == null ? 0 : requestByteThreshold;
+
+    int stripeCount = batchingSettings.getAccumulationStripeCount();
+    if (stripeCount > 1) {
+      List<Stripe<ElementT, ElementResultT>> stripeList = new ArrayList<>(stripeCount);
+      for (int i = 0; i < stripeCount; i++) {
+        stripeList.add(new Stripe<>());
+      }
+      this.stripes = stripeList;
+      this.stripeResource = new AtomicReference<>(batchingDescriptor.createEmptyResource());
+      this.openBatchResource = currentOpenBatch.resource;
+    } else {
+      this.stripes = null;
+      this.stripeResource = null;
+    }
   }
 
   /** {@inheritDoc} */
@@ -231,24 +358,22 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
 
     BatchResource newResource = batchingDescriptor.createResource(element);
 
-    // This is not the optimal way of throttling. It does not send out partial batches, which
-    // means that the Batcher might not use up all the resources allowed by FlowController.
-    // The more efficient implementation should look like:
-    // if (!flowController.tryReserve(1, bytes)) {
-    //   sendOutstanding();
-    //   reserve(1, bytes);
-    // }
-    // where tryReserve() will return false if there isn't enough resources, or reserve and return
-    // true.
-    // However, with the current FlowController implementation, adding a tryReserve() could be
-    // confusing. FlowController will end up having 3 different reserve behaviors: blocking,
-    // non blocking and try reserve. And we'll also need to add a tryAcquire() to the Semaphore64
-    // class, which made it seem unnecessary to have blocking and non-blocking semaphore
-    // implementations. Some refactoring may be needed for the optimized implementation. So we'll
-    // defer it till we decide on if refactoring FlowController is necessary.
+    // With blocking flow control, the open batch might hold the resources which this element is
+    // waiting for. Send it out before blocking, so the batcher can use all the resources allowed
+    // by the FlowController instead of stalling until the delay threshold flushes the batch.
     Stopwatch stopwatch = Stopwatch.createStarted();
     try {
-      flowController.reserve(newResource.getElementCount(), newResource.getByteCount());
+      if (flowController.getLimitExceededBehavior() != LimitExceededBehavior.Block) {
+        flowController.reserve(newResource.getElementCount(), newResource.getByteCount());
+      } else if (!flowController.tryReserve(
+          newResource.getElementCount(), newResource.getByteCount())) {
+        if (flowControlBlockedHandler != null) {
+          flowControlBlockedHandler.run();
+        } else {
+          sendOutstanding();
+        }
+        flowController.reserve(newResource.getElementCount(), newResource.getByteCount());
+      }
     } catch (FlowControlException e) {
       // This exception will only be thrown if the FlowController is set to ThrowException behavior
       throw FlowControlRuntimeException.fromFlowControlException(e);
@@ -256,15 +381,23 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
     long throttledTimeMs = stopwatch.elapsed(TimeUnit.MILLISECONDS);
 
     SettableApiFuture<ElementResultT> result = SettableApiFuture.create();
+    if (stripes != null) {
+      addToStripe(element, newResource, result, throttledTimeMs);
+      return result;
+    }
     synchronized (elementLock) {
       if (currentOpenBatch
           .resource
           .add(newResource)
-          .shouldFlush(elementThreshold, bytesThreshold)) {
+          .shouldFlush(getElementThreshold(), getBytesThreshold())) {
         sendOutstanding();
       }
 
       currentOpenBatch.add(element, newResource, result, throttledTimeMs);
+      if (flushScheduler != null && currentOpenBatch.flushTimeout == null) {
+        Batch<ElementT, ElementResultT, RequestT, ResponseT> batch = currentOpenBatch;
+        batch.flushTimeout = flushScheduler.schedule(() -> sendOpenBatch(batch), getDelay());
+      }
     }
 
     return result;
@@ -277,19 +410,159 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
     awaitAllOutstandingBatches();
   }
 
+  /**
+   * Appends the element to the stripe of the calling thread. The elements of all the stripes are
+   * merged into batches once {@link BatchResource#shouldFlush} trips for the open batch together
+   * with the stripes, applying the same rules as when elements are added to currentOpenBatch
+   * directly.
+   */
+  private void addToStripe(
+      ElementT element,
+      BatchResource newResource,
+      SettableApiFuture<ElementResultT> result,
+      long throttledTimeMs) {
+    Stripe<ElementT, ElementResultT> stripe =
+        stripes.get((int) (Thread.currentThread().getId() % stripes.size()));
+    synchronized (stripe) {
+      stripe.entries.add(new StripeEntry<>(element, newResource, result, throttledTimeMs));
+    }
+    BatchResource pendingResource =
+        stripeResource.accumulateAndGet(newResource, BatchResource::add);
+    if (flushScheduler != null && stripeFlushArmed.compareAndSet(false, true)) {
+      flushScheduler.schedule(
+          () -> {
+            stripeFlushArmed.set(false);
+            sendOutstanding();
+          },
+          getDelay());
+    }
+    long elementThreshold = getElementThreshold();
+    long bytesThreshold = getBytesThreshold();
+    if (!openBatchResource.add(pendingResource).shouldFlush(elementThreshold, bytesThreshold)) {
+      return;
+    }
+
+    List<Batch<ElementT, ElementResultT, RequestT, ResponseT>> fullBatches = new ArrayList<>();
+    synchronized (elementLock) {
+      // Another thread might have merged the stripes in the meantime
+      if (currentOpenBatch
+          .resource
+          .add(stripeResource.get())
+          .shouldFlush(elementThreshold, bytesThreshold)) {
+        mergeStripes(fullBatches);
+      }
+    }
+    for (Batch<ElementT, ElementResultT, RequestT, ResponseT> batch : fullBatches) {
+      sendBatch(batch);
+    }
+  }
+
+  /**
+   * Moves the elements of all the stripes into currentOpenBatch and collects the batches which
+   * reached a threshold on the way.
+   */
+  @GuardedBy("elementLock")
+  private void mergeStripes(
+      List<Batch<ElementT, ElementResultT, RequestT, ResponseT>> fullBatches) {
+    long elementThreshold = getElementThreshold();
+    long bytesThreshold = getBytesThreshold();
+    // Reset before the stripes are drained, so that an element still in a stripe afterwards is
+    // counted again
+    stripeResource.set(batchingDescriptor.createEmptyResource());
+    for (Stripe<ElementT, ElementResultT> stripe : stripes) {
+      List<StripeEntry<ElementT, ElementResultT>> entries;
+      synchronized (stripe) {
+        if (stripe.entries.isEmpty()) {
+          continue;
+        }
+        entries = stripe.entries;
+        stripe.entries = new ArrayList<>();
+      }
+      for (StripeEntry<ElementT, ElementResultT> entry : entries) {
+        if (currentOpenBatch
+                .resource
+                .add(entry.resource)
+                .shouldFlush(elementThreshold, bytesThreshold)
+            && !currentOpenBatch.isEmpty()) {
+          fullBatches.add(takeOpenBatch());
+        }
+        currentOpenBatch.add(entry.element, entry.resource, entry.result, entry.throttledTimeMs);
+      }
+    }
+    openBatchResource = currentOpenBatch.resource;
+  }
+
+  private long getElementThreshold() {
+    return adaptiveController != null
+        ? adaptiveController.getElementCountThreshold()
+        : elementThreshold;
+  }
+
+  private long getBytesThreshold() {
+    return adaptiveController != null
+        ? adaptiveController.getRequestByteThreshold()
+        : bytesThreshold;
+  }
+
+  private Duration getDelay() {
+    return adaptiveController != null
+        ? adaptiveController.getDelayThreshold()
+        : batchingSettings.getDelayThresholdDuration();
+  }
+
+  /** Sends the batch if it's still the open batch, once its delay threshold elapsed. */
+  private void sendOpenBatch(Batch<ElementT, ElementResultT, RequestT, ResponseT> batch) {
+    synchronized (elementLock) {
+      if (currentOpenBatch != batch || batch.isEmpty()) {
+        return;
+      }
+      takeOpenBatch();
+    }
+    sendBatch(batch);
+  }
+
+  @GuardedBy("elementLock")
+  private Batch<ElementT, ElementResultT, RequestT, ResponseT> takeOpenBatch() {
+    Batch<ElementT, ElementResultT, RequestT, ResponseT> batch = currentOpenBatch;
+    currentOpenBatch = new Batch<>(prototype, batchingDescriptor, batcherStats);
+    if (batch.flushTimeout != null) {
+      batch.flushTimeout.cancel();
+    }
+    if (stripes != null) {
+      openBatchResource = currentOpenBatch.resource;
+    }
+    return batch;
+  }
+
   /** {@inheritDoc} */
   @Override
   public void sendOutstanding() {
+    if (stripes != null) {
+      List<Batch<ElementT, ElementResultT, RequestT, ResponseT>> batches = new ArrayList<>();
+      synchronized (elementLock) {
+        mergeStripes(batches);
+        if (!currentOpenBatch.isEmpty()) {
+          batches.add(takeOpenBatch());
+        }
+      }
+      for (Batch<ElementT, ElementResultT, RequestT, ResponseT> batch : batches) {
+        sendBatch(batch);
+      }
+      return;
+    }
+
     final Batch<ElementT, ElementResultT, RequestT, ResponseT> accumulatedBatch;
 
     synchronized (elementLock) {
       if (currentOpenBatch.isEmpty()) {
         return;
       }
-      accumulatedBatch = currentOpenBatch;
-      currentOpenBatch = new Batch<>(prototype, batchingDescriptor, batcherStats);
+      accumulatedBatch = takeOpenBatch();
     }
+    sendBatch(accumulatedBatch);
+  }
 
+  private void sendBatch(Batch<ElementT, ElementResultT, RequestT, ResponseT> accumulatedBatch) {
     // This check is for old clients that instantiated the batcher without ApiCallContext
     ApiCallContext callContextWithOption = null;
     if (callContext != null) {
@@ -297,6 +570,7 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
           callContext.withOption(THROTTLED_TIME_KEY, accumulatedBatch.totalThrottledTimeMs);
     }
     ApiFuture<ResponseT> batchResponse;
+    long sentNanos = System.nanoTime();
     try {
       batchResponse =
           unaryCallable.futureCall(accumulatedBatch.builder.build(), callContextWithOption);
@@ -316,6 +590,7 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
               flowController.release(
                   accumulatedBatch.resource.getElementCount(),
                   accumulatedBatch.resource.getByteCount());
+              onBatchResponse(sentNanos, false);
               accumulatedBatch.onBatchSuccess(response);
             } finally {
               onBatchCompletion(accumulatedBatch);
@@ -328,6 +603,7 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
               flowController.release(
                   accumulatedBatch.resource.getElementCount(),
                   accumulatedBatch.resource.getByteCount());
+              onBatchResponse(sentNanos, true);
               accumulatedBatch.onBatchFailure(throwable);
             } finally {
               onBatchCompletion(accumulatedBatch);
@@ -337,6 +613,12 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
         directExecutor());
   }
 
+  private void onBatchResponse(long sentNanos, boolean failed) {
+    if (adaptiveController != null) {
+      adaptiveController.onBatchCompleted(sentNanos, System.nanoTime(), failed);
+    }
+  }
+
   private void onBatchCompletion(Batch<ElementT, ElementResultT, RequestT, ResponseT> batch) {
     boolean shouldClose = false;
 
@@ -440,6 +722,9 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
 
     // Clean up accounting
     scheduledFuture.cancel(false);
+    if (adaptivePushRunnable != null) {
+      adaptivePushRunnable.cancel();
+    }
     currentBatcherReference.closed = true;
     currentBatcherReference.clear();
 
@@ -476,6 +761,8 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
     private final BatcherStats batcherStats;
     private long totalThrottledTimeMs = 0;
     private BatchResource resource;
+    // The delayed flush of this batch, armed when it receives its first element
+    @Nullable private BatchFlushScheduler.FlushTimeout flushTimeout;
 
     private volatile ApiFuture<ResponseT> responseFuture;
 
@@ -550,6 +837,30 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
     }
   }
 
+  /** A buffer of added elements which are not yet merged into a batch. */
+  private static class Stripe<ElementT, ElementResultT> {
+    @GuardedBy("this")
+    private List<StripeEntry<ElementT, ElementResultT>> entries = new ArrayList<>();
+  }
+
+  private static class StripeEntry<ElementT, ElementResultT> {
+    private final ElementT element;
+    private final BatchResource resource;
+    private final SettableApiFuture<ElementResultT> result;
+    private final long throttledTimeMs;
+
+    private StripeEntry(
+        ElementT element,
+        BatchResource resource,
+        SettableApiFuture<ElementResultT> result,
+        long throttledTimeMs) {
+      this.element = element;
+      this.resource = resource;
+      this.result = result;
+      this.throttledTimeMs = throttledTimeMs;
+    }
+  }
+
   /**
    * Executes {@link #sendOutstanding()} on a periodic interval.
    *
@@ -587,6 +898,64 @@ public class BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
     }
   }
 
+  /**
+   * Executes {@link #sendOutstanding()} after the delay threshold of the {@link
+   * AdaptiveBatchingController}, which is read again before scheduling every execution.
+   *
+   * <p>This class holds a weak reference to the Batcher instance and stops rescheduling itself if
+   * the target Batcher has been garbage collected.
+   */
+  private static class AdaptivePushCurrentBatchRunnable<
+          ElementT, ElementResultT, RequestT, ResponseT>
+      implements Runnable {
+
+    private final WeakReference<BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>>
+        batcherReferent;
+    private final ScheduledExecutorService executor;
+    private final AdaptiveBatchingController controller;
+    private volatile Future<?> scheduledFuture;
+    private volatile boolean cancelled;
+
+    AdaptivePushCurrentBatchRunnable(
+        BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT> batcher,
+        ScheduledExecutorService executor,
+        AdaptiveBatchingController controller) {
+      this.batcherReferent = new WeakReference<>(batcher);
+      this.executor = executor;
+      this.controller = controller;
+    }
+
+    void schedule() {
+      if (cancelled) {
+        return;
+      }
+      try {
+        scheduledFuture =
+            executor.schedule(this, controller.getDelayThreshold().toNanos(), TimeUnit.NANOSECONDS);
+      } catch (RejectedExecutionException e) {
+        // The executor was shut down, same as a periodic task which stops running
+      }
+    }
+
+    void cancel() {
+      cancelled = true;
+      Future<?> future = scheduledFuture;
+      if (future != null) {
+        future.cancel(false);
+      }
+    }
+
+    @Override
+    public void run() {
+      BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT> batcher = batcherReferent.get();
+      if (batcher == null || cancelled) {
+        return;
+      }
+      batcher.sendOutstanding();
+      schedule();
+    }
+  }
+
   /**
    * On every Batcher allocation this class will check for garbage collected batchers that were
    * never closed and emit warning logs.
@@ -32,27 +32,36 @@ package com.google.api.gax.batching;
 import com.google.api.gax.rpc.ApiException;
 import com.google.api.gax.rpc.StatusCode.Code;
 import com.google.common.base.Joiner;
-import com.google.common.base.MoreObjects;
-import com.google.common.collect.EvictingQueue;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import javax.annotation.Nullable;
 
 /**
  * Keeps the statistics about failed operations(both at RPC and ElementT) in {@link Batcher}. This
  * provides the count of individual exception failure and count of each failed {@link Code} occurred
  * in the batching process.
+ *
+ * <p>The statistics are recorded from the completion callbacks of concurrent batches, so the counts
+ * are kept in {@link LongAdder}s (indexed by the {@link Code} ordinal for the status codes) rather
+ * than behind a lock.
  */
 class BatcherStats {
 
-  private final Map<Class, Integer> requestExceptionCounts = new HashMap<>();
-  private final Map<Code, Integer> requestStatusCounts = new HashMap<>();
-  private int requestPartialFailureCount;
+  private static final Code[] CODES = Code.values();
+
+  private final ConcurrentMap<Class, LongAdder> requestExceptionCounts = new ConcurrentHashMap<>();
+  private final LongAdder[] requestStatusCounts = newStatusCounters();
+  private final LongAdder requestPartialFailureCount = new LongAdder();
 
-  private final Map<Class, Integer> entryExceptionCounts = new HashMap<>();
-  private final Map<Code, Integer> entryStatusCounts = new HashMap<>();
+  private final ConcurrentMap<Class, LongAdder> entryExceptionCounts = new ConcurrentHashMap<>();
+  private final LongAdder[] entryStatusCounts = newStatusCounters();
 
   /**
    * The maximum number of error messages that a Batcher instance will retain. By default, a Batcher
@@ -64,10 +73,8 @@ class BatcherStats {
   private final int MAX_ERROR_MSG_SAMPLES =
       Integer.getInteger("com.google.api.gax.batching.errors.max-samples", 50);
 
-  private final EvictingQueue<String> sampleOfRpcErrors =
-      EvictingQueue.create(MAX_ERROR_MSG_SAMPLES);
-  private final EvictingQueue<String> sampleOfEntryErrors =
-      EvictingQueue.create(MAX_ERROR_MSG_SAMPLES);
+  private final ErrorSamples sampleOfRpcErrors = new ErrorSamples(MAX_ERROR_MSG_SAMPLES);
+  private final ErrorSamples sampleOfEntryErrors = new ErrorSamples(MAX_ERROR_MSG_SAMPLES);
 
   /**
    * Records the count of the exception and it's type when a complete batch failed to apply.
@@ -75,21 +82,9 @@ class BatcherStats {
    * <p>Note: This method aggregates all the subclasses of {@link ApiException} under ApiException
    * using the {@link Code status codes} and its number of occurrences.
    */
-  synchronized void recordBatchFailure(Throwable throwable) {
-    Class exceptionClass = throwable.getClass();
-
-    if (throwable instanceof ApiException) {
-      Code code = ((ApiException) throwable).getStatusCode().getCode();
-      exceptionClass = ApiException.class;
-
-      int oldStatusCount = MoreObjects.firstNonNull(requestStatusCounts.get(code), 0);
-      requestStatusCounts.put(code, oldStatusCount + 1);
-    }
-
-    sampleOfRpcErrors.add(throwable.toString());
-
-    int oldExceptionCount = MoreObjects.firstNonNull(requestExceptionCounts.get(exceptionClass), 0);
-    requestExceptionCounts.put(exceptionClass, oldExceptionCount + 1);
+  void recordBatchFailure(Throwable throwable) {
+    recordException(throwable, requestExceptionCounts, requestStatusCounts);
+    sampleOfRpcErrors.add(throwable);
   }
 
   /**
@@ -100,8 +95,7 @@ class BatcherStats {
    * <p>Note: This method aggregates all the subclasses of {@link ApiException} under ApiException
    * using the {@link Code status codes} and its number of occurrences.
    */
-  synchronized <T extends BatchEntry> void recordBatchElementsCompletion(
-      List<T> batchElementResultFutures) {
+  <T extends BatchEntry> void recordBatchElementsCompletion(List<T> batchElementResultFutures) {
     boolean isRequestPartiallyFailed = false;
     for (final BatchEntry elementResult : batchElementResultFutures) {
       try {
@@ -110,32 +104,40 @@ class BatcherStats {
 
         if (!isRequestPartiallyFailed) {
           isRequestPartiallyFailed = true;
-          requestPartialFailureCount++;
+          requestPartialFailureCount.increment();
         }
         Throwable actualCause = throwable.getCause();
-        Class exceptionClass = actualCause.getClass();
 
-        sampleOfEntryErrors.add(actualCause.toString());
+        sampleOfEntryErrors.add(actualCause);
+        recordException(actualCause, entryExceptionCounts, entryStatusCounts);
+      }
+    }
+  }
 
-        if (actualCause instanceof ApiException) {
-          Code code = ((ApiException) actualCause).getStatusCode().getCode();
-          exceptionClass = ApiException.class;
+  private static void recordException(
+      Throwable throwable,
+      ConcurrentMap<Class, LongAdder> exceptionCounts,
+      LongAdder[] statusCounts) {
+    Class exceptionClass = throwable.getClass();
 
-          int oldStatusCount = MoreObjects.firstNonNull(entryStatusCounts.get(code), 0);
-          entryStatusCounts.put(code, oldStatusCount + 1);
-        }
+    if (throwable instanceof ApiException) {
+      Code code = ((ApiException) throwable).getStatusCode().getCode();
+      exceptionClass = ApiException.class;
+      statusCounts[code.ordinal()].increment();
+    }
 
-        int oldExceptionCount =
-            MoreObjects.firstNonNull(entryExceptionCounts.get(exceptionClass), 0);
-        entryExceptionCounts.put(exceptionClass, oldExceptionCount + 1);
-      }
+    LongAdder exceptionCount = exceptionCounts.get(exceptionClass);
+    if (exceptionCount == null) {
+      exceptionCount = exceptionCounts.computeIfAbsent(exceptionClass, k -> new LongAdder());
     }
+    exceptionCount.increment();
   }
 
   /** Calculates and formats the message with request and entry failure count. */
   @Nullable
-  synchronized BatchingException asException() {
-    if (requestExceptionCounts.isEmpty() && requestPartialFailureCount == 0) {
+  BatchingException asException() {
+    long partialFailureCount = requestPartialFailureCount.sum();
+    if (requestExceptionCounts.isEmpty() && partialFailureCount == 0) {
       return null;
     }
 
@@ -150,30 +152,32 @@ class BatcherStats {
           .append(" and ");
     }
 
-    messageBuilder.append(String.format("%d partial failures.", requestPartialFailureCount));
-    if (requestPartialFailureCount > 0) {
-      int totalEntriesCount = 0;
-      for (Integer count : entryExceptionCounts.values()) {
-        totalEntriesCount += count;
+    messageBuilder.append(String.format("%d partial failures.", partialFailureCount));
+    if (partialFailureCount > 0) {
+      long totalEntriesCount = 0;
+      for (LongAdder count : entryExceptionCounts.values()) {
+        totalEntriesCount += count.sum();
       }
 
       messageBuilder
           .append(
               String.format(
                   " The %d partial failures contained %d entries that failed with: ",
-                  requestPartialFailureCount, totalEntriesCount))
+                  partialFailureCount, totalEntriesCount))
           .append(buildExceptionList(entryExceptionCounts, entryStatusCounts))
           .append(".");
     }
 
-    if (!sampleOfRpcErrors.isEmpty()) {
+    List<String> rpcErrors = sampleOfRpcErrors.toStrings();
+    if (!rpcErrors.isEmpty()) {
       messageBuilder.append(" Sample of RPC errors: ");
-      messageBuilder.append(Joiner.on(", ").join(sampleOfRpcErrors));
+      messageBuilder.append(Joiner.on(", ").join(rpcErrors));
       messageBuilder.append(".");
     }
-    if (!sampleOfEntryErrors.isEmpty()) {
+    List<String> entryErrors = sampleOfEntryErrors.toStrings();
+    if (!entryErrors.isEmpty()) {
       messageBuilder.append(" Sample of entry errors: ");
-      messageBuilder.append(Joiner.on(", ").join(sampleOfEntryErrors));
+      messageBuilder.append(Joiner.on(", ").join(entryErrors));
       messageBuilder.append(".");
     }
     return new BatchingException(messageBuilder.toString());
@@ -185,24 +189,28 @@ class BatcherStats {
    * <p>Example: "1 IllegalStateException, 1 ApiException(1 UNAVAILABLE, 1 ALREADY_EXISTS)".
    */
   private String buildExceptionList(
-      Map<Class, Integer> exceptionCounts, Map<Code, Integer> statusCounts) {
+      Map<Class, LongAdder> exceptionCounts, LongAdder[] statusCounts) {
     StringBuilder messageBuilder = new StringBuilder();
-    Iterator<Map.Entry<Class, Integer>> exceptionIterator = exceptionCounts.entrySet().iterator();
+    Iterator<Map.Entry<Class, LongAdder>> exceptionIterator = exceptionCounts.entrySet().iterator();
 
     while (exceptionIterator.hasNext()) {
-      Map.Entry<Class, Integer> request = exceptionIterator.next();
+      Map.Entry<Class, LongAdder> request = exceptionIterator.next();
       messageBuilder.append(
-          String.format("%d %s", request.getValue(), request.getKey().getSimpleName()));
+          String.format("%d %s", request.getValue().sum(), request.getKey().getSimpleName()));
 
       if (ApiException.class.equals(request.getKey())) {
         messageBuilder.append("(");
-        Iterator<Map.Entry<Code, Integer>> statusIterator = statusCounts.entrySet().iterator();
-        while (statusIterator.hasNext()) {
-          Map.Entry<Code, Integer> statusCode = statusIterator.next();
-          messageBuilder.append(String.format("%d %s", statusCode.getValue(), statusCode.getKey()));
-          if (statusIterator.hasNext()) {
+        boolean first = true;
+        for (Code code : CODES) {
+          long count = statusCounts[code.ordinal()].sum();
+          if (count == 0) {
+            continue;
+          }
+          if (!first) {
             messageBuilder.append(", ");
           }
+          first = false;
+          messageBuilder.append(String.format("%d %s", count, code));
         }
         messageBuilder.append(")");
       }
@@ -213,4 +221,65 @@ class BatcherStats {
 
     return messageBuilder.toString();
   }
+
+  private static LongAdder[] newStatusCounters() {
+    LongAdder[] counters = new LongAdder[CODES.length];
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] = new LongAdder();
+    }
+    return counters;
+  }
+
+  /**
+   * Retains the class and message of the last errors that were added, without locking. The errors
+   * themselves are not kept, so they and whatever they reference can be collected, and they are
+   * only formatted when the samples are read.
+   */
+  private static class ErrorSamples {
+    private final AtomicReferenceArray<ErrorSample> samples;
+    private final AtomicLong added = new AtomicLong();
+
+    ErrorSamples(int maxSamples) {
+      this.samples = new AtomicReferenceArray<>(maxSamples);
+    }
+
+    void add(Throwable error) {
+      if (samples.length() == 0) {
+        return;
+      }
+      samples.set(
+          (int) (added.getAndIncrement() % samples.length()),
+          new ErrorSample(error.getClass(), error.getLocalizedMessage()));
+    }
+
+    /** Returns the retained messages, from the oldest to the newest. */
+    List<String> toStrings() {
+      long end = added.get();
+      long start = Math.max(0, end - samples.length());
+      List<String> strings = new ArrayList<>((int) (end - start));
+      for (long i = start; i < end; i++) {
+        ErrorSample error = samples.get((int) (i % samples.length()));
+        if (error != null) {
+          strings.add(error.toString());
+        }
+      }
+      return strings;
+    }
+  }
+
+  private static class ErrorSample {
+    private final Class<?> errorClass;
+    @Nullable private final String message;
+
+    ErrorSample(Class<?> errorClass, @Nullable String message) {
+      this.errorClass = errorClass;
+      this.message = message;
+    }
+
+    /** Formats the error like {@link Throwable#toString()}. */
+    @Override
+    public String toString() {
+      return message != null ? errorClass.getName() + ": " + message : errorClass.getName();
+    }
+  }
 }
@@ -119,6 +119,19 @@ public abstract class BatchingSettings {
   /** Get the flow control settings to use. */
   public abstract FlowControlSettings getFlowControlSettings();
 
+  /**
+   * Get the number of stripes that added elements are accumulated in before they are merged into a
+   * batch. Default to 1.
+   */
+  public abstract int getAccumulationStripeCount();
+
+  /**
+   * Get the settings for adapting the thresholds to the latency of the batch requests, or null if
+   * the thresholds are static. Default to null.
+   */
+  @Nullable
+  public abstract AdaptiveBatchingSettings getAdaptiveBatchingSettings();
+
   /** Get a new builder. */
   public static Builder newBuilder() {
     return new AutoValue_BatchingSettings.Builder()
@@ -129,7 +142,8 @@ public abstract class BatchingSettings {
         .setFlowControlSettings(
             FlowControlSettings.newBuilder()
                 .setLimitExceededBehavior(LimitExceededBehavior.Ignore)
-                .build());
+                .build())
+        .setAccumulationStripeCount(1);
   }
 
   /** Get a builder with the same values as this object. */
@@ -176,6 +190,24 @@ public abstract class BatchingSettings {
     /** Set the flow control settings to be used. */
     public abstract Builder setFlowControlSettings(FlowControlSettings flowControlSettings);
 
+    /**
+     * Set the number of stripes that added elements are accumulated in. With a single stripe, every
+     * added element is appended to the open batch under one lock. With more stripes, concurrent
+     * producers append to separate stripes and the elements are merged into the outgoing batches
+     * only when they are flushed. The thresholds apply as usual, but the order of elements added
+     * concurrently from different threads is not preserved. Default to 1.
+     */
+    public abstract Builder setAccumulationStripeCount(int accumulationStripeCount);
+
+    /**
+     * Set the settings for adapting the thresholds to the latency of the batch requests. The
+     * element count, request byte and delay thresholds of these settings become upper bounds, and
+     * the batcher lowers them when the batch requests get slow or fail. Default to null, which
+     * keeps the thresholds static.
+     */
+    public abstract Builder setAdaptiveBatchingSettings(
+        @Nullable AdaptiveBatchingSettings adaptiveBatchingSettings);
+
     abstract BatchingSettings autoBuild();
 
     /** Build the BatchingSettings object. */
@@ -191,6 +223,8 @@ public abstract class BatchingSettings {
           settings.getDelayThresholdDuration() == null
               || settings.getDelayThresholdDuration().compareTo(java.time.Duration.ZERO) > 0,
           "delayThreshold must be either unset or positive");
+      Preconditions.checkArgument(
+          settings.getAccumulationStripeCount() > 0, "accumulationStripeCount must be positive");
       return settings;
     }
   }
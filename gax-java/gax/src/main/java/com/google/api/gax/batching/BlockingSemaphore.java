@@ -27,16 +27,45 @@
  * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
-
 package com.google.api.gax.batching;
 
 import com.google.common.base.Preconditions;
-
-/** A {@link Semaphore64} that blocks until permits become available. */
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Semaphore64} that blocks until permits become available.
+ *
+ * <p>The available permits and the limit are updated together under a short lock, so that a release
+ * racing with a limit change can't lose permits. Threads which can't acquire their permits right
+ * away are parked in a lock-free FIFO queue and are granted their permits in arrival order, so a
+ * release only wakes up the waiters that the released permits can satisfy. A waiter asking for more permits than
+ * the current limit doesn't block the waiters behind it.
+ */
 class BlockingSemaphore implements Semaphore64 {
+  // Results of tryTake()
+  private static final int TAKEN = 0;
+  private static final int UNAVAILABLE = 1;
+  private static final int OVER_LIMIT = 2;
+
+  private final Object lock = new Object();
+
+  // Can go negative after an oversized acquirePartial() or a reducePermitLimit()
+  @GuardedBy("lock")
   private long availablePermits;
+
+  @GuardedBy("lock")
   private long limit;
 
+  private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+  // Number of pending requests to grant permits to the waiters, only the thread which increments it
+  // from 0 grants the permits.
+  private final AtomicInteger grantRequests = new AtomicInteger();
+
   private static void checkNotNegative(long l) {
     Preconditions.checkArgument(l >= 0, "negative permits not allowed: %s", l);
   }
@@ -48,76 +77,154 @@ class BlockingSemaphore implements Semaphore64 {
   }
 
   @Override
-  public synchronized void release(long permits) {
+  public void release(long permits) {
     checkNotNegative(permits);
-    // TODO: throw exceptions when the permits overflow
-    availablePermits = Math.min(availablePermits + permits, limit);
-    notifyAll();
+    synchronized (lock) {
+      // TODO: throw exceptions when the permits overflow
+      availablePermits = Math.min(availablePermits + permits, limit);
+    }
+    grantWaiters();
   }
 
   @Override
-  public synchronized boolean acquire(long permits) {
+  public boolean acquire(long permits) {
     checkNotNegative(permits);
-
-    boolean interrupted = false;
-    while (availablePermits < permits) {
-      try {
-        wait();
-      } catch (InterruptedException e) {
-        interrupted = true;
-      }
+    if (!tryAcquire(permits)) {
+      await(new Waiter(permits, false));
     }
-    // TODO: if thread is interrupted, we should not grant the permits
-    availablePermits -= permits;
+    return true;
+  }
 
-    if (interrupted) {
-      Thread.currentThread().interrupt();
+  @Override
+  public boolean acquirePartial(long permits) {
+    checkNotNegative(permits);
+    if (!tryAcquirePartial(permits)) {
+      await(new Waiter(permits, true));
     }
     return true;
   }
 
   @Override
-  public synchronized boolean acquirePartial(long permits) {
+  public boolean tryAcquire(long permits) {
     checkNotNegative(permits);
+    // Don't overtake the queued waiters
+    return waiters.isEmpty() && tryTake(permits, false) == TAKEN;
+  }
 
-    boolean interrupted = false;
-    // To allow individual oversized requests to be sent, clamp the requested permits to the maximum
+  @Override
+  public boolean tryAcquirePartial(long permits) {
+    checkNotNegative(permits);
+    // To allow individual oversized requests to be sent, clamp the required permits to the maximum
     // limit. This will allow individual large requests to be sent. Please note that this behavior
     // will result in availablePermits going negative.
-    while (availablePermits < Math.min(limit, permits)) {
-      try {
-        wait();
-      } catch (InterruptedException e) {
-        interrupted = true;
-      }
-    }
-
-    if (interrupted) {
-      Thread.currentThread().interrupt();
-    }
-
-    availablePermits -= permits;
-    return true;
+    return waiters.isEmpty() && tryTake(permits, true) == TAKEN;
   }
 
   @Override
-  public synchronized void increasePermitLimit(long permits) {
+  public void increasePermitLimit(long permits) {
     checkNotNegative(permits);
-    availablePermits += permits;
-    limit += permits;
-    notifyAll();
+    synchronized (lock) {
+      limit += permits;
+      availablePermits += permits;
+    }
+    grantWaiters();
   }
 
   @Override
-  public synchronized void reducePermitLimit(long reduction) {
+  public void reducePermitLimit(long reduction) {
     checkNotNegative(reduction);
-    Preconditions.checkState(limit - reduction > 0, "permit limit underflow");
-    availablePermits -= reduction;
-    limit -= reduction;
+    synchronized (lock) {
+      Preconditions.checkState(limit - reduction > 0, "permit limit underflow");
+      limit -= reduction;
+      availablePermits -= reduction;
+    }
   }
 
   @Override
-  public synchronized long getPermitLimit() {
-    return limit;
+  public long getPermitLimit() {
+    synchronized (lock) {
+      return limit;
+    }
+  }
+
+  /**
+   * Takes the permits if enough of them are available. Partial requests only need up to the limit,
+   * which allows individual large requests to be sent.
+   */
+  private int tryTake(long permits, boolean partial) {
+    synchronized (lock) {
+      long required = partial ? Math.min(limit, permits) : permits;
+      if (required > limit) {
+        return OVER_LIMIT;
+      }
+      if (availablePermits < required) {
+        return UNAVAILABLE;
+      }
+      availablePermits -= permits;
+      return TAKEN;
+    }
+  }
+
+  private void await(Waiter waiter) {
+    waiters.add(waiter);
+    // The permits might have been released before the waiter was queued
+    grantWaiters();
+
+    boolean interrupted = false;
+    while (!waiter.granted) {
+      LockSupport.park(this);
+      // TODO: if thread is interrupted, we should not grant the permits
+      if (Thread.interrupted()) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Grants permits to the waiters in queue order for as long as there are enough permits available.
+   * Waiters which ask for more permits than the current limit are skipped. Concurrent calls are
+   * collapsed, so only one thread grants permits at a time, and it repeats the pass if another call
+   * happened in the meantime.
+   */
+  private void grantWaiters() {
+    if (waiters.isEmpty() || grantRequests.getAndIncrement() != 0) {
+      return;
+    }
+    int requests = 1;
+    while (true) {
+      for (Iterator<Waiter> it = waiters.iterator(); it.hasNext(); ) {
+        Waiter waiter = it.next();
+        int result = tryTake(waiter.permits, waiter.partial);
+        if (result == OVER_LIMIT) {
+          // Can't be granted before the limit is increased, don't hold up the waiters behind it
+          continue;
+        }
+        if (result == UNAVAILABLE) {
+          break;
+        }
+        it.remove();
+        waiter.granted = true;
+        LockSupport.unpark(waiter.thread);
+      }
+      requests = grantRequests.addAndGet(-requests);
+      if (requests == 0) {
+        return;
+      }
+    }
+  }
+
+  private static final class Waiter {
+    private final Thread thread = Thread.currentThread();
+    private final long permits;
+    private final boolean partial;
+    private volatile boolean granted;
+
+    private Waiter(long permits, boolean partial) {
+      this.permits = permits;
+      this.partial = partial;
+    }
   }
 }
@@ -63,6 +63,7 @@ import javax.annotation.Nullable;
 public class FlowControlEventStats {
 
   private volatile FlowControlEvent lastFlowControlEvent;
+  private volatile BatchingThresholdsEvent lastBatchingThresholdsEvent;
 
   // We only need the last event to check if there was throttling in the past X minutes so this
   // doesn't need to be super accurate.
@@ -76,6 +77,19 @@ public class FlowControlEventStats {
     return lastFlowControlEvent;
   }
 
+  void recordBatchingThresholdsEvent(BatchingThresholdsEvent event) {
+    lastBatchingThresholdsEvent = event;
+  }
+
+  /**
+   * Returns the last adjustment of the batch thresholds, or null if the thresholds were never
+   * adjusted. Only populated when {@link AdaptiveBatchingSettings} are used.
+   */
+  @Nullable
+  public BatchingThresholdsEvent getLastBatchingThresholdsEvent() {
+    return lastBatchingThresholdsEvent;
+  }
+
   /**
    * A flow control event. Record throttled time if {@link LimitExceededBehavior} is {@link
    * LimitExceededBehavior#Block}, or the exception if the behavior is {@link
@@ -141,4 +155,51 @@ public class FlowControlEventStats {
       return Long.compare(this.getTimestampMs(), otherEvent.getTimestampMs());
     }
   }
+
+  /** An adjustment of the batch thresholds, made after a batch request completed. */
+  public static class BatchingThresholdsEvent {
+    private final long timestampMs;
+    private final boolean decreased;
+    private final long elementCountThreshold;
+    private final long requestByteThreshold;
+    @Nullable private final java.time.Duration delayThreshold;
+
+    BatchingThresholdsEvent(
+        long timestampMs,
+        boolean decreased,
+        long elementCountThreshold,
+        long requestByteThreshold,
+        @Nullable java.time.Duration delayThreshold) {
+      this.timestampMs = timestampMs;
+      this.decreased = decreased;
+      this.elementCountThreshold = elementCountThreshold;
+      this.requestByteThreshold = requestByteThreshold;
+      this.delayThreshold = delayThreshold;
+    }
+
+    public long getTimestampMs() {
+      return timestampMs;
+    }
+
+    /** Returns true if the thresholds were decreased, false if they were increased. */
+    public boolean isDecreased() {
+      return decreased;
+    }
+
+    /** Returns the new element count threshold, or 0 if batching on element count is disabled. */
+    public long getElementCountThreshold() {
+      return elementCountThreshold;
+    }
+
+    /** Returns the new request byte threshold, or 0 if batching on request bytes is disabled. */
+    public long getRequestByteThreshold() {
+      return requestByteThreshold;
+    }
+
+    /** Returns the new delay threshold, or null if there's no delay threshold. */
+    @Nullable
+    public java.time.Duration getDelayThreshold() {
+      return delayThreshold;
+    }
+  }
 }
@@ -33,6 +33,7 @@ import com.google.api.core.InternalApi;
 import com.google.api.gax.batching.FlowControlEventStats.FlowControlEvent;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
@@ -151,6 +152,10 @@ public class FlowController {
   private static final long RESERVE_FLOW_CONTROL_THRESHOLD_MS = 1;
   private final FlowControlEventStats flowControlEventStats;
 
+  @GuardedBy("updateLimitLock")
+  @Nullable
+  private AdaptiveFlowControlAdjuster adaptiveAdjuster;
+
   public FlowController(FlowControlSettings settings) {
     // When the FlowController is initialized with FlowControlSettings, flow control limits can't be
     // adjusted. min, current, max element count and request bytes are initialized with the max
@@ -239,6 +244,36 @@ public class FlowController {
     }
   }
 
+  /**
+   * Reserves the resources if they are available right away, without waiting or throwing. Returns
+   * false if the resources are not available, in which case nothing is reserved.
+   *
+   * <p>Like {@link #reserve(long, long)}, a request with more bytes than the limit can be reserved
+   * once no other bytes are outstanding.
+   *
+   * <p>With {@link LimitExceededBehavior#Block}, {@link BatcherImpl} reserves the resources of each
+   * element with this method first, and only calls {@link #reserve(long, long)} when it returns
+   * false. A subclass which overrides {@link #reserve(long, long)}, for example to track the
+   * reserved resources, must override this method in the same way. Alternatively, it can always
+   * return false here, so that every reservation goes through {@link #reserve(long, long)}.
+   */
+  @InternalApi("For google-cloud-java client use only")
+  public boolean tryReserve(long elements, long bytes) {
+    Preconditions.checkArgument(elements >= 0);
+    Preconditions.checkArgument(bytes >= 0);
+
+    if (outstandingElementCount != null && !outstandingElementCount.tryAcquire(elements)) {
+      return false;
+    }
+    if (outstandingByteCount != null && !outstandingByteCount.tryAcquirePartial(bytes)) {
+      if (outstandingElementCount != null) {
+        outstandingElementCount.release(elements);
+      }
+      return false;
+    }
+    return true;
+  }
+
   public void release(long elements, long bytes) {
     Preconditions.checkArgument(elements >= 0);
     Preconditions.checkArgument(bytes >= 0);
@@ -297,6 +332,20 @@ public class FlowController {
     }
   }
 
+  /**
+   * Returns the adjuster which applies adaptive batching to the limits of this flow controller. All
+   * the batchers sharing this flow controller get the same adjuster, created with the settings of
+   * the first one.
+   */
+  AdaptiveFlowControlAdjuster getAdaptiveAdjuster(AdaptiveBatchingSettings settings) {
+    synchronized (updateLimitLock) {
+      if (adaptiveAdjuster == null) {
+        adaptiveAdjuster = new AdaptiveFlowControlAdjuster(this, settings);
+      }
+      return adaptiveAdjuster;
+    }
+  }
+
   private static DynamicFlowControlSettings convertFlowControlSettings(
       FlowControlSettings settings) {
     return DynamicFlowControlSettings.newBuilder()
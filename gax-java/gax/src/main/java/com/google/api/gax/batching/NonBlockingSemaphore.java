@@ -92,6 +92,16 @@ class NonBlockingSemaphore implements Semaphore64 {
     }
   }
 
+  @Override
+  public boolean tryAcquire(long permits) {
+    return acquire(permits);
+  }
+
+  @Override
+  public boolean tryAcquirePartial(long permits) {
+    return acquirePartial(permits);
+  }
+
   @Override
   public void increasePermitLimit(long permits) {
     checkNotNegative(permits);
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.batching;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.InternalApi;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Futures;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Batcher} which accumulates the elements into separate batches per {@link PartitionKey},
+ * as returned by {@link PartitionedBatchingDescriptor#getPartitionKey(Object)}.
+ *
+ * <p>Every partition is batched by its own {@link BatcherImpl}, so the batches of a partition are
+ * sent independently of the other partitions once they reach the thresholds or the delay of the
+ * {@link BatchingSettings}. All the partitions share the same {@link FlowController}, so the
+ * outstanding elements and bytes are limited across all the partitions. The partitions which didn't
+ * receive any element for the idle timeout are flushed and removed, and are created again when a
+ * new element is added to them.
+ *
+ * <p>{@link #add}, {@link #flush}, {@link #sendOutstanding} and {@link #cancelOutstanding} may be
+ * called concurrently from multiple threads, also for the same partition, and they are safe to run
+ * while idle partitions are evicted on the executor. Closing is not coordinated with adding: every
+ * {@link #add} call must have returned before {@link #close} or {@link #closeAsync} is called. An
+ * element added concurrently with closing might be rejected with an {@link
+ * IllegalStateException}, or accepted into a batch which is never sent.
+ *
+ * @param <ElementT> The type of each individual element to be batched.
+ * @param <ElementResultT> The type of the result for each individual element.
+ * @param <RequestT> The type of the request that will contain the accumulated elements.
+ * @param <ResponseT> The type of the response that will unpack into individual element results.
+ */
+@InternalApi("For google-cloud-java client use only")
+public class PartitionedBatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>
+    implements Batcher<ElementT, ElementResultT> {
+
+  private final PartitionedBatchingDescriptor<ElementT, ElementResultT, RequestT, ResponseT>
+      batchingDescriptor;
+  private final UnaryCallable<RequestT, ResponseT> unaryCallable;
+  private final RequestT prototype;
+  private final BatchingSettings batchingSettings;
+  private final ScheduledExecutorService executor;
+  private final FlowController flowController;
+  @Nullable private final ApiCallContext callContext;
+  private final long idleTimeoutNanos;
+
+  private final ConcurrentMap<
+          PartitionKey, Partition<ElementT, ElementResultT, RequestT, ResponseT>>
+      partitions = new ConcurrentHashMap<>();
+  // Batchers of the evicted partitions which might still have outstanding batches
+  private final Set<BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>> evictedBatchers =
+      ConcurrentHashMap.newKeySet();
+  private final BatcherStats batcherStats = new BatcherStats();
+  private final Object evictionLock = new Object();
+  private final Future<?> evictionFuture;
+  private volatile SettableApiFuture<Void> closeFuture;
+
+  /**
+   * @param batchingDescriptor a {@link PartitionedBatchingDescriptor} for transforming individual
+   *     elements into wrappers request and response, and for finding their partition
+   * @param unaryCallable a {@link UnaryCallable} object
+   * @param prototype a {@link RequestT} object
+   * @param batchingSettings a {@link BatchingSettings} with configuration of thresholds, which
+   *     apply to every partition
+   * @param flowController a {@link FlowController} for throttling requests across all the
+   *     partitions. If it's null, create a {@link FlowController} object from {@link
+   *     BatchingSettings#getFlowControlSettings()}.
+   * @param callContext a {@link ApiCallContext} object that'll be merged in unaryCallable
+   * @param partitionIdleTimeout the duration after which a partition that didn't receive any
+   *     element is removed. If it's null, the partitions are kept until the batcher is closed.
+   */
+  public PartitionedBatcherImpl(
+      PartitionedBatchingDescriptor<ElementT, ElementResultT, RequestT, ResponseT>
+          batchingDescriptor,
+      UnaryCallable<RequestT, ResponseT> unaryCallable,
+      RequestT prototype,
+      BatchingSettings batchingSettings,
+      ScheduledExecutorService executor,
+      @Nullable FlowController flowController,
+      @Nullable ApiCallContext callContext,
+      @Nullable Duration partitionIdleTimeout) {
+    this.batchingDescriptor =
+        Preconditions.checkNotNull(batchingDescriptor, "batching descriptor cannot be null");
+    this.unaryCallable = Preconditions.checkNotNull(unaryCallable, "callable cannot be null");
+    this.prototype = Preconditions.checkNotNull(prototype, "request prototype cannot be null");
+    this.batchingSettings =
+        Preconditions.checkNotNull(batchingSettings, "batching setting cannot be null");
+    this.executor = Preconditions.checkNotNull(executor, "executor cannot be null");
+    this.flowController =
+        flowController != null
+            ? flowController
+            : new FlowController(batchingSettings.getFlowControlSettings());
+    this.callContext = callContext;
+
+    if (partitionIdleTimeout != null) {
+      Preconditions.checkArgument(
+          !partitionIdleTimeout.isNegative() && !partitionIdleTimeout.isZero(),
+          "partitionIdleTimeout must be positive");
+      this.idleTimeoutNanos = partitionIdleTimeout.toNanos();
+      long period = Math.max(1, partitionIdleTimeout.toMillis() / 2);
+      EvictIdlePartitionsRunnable runnable = new EvictIdlePartitionsRunnable(this);
+      evictionFuture =
+          executor.scheduleWithFixedDelay(runnable, period, period, TimeUnit.MILLISECONDS);
+      runnable.scheduledFuture = evictionFuture;
+    } else {
+      this.idleTimeoutNanos = Long.MAX_VALUE;
+      evictionFuture = Futures.immediateCancelledFuture();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ApiFuture<ElementResultT> add(ElementT element) {
+    Preconditions.checkState(closeFuture == null, "Cannot add elements on a closed batcher");
+
+    PartitionKey partitionKey = batchingDescriptor.getPartitionKey(element);
+    while (true) {
+      Partition<ElementT, ElementResultT, RequestT, ResponseT> partition =
+          partitions.computeIfAbsent(partitionKey, this::createPartition);
+      synchronized (partition) {
+        if (partition.evicted) {
+          // Lost the race with the eviction, retry with a new partition
+          continue;
+        }
+        partition.activeAdds++;
+      }
+      try {
+        return partition.batcher.add(element);
+      } finally {
+        synchronized (partition) {
+          partition.activeAdds--;
+          partition.lastAddNanos = System.nanoTime();
+        }
+      }
+    }
+  }
+
+  private Partition<ElementT, ElementResultT, RequestT, ResponseT> createPartition(
+      PartitionKey partitionKey) {
+    BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT> batcher =
+        new BatcherImpl<>(
+            batchingDescriptor,
+            unaryCallable,
+            batchingDescriptor.getPartitionPrototype(prototype, partitionKey),
+            batchingSettings,
+            executor,
+            flowController,
+            callContext,
+            null,
+            batcherStats,
+            // The open batches of the other partitions might hold the resources the element is
+            // waiting for
+            this::sendOutstanding);
+    return new Partition<>(batcher);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void flush() throws InterruptedException {
+    sendOutstanding();
+    for (BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT> batcher : allBatchers()) {
+      batcher.flush();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void sendOutstanding() {
+    for (Partition<ElementT, ElementResultT, RequestT, ResponseT> partition : partitions.values()) {
+      partition.batcher.sendOutstanding();
+    }
+  }
+
+  @Override
+  public void cancelOutstanding() {
+    for (BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT> batcher : allBatchers()) {
+      batcher.cancelOutstanding();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void close() throws InterruptedException {
+    try {
+      close(null);
+    } catch (TimeoutException e) {
+      // should never happen with a null timeout
+      throw new IllegalStateException(
+          "Unexpected timeout exception when trying to close the batcher without a timeout", e);
+    }
+  }
+
+  @Override
+  public void close(@Nullable Duration timeout) throws InterruptedException, TimeoutException {
+    try {
+      if (timeout != null) {
+        closeAsync().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+      } else {
+        closeAsync().get();
+      }
+    } catch (ExecutionException e) {
+      // Original stacktrace of a batching exception is not useful, so rethrow the error with
+      // the caller stacktrace
+      if (e.getCause() instanceof BatchingException) {
+        BatchingException cause = (BatchingException) e.getCause();
+        throw new BatchingException(cause.getMessage());
+      } else {
+        throw new IllegalStateException("unexpected error closing the batcher", e.getCause());
+      }
+    } catch (TimeoutException e) {
+      throw new TimeoutException(
+          "Timed out trying to close batcher after "
+              + timeout
+              + ". Batch request prototype: "
+              + prototype
+              + ". Partitions: "
+              + (partitions.size() + evictedBatchers.size()));
+    }
+  }
+
+  @Override
+  public ApiFuture<Void> closeAsync() {
+    if (closeFuture != null) {
+      return closeFuture;
+    }
+
+    List<ApiFuture<Void>> batcherCloseFutures = new ArrayList<>();
+    synchronized (evictionLock) {
+      // prevent admission of new elements
+      closeFuture = SettableApiFuture.create();
+      evictionFuture.cancel(false);
+      for (BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT> batcher : allBatchers()) {
+        batcherCloseFutures.add(batcher.closeAsync());
+      }
+    }
+
+    // The partitions share batcherStats, so the errors of all the partitions are reported below
+    ApiFutures.addCallback(
+        ApiFutures.successfulAsList(batcherCloseFutures),
+        new ApiFutureCallback<List<Void>>() {
+          @Override
+          public void onSuccess(List<Void> result) {
+            finishClose();
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            finishClose();
+          }
+        },
+        directExecutor());
+    return closeFuture;
+  }
+
+  private void finishClose() {
+    BatchingException batchingException = batcherStats.asException();
+    if (batchingException != null) {
+      closeFuture.setException(batchingException);
+    } else {
+      closeFuture.set(null);
+    }
+  }
+
+  /** Flushes and removes the partitions which didn't receive any element for the idle timeout. */
+  @VisibleForTesting
+  void evictIdlePartitions() {
+    synchronized (evictionLock) {
+      if (closeFuture != null) {
+        return;
+      }
+      long now = System.nanoTime();
+      for (Map.Entry<PartitionKey, Partition<ElementT, ElementResultT, RequestT, ResponseT>> entry :
+          partitions.entrySet()) {
+        Partition<ElementT, ElementResultT, RequestT, ResponseT> partition = entry.getValue();
+        synchronized (partition) {
+          if (partition.activeAdds > 0 || now - partition.lastAddNanos < idleTimeoutNanos) {
+            continue;
+          }
+          partition.evicted = true;
+        }
+        // Track the batcher before removing the partition, so flush() always sees it
+        BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT> batcher = partition.batcher;
+        evictedBatchers.add(batcher);
+        partitions.remove(entry.getKey(), partition);
+        batcher.closeAsync().addListener(() -> evictedBatchers.remove(batcher), directExecutor());
+      }
+    }
+  }
+
+  private List<BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>> allBatchers() {
+    List<BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT>> batchers =
+        new ArrayList<>(evictedBatchers);
+    for (Partition<ElementT, ElementResultT, RequestT, ResponseT> partition : partitions.values()) {
+      batchers.add(partition.batcher);
+    }
+    return batchers;
+  }
+
+  @VisibleForTesting
+  int getPartitionCount() {
+    return partitions.size();
+  }
+
+  @InternalApi("For google-cloud-java client use only")
+  public FlowController getFlowController() {
+    return flowController;
+  }
+
+  private static class Partition<ElementT, ElementResultT, RequestT, ResponseT> {
+    private final BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT> batcher;
+
+    @GuardedBy("this")
+    private int activeAdds;
+
+    @GuardedBy("this")
+    private boolean evicted;
+
+    @GuardedBy("this")
+    private long lastAddNanos = System.nanoTime();
+
+    private Partition(BatcherImpl<ElementT, ElementResultT, RequestT, ResponseT> batcher) {
+      this.batcher = batcher;
+    }
+  }
+
+  /**
+   * Executes {@link #evictIdlePartitions()} on a periodic interval.
+   *
+   * <p>This class holds a weak reference to the Batcher instance and cancels polling if the target
+   * Batcher has been garbage collected.
+   */
+  private static class EvictIdlePartitionsRunnable implements Runnable {
+    private final WeakReference<PartitionedBatcherImpl<?, ?, ?, ?>> batcherReferent;
+    private volatile Future<?> scheduledFuture;
+
+    EvictIdlePartitionsRunnable(PartitionedBatcherImpl<?, ?, ?, ?> batcher) {
+      this.batcherReferent = new WeakReference<>(batcher);
+    }
+
+    @Override
+    public void run() {
+      PartitionedBatcherImpl<?, ?, ?, ?> batcher = batcherReferent.get();
+      if (batcher == null) {
+        if (scheduledFuture != null) {
+          scheduledFuture.cancel(false);
+        }
+      } else {
+        batcher.evictIdlePartitions();
+      }
+    }
+  }
+}
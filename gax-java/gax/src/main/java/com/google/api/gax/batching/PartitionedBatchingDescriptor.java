@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.batching;
+
+import com.google.api.core.InternalApi;
+
+/**
+ * A {@link BatchingDescriptor} for batching the elements into partitions, for example one per table
+ * or region. Elements with the same {@link PartitionKey} are accumulated into the same batches,
+ * while elements of different partitions are never sent in the same batch request.
+ *
+ * @param <ElementT> The type of each individual element to be batched
+ * @param <ElementResultT> The type of the result for each individual element
+ * @param <RequestT> The type of the request that will contain the accumulated elements
+ * @param <ResponseT> The type of the response that will be unpacked into individual element results
+ * @see PartitionedBatcherImpl
+ */
+@InternalApi("For google-cloud-java client use only.")
+public interface PartitionedBatchingDescriptor<ElementT, ElementResultT, RequestT, ResponseT>
+    extends BatchingDescriptor<ElementT, ElementResultT, RequestT, ResponseT> {
+
+  /** Returns the key of the partition that the element is batched in. */
+  PartitionKey getPartitionKey(ElementT element);
+
+  /**
+   * Returns the request prototype for the batches of the partition. By default, all the partitions
+   * use the prototype of the batcher.
+   */
+  default RequestT getPartitionPrototype(RequestT prototype, PartitionKey partitionKey) {
+    return prototype;
+  }
+}
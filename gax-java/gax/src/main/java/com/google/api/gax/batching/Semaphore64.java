@@ -49,6 +49,15 @@ interface Semaphore64 {
    */
   boolean acquirePartial(long permits);
 
+  /** Acquires the permits if they are available right away, never waits. */
+  boolean tryAcquire(long permits);
+
+  /**
+   * Same as {@link #acquirePartial(long)}, but returns false instead of waiting when the permits
+   * aren't available right away.
+   */
+  boolean tryAcquirePartial(long permits);
+
   void increasePermitLimit(long permits);
 
   void reducePermitLimit(long reduction);
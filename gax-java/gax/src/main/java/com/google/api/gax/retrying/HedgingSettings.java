@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.retrying;
+
+import com.google.api.core.BetaApi;
+import com.google.auto.value.AutoValue;
+
+/**
+ * Holds the parameters for <b>hedging</b> a unary call: when the first attempt has not completed
+ * within the hedging delay, another attempt of the same request is started in parallel. The first
+ * successful response is used and the remaining attempts are cancelled. Each attempt is retried
+ * independently according to the {@link RetrySettings} of the call.
+ *
+ * <p>The hedging delay adapts to the observed latency of the method: it is the {@link
+ * #getDelayPercentile()} percentile of the latencies of recent successful calls, measured from
+ * the start of the call, so that only the slowest calls are hedged. Until enough latencies have
+ * been observed, {@link #getInitialDelayDuration()} is used instead.
+ *
+ * <p>Since the same request may be processed more than once by the server, hedging must only be
+ * enabled for idempotent methods.
+ */
+@BetaApi("The surface for hedging is not stable yet and may change in the future.")
+@AutoValue
+public abstract class HedgingSettings {
+
+  /**
+   * The latency percentile, between 0 (exclusive) and 100 (inclusive), after which another attempt
+   * is started. The default value is {@code 95}.
+   */
+  public abstract double getDelayPercentile();
+
+  /**
+   * The delay after which another attempt is started until enough latencies have been observed to
+   * compute the percentile. The default value is {@code 100 ms}.
+   */
+  public abstract java.time.Duration getInitialDelayDuration();
+
+  /**
+   * The maximum number of attempts that can be in flight for a single call, including the first
+   * one. The default value is {@code 2}.
+   */
+  public abstract int getMaxAttempts();
+
+  public static Builder newBuilder() {
+    return new AutoValue_HedgingSettings.Builder()
+        .setDelayPercentile(95)
+        .setInitialDelayDuration(java.time.Duration.ofMillis(100))
+        .setMaxAttempts(2);
+  }
+
+  public abstract Builder toBuilder();
+
+  @BetaApi("The surface for hedging is not stable yet and may change in the future.")
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    /** Sets the latency percentile after which another attempt is started. */
+    public abstract Builder setDelayPercentile(double delayPercentile);
+
+    /** Sets the delay used before enough latencies have been observed. */
+    public abstract Builder setInitialDelayDuration(java.time.Duration initialDelay);
+
+    /** Sets the maximum number of attempts in flight for a single call. Must be at least 2. */
+    public abstract Builder setMaxAttempts(int maxAttempts);
+
+    public abstract double getDelayPercentile();
+
+    public abstract java.time.Duration getInitialDelayDuration();
+
+    public abstract int getMaxAttempts();
+
+    abstract HedgingSettings autoBuild();
+
+    public HedgingSettings build() {
+      HedgingSettings settings = autoBuild();
+      if (!(settings.getDelayPercentile() > 0 && settings.getDelayPercentile() <= 100)) {
+        throw new IllegalStateException("delay percentile must be in (0, 100]");
+      }
+      if (settings.getInitialDelayDuration().isNegative()) {
+        throw new IllegalStateException("initial delay must not be negative");
+      }
+      if (settings.getMaxAttempts() < 2) {
+        throw new IllegalStateException("max attempts must be at least 2");
+      }
+      return settings;
+    }
+  }
+}
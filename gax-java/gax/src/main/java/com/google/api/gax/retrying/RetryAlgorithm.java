@@ -33,6 +33,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.api.core.BetaApi;
 import java.util.concurrent.CancellationException;
+import javax.annotation.Nullable;
 
 /**
  * The retry algorithm, which makes decision based either on the thrown exception or the returned
@@ -47,6 +48,7 @@ public class RetryAlgorithm<ResponseT> {
   private final TimedRetryAlgorithm timedAlgorithm;
   private final ResultRetryAlgorithmWithContext<ResponseT> resultAlgorithmWithContext;
   private final TimedRetryAlgorithmWithContext timedAlgorithmWithContext;
+  @Nullable private final RetryBudget retryBudget;
 
   /**
    * Creates a new retry algorithm instance, which uses thrown exception or returned response and
@@ -70,6 +72,7 @@ public class RetryAlgorithm<ResponseT> {
     this.timedAlgorithm = checkNotNull(timedAlgorithm);
     this.resultAlgorithmWithContext = null;
     this.timedAlgorithmWithContext = null;
+    this.retryBudget = null;
   }
 
   /**
@@ -83,10 +86,30 @@ public class RetryAlgorithm<ResponseT> {
   public RetryAlgorithm(
       ResultRetryAlgorithmWithContext<ResponseT> resultAlgorithm,
       TimedRetryAlgorithmWithContext timedAlgorithm) {
+    this(resultAlgorithm, timedAlgorithm, null);
+  }
+
+  /**
+   * Creates a new retry algorithm instance, which uses thrown exception or returned response and
+   * timed algorithms to make a decision, and additionally takes a token from the given {@link
+   * RetryBudget} before every retry. A retry that is allowed by both algorithms is still rejected
+   * if the budget is exhausted.
+   *
+   * @param resultAlgorithm result algorithm to use
+   * @param timedAlgorithm timed algorithm to use
+   * @param retryBudget budget shared with other callables of the same client, or {@code null} to
+   *     retry without a budget
+   */
+  @BetaApi("The surface for retry budgets is not stable yet and may change in the future.")
+  public RetryAlgorithm(
+      ResultRetryAlgorithmWithContext<ResponseT> resultAlgorithm,
+      TimedRetryAlgorithmWithContext timedAlgorithm,
+      @Nullable RetryBudget retryBudget) {
     this.resultAlgorithm = null;
     this.timedAlgorithm = null;
     this.resultAlgorithmWithContext = checkNotNull(resultAlgorithm);
     this.timedAlgorithmWithContext = checkNotNull(timedAlgorithm);
+    this.retryBudget = retryBudget;
   }
 
   /**
@@ -233,7 +256,8 @@ public class RetryAlgorithm<ResponseT> {
       TimedAttemptSettings nextAttemptSettings)
       throws CancellationException {
     return shouldRetryBasedOnResult(context, previousThrowable, previousResponse)
-        && shouldRetryBasedOnTiming(context, nextAttemptSettings);
+        && shouldRetryBasedOnTiming(context, nextAttemptSettings)
+        && shouldRetryBasedOnBudget(context);
   }
 
   boolean shouldRetryBasedOnResult(
@@ -255,6 +279,17 @@ public class RetryAlgorithm<ResponseT> {
     return getTimedAlgorithm().shouldRetry(nextAttemptSettings);
   }
 
+  // Must be evaluated last, since it consumes a token whenever it allows a retry.
+  private boolean shouldRetryBasedOnBudget(RetryingContext context) {
+    if (retryBudget == null || retryBudget.tryAcquireRetry()) {
+      return true;
+    }
+    if (context != null) {
+      context.getTracer().retryBudgetExhausted();
+    }
+    return false;
+  }
+
   @BetaApi("Surface for inspecting the a RetryAlgorithm is not yet stable")
   public ResultRetryAlgorithm<ResponseT> getResultAlgorithm() {
     return resultAlgorithmWithContext != null ? resultAlgorithmWithContext : resultAlgorithm;
@@ -264,4 +299,10 @@ public class RetryAlgorithm<ResponseT> {
   public TimedRetryAlgorithm getTimedAlgorithm() {
     return timedAlgorithmWithContext != null ? timedAlgorithmWithContext : timedAlgorithm;
   }
+
+  @BetaApi("The surface for retry budgets is not stable yet and may change in the future.")
+  @Nullable
+  public RetryBudget getRetryBudget() {
+    return retryBudget;
+  }
 }
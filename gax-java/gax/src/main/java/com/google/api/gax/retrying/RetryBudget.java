@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.retrying;
+
+import com.google.api.core.BetaApi;
+import com.google.common.base.Preconditions;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket that limits retries across every call that shares it, as configured by {@link
+ * RetryBudgetSettings}. A single instance is normally created per client and handed to each {@link
+ * RetryAlgorithm}, so that a burst of failures on one method also slows down retries on the others.
+ *
+ * <p>Tokens are kept as thousandths in a single atomic counter, so neither acquiring a retry nor
+ * recording a success takes a lock.
+ *
+ * <p>This class is thread-safe.
+ */
+@BetaApi("The surface for retry budgets is not stable yet and may change in the future.")
+public final class RetryBudget {
+  private static final long SCALE = 1000;
+
+  private final RetryBudgetSettings settings;
+  private final long maxScaledTokens;
+  private final long scaledTokensPerSuccess;
+  private final AtomicLong scaledTokens;
+
+  private RetryBudget(RetryBudgetSettings settings) {
+    this.settings = Preconditions.checkNotNull(settings);
+    this.maxScaledTokens = settings.getMaxTokens() * SCALE;
+    this.scaledTokensPerSuccess = Math.max(1, Math.round(settings.getRetryRatio() * SCALE));
+    this.scaledTokens = new AtomicLong(maxScaledTokens);
+  }
+
+  /** Creates a full budget with the given settings. */
+  public static RetryBudget create(RetryBudgetSettings settings) {
+    return new RetryBudget(settings);
+  }
+
+  public RetryBudgetSettings getSettings() {
+    return settings;
+  }
+
+  /**
+   * Takes one token from the budget if at least one is available.
+   *
+   * @return {@code true} if a retry may be made, or {@code false} if the budget is exhausted
+   */
+  public boolean tryAcquireRetry() {
+    while (true) {
+      long current = scaledTokens.get();
+      if (current < SCALE) {
+        return false;
+      }
+      if (scaledTokens.compareAndSet(current, current - SCALE)) {
+        return true;
+      }
+    }
+  }
+
+  /** Adds the tokens earned by a successful call, up to the maximum. */
+  public void recordSuccess() {
+    while (true) {
+      long current = scaledTokens.get();
+      if (current >= maxScaledTokens) {
+        return;
+      }
+      long next = Math.min(maxScaledTokens, current + scaledTokensPerSuccess);
+      if (scaledTokens.compareAndSet(current, next)) {
+        return;
+      }
+    }
+  }
+
+  /** Returns the number of tokens currently available, which may be fractional. */
+  public double getAvailableTokens() {
+    return (double) scaledTokens.get() / SCALE;
+  }
+}
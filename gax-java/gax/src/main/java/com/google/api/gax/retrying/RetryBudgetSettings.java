@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.retrying;
+
+import com.google.api.core.BetaApi;
+import com.google.auto.value.AutoValue;
+
+/**
+ * Holds the parameters of a {@link RetryBudget}, a client-wide limit on how many retries may be
+ * made relative to the number of successful calls.
+ *
+ * <p>The budget is a token bucket that starts full with {@link #getMaxTokens()} tokens. Every retry
+ * takes one token, and every successful call adds back {@link #getRetryRatio()} tokens, up to the
+ * maximum. Once the bucket is empty, failed attempts are not retried until enough calls have
+ * succeeded again. Over time this bounds the number of retries to roughly {@code retryRatio} times
+ * the number of successful calls, which keeps retries from amplifying load on a service that is
+ * already failing.
+ */
+@BetaApi("The surface for retry budgets is not stable yet and may change in the future.")
+@AutoValue
+public abstract class RetryBudgetSettings {
+
+  /**
+   * The maximum number of tokens in the budget. This is also the number of retries that can be made
+   * back to back without any successful call in between. The default value is {@code 100}.
+   */
+  public abstract int getMaxTokens();
+
+  /**
+   * The number of tokens that each successful call adds back to the budget. This is the long term
+   * ratio of retries to successful calls that the budget allows. The default value is {@code 0.1}.
+   */
+  public abstract double getRetryRatio();
+
+  public static Builder newBuilder() {
+    return new AutoValue_RetryBudgetSettings.Builder().setMaxTokens(100).setRetryRatio(0.1);
+  }
+
+  public abstract Builder toBuilder();
+
+  @BetaApi("The surface for retry budgets is not stable yet and may change in the future.")
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    /** Sets the maximum number of tokens in the budget. Must be at least 1. */
+    public abstract Builder setMaxTokens(int maxTokens);
+
+    /** Sets the number of tokens each successful call adds back. Must be positive. */
+    public abstract Builder setRetryRatio(double retryRatio);
+
+    public abstract int getMaxTokens();
+
+    public abstract double getRetryRatio();
+
+    abstract RetryBudgetSettings autoBuild();
+
+    public RetryBudgetSettings build() {
+      RetryBudgetSettings settings = autoBuild();
+      if (settings.getMaxTokens() < 1) {
+        throw new IllegalStateException("max tokens must be at least 1");
+      }
+      if (!(settings.getRetryRatio() > 0)) {
+        throw new IllegalStateException("retry ratio must be positive");
+      }
+      return settings;
+    }
+  }
+}
@@ -30,6 +30,7 @@
 package com.google.api.gax.retrying;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
 import com.google.api.core.BetaApi;
 import com.google.api.core.ListenableFutureToApiFuture;
@@ -99,7 +100,25 @@ public class ScheduledRetryingExecutor<ResponseT>
   @Override
   public RetryingFuture<ResponseT> createFuture(
       Callable<ResponseT> callable, RetryingContext context) {
-    return new CallbackChainRetryingFuture<>(callable, retryAlgorithm, this, context);
+    RetryingFuture<ResponseT> future =
+        new CallbackChainRetryingFuture<>(callable, retryAlgorithm, this, context);
+    final RetryBudget retryBudget = retryAlgorithm.getRetryBudget();
+    if (retryBudget != null) {
+      // Every successful operation earns back part of a retry for the whole client.
+      ApiFutures.addCallback(
+          future,
+          new ApiFutureCallback<ResponseT>() {
+            @Override
+            public void onFailure(Throwable t) {}
+
+            @Override
+            public void onSuccess(ResponseT result) {
+              retryBudget.recordSuccess();
+            }
+          },
+          MoreExecutors.directExecutor());
+    }
+    return future;
   }
 
   /**
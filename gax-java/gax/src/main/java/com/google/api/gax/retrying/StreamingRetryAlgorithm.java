@@ -31,6 +31,7 @@ package com.google.api.gax.retrying;
 
 import com.google.api.core.InternalApi;
 import java.util.concurrent.CancellationException;
+import javax.annotation.Nullable;
 
 /**
  * The streaming retry algorithm, which makes decision based either on the thrown exception and the
@@ -69,6 +70,17 @@ public final class StreamingRetryAlgorithm<ResponseT> extends RetryAlgorithm<Res
     super(resultAlgorithm, timedAlgorithm);
   }
 
+  /**
+   * Creates a {@link StreamingRetryAlgorithm} that will use the settings (if any) in the {@link
+   * RetryingContext} and takes a token from the given {@link RetryBudget} before every retry.
+   */
+  public StreamingRetryAlgorithm(
+      ResultRetryAlgorithmWithContext<ResponseT> resultAlgorithm,
+      TimedRetryAlgorithmWithContext timedAlgorithm,
+      @Nullable RetryBudget retryBudget) {
+    super(resultAlgorithm, timedAlgorithm, retryBudget);
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -68,6 +68,14 @@ public class Callables {
 
     ScheduledRetryingExecutor<ResponseT> retryingExecutor =
         getRetryingExecutor(callSettings, clientContext);
+    if (callSettings.getHedgingSettings() != null) {
+      return hedging(
+          new RetryingCallable<>(
+              clientContext.getDefaultCallContext(), innerCallable, retryingExecutor),
+          callSettings,
+          clientContext,
+          null);
+    }
     return new RetryingCallable<>(
         clientContext.getDefaultCallContext(), innerCallable, retryingExecutor);
   }
@@ -92,10 +100,33 @@ public class Callables {
 
     ScheduledRetryingExecutor<ResponseT> retryingExecutor =
         getRetryingExecutor(callSettings, clientContext);
+    if (callSettings.getHedgingSettings() != null) {
+      // The request is mutated by the hedging callable, once for all the attempts.
+      return hedging(
+          new RetryingCallable<>(
+              clientContext.getDefaultCallContext(), innerCallable, retryingExecutor),
+          callSettings,
+          clientContext,
+          requestMutator);
+    }
     return new RetryingCallable<>(
         clientContext.getDefaultCallContext(), innerCallable, retryingExecutor, requestMutator);
   }
 
+  private static <RequestT, ResponseT> UnaryCallable<RequestT, ResponseT> hedging(
+      UnaryCallable<RequestT, ResponseT> retryingCallable,
+      UnaryCallSettings<?, ?> callSettings,
+      ClientContext clientContext,
+      RequestMutator<RequestT> requestMutator) {
+    return new HedgingCallable<>(
+        clientContext.getDefaultCallContext(),
+        retryingCallable,
+        callSettings.getHedgingSettings(),
+        clientContext.getExecutor(),
+        clientContext.getClock(),
+        requestMutator);
+  }
+
   private static <ResponseT> ScheduledRetryingExecutor<ResponseT> getRetryingExecutor(
       UnaryCallSettings<?, ?> callSettings, ClientContext clientContext) {
     UnaryCallSettings<?, ?> settings = callSettings;
@@ -112,7 +143,8 @@ public class Callables {
     RetryAlgorithm<ResponseT> retryAlgorithm =
         new RetryAlgorithm<>(
             new ApiResultRetryAlgorithm<ResponseT>(),
-            new ExponentialRetryAlgorithm(settings.getRetrySettings(), clientContext.getClock()));
+            new ExponentialRetryAlgorithm(settings.getRetrySettings(), clientContext.getClock()),
+            clientContext.getRetryBudget());
     ScheduledRetryingExecutor<ResponseT> retryingExecutor =
         new ScheduledRetryingExecutor<>(retryAlgorithm, clientContext.getExecutor());
     return retryingExecutor;
@@ -136,7 +168,8 @@ public class Callables {
     StreamingRetryAlgorithm<Void> retryAlgorithm =
         new StreamingRetryAlgorithm<>(
             new ApiResultRetryAlgorithm<Void>(),
-            new ExponentialRetryAlgorithm(settings.getRetrySettings(), clientContext.getClock()));
+            new ExponentialRetryAlgorithm(settings.getRetrySettings(), clientContext.getClock()),
+            clientContext.getRetryBudget());
 
     ScheduledRetryingExecutor<Void> retryingExecutor =
         new ScheduledRetryingExecutor<>(retryAlgorithm, clientContext.getExecutor());
@@ -162,6 +195,25 @@ public class Callables {
     return callable;
   }
 
+  /**
+   * Create a callable whose {@link ServerStream}s request up to {@link
+   * ServerStreamingCallSettings#getPrefetchSize()} responses ahead of the consumer. Designed for
+   * use by generated code.
+   *
+   * @param callable the callable to issue calls
+   * @param callSettings {@link ServerStreamingCallSettings} to configure the prefetch window with.
+   * @return {@link ServerStreamingCallable} callable object.
+   */
+  @BetaApi("The surface for stream prefetching is not stable yet and may change in the future.")
+  public static <RequestT, ResponseT> ServerStreamingCallable<RequestT, ResponseT> prefetching(
+      ServerStreamingCallable<RequestT, ResponseT> callable,
+      ServerStreamingCallSettings<RequestT, ResponseT> callSettings) {
+    if (callSettings.getPrefetchSize() <= 1) {
+      return callable;
+    }
+    return new PrefetchingServerStreamingCallable<>(callable, callSettings.getPrefetchSize());
+  }
+
   /**
    * Create a callable object that represents a batching API method. Designed for use by generated
    * code.
@@ -40,6 +40,7 @@ import com.google.api.core.ObsoleteApi;
 import com.google.api.gax.core.BackgroundResource;
 import com.google.api.gax.core.ExecutorAsBackgroundResource;
 import com.google.api.gax.core.ExecutorProvider;
+import com.google.api.gax.retrying.RetryBudget;
 import com.google.api.gax.rpc.internal.QuotaProjectIdHidingCredentials;
 import com.google.api.gax.tracing.ApiTracerFactory;
 import com.google.api.gax.tracing.BaseApiTracerFactory;
@@ -137,6 +138,14 @@ public abstract class ClientContext {
   @Nullable
   public abstract String getGdchApiAudience();
 
+  /**
+   * Gets the {@link RetryBudget} shared by all the retrying callables of this client, or {@code
+   * null} if retries are not limited by a budget.
+   */
+  @BetaApi("The surface for retry budgets is not stable yet and may change in the future.")
+  @Nullable
+  public abstract RetryBudget getRetryBudget();
+
   /** Create a new ClientContext with default values */
   public static Builder newBuilder() {
     return new AutoValue_ClientContext.Builder()
@@ -150,6 +159,7 @@ public abstract class ClientContext {
         .setTracerFactory(BaseApiTracerFactory.getInstance())
         .setQuotaProjectId(null)
         .setGdchApiAudience(null)
+        .setRetryBudget(null)
         // Attempt to create an empty, non-functioning EndpointContext by default. This is
         // not exposed to the user via getters/setters.
         .setEndpointContext(EndpointContext.getDefaultInstance());
@@ -281,6 +291,10 @@ public abstract class ClientContext {
         .setStreamWatchdog(watchdog)
         .setStreamWatchdogCheckIntervalDuration(settings.getStreamWatchdogCheckIntervalDuration())
         .setTracerFactory(settings.getTracerFactory())
+        .setRetryBudget(
+            settings.getRetryBudgetSettings() == null
+                ? null
+                : RetryBudget.create(settings.getRetryBudgetSettings()))
         .setEndpointContext(endpointContext)
         .build();
   }
@@ -434,6 +448,14 @@ public abstract class ClientContext {
      */
     public abstract Builder setGdchApiAudience(String gdchApiAudience);
 
+    /**
+     * Sets the {@link RetryBudget} shared by all the retrying callables created with this context.
+     *
+     * @param retryBudget the budget, or {@code null} to retry without a budget
+     */
+    @BetaApi("The surface for retry budgets is not stable yet and may change in the future.")
+    public abstract Builder setRetryBudget(@Nullable RetryBudget retryBudget);
+
     /** Package-Private as this is to be shared to StubSettings */
     abstract Builder setEndpointContext(EndpointContext endpointContext);
 
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.rpc;
+
+import com.google.api.core.ApiFuture;
+import com.google.common.base.Preconditions;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * Wraps a {@link ServerStreamingCallable} in an aggregating {@link UnaryCallable}. Unlike {@link
+ * SpoolingCallable}, the responses are folded into a {@link Collector} as they arrive and the
+ * amount of data accepted is capped: a stream whose total size exceeds the limit fails the call and
+ * is cancelled instead of being buffered without bounds.
+ *
+ * <p>Package-private for internal use.
+ *
+ * @param <RequestT> The type of the request.
+ * @param <ResponseT> The type of an item in the stream.
+ * @param <A> The mutable accumulation type of the collector.
+ * @param <R> The result type of the collector.
+ */
+class CollectingCallable<RequestT, ResponseT, A, R> extends UnaryCallable<RequestT, R> {
+  private final ServerStreamingCallable<RequestT, ResponseT> streamingCallable;
+  private final Collector<? super ResponseT, A, R> collector;
+  private final ToLongFunction<? super ResponseT> sizer;
+  private final long limit;
+
+  CollectingCallable(
+      ServerStreamingCallable<RequestT, ResponseT> streamingCallable,
+      Collector<? super ResponseT, A, R> collector,
+      ToLongFunction<? super ResponseT> sizer,
+      long limit) {
+    Preconditions.checkArgument(limit >= 0, "limit must not be negative");
+    this.streamingCallable = Preconditions.checkNotNull(streamingCallable);
+    this.collector = Preconditions.checkNotNull(collector);
+    this.sizer = Preconditions.checkNotNull(sizer);
+    this.limit = limit;
+  }
+
+  /**
+   * Starts the RPC and returns a future wrapping the collected result. If the stream is empty, the
+   * result will be the collector's result for no elements. If the stream exceeds the limit, the
+   * future will be rejected with an {@link IllegalStateException}. If a request is cancelled, the
+   * future will be rejected with a {@link java.util.concurrent.CancellationException}.
+   *
+   * @param request The request.
+   * @param context {@link ApiCallContext} to make the call with.
+   * @return A {@link ApiFuture} wrapping the collected result of the stream.
+   */
+  @Override
+  public ApiFuture<R> futureCall(RequestT request, ApiCallContext context) {
+    CollectingResponseObserver<ResponseT, A, R> observer =
+        new CollectingResponseObserver<>(collector, sizer, limit);
+    streamingCallable.call(request, observer, context);
+    // NOTE: Since onStart must be called synchronously on this thread, the observer is now fully
+    // initialized and the future can be safely returned to the caller.
+    return observer.getFuture();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.rpc;
+
+import com.google.api.core.AbstractApiFuture;
+import com.google.api.core.ApiFuture;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * A {@link ResponseObserver} that folds the results from a {@link ServerStreamingCallable} into a
+ * {@link Collector} and exposes the collected value in an {@link ApiFuture}.
+ *
+ * <p>Each response is weighed as it arrives. Once the total weight exceeds the limit, the future is
+ * failed with an {@link IllegalStateException} and the underlying stream is cancelled, so a stream
+ * that is larger than expected cannot exhaust the memory of the client.
+ *
+ * <p>Package-private for internal use.
+ *
+ * @param <ResponseT> The type of the element in the stream.
+ * @param <A> The mutable accumulation type of the collector.
+ * @param <R> The result type of the collector.
+ */
+class CollectingResponseObserver<ResponseT, A, R> extends StateCheckingResponseObserver<ResponseT> {
+  private final MyFuture future = new MyFuture();
+  private final Collector<? super ResponseT, A, R> collector;
+  private final BiConsumer<A, ? super ResponseT> accumulator;
+  private final ToLongFunction<? super ResponseT> sizer;
+  private final long limit;
+  private final A container;
+  private StreamController controller;
+  private long size;
+
+  CollectingResponseObserver(
+      Collector<? super ResponseT, A, R> collector,
+      ToLongFunction<? super ResponseT> sizer,
+      long limit) {
+    this.collector = collector;
+    this.accumulator = collector.accumulator();
+    this.sizer = sizer;
+    this.limit = limit;
+    this.container = collector.supplier().get();
+  }
+
+  ApiFuture<R> getFuture() {
+    return future;
+  }
+
+  @Override
+  protected void onStartImpl(StreamController controller) {
+    // NOTE: the call is started before the future is exposed to the caller
+    this.controller = controller;
+  }
+
+  @Override
+  protected void onResponseImpl(ResponseT response) {
+    // Responses may still trickle in after the stream was cancelled.
+    if (future.isDone()) {
+      return;
+    }
+    size += sizer.applyAsLong(response);
+    if (size > limit) {
+      future.setException(
+          new IllegalStateException(
+              "The stream exceeded the collection limit of " + limit + ", cancelling it"));
+      controller.cancel();
+      return;
+    }
+    try {
+      accumulator.accept(container, response);
+    } catch (RuntimeException e) {
+      future.setException(e);
+      controller.cancel();
+    }
+  }
+
+  @Override
+  protected void onErrorImpl(Throwable t) {
+    future.setException(t);
+  }
+
+  @Override
+  protected void onCompleteImpl() {
+    if (future.isDone()) {
+      return;
+    }
+    try {
+      future.set(collector.finisher().apply(container));
+    } catch (RuntimeException e) {
+      future.setException(e);
+    }
+  }
+
+  /** Simple implementation of a future that allows the receiver to cancel the underlying stream. */
+  class MyFuture extends AbstractApiFuture<R> {
+    @Override
+    protected void interruptTask() {
+      CollectingResponseObserver.this.controller.cancel();
+    }
+
+    @Override
+    protected boolean set(R value) {
+      return super.set(value);
+    }
+
+    @Override
+    protected boolean setException(Throwable throwable) {
+      return super.setException(throwable);
+    }
+  }
+}
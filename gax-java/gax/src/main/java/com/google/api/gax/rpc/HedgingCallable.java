@@ -0,0 +1,431 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.rpc;
+
+import com.google.api.core.ApiClock;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.retrying.HedgingSettings;
+import com.google.api.gax.tracing.ApiTracer;
+import com.google.api.gax.tracing.ApiTracer.Scope;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A UnaryCallable that hedges calls to an inner (retrying) callable: if an attempt has not
+ * completed within the hedging delay, another attempt is started in parallel, up to {@link
+ * HedgingSettings#getMaxAttempts()}. The first successful response completes the call and cancels
+ * the other attempts. The call fails only after all the attempts that were started have failed.
+ *
+ * <p>Each attempt is a separate call to the inner callable, so with a channel pool it is normally
+ * sent on a different channel than the previous one.
+ *
+ * <p>The {@link ApiTracer} of the call keeps the state of a single attempt at a time, so the
+ * attempts do not report to it directly. Only one attempt at a time is reported to the call's
+ * tracer, and the reported attempts are numbered in the order they start. An attempt that starts
+ * while another one is being reported is not traced. When a call succeeds, an attempt that is still
+ * being reported is reported as cancelled before the call completes, and nothing is reported for
+ * the attempts afterwards.
+ *
+ * <p>Package-private for internal use.
+ */
+class HedgingCallable<RequestT, ResponseT> extends UnaryCallable<RequestT, ResponseT> {
+  /**
+   * The number of recent successful call latencies used to compute the hedging delay. Each latency
+   * is measured from the start of the call, so it is the latency of the first attempt. If a hedged
+   * attempt won, the first attempt would have taken at least as long, so the tail of the latencies
+   * isn't cut off at the hedging delay.
+   */
+  @VisibleForTesting static final int LATENCY_WINDOW_SIZE = 100;
+
+  /** The number of latencies that must be observed before the percentile is used. */
+  @VisibleForTesting static final int MIN_LATENCY_SAMPLES = 20;
+
+  private final ApiCallContext callContextPrototype;
+  private final UnaryCallable<RequestT, ResponseT> callable;
+  private final HedgingSettings settings;
+  private final ScheduledExecutorService executor;
+  private final ApiClock clock;
+  private final RequestMutator<RequestT> requestMutator;
+  private final LatencyWindow latencies = new LatencyWindow(LATENCY_WINDOW_SIZE);
+
+  HedgingCallable(
+      ApiCallContext callContextPrototype,
+      UnaryCallable<RequestT, ResponseT> callable,
+      HedgingSettings settings,
+      ScheduledExecutorService executor,
+      ApiClock clock,
+      RequestMutator<RequestT> requestMutator) {
+    this.callContextPrototype = Preconditions.checkNotNull(callContextPrototype);
+    this.callable = Preconditions.checkNotNull(callable);
+    this.settings = Preconditions.checkNotNull(settings);
+    this.executor = Preconditions.checkNotNull(executor);
+    this.clock = Preconditions.checkNotNull(clock);
+    this.requestMutator = requestMutator;
+  }
+
+  @Override
+  public ApiFuture<ResponseT> futureCall(RequestT request, ApiCallContext inputContext) {
+    // The request is mutated once, so that every attempt carries the same autopopulated fields.
+    RequestT modifiedRequest = request;
+    if (requestMutator != null) {
+      modifiedRequest = requestMutator.apply(request);
+    }
+    ApiCallContext context = callContextPrototype.nullToSelf(inputContext);
+    HedgedCall call = new HedgedCall(modifiedRequest, context);
+    call.startAttempt();
+    return call.result;
+  }
+
+  /** Returns the delay after which another attempt is started. */
+  @VisibleForTesting
+  long getHedgingDelayNanos() {
+    long percentileNanos = latencies.percentile(settings.getDelayPercentile(), MIN_LATENCY_SAMPLES);
+    return percentileNanos >= 0 ? percentileNanos : settings.getInitialDelayDuration().toNanos();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("hedging(%s)", callable);
+  }
+
+  /** The state of a single hedged call. */
+  private class HedgedCall {
+    private final RequestT request;
+    private final ApiCallContext context;
+    private final ApiTracer tracer;
+    private final SettableApiFuture<ResponseT> result = SettableApiFuture.create();
+    private final Object lock = new Object();
+    private final long startNanos = clock.nanoTime();
+
+    @GuardedBy("lock")
+    private final List<ApiFuture<ResponseT>> attempts = new ArrayList<>();
+
+    @GuardedBy("lock")
+    private int failedAttempts;
+
+    @GuardedBy("lock")
+    private ScheduledFuture<?> nextAttempt;
+
+    /** The attempt that is currently reported to the tracer of the call, if any. */
+    @GuardedBy("lock")
+    private AttemptTracer tracedAttempt;
+
+    @GuardedBy("lock")
+    private int tracedAttemptCount;
+
+    @GuardedBy("lock")
+    private boolean tracingClosed;
+
+    HedgedCall(RequestT request, ApiCallContext context) {
+      this.request = request;
+      this.context = context;
+      this.tracer = context.getTracer();
+      // Whether the call succeeded, failed or was cancelled by the caller, nothing else is needed
+      // from the attempts that are still in flight.
+      result.addListener(this::cancelAttempts, MoreExecutors.directExecutor());
+    }
+
+    void startAttempt() {
+      if (result.isDone()) {
+        return;
+      }
+      final int attemptNumber;
+      synchronized (lock) {
+        attemptNumber = attempts.size();
+      }
+      if (attemptNumber > 0) {
+        tracer.hedgedAttemptStarted(attemptNumber);
+      }
+      final AttemptTracer attemptTracer = new AttemptTracer();
+      ApiFuture<ResponseT> attempt =
+          callable.futureCall(request, context.withTracer(attemptTracer));
+
+      synchronized (lock) {
+        attempts.add(attempt);
+        if (attempts.size() < settings.getMaxAttempts() && !result.isDone()) {
+          try {
+            nextAttempt =
+                executor.schedule(this::startAttempt, getHedgingDelayNanos(), TimeUnit.NANOSECONDS);
+          } catch (RejectedExecutionException e) {
+            // The client is shutting down, so just wait for the attempts already in flight.
+            nextAttempt = null;
+          }
+        }
+      }
+      if (result.isDone()) {
+        // The result may have been set before the attempt was registered above.
+        attempt.cancel(true);
+        return;
+      }
+
+      ApiFutures.addCallback(
+          attempt,
+          new ApiFutureCallback<ResponseT>() {
+            @Override
+            public void onSuccess(ResponseT response) {
+              // The winner is reported before the call completes, which closes its tracer
+              if (closeTracing(attemptTracer)) {
+                latencies.record(clock.nanoTime() - startNanos);
+                if (attemptNumber > 0) {
+                  tracer.hedgedAttemptSucceeded(attemptNumber);
+                }
+              }
+              result.set(response);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              boolean lastAttempt;
+              synchronized (lock) {
+                failedAttempts++;
+                lastAttempt = failedAttempts == attempts.size();
+              }
+              // A failed attempt has already been retried as far as the retry settings allow, so
+              // starting more attempts would not help either.
+              if (lastAttempt) {
+                result.setException(t);
+              }
+            }
+          },
+          MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Stops reporting attempts to the tracer of the call once {@code winner} succeeded. An attempt
+     * that is still being reported lost the race and is reported as cancelled.
+     *
+     * @return false if another attempt succeeded first or the call is already done
+     */
+    private boolean closeTracing(AttemptTracer winner) {
+      synchronized (lock) {
+        if (tracingClosed || result.isDone()) {
+          return false;
+        }
+        tracingClosed = true;
+        if (tracedAttempt != null && tracedAttempt != winner) {
+          tracer.attemptCancelled();
+        }
+        tracedAttempt = null;
+        return true;
+      }
+    }
+
+    private void cancelAttempts() {
+      List<ApiFuture<ResponseT>> toCancel;
+      synchronized (lock) {
+        if (nextAttempt != null) {
+          nextAttempt.cancel(false);
+        }
+        toCancel = new ArrayList<>(attempts);
+      }
+      for (ApiFuture<ResponseT> attempt : toCancel) {
+        attempt.cancel(true);
+      }
+    }
+
+    /**
+     * The tracer of a single hedged attempt. It forwards the attempt callbacks to the tracer of the
+     * call only while no other attempt is being reported.
+     */
+    private class AttemptTracer implements ApiTracer {
+      @Override
+      public Scope inScope() {
+        return tracer.inScope();
+      }
+
+      @Override
+      public void attemptStarted(int attemptNumber) {
+        synchronized (lock) {
+          if (acquire()) {
+            tracer.attemptStarted(tracedAttemptCount++);
+          }
+        }
+      }
+
+      @Override
+      public void attemptStarted(Object request, int attemptNumber) {
+        synchronized (lock) {
+          if (acquire()) {
+            tracer.attemptStarted(request, tracedAttemptCount++);
+          }
+        }
+      }
+
+      @Override
+      public void connectionSelected(String id) {
+        synchronized (lock) {
+          if (tracedAttempt == this) {
+            tracer.connectionSelected(id);
+          }
+        }
+      }
+
+      @Override
+      public void requestSent() {
+        synchronized (lock) {
+          if (tracedAttempt == this) {
+            tracer.requestSent();
+          }
+        }
+      }
+
+      @Override
+      public void responseReceived() {
+        synchronized (lock) {
+          if (tracedAttempt == this) {
+            tracer.responseReceived();
+          }
+        }
+      }
+
+      @Override
+      public void retryBudgetExhausted() {
+        synchronized (lock) {
+          if (tracedAttempt == this) {
+            tracer.retryBudgetExhausted();
+          }
+        }
+      }
+
+      @Override
+      public void attemptSucceeded() {
+        synchronized (lock) {
+          if (release()) {
+            tracer.attemptSucceeded();
+          }
+        }
+      }
+
+      @Override
+      public void attemptCancelled() {
+        synchronized (lock) {
+          if (release()) {
+            tracer.attemptCancelled();
+          }
+        }
+      }
+
+      @Override
+      public void attemptFailedDuration(Throwable error, java.time.Duration delay) {
+        synchronized (lock) {
+          if (release()) {
+            tracer.attemptFailedDuration(error, delay);
+          }
+        }
+      }
+
+      @Override
+      public void attemptFailedRetriesExhausted(Throwable error) {
+        synchronized (lock) {
+          if (release()) {
+            tracer.attemptFailedRetriesExhausted(error);
+          }
+        }
+      }
+
+      @Override
+      public void attemptPermanentFailure(Throwable error) {
+        synchronized (lock) {
+          if (release()) {
+            tracer.attemptPermanentFailure(error);
+          }
+        }
+      }
+
+      /** Makes this the reported attempt if no other attempt is being reported. */
+      @GuardedBy("lock")
+      private boolean acquire() {
+        if (tracingClosed || tracedAttempt != null) {
+          return false;
+        }
+        tracedAttempt = this;
+        return true;
+      }
+
+      /** Ends the report of this attempt, returns false if this attempt was not being reported. */
+      @GuardedBy("lock")
+      private boolean release() {
+        if (tracedAttempt != this) {
+          return false;
+        }
+        tracedAttempt = null;
+        return true;
+      }
+    }
+  }
+
+  /** A fixed-size window of the most recent latencies. */
+  @VisibleForTesting
+  static final class LatencyWindow {
+    @GuardedBy("this")
+    private final long[] samples;
+
+    @GuardedBy("this")
+    private long count;
+
+    LatencyWindow(int size) {
+      this.samples = new long[size];
+    }
+
+    synchronized void record(long latencyNanos) {
+      samples[(int) (count++ % samples.length)] = latencyNanos;
+    }
+
+    /**
+     * Returns the given percentile of the recorded latencies, or -1 if fewer than {@code
+     * minSamples} have been recorded.
+     */
+    long percentile(double percentile, int minSamples) {
+      long[] sorted;
+      synchronized (this) {
+        int size = (int) Math.min(count, samples.length);
+        if (size < minSamples || size == 0) {
+          return -1;
+        }
+        sorted = Arrays.copyOf(samples, size);
+      }
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+  }
+}
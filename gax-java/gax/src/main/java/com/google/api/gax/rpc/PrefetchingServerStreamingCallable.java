@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.rpc;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A callable that hands out {@link ServerStream}s which keep several responses requested ahead of
+ * the consumer.
+ *
+ * <p>A {@link ServerStream} normally requests one response each time the caller consumes one, so
+ * every message costs a flow control round trip through the whole callable chain. This callable
+ * sizes the stream's buffer to {@code prefetchSize} and lets the stream request responses in
+ * batches instead. Calls that pass their own {@link ResponseObserver} are forwarded unchanged.
+ *
+ * <p>Package-private for internal use.
+ */
+class PrefetchingServerStreamingCallable<RequestT, ResponseT>
+    extends ServerStreamingCallable<RequestT, ResponseT> {
+  private final ServerStreamingCallable<RequestT, ResponseT> inner;
+  private final int prefetchSize;
+
+  PrefetchingServerStreamingCallable(
+      ServerStreamingCallable<RequestT, ResponseT> inner, int prefetchSize) {
+    Preconditions.checkNotNull(inner);
+    Preconditions.checkArgument(prefetchSize >= 1, "prefetchSize must be at least 1");
+
+    this.inner = inner;
+    this.prefetchSize = prefetchSize;
+  }
+
+  @Override
+  public ServerStream<ResponseT> call(RequestT request, ApiCallContext context) {
+    ServerStream<ResponseT> stream = new ServerStream<>(prefetchSize);
+    inner.call(request, stream.observer(), context);
+
+    return stream;
+  }
+
+  @Override
+  public void call(
+      RequestT request, ResponseObserver<ResponseT> responseObserver, ApiCallContext context) {
+    inner.call(request, responseObserver, context);
+  }
+}
@@ -29,22 +29,28 @@
  */
 package com.google.api.gax.rpc;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Queues;
 import java.util.concurrent.BlockingQueue;
 
 /**
  * A back pressure aware bridge from a {@link ResponseObserver} to a {@link BlockingQueue}. The
- * queue size is fixed to 1 item and a close signal. The observer will manage its own flow control,
- * keeping the queue in one of 3 states:
+ * queue size is fixed to the prefetch window plus a close signal. The observer will manage its own
+ * flow control, keeping the queue in one of 3 states:
  *
  * <ul>
- *   <li>empty: a item has been requested and we are awaiting the next item
- *   <li>1 item: an in progress stream with 1 item buffered
+ *   <li>empty: items have been requested and we are awaiting the next item
+ *   <li>up to prefetchSize items: an in progress stream with items buffered
  *   <li>1 control signal: either a Throwable, or an EOF_MARKER which means that the stream is
  *       closed
- *   <li>1 item & 1 control signal: this is the last item of the stream
+ *   <li>items & 1 control signal: these are the last items of the stream
  * </ul>
  *
+ * <p>The observer requests prefetchSize items when the stream starts. Consumed items are then
+ * requested again in batches once half of the window has been consumed, so that the underlying
+ * stream sees one request per half window instead of one request per item. A prefetchSize of 1
+ * requests every item individually after the previous one has been consumed.
+ *
  * <p>The observer can also be abruptly cancelled, which cancels the underlying call and always
  * returns an EOF_MARKER.
  *
@@ -55,12 +61,32 @@ import java.util.concurrent.BlockingQueue;
 final class QueuingResponseObserver<V> extends StateCheckingResponseObserver<V> {
   static final Object EOF_MARKER = new Object();
 
-  private final BlockingQueue<Object> buffer = Queues.newArrayBlockingQueue(2);
+  private final int prefetchSize;
+  private final int refillThreshold;
+  private final BlockingQueue<Object> buffer;
   private StreamController controller;
   private boolean isCancelled;
+  // Only accessed by the consumer thread.
+  private int consumedSinceRequest;
+
+  QueuingResponseObserver() {
+    this(1);
+  }
 
+  QueuingResponseObserver(int prefetchSize) {
+    Preconditions.checkArgument(prefetchSize >= 1, "prefetchSize must be at least 1");
+    this.prefetchSize = prefetchSize;
+    this.refillThreshold = Math.max(1, prefetchSize / 2);
+    this.buffer = Queues.newArrayBlockingQueue(prefetchSize + 1);
+  }
+
+  /** Notifies the observer that an item was consumed, requesting more once enough have been. */
   void request() {
-    controller.request(1);
+    if (++consumedSinceRequest >= refillThreshold) {
+      int count = consumedSinceRequest;
+      consumedSinceRequest = 0;
+      controller.request(count);
+    }
   }
 
   Object getNext() throws InterruptedException {
@@ -93,11 +119,11 @@ final class QueuingResponseObserver<V> extends StateCheckingResponseObserver<V>
   protected void onStartImpl(StreamController controller) {
     this.controller = controller;
     controller.disableAutoInboundFlowControl();
-    controller.request(1);
+    controller.request(prefetchSize);
   }
 
   /**
-   * Buffer the response. There should be at most 1 response in the buffer.
+   * Buffer the response. There should be at most prefetchSize responses in the buffer.
    *
    * @param response The received response.
    */
@@ -108,7 +134,8 @@ final class QueuingResponseObserver<V> extends StateCheckingResponseObserver<V>
 
   /**
    * Enqueue the error to be thrown later on. The error might occur without a request so the queue
-   * might grow to 2 elements, and in that case the previous response will be consumed first.
+   * might grow to prefetchSize + 1 elements, and in that case the previous responses will be
+   * consumed first.
    *
    * @param t The error occurred on the stream
    */
@@ -119,7 +146,7 @@ final class QueuingResponseObserver<V> extends StateCheckingResponseObserver<V>
 
   /**
    * Enqueue a marker to notify the consumer that the stream is finished. In most situations this
-   * will cause the queue to grow to 2 elements: the requested response and an unsolicited
+   * will cause the queue to grow by one element past the requested responses: an unsolicited
    * completion marker.
    */
   @Override
@@ -29,8 +29,12 @@
  */
 package com.google.api.gax.rpc;
 
+import com.google.api.core.BetaApi;
 import com.google.api.core.InternalApi;
+import com.google.common.base.Preconditions;
 import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.stream.Collector;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import javax.annotation.Nonnull;
@@ -67,12 +71,24 @@ import javax.annotation.Nonnull;
  * @param <V> The type of each response.
  */
 public class ServerStream<V> implements Iterable<V> {
-  private final QueuingResponseObserver<V> observer = new QueuingResponseObserver<>();
-  private final ServerStreamIterator<V> iterator = new ServerStreamIterator<>(observer);
+  private final QueuingResponseObserver<V> observer;
+  private final ServerStreamIterator<V> iterator;
   private boolean consumed;
 
   @InternalApi("For use by ServerStreamingCallable only.")
-  ServerStream() {}
+  ServerStream() {
+    this(1);
+  }
+
+  /**
+   * Creates a stream that keeps up to {@code prefetchSize} responses requested ahead of the
+   * consumer.
+   */
+  @InternalApi("For use by ServerStreamingCallable only.")
+  ServerStream(int prefetchSize) {
+    observer = new QueuingResponseObserver<>(prefetchSize);
+    iterator = new ServerStreamIterator<>(observer);
+  }
 
   @InternalApi("For use by ServerStreamingCallable only.")
   ResponseObserver<V> observer() {
@@ -100,6 +116,33 @@ public class ServerStream<V> implements Iterable<V> {
     return StreamSupport.stream(this.spliterator(), false);
   }
 
+  /**
+   * Consumes the stream into the given {@link Collector}, accepting at most {@code limit}
+   * responses. If the server sends more, the stream is cancelled and an {@link
+   * IllegalStateException} is thrown, so that an unexpectedly large stream cannot exhaust the
+   * memory of the client. Like {@link #iterator()}, this can only be called once.
+   *
+   * @param collector the {@link Collector} to fold the responses with
+   * @param limit the maximum number of responses to accept
+   * @return the result of the collector
+   */
+  @BetaApi("The surface for bounded stream collection is not stable yet and may change.")
+  public <A, R> R collect(Collector<? super V, A, R> collector, long limit) {
+    Preconditions.checkArgument(limit >= 0, "limit must not be negative");
+    A container = collector.supplier().get();
+    BiConsumer<A, ? super V> accumulator = collector.accumulator();
+    long count = 0;
+    for (V response : this) {
+      if (++count > limit) {
+        cancel();
+        throw new IllegalStateException(
+            "The stream exceeded the collection limit of " + limit + ", cancelling it");
+      }
+      accumulator.accept(container, response);
+    }
+    return collector.finisher().apply(container);
+  }
+
   /**
    * Returns true if the next call to the iterator's hasNext() or next() is guaranteed to be
    * nonblocking.
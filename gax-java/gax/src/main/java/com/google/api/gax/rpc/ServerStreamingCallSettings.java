@@ -32,6 +32,7 @@ package com.google.api.gax.rpc;
 import static com.google.api.gax.util.TimeConversionUtils.toJavaTimeDuration;
 import static com.google.api.gax.util.TimeConversionUtils.toThreetenDuration;
 
+import com.google.api.core.BetaApi;
 import com.google.api.core.ObsoleteApi;
 import com.google.api.gax.retrying.RetrySettings;
 import com.google.api.gax.retrying.SimpleStreamResumptionStrategy;
@@ -63,6 +64,11 @@ import javax.annotation.Nonnull;
  * when the retry needs to happen, and the stream resumption strategy composes the request to resume
  * the stream. To turn off retries, set the retryable codes to the empty set.
  *
+ * <p>The {@code prefetchSize} configures how many responses a {@link ServerStream} requests ahead
+ * of the consumer. Consumed responses are requested again in batches once half of the window has
+ * been consumed, so iterating over a long stream does not issue a flow control request per message.
+ * The default of 1 requests each response after the previous one was consumed.
+ *
  * <p>The retry settings have slightly different semantics when compared to unary RPCs:
  *
  * <ul>
@@ -87,12 +93,15 @@ public final class ServerStreamingCallSettings<RequestT, ResponseT>
   @Nonnull private final java.time.Duration idleTimeout;
   @Nonnull private final java.time.Duration waitTimeout;
 
+  private final int prefetchSize;
+
   private ServerStreamingCallSettings(Builder<RequestT, ResponseT> builder) {
     this.retryableCodes = ImmutableSet.copyOf(builder.retryableCodes);
     this.retrySettings = builder.retrySettingsBuilder.build();
     this.resumptionStrategy = builder.resumptionStrategy;
     this.idleTimeout = builder.idleTimeout;
     this.waitTimeout = builder.waitTimeout;
+    this.prefetchSize = builder.prefetchSize;
   }
 
   /**
@@ -154,6 +163,15 @@ public final class ServerStreamingCallSettings<RequestT, ResponseT>
     return waitTimeout;
   }
 
+  /**
+   * See the class documentation of {@link ServerStreamingCallSettings} for a description of what
+   * the {@link #prefetchSize} does.
+   */
+  @BetaApi("The surface for stream prefetching is not stable yet and may change in the future.")
+  public int getPrefetchSize() {
+    return prefetchSize;
+  }
+
   public Builder<RequestT, ResponseT> toBuilder() {
     return new Builder<>(this);
   }
@@ -167,6 +185,7 @@ public final class ServerStreamingCallSettings<RequestT, ResponseT>
     return MoreObjects.toStringHelper(this)
         .add("idleTimeout", idleTimeout)
         .add("waitTimeout", waitTimeout)
+        .add("prefetchSize", prefetchSize)
         .add("retryableCodes", retryableCodes)
         .add("retrySettings", retrySettings)
         .toString();
@@ -182,6 +201,8 @@ public final class ServerStreamingCallSettings<RequestT, ResponseT>
 
     @Nonnull private java.time.Duration waitTimeout;
 
+    private int prefetchSize;
+
     /** Initialize the builder with default settings */
     private Builder() {
       this.retryableCodes = ImmutableSet.of();
@@ -190,6 +211,7 @@ public final class ServerStreamingCallSettings<RequestT, ResponseT>
 
       this.idleTimeout = java.time.Duration.ZERO;
       this.waitTimeout = java.time.Duration.ZERO;
+      this.prefetchSize = 1;
     }
 
     private Builder(ServerStreamingCallSettings<RequestT, ResponseT> settings) {
@@ -200,6 +222,7 @@ public final class ServerStreamingCallSettings<RequestT, ResponseT>
 
       this.idleTimeout = settings.idleTimeout;
       this.waitTimeout = settings.waitTimeout;
+      this.prefetchSize = settings.prefetchSize;
     }
 
     /**
@@ -363,6 +386,22 @@ public final class ServerStreamingCallSettings<RequestT, ResponseT>
       return this;
     }
 
+    @BetaApi("The surface for stream prefetching is not stable yet and may change in the future.")
+    public int getPrefetchSize() {
+      return prefetchSize;
+    }
+
+    /**
+     * Set the number of responses to request ahead of the consumer of a {@link ServerStream}. The
+     * stream buffers up to this many responses and requests more once half of them were consumed.
+     */
+    @BetaApi("The surface for stream prefetching is not stable yet and may change in the future.")
+    public Builder<RequestT, ResponseT> setPrefetchSize(int prefetchSize) {
+      Preconditions.checkArgument(prefetchSize >= 1, "prefetchSize must be at least 1");
+      this.prefetchSize = prefetchSize;
+      return this;
+    }
+
     @Override
     public ServerStreamingCallSettings<RequestT, ResponseT> build() {
       return new ServerStreamingCallSettings<>(this);
@@ -29,8 +29,11 @@
  */
 package com.google.api.gax.rpc;
 
+import com.google.api.core.BetaApi;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
 
 /**
  * A ServerStreamingCallable is an immutable object which is capable of making RPC calls to server
@@ -85,6 +88,49 @@ public abstract class ServerStreamingCallable<RequestT, ResponseT> {
     return spoolingCallable;
   }
 
+  /**
+   * Construct a {@link UnaryCallable} that folds the stream into the given {@link Collector} as
+   * responses arrive. Unlike {@link #all()}, at most {@code maxElements} responses are accepted: if
+   * the stream yields more, the call fails with an {@link IllegalStateException} and the stream is
+   * cancelled.
+   *
+   * <p>Example usage:
+   *
+   * <pre>{@code
+   * StreamingCallable<String> streamingCallable = // ..
+   * List<String> theResult =
+   *     streamingCallable.collect(Collectors.toList(), 1000).call(request);
+   * }</pre>
+   *
+   * @param collector the {@link Collector} to fold the responses with
+   * @param maxElements the maximum number of responses to accept
+   * @return The {@link UnaryCallable}.
+   */
+  @BetaApi("The surface for bounded stream collection is not stable yet and may change.")
+  public <A, R> UnaryCallable<RequestT, R> collect(
+      Collector<? super ResponseT, A, R> collector, long maxElements) {
+    return collect(collector, response -> 1, maxElements);
+  }
+
+  /**
+   * Construct a {@link UnaryCallable} that folds the stream into the given {@link Collector} as
+   * responses arrive, capping the total size of the accepted responses. Each response is weighed
+   * with {@code sizer}, for example by its serialized size in bytes. Once the total exceeds {@code
+   * maxSize}, the call fails with an {@link IllegalStateException} and the stream is cancelled.
+   *
+   * @param collector the {@link Collector} to fold the responses with
+   * @param sizer computes the size of a response
+   * @param maxSize the maximum total size of the accepted responses
+   * @return The {@link UnaryCallable}.
+   */
+  @BetaApi("The surface for bounded stream collection is not stable yet and may change.")
+  public <A, R> UnaryCallable<RequestT, R> collect(
+      Collector<? super ResponseT, A, R> collector,
+      ToLongFunction<? super ResponseT> sizer,
+      long maxSize) {
+    return new CollectingCallable<>(this, collector, sizer, maxSize);
+  }
+
   /**
    * Conduct a iteration server streaming call.
    *
@@ -227,6 +273,13 @@ public abstract class ServerStreamingCallable<RequestT, ResponseT> {
         return ServerStreamingCallable.this.all().withDefaultCallContext(defaultCallContext);
       }
 
+      // Let the next callable create the ServerStream, so that it can size the stream's buffer.
+      @Override
+      public ServerStream<ResponseT> call(RequestT request, ApiCallContext thisCallContext) {
+        return ServerStreamingCallable.this.call(
+            request, defaultCallContext.merge(thisCallContext));
+      }
+
       @Override
       public void call(
           RequestT request,
@@ -44,6 +44,7 @@ import com.google.api.gax.core.FixedCredentialsProvider;
 import com.google.api.gax.core.FixedExecutorProvider;
 import com.google.api.gax.core.InstantiatingExecutorProvider;
 import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.retrying.RetryBudgetSettings;
 import com.google.api.gax.tracing.ApiTracerFactory;
 import com.google.api.gax.tracing.BaseApiTracerFactory;
 import com.google.auth.oauth2.QuotaProjectIdProvider;
@@ -79,6 +80,7 @@ public abstract class StubSettings<SettingsT extends StubSettings<SettingsT>> {
   @Nullable private final WatchdogProvider streamWatchdogProvider;
   @Nonnull private final java.time.Duration streamWatchdogCheckInterval;
   @Nonnull private final ApiTracerFactory tracerFactory;
+  @Nullable private final RetryBudgetSettings retryBudgetSettings;
   // Track if deprecated setExecutorProvider is called
   private boolean deprecatedExecutorProviderSet;
   @Nonnull private final EndpointContext endpointContext;
@@ -105,6 +107,7 @@ public abstract class StubSettings<SettingsT extends StubSettings<SettingsT>> {
     this.streamWatchdogProvider = builder.streamWatchdogProvider;
     this.streamWatchdogCheckInterval = builder.streamWatchdogCheckInterval;
     this.tracerFactory = builder.tracerFactory;
+    this.retryBudgetSettings = builder.retryBudgetSettings;
     this.deprecatedExecutorProviderSet = builder.deprecatedExecutorProviderSet;
     this.gdchApiAudience = builder.gdchApiAudience;
     this.endpointContext = buildEndpointContext(builder);
@@ -238,6 +241,16 @@ public abstract class StubSettings<SettingsT extends StubSettings<SettingsT>> {
     return tracerFactory;
   }
 
+  /**
+   * Gets the settings of the retry budget that is shared by all the retrying methods of the client,
+   * or {@code null} if retries are not limited by a budget.
+   */
+  @BetaApi("The surface for retry budgets is not stable yet and may change in the future.")
+  @Nullable
+  public final RetryBudgetSettings getRetryBudgetSettings() {
+    return retryBudgetSettings;
+  }
+
   /** Gets the GDCH API audience to be used with {@link com.google.auth.oauth2.GdchCredentials} */
   @Nullable
   public final String getGdchApiAudience() {
@@ -266,6 +279,7 @@ public abstract class StubSettings<SettingsT extends StubSettings<SettingsT>> {
         .add("streamWatchdogProvider", streamWatchdogProvider)
         .add("streamWatchdogCheckInterval", streamWatchdogCheckInterval)
         .add("tracerFactory", tracerFactory)
+        .add("retryBudgetSettings", retryBudgetSettings)
         .add("gdchApiAudience", gdchApiAudience)
         .add("apiKey", apiKey)
         .toString();
@@ -290,6 +304,7 @@ public abstract class StubSettings<SettingsT extends StubSettings<SettingsT>> {
     @Nullable private WatchdogProvider streamWatchdogProvider;
     @Nonnull private java.time.Duration streamWatchdogCheckInterval;
     @Nonnull private ApiTracerFactory tracerFactory;
+    @Nullable private RetryBudgetSettings retryBudgetSettings;
     private boolean deprecatedExecutorProviderSet;
     private String universeDomain;
     private final EndpointContext endpointContext;
@@ -316,6 +331,7 @@ public abstract class StubSettings<SettingsT extends StubSettings<SettingsT>> {
       this.streamWatchdogProvider = settings.streamWatchdogProvider;
       this.streamWatchdogCheckInterval = settings.streamWatchdogCheckInterval;
       this.tracerFactory = settings.tracerFactory;
+      this.retryBudgetSettings = settings.retryBudgetSettings;
       this.deprecatedExecutorProviderSet = settings.deprecatedExecutorProviderSet;
       this.gdchApiAudience = settings.gdchApiAudience;
       this.apiKey = settings.apiKey;
@@ -363,6 +379,7 @@ public abstract class StubSettings<SettingsT extends StubSettings<SettingsT>> {
         this.streamWatchdogProvider = InstantiatingWatchdogProvider.create();
         this.streamWatchdogCheckInterval = java.time.Duration.ofSeconds(10);
         this.tracerFactory = BaseApiTracerFactory.getInstance();
+        this.retryBudgetSettings = null;
         this.deprecatedExecutorProviderSet = false;
         this.gdchApiAudience = null;
 
@@ -392,6 +409,10 @@ public abstract class StubSettings<SettingsT extends StubSettings<SettingsT>> {
             FixedWatchdogProvider.create(clientContext.getStreamWatchdog());
         this.streamWatchdogCheckInterval = clientContext.getStreamWatchdogCheckIntervalDuration();
         this.tracerFactory = clientContext.getTracerFactory();
+        this.retryBudgetSettings =
+            clientContext.getRetryBudget() == null
+                ? null
+                : clientContext.getRetryBudget().getSettings();
         this.quotaProjectId = getQuotaProjectIdFromClientContext(clientContext);
         this.gdchApiAudience = clientContext.getGdchApiAudience();
 
@@ -593,6 +614,18 @@ public abstract class StubSettings<SettingsT extends StubSettings<SettingsT>> {
       return self();
     }
 
+    /**
+     * Configures a retry budget that is shared by all the retrying methods of the client. Once the
+     * budget is exhausted, failed attempts are not retried until enough calls have succeeded again.
+     *
+     * @param retryBudgetSettings the budget settings, or {@code null} to retry without a budget
+     */
+    @BetaApi("The surface for retry budgets is not stable yet and may change in the future.")
+    public B setRetryBudgetSettings(@Nullable RetryBudgetSettings retryBudgetSettings) {
+      this.retryBudgetSettings = retryBudgetSettings;
+      return self();
+    }
+
     /**
      * Sets the API key. The API key will get translated to an {@link
      * com.google.auth.ApiKeyCredentials} and stored in {@link ClientContext}.
@@ -698,6 +731,12 @@ public abstract class StubSettings<SettingsT extends StubSettings<SettingsT>> {
       return tracerFactory;
     }
 
+    @BetaApi("The surface for retry budgets is not stable yet and may change in the future.")
+    @Nullable
+    public RetryBudgetSettings getRetryBudgetSettings() {
+      return retryBudgetSettings;
+    }
+
     /** Gets the GDCH API audience that was previously set in this Builder */
     public String getGdchApiAudience() {
       return gdchApiAudience;
@@ -731,6 +770,7 @@ public abstract class StubSettings<SettingsT extends StubSettings<SettingsT>> {
           .add("streamWatchdogProvider", streamWatchdogProvider)
           .add("streamWatchdogCheckInterval", streamWatchdogCheckInterval)
           .add("tracerFactory", tracerFactory)
+          .add("retryBudgetSettings", retryBudgetSettings)
           .add("gdchApiAudience", gdchApiAudience)
           .toString();
     }
@@ -31,13 +31,17 @@ package com.google.api.gax.rpc;
 
 import static com.google.api.gax.util.TimeConversionUtils.toJavaTimeDuration;
 
+import com.google.api.core.BetaApi;
 import com.google.api.core.InternalExtensionOnly;
 import com.google.api.core.ObsoleteApi;
+import com.google.api.gax.retrying.HedgingSettings;
 import com.google.api.gax.retrying.RetrySettings;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
+import java.util.Objects;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * A base settings class to configure a UnaryCallable. An instance of UnaryCallSettings is not
@@ -60,6 +64,7 @@ public class UnaryCallSettings<RequestT, ResponseT> {
 
   private final ImmutableSet<StatusCode.Code> retryableCodes;
   private final RetrySettings retrySettings;
+  @Nullable private final HedgingSettings hedgingSettings;
 
   /**
    * See the class documentation of {@link UnaryCallSettings} for a description of what retryable
@@ -77,6 +82,16 @@ public class UnaryCallSettings<RequestT, ResponseT> {
     return retrySettings;
   }
 
+  /**
+   * The {@link HedgingSettings} of the call, or {@code null} if calls are not hedged. Hedging must
+   * only be enabled for idempotent methods.
+   */
+  @BetaApi("The surface for hedging is not stable yet and may change in the future.")
+  @Nullable
+  public final HedgingSettings getHedgingSettings() {
+    return hedgingSettings;
+  }
+
   public static <RequestT, ResponseT> Builder<RequestT, ResponseT> newUnaryCallSettingsBuilder() {
     return new Builder<>();
   }
@@ -88,6 +103,7 @@ public class UnaryCallSettings<RequestT, ResponseT> {
   protected UnaryCallSettings(Builder<RequestT, ResponseT> builder) {
     this.retryableCodes = ImmutableSet.copyOf(builder.retryableCodes);
     this.retrySettings = builder.retrySettingsBuilder.build();
+    this.hedgingSettings = builder.hedgingSettings;
   }
 
   @Override
@@ -95,6 +111,7 @@ public class UnaryCallSettings<RequestT, ResponseT> {
     return MoreObjects.toStringHelper(this)
         .add("retryableCodes", retryableCodes)
         .add("retrySettings", retrySettings)
+        .add("hedgingSettings", hedgingSettings)
         .toString();
   }
 
@@ -103,6 +120,7 @@ public class UnaryCallSettings<RequestT, ResponseT> {
     int prime = 43;
     int result = prime + ((retrySettings == null) ? 0 : retrySettings.hashCode());
     result = prime * result + ((retryableCodes == null) ? 0 : retryableCodes.hashCode());
+    result = prime * result + Objects.hashCode(hedgingSettings);
     return result;
   }
 
@@ -121,6 +139,8 @@ public class UnaryCallSettings<RequestT, ResponseT> {
       return false;
     } else if (!retryableCodes.equals(other.retryableCodes)) {
       return false;
+    } else if (!Objects.equals(hedgingSettings, other.hedgingSettings)) {
+      return false;
     }
     return true;
   }
@@ -136,6 +156,7 @@ public class UnaryCallSettings<RequestT, ResponseT> {
 
     private Set<StatusCode.Code> retryableCodes;
     private RetrySettings.Builder retrySettingsBuilder;
+    @Nullable private HedgingSettings hedgingSettings;
 
     protected Builder() {
       retryableCodes = Sets.newHashSet();
@@ -145,6 +166,7 @@ public class UnaryCallSettings<RequestT, ResponseT> {
     protected Builder(UnaryCallSettings<RequestT, ResponseT> unaryCallSettings) {
       setRetryableCodes(unaryCallSettings.retryableCodes);
       setRetrySettings(unaryCallSettings.getRetrySettings());
+      setHedgingSettings(unaryCallSettings.getHedgingSettings());
     }
 
     /**
@@ -196,6 +218,18 @@ public class UnaryCallSettings<RequestT, ResponseT> {
       return this;
     }
 
+    /**
+     * Enables hedging of the calls with the given {@link HedgingSettings}, or disables it if {@code
+     * null}. Hedging must only be enabled for idempotent methods, since the same request may be
+     * processed more than once.
+     */
+    @BetaApi("The surface for hedging is not stable yet and may change in the future.")
+    public UnaryCallSettings.Builder<RequestT, ResponseT> setHedgingSettings(
+        @Nullable HedgingSettings hedgingSettings) {
+      this.hedgingSettings = hedgingSettings;
+      return this;
+    }
+
     /**
      * This method is obsolete. Use {@link #setSimpleTimeoutNoRetriesDuration(java.time.Duration)}
      * instead.
@@ -241,6 +275,13 @@ public class UnaryCallSettings<RequestT, ResponseT> {
       return this.retrySettingsBuilder.build();
     }
 
+    /** Returns the {@link HedgingSettings} currently set in this Builder, if any. */
+    @BetaApi("The surface for hedging is not stable yet and may change in the future.")
+    @Nullable
+    public HedgingSettings getHedgingSettings() {
+      return this.hedgingSettings;
+    }
+
     /**
      * Builds an instance of the containing class. This operation is unsupported on the abstract
      * base class UnaryCallSettings, but is valid on concrete derived classes.
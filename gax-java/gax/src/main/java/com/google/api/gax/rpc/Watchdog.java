@@ -38,10 +38,12 @@ import com.google.api.gax.core.BackgroundResource;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.errorprone.annotations.concurrent.GuardedBy;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map.Entry;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -65,20 +67,38 @@ import javax.annotation.Nonnull;
  *       stream and forcefully closing the stream. This is measured from the last time the caller
  *       had no outstanding demand. Duration.ZERO disables the timeout.
  * </ul>
+ *
+ * <p>The streams are kept on a hashed timer wheel with one bucket per {@code checkInterval}, in the
+ * bucket of their next deadline. Every check only visits the buckets whose time has come, so the
+ * cost of a check depends on the number of streams that are due rather than on the number of open
+ * streams. Activity that pushes a deadline back doesn't touch the wheel: the stream is moved to its
+ * new bucket when its old one is visited. Only activity that brings a deadline forward, like a
+ * request on an idle stream, re-arms the stream right away.
  */
 public final class Watchdog implements Runnable, BackgroundResource {
 
   private static final Logger LOG = Logger.getLogger(Watchdog.class.getName());
 
-  // Dummy value to convert the ConcurrentHashMap into a Set
-  private static Object PRESENT = new Object();
-  private final ConcurrentHashMap<WatchdogStream, Object> openStreams = new ConcurrentHashMap<>();
+  private static final int WHEEL_SIZE = 512;
 
   private final ApiClock clock;
   private final java.time.Duration scheduleInterval;
+  private final long tickMillis;
   private final ScheduledExecutorService executor;
   private ScheduledFuture<?> future;
 
+  private final Object wheelLock = new Object();
+
+  @GuardedBy("wheelLock")
+  private final List<Set<WatchdogStream<?>>> wheel = new ArrayList<>(WHEEL_SIZE);
+
+  // The last tick that was checked. Its bucket is checked again by the next run, since streams can
+  // be armed in it after it was checked.
+  @GuardedBy("wheelLock")
+  private long currentTick;
+
+  private volatile int lastRunVisitCount;
+
   /**
    * This method is obsolete. Use {@link #createDuration(ApiClock, java.time.Duration,
    * ScheduledExecutorService)} instead.
@@ -103,7 +123,12 @@ public final class Watchdog implements Runnable, BackgroundResource {
       ApiClock clock, java.time.Duration scheduleInterval, ScheduledExecutorService executor) {
     this.clock = Preconditions.checkNotNull(clock, "clock can't be null");
     this.scheduleInterval = scheduleInterval;
+    this.tickMillis = Math.max(1, scheduleInterval.toMillis());
     this.executor = executor;
+    for (int i = 0; i < WHEEL_SIZE; i++) {
+      wheel.add(new HashSet<>());
+    }
+    this.currentTick = tickOf(clock.millisTime());
   }
 
   private void start() {
@@ -141,7 +166,8 @@ public final class Watchdog implements Runnable, BackgroundResource {
 
     WatchdogStream<ResponseT> stream =
         new WatchdogStream<>(innerObserver, waitTimeout, idleTimeout);
-    openStreams.put(stream, PRESENT);
+    // The stream hasn't started yet, so check it on the next run
+    arm(stream, clock.millisTime());
     return stream;
   }
 
@@ -155,16 +181,98 @@ public final class Watchdog implements Runnable, BackgroundResource {
   }
 
   private void runUnsafe() {
-    Iterator<Entry<WatchdogStream, Object>> it = openStreams.entrySet().iterator();
+    long nowMillis = clock.millisTime();
+    List<WatchdogStream<?>> due = new ArrayList<>();
+
+    synchronized (wheelLock) {
+      long targetTick = tickOf(nowMillis);
+      // After a full turn, every bucket was visited already
+      long bucketCount = Math.min(targetTick - currentTick + 1, WHEEL_SIZE);
+      for (long i = 0; i < bucketCount; i++) {
+        Iterator<WatchdogStream<?>> it = bucketOf(currentTick + i).iterator();
+        while (it.hasNext()) {
+          WatchdogStream<?> stream = it.next();
+          // Streams further away than a full turn of the wheel stay in their bucket
+          if (stream.armedTick <= targetTick) {
+            it.remove();
+            stream.armedTick = WatchdogStream.NOT_ARMED;
+            // Activity during the check arms the stream with its new deadline
+            stream.armedDeadlineMillis = Long.MAX_VALUE;
+            due.add(stream);
+          }
+        }
+      }
+      currentTick = Math.max(currentTick, targetTick);
+    }
+    lastRunVisitCount = due.size();
 
-    while (it.hasNext()) {
-      WatchdogStream stream = it.next().getKey();
-      if (stream.cancelIfStale()) {
-        it.remove();
+    for (WatchdogStream<?> stream : due) {
+      long nextCheckMillis = stream.cancelIfStale(nowMillis);
+      if (nextCheckMillis >= 0) {
+        arm(stream, nextCheckMillis);
       }
     }
   }
 
+  /**
+   * Puts the stream in the bucket of the given deadline, unless it's already armed with an earlier
+   * one.
+   */
+  private void arm(WatchdogStream<?> stream, long deadlineMillis) {
+    synchronized (wheelLock) {
+      if (stream.closed) {
+        return;
+      }
+      if (stream.armedTick != WatchdogStream.NOT_ARMED) {
+        if (deadlineMillis >= stream.armedDeadlineMillis) {
+          return;
+        }
+        bucketOf(stream.armedTick).remove(stream);
+      }
+      long tick = Math.max(tickOf(deadlineMillis), currentTick);
+      bucketOf(tick).add(stream);
+      stream.armedTick = tick;
+      stream.armedDeadlineMillis = deadlineMillis;
+    }
+  }
+
+  private void disarm(WatchdogStream<?> stream) {
+    synchronized (wheelLock) {
+      stream.closed = true;
+      if (stream.armedTick != WatchdogStream.NOT_ARMED) {
+        bucketOf(stream.armedTick).remove(stream);
+        stream.armedTick = WatchdogStream.NOT_ARMED;
+      }
+    }
+  }
+
+  @GuardedBy("wheelLock")
+  private Set<WatchdogStream<?>> bucketOf(long tick) {
+    return wheel.get((int) Math.floorMod(tick, (long) WHEEL_SIZE));
+  }
+
+  private long tickOf(long millis) {
+    return Math.floorDiv(millis, tickMillis);
+  }
+
+  /** Returns the number of streams that were checked by the last run. */
+  @VisibleForTesting
+  int getLastRunVisitCount() {
+    return lastRunVisitCount;
+  }
+
+  /** Returns the number of streams that are watched. */
+  @VisibleForTesting
+  int getWatchedStreamCount() {
+    synchronized (wheelLock) {
+      int count = 0;
+      for (Set<WatchdogStream<?>> bucket : wheel) {
+        count += bucket.size();
+      }
+      return count;
+    }
+  }
+
   @Override
   public void shutdown() {
     future.cancel(false);
@@ -224,8 +332,19 @@ public final class Watchdog implements Runnable, BackgroundResource {
   }
 
   class WatchdogStream<ResponseT> extends StateCheckingResponseObserver<ResponseT> {
+    private static final long NOT_ARMED = Long.MIN_VALUE;
+
     private final Object lock = new Object();
 
+    @GuardedBy("Watchdog.this.wheelLock")
+    private long armedTick = NOT_ARMED;
+
+    // Read without the wheel lock to skip re-arming when a deadline is pushed back
+    private volatile long armedDeadlineMillis;
+
+    @GuardedBy("Watchdog.this.wheelLock")
+    private boolean closed;
+
     private final java.time.Duration waitTimeout;
     private final java.time.Duration idleTimeout;
     private boolean hasStarted;
@@ -298,11 +417,13 @@ public final class Watchdog implements Runnable, BackgroundResource {
       Preconditions.checkArgument(count > 0, "count must be > 0");
       Preconditions.checkState(!autoAutoFlowControl, "Auto flow control is enabled");
 
+      long deadline = Long.MAX_VALUE;
       // Only reset the request water mark if there are no outstanding requests.
       synchronized (lock) {
         if (state == State.IDLE) {
           state = State.WAITING;
           lastActivityAt = clock.millisTime();
+          deadline = deadlineLocked();
         }
 
         // Increment the request count without overflow
@@ -310,6 +431,10 @@ public final class Watchdog implements Runnable, BackgroundResource {
         count = Math.min(maxIncrement, count);
         pendingCount += count;
       }
+      // The wait timeout is usually much shorter than the idle timeout the stream was armed with
+      if (deadline < armedDeadlineMillis) {
+        arm(this, deadline);
+      }
       innerController.request(count);
     }
 
@@ -326,6 +451,7 @@ public final class Watchdog implements Runnable, BackgroundResource {
 
       outerResponseObserver.onResponse(response);
 
+      long deadline;
       synchronized (lock) {
         pendingCount--;
         lastActivityAt = clock.millisTime();
@@ -335,6 +461,10 @@ public final class Watchdog implements Runnable, BackgroundResource {
         } else {
           state = State.IDLE;
         }
+        deadline = deadlineLocked();
+      }
+      if (deadline < armedDeadlineMillis) {
+        arm(this, deadline);
       }
     }
 
@@ -344,32 +474,47 @@ public final class Watchdog implements Runnable, BackgroundResource {
       if (this.error != null) {
         t = this.error;
       }
-      openStreams.remove(this);
+      disarm(this);
       outerResponseObserver.onError(t);
     }
 
     @Override
     public void onCompleteImpl() {
-      openStreams.remove(this);
+      disarm(this);
       outerResponseObserver.onComplete();
     }
 
+    /** Returns when the timeout of the current state expires, or Long.MAX_VALUE if it has none. */
+    @GuardedBy("lock")
+    private long deadlineLocked() {
+      switch (state) {
+        case IDLE:
+          return idleTimeout.isZero() ? Long.MAX_VALUE : lastActivityAt + idleTimeout.toMillis();
+        case WAITING:
+          return waitTimeout.isZero() ? Long.MAX_VALUE : lastActivityAt + waitTimeout.toMillis();
+        default:
+          return Long.MAX_VALUE;
+      }
+    }
+
     /**
      * Checks if this stream has overrun any of its timeouts and cancels it if it does.
      *
-     * @return True if the stream was canceled.
+     * @return when the stream should be checked next, or -1 if the stream was canceled.
      */
-    boolean cancelIfStale() {
+    long cancelIfStale(long nowMillis) {
       // If the stream hasn't started yet, innerController will be null. Skip the check this time
-      // and return false so the stream is still watched.
+      // and check it again on the next run.
       if (innerController == null) {
-        return false;
+        return nowMillis;
       }
 
       Throwable myError = null;
+      long deadline;
 
       synchronized (lock) {
-        long waitTime = clock.millisTime() - lastActivityAt;
+        long waitTime = nowMillis - lastActivityAt;
+        deadline = deadlineLocked();
 
         switch (this.state) {
           case IDLE:
@@ -390,9 +535,23 @@ public final class Watchdog implements Runnable, BackgroundResource {
       if (myError != null) {
         this.error = myError;
         innerController.cancel();
-        return true;
+        return -1;
       }
-      return false;
+      if (deadline == Long.MAX_VALUE) {
+        // The current state has no timeout, so check again once the shortest one could expire
+        return nowMillis + shortestTimeoutMillis();
+      }
+      return deadline;
+    }
+
+    private long shortestTimeoutMillis() {
+      if (waitTimeout.isZero()) {
+        return idleTimeout.toMillis();
+      }
+      if (idleTimeout.isZero()) {
+        return waitTimeout.toMillis();
+      }
+      return Math.min(waitTimeout.toMillis(), idleTimeout.toMillis());
     }
   }
 }
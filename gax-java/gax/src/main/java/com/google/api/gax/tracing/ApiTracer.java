@@ -151,6 +151,32 @@ public interface ApiTracer {
   default void attemptFailedRetriesExhausted(Throwable error) {}
   ;
 
+  /**
+   * Adds an annotation that a retry was not made because the client-wide retry budget was
+   * exhausted. This is followed by {@link #attemptFailedRetriesExhausted(Throwable)} for the same
+   * attempt.
+   */
+  default void retryBudgetExhausted() {}
+  ;
+
+  /**
+   * Adds an annotation that another attempt was started in parallel because the earlier attempts
+   * had not completed within the hedging delay.
+   *
+   * @param attemptNumber the zero-based number of the hedged attempt.
+   */
+  default void hedgedAttemptStarted(int attemptNumber) {}
+  ;
+
+  /**
+   * Adds an annotation that the response of a hedged attempt was used. The other attempts that are
+   * still in flight are cancelled.
+   *
+   * @param attemptNumber the zero-based number of the hedged attempt.
+   */
+  default void hedgedAttemptSucceeded(int attemptNumber) {}
+  ;
+
   /**
    * Adds an annotation that the attempt failed and that no further attempts will be made because
    * the last error was not retryable.
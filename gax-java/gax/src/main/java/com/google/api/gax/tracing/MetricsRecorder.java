@@ -58,4 +58,7 @@ public interface MetricsRecorder {
 
   /** Records the count of operations */
   default void recordOperationCount(long count, Map<String, String> attributes) {}
+
+  /** Records the count of retries that were rejected by the client-wide retry budget */
+  default void recordRetryBudgetExhaustedCount(long count, Map<String, String> attributes) {}
 }
@@ -204,6 +204,16 @@ public class MetricsTracer implements ApiTracer {
     metricsRecorder.recordAttemptCount(1, attributes);
   }
 
+  /**
+   * Counts a retry that was not made because the client-wide retry budget was exhausted. The
+   * attempt itself is recorded by the {@link #attemptFailedRetriesExhausted(Throwable)} call that
+   * follows.
+   */
+  @Override
+  public void retryBudgetExhausted() {
+    metricsRecorder.recordRetryBudgetExhaustedCount(1, attributes);
+  }
+
   /**
    * Adds an annotation that the attempt failed and that no further attempts will be made because
    * the last error was not retryable. This extracts the error from the throwable and adds it to the
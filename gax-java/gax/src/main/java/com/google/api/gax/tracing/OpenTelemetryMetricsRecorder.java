@@ -61,6 +61,7 @@ public class OpenTelemetryMetricsRecorder implements MetricsRecorder {
   private final DoubleHistogram operationLatencyRecorder;
   private final LongCounter operationCountRecorder;
   private final LongCounter attemptCountRecorder;
+  private final LongCounter retryBudgetExhaustedCountRecorder;
 
   /**
    * Creates the following instruments for the following metrics:
@@ -70,6 +71,7 @@ public class OpenTelemetryMetricsRecorder implements MetricsRecorder {
    *   <li>Operation Latency: Histogram
    *   <li>Attempt Count: Counter
    *   <li>Operation Count: Counter
+   *   <li>Retry Budget Exhausted Count: Counter
    * </ul>
    *
    * @param openTelemetry OpenTelemetry instance
@@ -106,6 +108,12 @@ public class OpenTelemetryMetricsRecorder implements MetricsRecorder {
             .setDescription("Number of Operations")
             .setUnit("1")
             .build();
+    this.retryBudgetExhaustedCountRecorder =
+        meter
+            .counterBuilder(serviceName + "/retry_budget_exhausted_count")
+            .setDescription("Number of retries rejected by the retry budget")
+            .setUnit("1")
+            .build();
   }
 
   /**
@@ -157,6 +165,18 @@ public class OpenTelemetryMetricsRecorder implements MetricsRecorder {
     operationCountRecorder.add(count, toOtelAttributes(attributes));
   }
 
+  /**
+   * Record a retry that was rejected by the client-wide retry budget. The count number is stored in
+   * a LongCounter.
+   *
+   * @param count The number of rejected retries
+   * @param attributes Map of the attributes to store
+   */
+  @Override
+  public void recordRetryBudgetExhaustedCount(long count, Map<String, String> attributes) {
+    retryBudgetExhaustedCountRecorder.add(count, toOtelAttributes(attributes));
+  }
+
   @VisibleForTesting
   Attributes toOtelAttributes(Map<String, String> attributes) {
     Preconditions.checkNotNull(attributes, "Attributes map cannot be null");
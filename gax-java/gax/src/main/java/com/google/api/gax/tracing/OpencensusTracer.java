@@ -384,6 +384,30 @@ public class OpencensusTracer extends BaseApiTracer {
     lastConnectionId = null;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public void retryBudgetExhausted() {
+    span.addAnnotation("Retry budget exhausted", baseAttemptAttributes());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void hedgedAttemptStarted(int attemptNumber) {
+    span.addAnnotation("Hedged attempt started", hedgedAttemptAttributes(attemptNumber));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void hedgedAttemptSucceeded(int attemptNumber) {
+    span.addAnnotation("Hedged attempt succeeded", hedgedAttemptAttributes(attemptNumber));
+  }
+
+  private static Map<String, AttributeValue> hedgedAttemptAttributes(int attemptNumber) {
+    Map<String, AttributeValue> attributes = new HashMap<>();
+    attributes.put("hedged attempt", AttributeValue.longAttributeValue(attemptNumber));
+    return attributes;
+  }
+
   /** {@inheritDoc} */
   @Override
   public void attemptPermanentFailure(Throwable error) {
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.batching;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.api.gax.batching.FlowControlEventStats.BatchingThresholdsEvent;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveBatchingControllerTest {
+
+  private static final long TARGET_LATENCY_MS = 100;
+
+  private final BatchingSettings batchingSettings =
+      BatchingSettings.newBuilder()
+          .setElementCountThreshold(1000L)
+          .setRequestByteThreshold(10_000L)
+          .setDelayThresholdDuration(Duration.ofMillis(100))
+          .setAdaptiveBatchingSettings(
+              AdaptiveBatchingSettings.newBuilder()
+                  .setTargetLatency(Duration.ofMillis(TARGET_LATENCY_MS))
+                  .build())
+          .build();
+
+  @Test
+  void testStartsAtConfiguredThresholds() {
+    AdaptiveBatchingController controller =
+        new AdaptiveBatchingController(
+            batchingSettings, new FlowController(batchingSettings.getFlowControlSettings()));
+
+    assertThat(controller.getElementCountThreshold()).isEqualTo(1000);
+    assertThat(controller.getRequestByteThreshold()).isEqualTo(10_000);
+    assertThat(controller.getDelayThreshold()).isEqualTo(Duration.ofMillis(100));
+  }
+
+  /**
+   * Simulates a backend whose latency grows with the batch size, and checks that the batch size
+   * converges around the size which meets the target latency.
+   */
+  @Test
+  void testConvergesToTargetLatency() {
+    FlowController flowController = new FlowController(batchingSettings.getFlowControlSettings());
+    AdaptiveBatchingController controller =
+        new AdaptiveBatchingController(batchingSettings, flowController);
+
+    long nowNanos = 0;
+    long minSize = Long.MAX_VALUE;
+    long maxSize = 0;
+    long totalLatencyMs = 0;
+    int rounds = 500;
+    for (int i = 0; i < rounds; i++) {
+      long size = controller.getElementCountThreshold();
+      long latencyMs = simulatedLatencyMs(size);
+      controller.onBatchCompleted(
+          nowNanos, nowNanos + TimeUnit.MILLISECONDS.toNanos(latencyMs), false);
+      nowNanos += TimeUnit.MILLISECONDS.toNanos(latencyMs);
+
+      // Skip the warm up
+      if (i >= 100) {
+        minSize = Math.min(minSize, size);
+        maxSize = Math.max(maxSize, size);
+        totalLatencyMs += latencyMs;
+      }
+    }
+
+    // The batches which meet the target have up to 450 elements. The sizes oscillate between half
+    // of that and one step above.
+    assertThat(minSize).isAtLeast(200);
+    assertThat(maxSize).isAtMost(500);
+    assertThat(totalLatencyMs / (rounds - 100)).isAtMost(TARGET_LATENCY_MS);
+    assertThat(totalLatencyMs / (rounds - 100)).isAtLeast(TARGET_LATENCY_MS / 2);
+
+    BatchingThresholdsEvent event =
+        flowController.getFlowControlEventStats().getLastBatchingThresholdsEvent();
+    assertThat(event).isNotNull();
+    assertThat(event.getElementCountThreshold()).isAtMost(500);
+  }
+
+  @Test
+  void testBatchesSentBeforeDecreaseAreIgnored() {
+    AdaptiveBatchingController controller =
+        new AdaptiveBatchingController(
+            batchingSettings, new FlowController(batchingSettings.getFlowControlSettings()));
+
+    // Two slow batches in flight at the same time only decrease the thresholds once
+    controller.onBatchCompleted(0, TimeUnit.MILLISECONDS.toNanos(300), false);
+    controller.onBatchCompleted(
+        TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(310), false);
+    assertThat(controller.getElementCountThreshold()).isEqualTo(500);
+    assertThat(controller.getRequestByteThreshold()).isEqualTo(5000);
+    assertThat(controller.getDelayThreshold()).isEqualTo(Duration.ofMillis(50));
+
+    // A slow batch sent after the decrease decreases it again
+    controller.onBatchCompleted(
+        TimeUnit.MILLISECONDS.toNanos(320), TimeUnit.MILLISECONDS.toNanos(500), false);
+    assertThat(controller.getElementCountThreshold()).isEqualTo(250);
+  }
+
+  @Test
+  void testFailuresDecreaseThresholdsAndFlowControlLimits() {
+    FlowController flowController =
+        new FlowController(
+            DynamicFlowControlSettings.newBuilder()
+                .setInitialOutstandingElementCount(2000L)
+                .setMinOutstandingElementCount(100L)
+                .setMaxOutstandingElementCount(2000L)
+                .build());
+    AdaptiveBatchingController controller =
+        new AdaptiveBatchingController(batchingSettings, flowController);
+
+    long nanos = 0;
+    for (int i = 0; i < 10; i++) {
+      controller.onBatchCompleted(nanos, nanos + 1, true);
+      nanos += 2;
+    }
+    // Bounded by the min ratio
+    assertThat(controller.getElementCountThreshold()).isEqualTo(100);
+    assertThat(controller.getDelayThreshold()).isEqualTo(Duration.ofMillis(10));
+    assertThat(flowController.getCurrentElementCountLimit()).isEqualTo(200);
+    BatchingThresholdsEvent event =
+        flowController.getFlowControlEventStats().getLastBatchingThresholdsEvent();
+    assertThat(event.isDecreased()).isTrue();
+    assertThat(event.getElementCountThreshold()).isEqualTo(100);
+
+    // Fast successful batches restore the thresholds and limits
+    for (int i = 0; i < 100; i++) {
+      controller.onBatchCompleted(nanos, nanos + 1, false);
+      nanos += 2;
+    }
+    assertThat(controller.getElementCountThreshold()).isEqualTo(1000);
+    assertThat(flowController.getCurrentElementCountLimit()).isEqualTo(2000);
+    assertThat(
+            flowController
+                .getFlowControlEventStats()
+                .getLastBatchingThresholdsEvent()
+                .isDecreased())
+        .isFalse();
+  }
+
+  @Test
+  void testSharedFlowControllerIsAdjustedOnce() {
+    FlowController flowController =
+        new FlowController(
+            DynamicFlowControlSettings.newBuilder()
+                .setInitialOutstandingElementCount(2000L)
+                .setMinOutstandingElementCount(100L)
+                .setMaxOutstandingElementCount(2000L)
+                .build());
+    List<AdaptiveBatchingController> controllers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      controllers.add(new AdaptiveBatchingController(batchingSettings, flowController));
+    }
+
+    // Every batcher sees the same latency spike, the shared limits are only cut once
+    for (AdaptiveBatchingController controller : controllers) {
+      controller.onBatchCompleted(0, TimeUnit.MILLISECONDS.toNanos(300), false);
+      assertThat(controller.getElementCountThreshold()).isEqualTo(500);
+    }
+    assertThat(flowController.getCurrentElementCountLimit()).isEqualTo(1000);
+
+    // And recover at the pace of a single batcher, without going over the max
+    long nanos = TimeUnit.MILLISECONDS.toNanos(400);
+    for (int i = 0; i < 100; i++) {
+      for (AdaptiveBatchingController controller : controllers) {
+        controller.onBatchCompleted(nanos, nanos + 1, false);
+        nanos += 2;
+      }
+    }
+    assertThat(flowController.getCurrentElementCountLimit()).isEqualTo(2000);
+  }
+
+  private static long simulatedLatencyMs(long batchSize) {
+    return 10 + batchSize / 5;
+  }
+}
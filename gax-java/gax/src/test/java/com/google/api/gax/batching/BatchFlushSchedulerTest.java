@@ -0,0 +1,161 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.batching;
+
+import static com.google.api.gax.batching.AssertByPolling.assertByPolling;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.api.gax.batching.BatchFlushScheduler.FlushTimeout;
+import com.google.common.base.Stopwatch;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class BatchFlushSchedulerTest {
+
+  private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void testRunsTasksAfterDelay() throws Exception {
+    BatchFlushScheduler scheduler = BatchFlushScheduler.create(executor);
+    assertThat(scheduler.isTicking()).isFalse();
+
+    CountDownLatch latch = new CountDownLatch(2);
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    scheduler.schedule(latch::countDown, Duration.ofMillis(20));
+    scheduler.schedule(latch::countDown, Duration.ofMillis(30));
+    // Both flushes share the same task on the executor
+    assertThat(scheduler.isTicking()).isTrue();
+    assertThat(executor.getQueue()).hasSize(1);
+    assertThat(scheduler.getPendingCount()).isEqualTo(2);
+
+    assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(stopwatch.elapsed(TimeUnit.MILLISECONDS)).isAtLeast(30);
+    // The scheduler stops ticking once there's nothing left to flush
+    assertByPolling(Duration.ofSeconds(1), () -> assertThat(scheduler.isTicking()).isFalse());
+    assertThat(executor.getQueue()).isEmpty();
+    // The task only woke up for the deadlines, instead of on every tick
+    assertThat(executor.getCompletedTaskCount()).isAtMost(2);
+  }
+
+  @Test
+  void testEarlierDeadlineReschedulesTask() throws Exception {
+    BatchFlushScheduler scheduler = BatchFlushScheduler.create(executor);
+    CountDownLatch latch = new CountDownLatch(1);
+
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    scheduler.schedule(() -> {}, Duration.ofSeconds(100));
+    scheduler.schedule(latch::countDown, Duration.ofMillis(20));
+
+    assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(stopwatch.elapsed(TimeUnit.MILLISECONDS)).isAtLeast(20);
+    // The task is scheduled again for the remaining flush
+    assertThat(scheduler.getPendingCount()).isEqualTo(1);
+    assertThat(scheduler.isTicking()).isTrue();
+  }
+
+  @Test
+  void testCancelledTasksDontRun() throws Exception {
+    BatchFlushScheduler scheduler = BatchFlushScheduler.create(executor);
+    AtomicInteger runs = new AtomicInteger();
+
+    FlushTimeout timeout = scheduler.schedule(runs::incrementAndGet, Duration.ofMillis(20));
+    timeout.cancel();
+    assertThat(scheduler.getPendingCount()).isEqualTo(0);
+    assertThat(scheduler.isTicking()).isFalse();
+
+    CountDownLatch latch = new CountDownLatch(1);
+    scheduler.schedule(latch::countDown, Duration.ofMillis(40));
+    assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(runs.get()).isEqualTo(0);
+  }
+
+  @Test
+  void testDelaysLongerThanTheWheel() throws Exception {
+    BatchFlushScheduler scheduler =
+        new BatchFlushScheduler(executor, Duration.ofMillis(1), /* wheelSize= */ 8);
+
+    CountDownLatch shortLatch = new CountDownLatch(1);
+    CountDownLatch longLatch = new CountDownLatch(1);
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    scheduler.schedule(longLatch::countDown, Duration.ofMillis(50));
+    scheduler.schedule(shortLatch::countDown, Duration.ofMillis(2));
+
+    assertThat(shortLatch.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(longLatch.getCount()).isEqualTo(1);
+    assertThat(longLatch.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(stopwatch.elapsed(TimeUnit.MILLISECONDS)).isAtLeast(50);
+  }
+
+  @Test
+  void testTickDoesntScanAllArmedFlushes() throws Exception {
+    BatchFlushScheduler scheduler =
+        new BatchFlushScheduler(executor, Duration.ofMillis(1), /* wheelSize= */ 1000);
+
+    // The far flushes land half a turn away from the near one, in a bucket the near tick doesn't
+    // pass
+    int armedCount = 10_000;
+    for (int i = 0; i < armedCount; i++) {
+      scheduler.schedule(() -> {}, Duration.ofMillis(100_500));
+    }
+    CountDownLatch latch = new CountDownLatch(1);
+    scheduler.schedule(latch::countDown, Duration.ofMillis(20));
+
+    assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(scheduler.getPendingCount()).isEqualTo(armedCount);
+    // The tick only looked at the flush it ran. Finding the next deadline doesn't scan the others.
+    assertThat(scheduler.getLastTickVisitCount()).isEqualTo(1);
+    assertThat(scheduler.isTicking()).isTrue();
+  }
+
+  @Test
+  void testFailingTaskDoesntStopOtherTasks() throws Exception {
+    BatchFlushScheduler scheduler = BatchFlushScheduler.create(executor);
+    CountDownLatch latch = new CountDownLatch(1);
+
+    scheduler.schedule(
+        () -> {
+          throw new IllegalStateException("fake error");
+        },
+        Duration.ofMillis(5));
+    scheduler.schedule(latch::countDown, Duration.ofMillis(5));
+
+    assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+}
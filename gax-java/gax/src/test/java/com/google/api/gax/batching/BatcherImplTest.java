@@ -29,6 +29,7 @@
  */
 package com.google.api.gax.batching;
 
+import static com.google.api.gax.batching.AssertByPolling.assertByPolling;
 import static com.google.api.gax.rpc.testing.FakeBatchableApi.SQUARER_BATCHING_DESC_V2;
 import static com.google.api.gax.rpc.testing.FakeBatchableApi.callLabeledIntSquarer;
 import static com.google.common.truth.Truth.assertThat;
@@ -45,6 +46,8 @@ import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutures;
 import com.google.api.core.SettableApiFuture;
 import com.google.api.gax.batching.BatcherImpl.BatcherReference;
+import com.google.api.gax.batching.FlowControlEventStats.BatchingThresholdsEvent;
+import com.google.api.gax.batching.FlowController.FlowControlException;
 import com.google.api.gax.batching.FlowController.FlowControlRuntimeException;
 import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
 import com.google.api.gax.rpc.ApiCallContext;
@@ -64,6 +67,7 @@ import java.util.Queue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -71,6 +75,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -501,6 +506,101 @@ class BatcherImplTest {
     assertThat(result.get()).isEqualTo(4);
   }
 
+  @Test
+  void testStripedAccumulation_elementTriggers() throws Exception {
+    testElementTriggers(
+        batchingSettings.toBuilder()
+            .setElementCountThreshold(2L)
+            .setAccumulationStripeCount(4)
+            .build());
+  }
+
+  @Test
+  void testStripedAccumulation_concurrentProducers() throws Exception {
+    BatchingSettings settings =
+        batchingSettings.toBuilder()
+            .setElementCountThreshold(10L)
+            .setAccumulationStripeCount(8)
+            .build();
+    final Queue<Integer> batchSizes = Queues.newConcurrentLinkedQueue();
+    UnaryCallable<LabeledIntList, List<Integer>> callable =
+        new UnaryCallable<LabeledIntList, List<Integer>>() {
+          @Override
+          public ApiFuture<List<Integer>> futureCall(
+              LabeledIntList request, ApiCallContext context) {
+            batchSizes.add(request.ints.size());
+            return callLabeledIntSquarer.futureCall(request, context);
+          }
+        };
+    underTest =
+        new BatcherImpl<>(
+            SQUARER_BATCHING_DESC_V2, callable, labeledIntList, settings, EXECUTOR, null);
+
+    int producers = 16;
+    int elementsPerProducer = 500;
+    ExecutorService producerExecutor = Executors.newFixedThreadPool(producers);
+    List<Future<List<ApiFuture<Integer>>>> producerResults = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      final int offset = p * elementsPerProducer;
+      producerResults.add(
+          producerExecutor.submit(
+              () -> {
+                List<ApiFuture<Integer>> results = new ArrayList<>();
+                for (int i = 0; i < elementsPerProducer; i++) {
+                  results.add(underTest.add(offset + i));
+                }
+                return results;
+              }));
+    }
+    List<ApiFuture<Integer>> results = new ArrayList<>();
+    for (Future<List<ApiFuture<Integer>>> producerResult : producerResults) {
+      results.addAll(producerResult.get());
+    }
+    producerExecutor.shutdown();
+    underTest.flush();
+
+    for (int i = 0; i < results.size(); i++) {
+      assertThat(results.get(i).get()).isEqualTo(i * i);
+    }
+    int total = 0;
+    for (int batchSize : batchSizes) {
+      assertThat(batchSize).isAtMost(10);
+      total += batchSize;
+    }
+    assertThat(total).isEqualTo(producers * elementsPerProducer);
+  }
+
+  @Test
+  void testStripedAccumulation_customResourceTriggers() throws Exception {
+    // The resource asks for a flush once it holds more than two elements, long before the
+    // thresholds are reached.
+    SquarerBatchingDescriptorV2 descriptor =
+        new SquarerBatchingDescriptorV2() {
+          @Override
+          public BatchResource createResource(Integer element) {
+            return new ElementCountResource(1);
+          }
+
+          @Override
+          public BatchResource createEmptyResource() {
+            return new ElementCountResource(0);
+          }
+        };
+    BatchingSettings settings = batchingSettings.toBuilder().setAccumulationStripeCount(4).build();
+    underTest =
+        new BatcherImpl<>(
+            descriptor, callLabeledIntSquarer, labeledIntList, settings, EXECUTOR, null);
+
+    Future<Integer> result1 = underTest.add(1);
+    Future<Integer> result2 = underTest.add(2);
+    assertThat(result1.isDone()).isFalse();
+    Future<Integer> result3 = underTest.add(3);
+
+    assertThat(result1.get()).isEqualTo(1);
+    assertThat(result2.get()).isEqualTo(4);
+    assertThat(result3.isDone()).isFalse();
+  }
+
   @Test
   void testWhenDelayThresholdExceeds() throws Exception {
     BatchingSettings settings =
@@ -942,6 +1042,208 @@ class BatcherImplTest {
     }
   }
 
+  @Test
+  @Timeout(10)
+  void testThrottlingBlocking_sendsOpenBatch() throws Exception {
+    FlowController flowController =
+        new FlowController(
+            FlowControlSettings.newBuilder()
+                .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                .setMaxOutstandingElementCount(2L)
+                .build());
+    underTest =
+        createDefaultBatcherImpl(
+            batchingSettings.toBuilder().setElementCountThreshold(2L).build(), flowController);
+    Future<Integer> result1 = underTest.add(1);
+    Future<Integer> result2 = underTest.add(2);
+    assertThat(result1.isDone()).isFalse();
+
+    // The open batch holds all the reserved elements, so it must be sent before blocking. Otherwise
+    // the element count threshold would only flush it after the reservation.
+    Future<Integer> result3 = underTest.add(3);
+    assertThat(result1.get()).isEqualTo(1);
+    assertThat(result2.get()).isEqualTo(4);
+    assertThat(result3.isDone()).isFalse();
+  }
+
+  @Test
+  void testAdaptiveBatching_failedBatchShrinksBatches() throws Exception {
+    final Queue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+    final AtomicBoolean fail = new AtomicBoolean(true);
+    BatchingSettings settings =
+        batchingSettings.toBuilder()
+            .setElementCountThreshold(4L)
+            .setAdaptiveBatchingSettings(
+                AdaptiveBatchingSettings.newBuilder().setTargetLatency(Duration.ofHours(1)).build())
+            .build();
+    underTest =
+        new BatcherImpl<>(
+            SQUARER_BATCHING_DESC_V2,
+            new LabeledIntSquarerCallable() {
+              @Override
+              public ApiFuture<List<Integer>> futureCall(
+                  LabeledIntList request, ApiCallContext context) {
+                batchSizes.add(request.ints.size());
+                if (fail.getAndSet(false)) {
+                  return ApiFutures.immediateFailedFuture(new IllegalStateException("fake error"));
+                }
+                return super.futureCall(request, context);
+              }
+            },
+            labeledIntList,
+            settings,
+            EXECUTOR,
+            null,
+            null);
+
+    for (int i = 0; i < 5; i++) {
+      underTest.add(i);
+    }
+    underTest.flush();
+    // The element count threshold is halved after the first batch failed
+    for (int i = 0; i < 3; i++) {
+      underTest.add(i);
+    }
+    assertThat(batchSizes).containsExactly(4, 1, 2).inOrder();
+    underTest.flush();
+
+    BatchingThresholdsEvent event =
+        ((BatcherImpl<?, ?, ?, ?>) underTest)
+            .getFlowController()
+            .getFlowControlEventStats()
+            .getLastBatchingThresholdsEvent();
+    assertThat(event.getElementCountThreshold()).isAtLeast(2);
+    assertThrows(BatchingException.class, () -> underTest.close());
+    underTest = null;
+  }
+
+  /**
+   * Idle batchers don't schedule anything with a {@link BatchFlushScheduler}, while they would each
+   * run a periodic task on the executor without it.
+   */
+  @Test
+  void testFlushScheduler_idleBatchersDontTick() throws Exception {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+    BatchFlushScheduler scheduler = BatchFlushScheduler.create(executor);
+    BatchingSettings settings =
+        batchingSettings.toBuilder().setDelayThresholdDuration(Duration.ofMillis(10)).build();
+    List<Batcher<Integer, Integer>> batchers = new ArrayList<>();
+    try {
+      for (int i = 0; i < 10_000; i++) {
+        batchers.add(
+            new BatcherImpl<>(
+                SQUARER_BATCHING_DESC_V2,
+                callLabeledIntSquarer,
+                labeledIntList,
+                settings,
+                executor,
+                null,
+                null,
+                scheduler));
+      }
+      assertThat(executor.getQueue()).isEmpty();
+
+      // The delay threshold is armed when a batch receives its first element
+      List<ApiFuture<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        results.add(batchers.get(i).add(i));
+        results.add(batchers.get(i).add(i));
+      }
+      assertThat(scheduler.getPendingCount()).isEqualTo(100);
+      assertThat(executor.getQueue()).hasSize(1);
+      for (int i = 0; i < results.size(); i++) {
+        assertThat(results.get(i).get(5, TimeUnit.SECONDS)).isEqualTo((i / 2) * (i / 2));
+      }
+      assertByPolling(Duration.ofSeconds(1), () -> assertThat(scheduler.isTicking()).isFalse());
+      assertThat(executor.getQueue()).isEmpty();
+    } finally {
+      for (Batcher<Integer, Integer> batcher : batchers) {
+        batcher.close();
+      }
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void testFlushScheduler_thresholdCancelsDelayedFlush() throws Exception {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+    BatchFlushScheduler scheduler = BatchFlushScheduler.create(executor);
+    try {
+      underTest =
+          new BatcherImpl<>(
+              SQUARER_BATCHING_DESC_V2,
+              callLabeledIntSquarer,
+              labeledIntList,
+              batchingSettings.toBuilder()
+                  .setElementCountThreshold(2L)
+                  .setDelayThresholdDuration(Duration.ofHours(1))
+                  .build(),
+              executor,
+              null,
+              null,
+              scheduler);
+      underTest.add(1);
+      underTest.add(2);
+      assertThat(scheduler.getPendingCount()).isEqualTo(1);
+      // The first batch is sent on the element count threshold, and a flush is armed for the new
+      // one
+      ApiFuture<Integer> result = underTest.add(3);
+      assertThat(scheduler.getPendingCount()).isEqualTo(1);
+      underTest.flush();
+      assertThat(result.get()).isEqualTo(9);
+      assertThat(scheduler.getPendingCount()).isEqualTo(0);
+      assertThat(scheduler.isTicking()).isFalse();
+    } finally {
+      underTest.close();
+      underTest = null;
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  @Timeout(10)
+  void testThrottlingBlocking_tryReserveOverridden() throws Exception {
+    final AtomicInteger reserveCalls = new AtomicInteger();
+    final AtomicInteger tryReserveCalls = new AtomicInteger();
+    FlowController flowController =
+        new FlowController(
+            FlowControlSettings.newBuilder()
+                .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                .setMaxOutstandingElementCount(2L)
+                .build()) {
+          @Override
+          public void reserve(long elements, long bytes) throws FlowControlException {
+            reserveCalls.incrementAndGet();
+            super.reserve(elements, bytes);
+          }
+
+          @Override
+          public boolean tryReserve(long elements, long bytes) {
+            boolean reserved = super.tryReserve(elements, bytes);
+            if (reserved) {
+              tryReserveCalls.incrementAndGet();
+            }
+            return reserved;
+          }
+        };
+    underTest = createDefaultBatcherImpl(batchingSettings, flowController);
+    Future<Integer> result1 = underTest.add(1);
+    Future<Integer> result2 = underTest.add(2);
+
+    // The elements which fit are reserved through the overridden tryReserve
+    assertThat(tryReserveCalls.get()).isEqualTo(2);
+    assertThat(reserveCalls.get()).isEqualTo(0);
+    assertThat(result1.isDone()).isFalse();
+
+    // The open batch is sent before blocking in the overridden reserve
+    Future<Integer> result3 = underTest.add(3);
+    assertThat(result1.get()).isEqualTo(1);
+    assertThat(result2.get()).isEqualTo(4);
+    assertThat(reserveCalls.get()).isEqualTo(1);
+    underTest.flush();
+    assertThat(result3.get()).isEqualTo(9);
+  }
+
   @Test
   @Timeout(60)
   void testThrottlingBlocking() throws Exception {
@@ -1227,4 +1529,32 @@ class BatcherImplTest {
       return desc;
     }
   }
+
+  private static class ElementCountResource implements BatchResource {
+    private final long elementCount;
+
+    ElementCountResource(long elementCount) {
+      this.elementCount = elementCount;
+    }
+
+    @Override
+    public BatchResource add(BatchResource resource) {
+      return new ElementCountResource(elementCount + resource.getElementCount());
+    }
+
+    @Override
+    public long getElementCount() {
+      return elementCount;
+    }
+
+    @Override
+    public long getByteCount() {
+      return 0;
+    }
+
+    @Override
+    public boolean shouldFlush(long maxElementThreshold, long maxBytesThreshold) {
+      return elementCount > 2;
+    }
+  }
 }
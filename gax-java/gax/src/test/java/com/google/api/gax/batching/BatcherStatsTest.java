@@ -36,6 +36,12 @@ import com.google.api.gax.rpc.ApiExceptionFactory;
 import com.google.api.gax.rpc.StatusCode;
 import com.google.api.gax.rpc.testing.FakeStatusCode;
 import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
 
 class BatcherStatsTest {
@@ -125,4 +131,92 @@ class BatcherStatsTest {
                 + " Sample of RPC errors: java.lang.RuntimeException: Batch failure."
                 + " Sample of entry errors: com.google.api.gax.rpc.AlreadyExistsException: java.lang.RuntimeException.");
   }
+
+  /** Records the failures of many concurrent batches, as during an outage. */
+  @Test
+  void testErrorSamplesAreFormattedLazily() {
+    BatcherStats batcherStats = new BatcherStats();
+    AtomicInteger toStringCalls = new AtomicInteger();
+    for (int i = 0; i < 60; i++) {
+      batcherStats.recordBatchFailure(
+          new RuntimeException("failure " + i) {
+            @Override
+            public String toString() {
+              toStringCalls.incrementAndGet();
+              return super.toString();
+            }
+          });
+    }
+    // Nothing is formatted while the failures are recorded
+    assertThat(toStringCalls.get()).isEqualTo(0);
+
+    // Only the last 50 errors are kept
+    BatchingException exception = batcherStats.asException();
+    assertThat(exception).hasMessageThat().contains("failure 10, ");
+    assertThat(exception).hasMessageThat().contains("failure 59.");
+    assertThat(exception).hasMessageThat().doesNotContain("failure 9,");
+  }
+
+  @Test
+  void testConcurrentEntryFailures() throws Exception {
+    BatcherStats batcherStats = new BatcherStats();
+    int threadCount = 8;
+    int batchesPerThread = 500;
+    int entriesPerBatch = 10;
+
+    SettableApiFuture<Integer> unavailable = SettableApiFuture.create();
+    unavailable.setException(
+        ApiExceptionFactory.createException(
+            "fake entry error",
+            new RuntimeException(),
+            FakeStatusCode.of(StatusCode.Code.UNAVAILABLE),
+            false));
+    SettableApiFuture<Integer> succeeded = SettableApiFuture.create();
+    succeeded.set(1);
+    List<BatchEntry<Integer, Integer>> batch = new ArrayList<>();
+    for (int i = 0; i < entriesPerBatch; i++) {
+      batch.add(BatchEntry.create(i, i % 2 == 0 ? unavailable : succeeded));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threadCount; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < batchesPerThread; i++) {
+                    batcherStats.recordBatchElementsCompletion(batch);
+                    batcherStats.recordBatchFailure(new IllegalStateException("batch failure"));
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    int batchCount = threadCount * batchesPerThread;
+    BatchingException ex = batcherStats.asException();
+    assertThat(ex)
+        .hasMessageThat()
+        .contains(
+            "Batching finished with 1 batches failed to apply due to: "
+                + batchCount
+                + " IllegalStateException and "
+                + batchCount
+                + " partial failures. The "
+                + batchCount
+                + " partial failures contained "
+                + batchCount * entriesPerBatch / 2
+                + " entries that failed with: "
+                + batchCount * entriesPerBatch / 2
+                + " ApiException("
+                + batchCount * entriesPerBatch / 2
+                + " UNAVAILABLE).");
+    // Only the last errors are retained as samples
+    assertThat(ex.getMessage().split("UnavailableException", -1)).hasLength(51);
+  }
 }
@@ -72,6 +72,31 @@ class FlowControllerTest {
     flowController.release(1, 1);
   }
 
+  @Test
+  void testTryReserve() throws Exception {
+    FlowController flowController =
+        new FlowController(
+            FlowControlSettings.newBuilder()
+                .setMaxOutstandingElementCount(2L)
+                .setMaxOutstandingRequestBytes(10L)
+                .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                .build());
+
+    assertTrue(flowController.tryReserve(2, 5));
+    assertFalse(flowController.tryReserve(1, 1));
+    flowController.release(1, 1);
+    // Failing on bytes doesn't keep the elements reserved
+    assertFalse(flowController.tryReserve(1, 7));
+    assertTrue(flowController.tryReserve(1, 5));
+    flowController.release(2, 9);
+
+    // Oversized requests are allowed once nothing else is outstanding
+    assertTrue(flowController.tryReserve(1, 20));
+    assertFalse(flowController.tryReserve(1, 1));
+    flowController.release(1, 20);
+    assertTrue(flowController.tryReserve(1, 1));
+  }
+
   @Test
   void testInvalidArguments() throws Exception {
     FlowController flowController =
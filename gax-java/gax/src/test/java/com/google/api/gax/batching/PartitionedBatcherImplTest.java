@@ -0,0 +1,295 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.batching;
+
+import static com.google.api.gax.batching.AssertByPolling.assertByPolling;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.batching.FlowController.FlowControlRuntimeException;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.testing.FakeBatchableApi.LabeledIntList;
+import com.google.api.gax.rpc.testing.FakeBatchableApi.LabeledIntSquarerCallable;
+import com.google.api.gax.rpc.testing.FakeBatchableApi.SquarerBatchingDescriptorV2;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class PartitionedBatcherImplTest {
+
+  private static final ScheduledExecutorService EXECUTOR =
+      Executors.newSingleThreadScheduledExecutor();
+
+  private static final PartitionedSquarerBatchingDescriptor DESCRIPTOR =
+      new PartitionedSquarerBatchingDescriptor();
+
+  private final Queue<LabeledIntList> requests = new ConcurrentLinkedQueue<>();
+  // When set, responses are held until the test completes them
+  private final Queue<SettableApiFuture<List<Integer>>> heldResponses =
+      new ConcurrentLinkedQueue<>();
+  private volatile boolean holdResponses;
+  private final LabeledIntSquarerCallable callable =
+      new LabeledIntSquarerCallable() {
+        @Override
+        public ApiFuture<List<Integer>> futureCall(LabeledIntList request, ApiCallContext context) {
+          requests.add(request);
+          if (request.label.equals("failing")) {
+            return ApiFutures.immediateFailedFuture(new IllegalStateException("fake error"));
+          }
+          if (holdResponses) {
+            SettableApiFuture<List<Integer>> response = SettableApiFuture.create();
+            heldResponses.add(response);
+            return response;
+          }
+          return super.futureCall(request, context);
+        }
+      };
+
+  private PartitionedBatcherImpl<Integer, Integer, LabeledIntList, List<Integer>> underTest;
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    holdResponses = false;
+    for (SettableApiFuture<List<Integer>> response : heldResponses) {
+      response.setException(new IllegalStateException("test finished"));
+    }
+    if (underTest != null) {
+      try {
+        underTest.close();
+      } catch (BatchingException ignored) {
+        // Some tests intentionally inject failures
+      }
+    }
+  }
+
+  @AfterAll
+  static void tearDownExecutor() throws InterruptedException {
+    EXECUTOR.shutdown();
+    EXECUTOR.awaitTermination(100, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  void testElementsAreBatchedPerPartition() throws Exception {
+    underTest = createBatcher(settings(3, null), null, null);
+
+    List<ApiFuture<Integer>> results = new ArrayList<>();
+    for (int i = 1; i <= 5; i++) {
+      results.add(underTest.add(i));
+    }
+    assertThat(underTest.getPartitionCount()).isEqualTo(2);
+    // Each partition flushes on its own threshold
+    assertThat(requests).isEmpty();
+    results.add(underTest.add(7));
+    assertThat(requests).containsExactly(new LabeledIntList("odd", 1, 3, 5));
+
+    underTest.flush();
+    assertThat(requests)
+        .containsExactly(
+            new LabeledIntList("odd", 1, 3, 5),
+            new LabeledIntList("odd", 7),
+            new LabeledIntList("even", 2, 4));
+    List<Integer> squares = new ArrayList<>();
+    for (ApiFuture<Integer> result : results) {
+      squares.add(result.get());
+    }
+    assertThat(squares).containsExactly(1, 4, 9, 16, 25, 49).inOrder();
+  }
+
+  @Test
+  void testPartitionsShareFlowController() {
+    FlowControlSettings flowControlSettings =
+        FlowControlSettings.newBuilder()
+            .setMaxOutstandingElementCount(2L)
+            .setLimitExceededBehavior(LimitExceededBehavior.ThrowException)
+            .build();
+    underTest = createBatcher(settings(2, flowControlSettings), null, null);
+
+    underTest.add(1);
+    underTest.add(2);
+    assertThrows(FlowControlRuntimeException.class, () -> underTest.add(4));
+    assertThat(underTest.getFlowController().getMaxElementCountLimit()).isEqualTo(2L);
+  }
+
+  @Test
+  @Timeout(10)
+  void testBlockedPartitionSendsOtherPartitions() throws Exception {
+    FlowControlSettings flowControlSettings =
+        FlowControlSettings.newBuilder()
+            .setMaxOutstandingElementCount(2L)
+            .setLimitExceededBehavior(LimitExceededBehavior.Block)
+            .build();
+    underTest = createBatcher(settings(2, flowControlSettings), null, null);
+
+    underTest.add(1);
+    underTest.add(3);
+    // The open batch of the odd partition holds all the permits, and must be sent for the even
+    // partition to make progress
+    ApiFuture<Integer> result = underTest.add(2);
+
+    assertThat(requests).containsExactly(new LabeledIntList("odd", 1, 3));
+    underTest.flush();
+    assertThat(result.get()).isEqualTo(4);
+  }
+
+  @Test
+  void testIdlePartitionsAreEvicted() throws Exception {
+    underTest = createBatcher(settings(100, null), null, Duration.ofMillis(50));
+
+    ApiFuture<Integer> result = underTest.add(3);
+    assertThat(underTest.getPartitionCount()).isEqualTo(1);
+
+    // The partition is flushed when it's evicted
+    assertByPolling(
+        Duration.ofSeconds(5), () -> assertThat(underTest.getPartitionCount()).isEqualTo(0));
+    assertThat(result.get()).isEqualTo(9);
+    assertThat(requests).containsExactly(new LabeledIntList("odd", 3));
+
+    // The partition is created again on demand
+    ApiFuture<Integer> anotherResult = underTest.add(5);
+    assertThat(underTest.getPartitionCount()).isEqualTo(1);
+    underTest.flush();
+    assertThat(anotherResult.get()).isEqualTo(25);
+  }
+
+  @Test
+  void testCloseReportsErrorsOfAllPartitions() throws Exception {
+    underTest = createBatcher(settings(100, null), null, Duration.ofMillis(50));
+
+    underTest.add(2);
+    ApiFuture<Integer> failed = underTest.add(-1);
+    // Let the failing partition get evicted before closing the batcher
+    assertByPolling(Duration.ofSeconds(5), () -> assertThat(failed.isDone()).isTrue());
+
+    BatchingException e = assertThrows(BatchingException.class, () -> underTest.close());
+    assertThat(e).hasMessageThat().contains("1 batches failed to apply");
+    assertThat(e).hasMessageThat().contains("IllegalStateException");
+    underTest = null;
+  }
+
+  @Test
+  void testAdaptivePartitionsAdjustFlowControllerOnce() {
+    FlowController flowController =
+        new FlowController(
+            DynamicFlowControlSettings.newBuilder()
+                .setInitialOutstandingElementCount(2000L)
+                .setMinOutstandingElementCount(100L)
+                .setMaxOutstandingElementCount(2000L)
+                .setLimitExceededBehavior(LimitExceededBehavior.ThrowException)
+                .build());
+    BatchingSettings batchingSettings =
+        settings(1, null).toBuilder()
+            .setAdaptiveBatchingSettings(
+                AdaptiveBatchingSettings.newBuilder()
+                    .setTargetLatency(Duration.ofSeconds(100))
+                    .build())
+            .build();
+    holdResponses = true;
+    underTest = createBatcher(batchingSettings, flowController, null);
+
+    // The second element of each partition sends the first one
+    for (int i = 1; i <= 4; i++) {
+      underTest.add(i);
+    }
+    underTest.add(-1);
+    underTest.add(-3);
+    assertThat(underTest.getPartitionCount()).isEqualTo(3);
+    assertThat(heldResponses).hasSize(2);
+
+    // The batches of every partition were in flight together, so they only cut the limit once
+    for (SettableApiFuture<List<Integer>> response : heldResponses) {
+      response.setException(new IllegalStateException("fake error"));
+    }
+    assertThat(flowController.getCurrentElementCountLimit()).isEqualTo(1000L);
+  }
+
+  private static BatchingSettings settings(
+      long elementCountThreshold, FlowControlSettings flowControlSettings) {
+    BatchingSettings.Builder builder =
+        BatchingSettings.newBuilder()
+            .setElementCountThreshold(elementCountThreshold)
+            .setRequestByteThreshold(1000L)
+            .setDelayThresholdDuration(Duration.ofSeconds(1000));
+    if (flowControlSettings != null) {
+      builder.setFlowControlSettings(flowControlSettings);
+    }
+    return builder.build();
+  }
+
+  private PartitionedBatcherImpl<Integer, Integer, LabeledIntList, List<Integer>> createBatcher(
+      BatchingSettings batchingSettings,
+      FlowController flowController,
+      Duration partitionIdleTimeout) {
+    return new PartitionedBatcherImpl<>(
+        DESCRIPTOR,
+        callable,
+        new LabeledIntList("Default"),
+        batchingSettings,
+        EXECUTOR,
+        flowController,
+        null,
+        partitionIdleTimeout);
+  }
+
+  /** Partitions the odd and the even numbers, and sends the negative numbers to a failing one. */
+  private static class PartitionedSquarerBatchingDescriptor extends SquarerBatchingDescriptorV2
+      implements PartitionedBatchingDescriptor<Integer, Integer, LabeledIntList, List<Integer>> {
+
+    @Override
+    public PartitionKey getPartitionKey(Integer element) {
+      if (element < 0) {
+        return new PartitionKey("failing");
+      }
+      return new PartitionKey(element % 2 == 0 ? "even" : "odd");
+    }
+
+    @Override
+    public LabeledIntList getPartitionPrototype(
+        LabeledIntList prototype, PartitionKey partitionKey) {
+      String label =
+          partitionKey.equals(new PartitionKey("failing"))
+              ? "failing"
+              : partitionKey.equals(new PartitionKey("even")) ? "even" : "odd";
+      return new LabeledIntList(label);
+    }
+  }
+}
@@ -35,9 +35,12 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
@@ -75,6 +78,111 @@ class Semaphore64Test {
     t.join();
   }
 
+  @Test
+  @Timeout(value = 5, unit = TimeUnit.SECONDS)
+  void testBlockingWaitersAreGrantedInOrder() throws InterruptedException {
+    final Semaphore64 semaphore = new BlockingSemaphore(2);
+    semaphore.acquire(2);
+
+    Thread first = new Thread(() -> semaphore.acquire(2));
+    first.start();
+    awaitWaiting(first);
+    Thread second = new Thread(() -> semaphore.acquire(1));
+    second.start();
+    awaitWaiting(second);
+
+    // A single permit is not enough for the first waiter, and the second one can't overtake it
+    semaphore.release(1);
+    Thread.sleep(50);
+    assertTrue(first.isAlive());
+    assertTrue(second.isAlive());
+    assertFalse(semaphore.tryAcquire(1));
+
+    semaphore.release(1);
+    first.join();
+    Thread.sleep(50);
+    assertTrue(second.isAlive());
+
+    semaphore.release(2);
+    second.join();
+  }
+
+  @Test
+  @Timeout(value = 30, unit = TimeUnit.SECONDS)
+  void testBlockingConcurrentAcquireRelease() throws Exception {
+    final long limit = 16;
+    final Semaphore64 semaphore = new BlockingSemaphore(limit);
+    final AtomicLong inUse = new AtomicLong();
+    final AtomicBoolean limitExceeded = new AtomicBoolean();
+    int threadCount = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      final long permits = 1 + i % 4;
+      threads.add(
+          new Thread(
+              () -> {
+                for (int j = 0; j < 5_000; j++) {
+                  semaphore.acquire(permits);
+                  if (inUse.addAndGet(permits) > limit) {
+                    limitExceeded.set(true);
+                  }
+                  inUse.addAndGet(-permits);
+                  semaphore.release(permits);
+                }
+              }));
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertFalse(limitExceeded.get());
+    assertTrue(semaphore.tryAcquire(limit));
+  }
+
+  @Test
+  @Timeout(value = 30, unit = TimeUnit.SECONDS)
+  void testBlockingConcurrentLimitChangesAndRelease() throws Exception {
+    final long limit = 16;
+    final Semaphore64 semaphore = new BlockingSemaphore(limit);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      threads.add(
+          new Thread(
+              () -> {
+                for (int j = 0; j < 20_000; j++) {
+                  semaphore.acquire(1);
+                  semaphore.release(1);
+                }
+              }));
+    }
+    // Changes the limit while the permits are being released
+    threads.add(
+        new Thread(
+            () -> {
+              for (int j = 0; j < 20_000; j++) {
+                semaphore.reducePermitLimit(limit / 2);
+                semaphore.increasePermitLimit(limit / 2);
+              }
+            }));
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    // No permits were lost
+    assertEquals(limit, semaphore.getPermitLimit());
+    assertTrue(semaphore.tryAcquire(limit));
+  }
+
+  private static void awaitWaiting(Thread thread) throws InterruptedException {
+    while (thread.getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+  }
+
   @Test
   void testReducePermitLimitNonBlocking() {
     final Semaphore64 semaphore = new NonBlockingSemaphore(5);
@@ -139,6 +247,25 @@ class Semaphore64Test {
     assertEquals(5, semaphore.getPermitLimit());
   }
 
+  @Test
+  @Timeout(value = 500, unit = TimeUnit.MILLISECONDS)
+  void testTryAcquire() {
+    for (Semaphore64 semaphore :
+        new Semaphore64[] {new BlockingSemaphore(5), new NonBlockingSemaphore(5)}) {
+      assertTrue(semaphore.tryAcquire(3));
+      assertFalse(semaphore.tryAcquire(3));
+      assertFalse(semaphore.tryAcquirePartial(6));
+      semaphore.release(3);
+
+      // Oversized requests are only granted when no permits are outstanding
+      assertTrue(semaphore.tryAcquirePartial(6));
+      assertFalse(semaphore.tryAcquire(1));
+      semaphore.release(6);
+      assertTrue(semaphore.tryAcquire(5));
+      assertEquals(5, semaphore.getPermitLimit());
+    }
+  }
+
   @Test
   void testIncreasePermitLimitNonBlocking() {
     Semaphore64 semaphore = new NonBlockingSemaphore(1);
@@ -52,6 +52,17 @@ public class TrackedFlowController extends FlowController {
     this.callsToReserve += 1;
   }
 
+  @Override
+  public boolean tryReserve(long elements, long bytes) {
+    boolean reserved = super.tryReserve(elements, bytes);
+    if (reserved) {
+      this.elementsReserved += elements;
+      this.bytesReserved += bytes;
+      this.callsToReserve += 1;
+    }
+    return reserved;
+  }
+
   @Override
   public void release(long elements, long bytes) {
     super.release(elements, bytes);
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.retrying;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class RetryBudgetTest {
+
+  @Test
+  void testStartsFullAndRejectsWhenEmpty() {
+    RetryBudget budget =
+        RetryBudget.create(RetryBudgetSettings.newBuilder().setMaxTokens(3).build());
+
+    assertThat(budget.getAvailableTokens()).isEqualTo(3.0);
+    assertThat(budget.tryAcquireRetry()).isTrue();
+    assertThat(budget.tryAcquireRetry()).isTrue();
+    assertThat(budget.tryAcquireRetry()).isTrue();
+    assertThat(budget.tryAcquireRetry()).isFalse();
+    assertThat(budget.getAvailableTokens()).isEqualTo(0.0);
+  }
+
+  @Test
+  void testSuccessesRefillAtRetryRatio() {
+    RetryBudget budget =
+        RetryBudget.create(
+            RetryBudgetSettings.newBuilder().setMaxTokens(1).setRetryRatio(0.25).build());
+    assertThat(budget.tryAcquireRetry()).isTrue();
+
+    for (int i = 0; i < 3; i++) {
+      budget.recordSuccess();
+      assertThat(budget.tryAcquireRetry()).isFalse();
+    }
+    budget.recordSuccess();
+    assertThat(budget.tryAcquireRetry()).isTrue();
+  }
+
+  @Test
+  void testRefillIsCappedAtMaxTokens() {
+    RetryBudget budget =
+        RetryBudget.create(
+            RetryBudgetSettings.newBuilder().setMaxTokens(2).setRetryRatio(0.6).build());
+    assertThat(budget.tryAcquireRetry()).isTrue();
+
+    budget.recordSuccess();
+    budget.recordSuccess();
+    budget.recordSuccess();
+
+    assertThat(budget.getAvailableTokens()).isEqualTo(2.0);
+  }
+
+  @Test
+  void testSettingsValidation() {
+    assertThrows(
+        IllegalStateException.class,
+        () -> RetryBudgetSettings.newBuilder().setMaxTokens(0).build());
+    assertThrows(
+        IllegalStateException.class,
+        () -> RetryBudgetSettings.newBuilder().setRetryRatio(0).build());
+  }
+}
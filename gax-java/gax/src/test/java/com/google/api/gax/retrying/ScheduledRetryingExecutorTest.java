@@ -317,4 +317,46 @@ class ScheduledRetryingExecutorTest extends AbstractRetryingExecutorTest {
       localExecutor.shutdownNow();
     }
   }
+
+  @Test
+  void testRetryBudgetIsSharedAcrossFutures() throws Exception {
+    RetryBudget retryBudget =
+        RetryBudget.create(
+            RetryBudgetSettings.newBuilder().setMaxTokens(2).setRetryRatio(0.5).build());
+    RetryAlgorithm<String> retryAlgorithm =
+        new RetryAlgorithm<>(
+            new TestResultRetryAlgorithm<String>(0, null),
+            new ExponentialRetryAlgorithm(FAST_RETRY_SETTINGS, NanoClock.getDefaultClock()),
+            retryBudget);
+    RetryingExecutorWithContext<String> executor =
+        getRetryingExecutor(retryAlgorithm, scheduledExecutorService);
+
+    // Two retries are allowed by the budget, the third one is rejected.
+    FailingCallable failingCallable = new FailingCallable(5, "request", "SUCCESS", tracer);
+    RetryingFuture<String> failingFuture =
+        executor.createFuture(failingCallable, FakeCallContext.createDefault().withTracer(tracer));
+    failingCallable.setExternalFuture(failingFuture);
+    failingFuture.setAttemptFuture(executor.submit(failingFuture));
+
+    assertFutureFail(failingFuture, CustomException.class);
+    assertEquals(2, failingFuture.getAttemptSettings().getAttemptCount());
+    Mockito.verify(tracer).retryBudgetExhausted();
+    Mockito.verify(tracer).attemptFailedRetriesExhausted(Mockito.any(Throwable.class));
+    assertEquals(0, retryBudget.getAvailableTokens(), 0);
+
+    // A successful operation earns back part of a retry for every other operation.
+    FailingCallable succeedingCallable = new FailingCallable(0, "request", "SUCCESS", tracer);
+    RetryingFuture<String> succeedingFuture =
+        executor.createFuture(
+            succeedingCallable, FakeCallContext.createDefault().withTracer(tracer));
+    succeedingCallable.setExternalFuture(succeedingFuture);
+    succeedingFuture.setAttemptFuture(executor.submit(succeedingFuture));
+
+    assertFutureSuccess(succeedingFuture);
+    // Listeners may still be running on the attempt thread right after the future completes.
+    for (int i = 0; i < 100 && retryBudget.getAvailableTokens() == 0; i++) {
+      Thread.sleep(10L);
+    }
+    assertEquals(0.5, retryBudget.getAvailableTokens(), 0);
+  }
 }
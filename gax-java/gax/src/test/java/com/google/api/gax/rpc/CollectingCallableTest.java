@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.rpc;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.rpc.testing.MockStreamingApi.MockServerStreamingCall;
+import com.google.api.gax.rpc.testing.MockStreamingApi.MockServerStreamingCallable;
+import com.google.common.truth.Truth;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CollectingCallableTest {
+  private MockServerStreamingCallable<String, String> upstream;
+
+  @BeforeEach
+  void setup() {
+    upstream = new MockServerStreamingCallable<>();
+  }
+
+  @Test
+  void testHappyPath() throws InterruptedException, ExecutionException {
+    ApiFuture<String> result = upstream.collect(Collectors.joining(","), 2).futureCall("request");
+    MockServerStreamingCall<String, String> call = upstream.popLastCall();
+
+    call.getController().getObserver().onResponse("response1");
+    call.getController().getObserver().onResponse("response2");
+    call.getController().getObserver().onComplete();
+
+    Truth.assertThat(result.get()).isEqualTo("response1,response2");
+    Truth.assertThat(call.getController().isCancelled()).isFalse();
+  }
+
+  @Test
+  void testElementLimitExceeded() throws Exception {
+    ApiFuture<List<String>> result =
+        upstream.collect(Collectors.<String>toList(), 2).futureCall("request");
+    MockServerStreamingCall<String, String> call = upstream.popLastCall();
+
+    call.getController().getObserver().onResponse("response1");
+    call.getController().getObserver().onResponse("response2");
+    Truth.assertThat(result.isDone()).isFalse();
+
+    call.getController().getObserver().onResponse("response3");
+
+    // The stream is cancelled as soon as the limit is exceeded
+    Truth.assertThat(call.getController().isCancelled()).isTrue();
+    call.getController().getObserver().onResponse("response4");
+    call.getController()
+        .getObserver()
+        .onError(new RuntimeException("Some other upstream cancellation indicator"));
+
+    ExecutionException e = Assertions.assertThrows(ExecutionException.class, result::get);
+    Truth.assertThat(e).hasCauseThat().isInstanceOf(IllegalStateException.class);
+    Truth.assertThat(e).hasCauseThat().hasMessageThat().contains("limit of 2");
+  }
+
+  @Test
+  void testSizeLimitExceeded() throws Exception {
+    ApiFuture<List<String>> result =
+        upstream.collect(Collectors.<String>toList(), String::length, 10).futureCall("request");
+    MockServerStreamingCall<String, String> call = upstream.popLastCall();
+
+    call.getController().getObserver().onResponse("12345");
+    call.getController().getObserver().onResponse("12345");
+    Truth.assertThat(call.getController().isCancelled()).isFalse();
+
+    call.getController().getObserver().onResponse("1");
+
+    Truth.assertThat(call.getController().isCancelled()).isTrue();
+    ExecutionException e = Assertions.assertThrows(ExecutionException.class, result::get);
+    Truth.assertThat(e).hasCauseThat().isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void testUpstreamError() {
+    ApiFuture<List<String>> result =
+        upstream.collect(Collectors.<String>toList(), 10).futureCall("request");
+    MockServerStreamingCall<String, String> call = upstream.popLastCall();
+
+    RuntimeException error = new RuntimeException("upstream failure");
+    call.getController().getObserver().onResponse("response1");
+    call.getController().getObserver().onError(error);
+
+    ExecutionException e = Assertions.assertThrows(ExecutionException.class, result::get);
+    Truth.assertThat(e).hasCauseThat().isSameInstanceAs(error);
+  }
+
+  @Test
+  void testEarlyTermination() {
+    ApiFuture<List<String>> result =
+        upstream.collect(Collectors.<String>toList(), 10).futureCall("request");
+    MockServerStreamingCall<String, String> call = upstream.popLastCall();
+
+    call.getController().getObserver().onResponse("response1");
+    result.cancel(true);
+
+    Truth.assertThat(call.getController().isCancelled()).isTrue();
+    Assertions.assertThrows(CancellationException.class, result::get);
+  }
+
+  @Test
+  void testNoResults() throws Exception {
+    ApiFuture<List<String>> result =
+        upstream.collect(Collectors.<String>toList(), 0).futureCall("request");
+    MockServerStreamingCall<String, String> call = upstream.popLastCall();
+
+    call.getController().getObserver().onComplete();
+
+    Truth.assertThat(result.get()).isEmpty();
+  }
+
+  @Test
+  void testNegativeLimit() {
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> upstream.collect(Collectors.toList(), -1));
+  }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following disclaimer
+ * in the documentation and/or other materials provided with the
+ * distribution.
+ *     * Neither the name of Google LLC nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.google.api.gax.rpc;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.NanoClock;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.retrying.HedgingSettings;
+import com.google.api.gax.retrying.RetrySettings;
+import com.google.api.gax.rpc.testing.FakeCallContext;
+import com.google.api.gax.rpc.testing.FakeChannel;
+import com.google.api.gax.rpc.testing.FakeStatusCode;
+import com.google.api.gax.rpc.testing.FakeTransportChannel;
+import com.google.api.gax.tracing.ApiTracer;
+import com.google.api.gax.tracing.ApiTracerFactory;
+import com.google.api.gax.tracing.ApiTracerFactory.OperationType;
+import com.google.api.gax.tracing.MethodName;
+import com.google.api.gax.tracing.MetricsRecorder;
+import com.google.api.gax.tracing.MetricsTracer;
+import com.google.api.gax.tracing.SpanName;
+import com.google.api.gax.tracing.TracedUnaryCallable;
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class HedgingCallableTest {
+  private static final long SLOW_MILLIS = 10_000;
+  private static final SpanName SPAN_NAME = SpanName.of("FakeService", "Echo");
+
+  private ScheduledExecutorService executor;
+  private ClientContext clientContext;
+  private ApiTracer tracer;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newScheduledThreadPool(4);
+    clientContext =
+        ClientContext.newBuilder()
+            .setExecutor(executor)
+            .setDefaultCallContext(FakeCallContext.createDefault())
+            .setTransportChannel(FakeTransportChannel.create(new FakeChannel()))
+            .build();
+    tracer = Mockito.mock(ApiTracer.class);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void slowAttemptIsHedged() throws Exception {
+    FakeServer server = new FakeServer(callIndex -> callIndex == 0 ? SLOW_MILLIS : 0);
+    UnaryCallable<Integer, Integer> callable =
+        createCallable(server, hedgingSettings(java.time.Duration.ofMillis(20)));
+
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    assertThat(call(callable, 7)).isEqualTo(7);
+
+    assertThat(stopwatch.elapsed(TimeUnit.MILLISECONDS)).isLessThan(SLOW_MILLIS / 2);
+    assertThat(server.calls).hasSize(2);
+    // The losing attempt is cancelled by a listener that may run after the caller was released.
+    assertThrows(CancellationException.class, () -> server.calls.get(0).get(5, TimeUnit.SECONDS));
+    Mockito.verify(tracer).hedgedAttemptStarted(1);
+    Mockito.verify(tracer).hedgedAttemptSucceeded(1);
+  }
+
+  @Test
+  void hedgedAttemptsAreReportedOneAtATime() throws Exception {
+    RecordingMetricsRecorder recorder = new RecordingMetricsRecorder();
+    tracer = Mockito.spy(new MetricsTracer(MethodName.of("FakeService", "Echo"), recorder));
+    FakeServer server = new FakeServer(callIndex -> callIndex == 0 ? SLOW_MILLIS : 0);
+    UnaryCallable<Integer, Integer> callable =
+        createCallable(server, hedgingSettings(java.time.Duration.ofMillis(20)));
+
+    Integer response = tracedCall(callable, 7);
+    assertThat(response).isEqualTo(7);
+    assertThrows(CancellationException.class, () -> server.calls.get(0).get(5, TimeUnit.SECONDS));
+
+    // The first attempt was being reported when the hedged attempt won, so it is reported as
+    // cancelled before the operation completes. The hedged attempt overlapped it and is not
+    // reported at all.
+    assertThat(recorder.attemptStatuses).containsExactly("CANCELLED");
+    assertThat(recorder.operationStatuses).containsExactly("OK");
+    Mockito.verify(tracer).attemptStarted(7, 0);
+    Mockito.verify(tracer, Mockito.never()).attemptStarted(Mockito.any(), Mockito.eq(1));
+    Mockito.verify(tracer).hedgedAttemptSucceeded(1);
+  }
+
+  @Test
+  void hedgedAttemptIsNumberedAfterReportedAttempts() throws Exception {
+    RecordingMetricsRecorder recorder = new RecordingMetricsRecorder();
+    tracer = Mockito.spy(new MetricsTracer(MethodName.of("FakeService", "Echo"), recorder));
+    // The first attempt fails right away and backs off, the hedged attempt starts meanwhile.
+    FakeServer server = new FakeServer(callIndex -> 0);
+    server.failingCalls = 1;
+    UnaryCallSettings<Integer, Integer> callSettings =
+        UnaryCallSettings.<Integer, Integer>newUnaryCallSettingsBuilder()
+            .setRetryableCodes(StatusCode.Code.UNAVAILABLE)
+            .setRetrySettings(
+                RetrySettings.newBuilder()
+                    .setMaxAttempts(3)
+                    .setInitialRetryDelayDuration(java.time.Duration.ofMillis(500))
+                    .setMaxRetryDelayDuration(java.time.Duration.ofMillis(500))
+                    .setInitialRpcTimeoutDuration(java.time.Duration.ofSeconds(5))
+                    .setMaxRpcTimeoutDuration(java.time.Duration.ofSeconds(5))
+                    .setTotalTimeoutDuration(java.time.Duration.ofSeconds(5))
+                    .build())
+            .setHedgingSettings(hedgingSettings(java.time.Duration.ofMillis(20)))
+            .build();
+    UnaryCallable<Integer, Integer> callable =
+        Callables.retrying(server, callSettings, clientContext);
+
+    Integer response = tracedCall(callable, 7);
+
+    assertThat(response).isEqualTo(7);
+    assertThat(recorder.attemptStatuses).containsExactly("UNAVAILABLE", "OK").inOrder();
+    assertThat(recorder.operationStatuses).containsExactly("OK");
+    Mockito.verify(tracer).attemptStarted(7, 0);
+    Mockito.verify(tracer).attemptStarted(7, 1);
+  }
+
+  @Test
+  void fastAttemptIsNotHedged() throws Exception {
+    FakeServer server = new FakeServer(callIndex -> 0);
+    UnaryCallable<Integer, Integer> callable =
+        createCallable(server, hedgingSettings(java.time.Duration.ofMillis(20)));
+
+    assertThat(call(callable, 7)).isEqualTo(7);
+    Thread.sleep(100);
+
+    assertThat(server.calls).hasSize(1);
+    Mockito.verify(tracer, Mockito.never()).hedgedAttemptStarted(Mockito.anyInt());
+  }
+
+  @Test
+  void failsOnlyAfterAllAttemptsFail() {
+    FakeServer server = new FakeServer(callIndex -> callIndex == 0 ? 200 : 400);
+    server.failing = true;
+    UnaryCallable<Integer, Integer> callable =
+        createCallable(server, hedgingSettings(java.time.Duration.ofMillis(20)));
+
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    ExecutionException e = assertThrows(ExecutionException.class, () -> call(callable, 7));
+
+    assertThat(e).hasCauseThat().isInstanceOf(UnavailableException.class);
+    assertThat(server.calls).hasSize(2);
+    // The hedged attempt started after ~20ms and failed after another 400ms.
+    assertThat(stopwatch.elapsed(TimeUnit.MILLISECONDS)).isAtLeast(400);
+  }
+
+  @Test
+  void longTailLatencyIsHedgedAtLearnedPercentile() throws Exception {
+    // One call in twenty hits the long tail, the others answer right away.
+    FakeServer server = new FakeServer(callIndex -> callIndex % 20 == 19 ? SLOW_MILLIS : 1);
+    HedgingSettings settings =
+        HedgingSettings.newBuilder()
+            .setDelayPercentile(90)
+            .setInitialDelayDuration(java.time.Duration.ofMillis(500))
+            .build();
+    UnaryCallable<Integer, Integer> callable = createCallable(server, settings);
+
+    long maxLatencyAfterWarmup = 0;
+    for (int i = 0; i < 100; i++) {
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      assertThat(call(callable, i)).isEqualTo(i);
+      if (i >= HedgingCallable.MIN_LATENCY_SAMPLES * 2) {
+        maxLatencyAfterWarmup =
+            Math.max(maxLatencyAfterWarmup, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+      }
+    }
+
+    // Once the percentile has been learned, tail calls are hedged well before the initial delay.
+    assertThat(maxLatencyAfterWarmup).isLessThan(500);
+    long slowCalls = server.calls.stream().filter(ApiFuture::isCancelled).count();
+    assertThat(slowCalls).isAtLeast(4);
+  }
+
+  @Test
+  void hedgingDelayIsStableWithLongTail() throws Exception {
+    // Nine calls in ten answer within a few ms, the others take 20 to 100 ms.
+    FakeServer server =
+        new FakeServer(
+            callIndex -> callIndex % 10 == 9 ? 20 + (callIndex / 10 % 9) * 10 : 1 + callIndex % 4);
+    HedgingSettings settings =
+        HedgingSettings.newBuilder()
+            .setDelayPercentile(95)
+            .setInitialDelayDuration(java.time.Duration.ofMillis(200))
+            .build();
+    HedgingCallable<Integer, Integer> callable =
+        new HedgingCallable<>(
+            FakeCallContext.createDefault(),
+            server,
+            settings,
+            executor,
+            NanoClock.getDefaultClock(),
+            null);
+
+    int concurrentCalls = 25;
+    List<Long> delays = new ArrayList<>();
+    for (int window = 0; window < 5; window++) {
+      for (int i = 0; i < HedgingCallable.LATENCY_WINDOW_SIZE; i += concurrentCalls) {
+        List<ApiFuture<Integer>> responses = new ArrayList<>();
+        for (int j = 0; j < concurrentCalls; j++) {
+          responses.add(
+              callable.futureCall(i + j, FakeCallContext.createDefault().withTracer(tracer)));
+        }
+        for (int j = 0; j < concurrentCalls; j++) {
+          assertThat(responses.get(j).get(SLOW_MILLIS / 2, TimeUnit.MILLISECONDS))
+              .isEqualTo(i + j);
+        }
+      }
+      delays.add(callable.getHedgingDelayNanos());
+    }
+
+    // A hedged call still counts as slow, so the delay stays in the tail instead of dropping to
+    // the latency of the fast calls, where almost every call would be hedged.
+    for (long delay : delays) {
+      assertThat(delay).isAtLeast(TimeUnit.MILLISECONDS.toNanos(20));
+    }
+  }
+
+  @Test
+  void latencyWindowPercentile() {
+    HedgingCallable.LatencyWindow window = new HedgingCallable.LatencyWindow(10);
+    assertThat(window.percentile(50, 1)).isEqualTo(-1);
+
+    for (long i = 1; i <= 15; i++) {
+      window.record(i);
+    }
+    // Only the last 10 latencies, 6 to 15, are kept.
+    assertThat(window.percentile(50, 10)).isEqualTo(10);
+    assertThat(window.percentile(90, 10)).isEqualTo(14);
+    assertThat(window.percentile(100, 10)).isEqualTo(15);
+    assertThat(window.percentile(50, 11)).isEqualTo(-1);
+  }
+
+  private static HedgingSettings hedgingSettings(java.time.Duration initialDelay) {
+    return HedgingSettings.newBuilder().setInitialDelayDuration(initialDelay).build();
+  }
+
+  private UnaryCallable<Integer, Integer> createCallable(
+      FakeServer server, HedgingSettings hedgingSettings) {
+    UnaryCallSettings<Integer, Integer> callSettings =
+        UnaryCallSettings.<Integer, Integer>newUnaryCallSettingsBuilder()
+            .setSimpleTimeoutNoRetriesDuration(java.time.Duration.ofSeconds(30))
+            .setHedgingSettings(hedgingSettings)
+            .build();
+    return Callables.retrying(server, callSettings, clientContext);
+  }
+
+  private Integer call(UnaryCallable<Integer, Integer> callable, int request) throws Exception {
+    return callable
+        .futureCall(request, FakeCallContext.createDefault().withTracer(tracer))
+        .get(SLOW_MILLIS / 2, TimeUnit.MILLISECONDS);
+  }
+
+  /** Records the status of every reported attempt and operation. */
+  /** Waits for the traced call, and for the tracer to be told about its outcome. */
+  private Integer tracedCall(UnaryCallable<Integer, Integer> callable, Integer request)
+      throws Exception {
+    ApiFuture<Integer> future =
+        new TracedUnaryCallable<>(callable, new FixedTracerFactory(tracer), SPAN_NAME)
+            .futureCall(request, FakeCallContext.createDefault());
+    // Listeners run in order, so this one runs after the tracer was notified
+    return ApiFutures.transform(future, response -> response, MoreExecutors.directExecutor())
+        .get(SLOW_MILLIS / 2, TimeUnit.MILLISECONDS);
+  }
+
+  private static class RecordingMetricsRecorder implements MetricsRecorder {
+    private final List<String> attemptStatuses = new CopyOnWriteArrayList<>();
+    private final List<String> operationStatuses = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void recordAttemptCount(long count, Map<String, String> attributes) {
+      attemptStatuses.add(attributes.get(MetricsTracer.STATUS_ATTRIBUTE));
+    }
+
+    @Override
+    public void recordOperationCount(long count, Map<String, String> attributes) {
+      operationStatuses.add(attributes.get(MetricsTracer.STATUS_ATTRIBUTE));
+    }
+  }
+
+  private static class FixedTracerFactory implements ApiTracerFactory {
+    private final ApiTracer tracer;
+
+    FixedTracerFactory(ApiTracer tracer) {
+      this.tracer = tracer;
+    }
+
+    @Override
+    public ApiTracer newTracer(ApiTracer parent, SpanName spanName, OperationType operationType) {
+      return tracer;
+    }
+  }
+
+  /** Echoes the request back after a delay that depends on the index of the call. */
+  private class FakeServer extends UnaryCallable<Integer, Integer> {
+    private final IntToLongFunction latencyMillis;
+    private final List<SettableApiFuture<Integer>> calls = new CopyOnWriteArrayList<>();
+    private volatile boolean failing;
+    private volatile int failingCalls;
+
+    FakeServer(IntToLongFunction latencyMillis) {
+      this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public ApiFuture<Integer> futureCall(Integer request, ApiCallContext context) {
+      SettableApiFuture<Integer> response = SettableApiFuture.create();
+      long delay;
+      int callIndex;
+      synchronized (calls) {
+        callIndex = calls.size();
+        delay = latencyMillis.applyAsLong(callIndex);
+        calls.add(response);
+      }
+      executor.schedule(
+          () -> {
+            if (failing) {
+              response.setException(
+                  new UnavailableException(
+                      null, FakeStatusCode.of(StatusCode.Code.UNAVAILABLE), false));
+            } else if (callIndex < failingCalls) {
+              // A transient failure, which the retrying callable retries.
+              response.setException(
+                  new UnavailableException(
+                      null, FakeStatusCode.of(StatusCode.Code.UNAVAILABLE), true));
+            } else {
+              response.set(request);
+            }
+          },
+          delay,
+          TimeUnit.MILLISECONDS);
+      return response;
+    }
+  }
+}
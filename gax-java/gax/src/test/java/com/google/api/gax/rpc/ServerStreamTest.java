@@ -243,4 +243,77 @@ class ServerStreamTest {
     }
     Truth.assertThat(actualError).isEqualTo(expectError);
   }
+
+  @Test
+  void testPrefetchRequestsInBatches() {
+    ServerStream<Integer> prefetchingStream = new ServerStream<>(8);
+    MockStreamController<Integer> prefetchingController =
+        new MockStreamController<>(prefetchingStream.observer());
+    prefetchingStream.observer().onStart(prefetchingController);
+
+    Truth.assertThat(prefetchingController.popLastPull()).isEqualTo(8);
+
+    // The whole window can be buffered before the consumer reads anything.
+    for (int i = 0; i < 8; i++) {
+      prefetchingStream.observer().onResponse(i);
+    }
+
+    Iterator<Integer> it = prefetchingStream.iterator();
+    for (int i = 0; i < 3; i++) {
+      Truth.assertThat(it.next()).isEqualTo(i);
+    }
+    Truth.assertThat(prefetchingController.popLastPull()).isEqualTo(0);
+
+    Truth.assertThat(it.next()).isEqualTo(3);
+    Truth.assertThat(prefetchingController.popLastPull()).isEqualTo(4);
+
+    for (int i = 4; i < 8; i++) {
+      Truth.assertThat(it.next()).isEqualTo(i);
+    }
+    Truth.assertThat(prefetchingController.popLastPull()).isEqualTo(4);
+
+    for (int i = 8; i < 12; i++) {
+      prefetchingStream.observer().onResponse(i);
+    }
+    prefetchingStream.observer().onComplete();
+
+    List<Integer> rest = Lists.newArrayList(it);
+    Truth.assertThat(rest).containsExactly(8, 9, 10, 11).inOrder();
+  }
+
+  @Test
+  void testCollectWithinLimit() throws Exception {
+    Future<Void> producerFuture =
+        executor.submit(
+            () -> {
+              for (int i = 0; i < 5; i++) {
+                controller.popLastPull();
+                stream.observer().onResponse(i);
+              }
+              stream.observer().onComplete();
+              return null;
+            });
+
+    Future<Integer> consumerFuture =
+        executor.submit(() -> stream.collect(Collectors.summingInt(Integer::intValue), 5));
+
+    producerFuture.get(60, TimeUnit.SECONDS);
+    Truth.assertThat(consumerFuture.get()).isEqualTo(10);
+    Truth.assertThat(controller.isCancelled()).isFalse();
+  }
+
+  @Test
+  void testCollectExceedingLimitCancels() {
+    stream.observer().onResponse(0);
+
+    Throwable actualError = null;
+    try {
+      stream.collect(Collectors.toList(), 0);
+    } catch (Throwable t) {
+      actualError = t;
+    }
+
+    Truth.assertThat(actualError).isInstanceOf(IllegalStateException.class);
+    Truth.assertThat(controller.isCancelled()).isTrue();
+  }
 }
@@ -31,6 +31,7 @@ package com.google.api.gax.rpc;
 
 import static com.google.api.gax.util.TimeConversionTestUtils.testDurationMethod;
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.google.api.gax.retrying.RetrySettings;
 import com.google.api.gax.rpc.StatusCode.Code;
@@ -95,6 +96,27 @@ class ServerStreamingCallSettingsTest {
     assertThat(builder.build().toBuilder().getIdleTimeoutDuration()).isEqualTo(idleTimeout);
   }
 
+  @Test
+  void prefetchSizeIsNotLost() {
+    ServerStreamingCallSettings.Builder<Object, Object> builder =
+        ServerStreamingCallSettings.newBuilder();
+    assertThat(builder.getPrefetchSize()).isEqualTo(1);
+
+    builder.setPrefetchSize(64);
+
+    assertThat(builder.getPrefetchSize()).isEqualTo(64);
+    assertThat(builder.build().getPrefetchSize()).isEqualTo(64);
+    assertThat(builder.build().toBuilder().getPrefetchSize()).isEqualTo(64);
+  }
+
+  @Test
+  void prefetchSizeMustBePositive() {
+    ServerStreamingCallSettings.Builder<Object, Object> builder =
+        ServerStreamingCallSettings.newBuilder();
+
+    assertThrows(IllegalArgumentException.class, () -> builder.setPrefetchSize(0));
+  }
+
   @Test
   void waitTimeoutIsNotLost() {
     java.time.Duration waitTimeout = java.time.Duration.ofSeconds(5);
@@ -35,6 +35,8 @@ import com.google.api.gax.rpc.testing.FakeChannel;
 import com.google.api.gax.rpc.testing.FakeSimpleApi.StashCallable;
 import com.google.api.gax.rpc.testing.FakeStreamingApi.ServerStreamingStashCallable;
 import com.google.api.gax.rpc.testing.FakeTransportChannel;
+import com.google.api.gax.rpc.testing.MockStreamingApi.MockServerStreamingCall;
+import com.google.api.gax.rpc.testing.MockStreamingApi.MockServerStreamingCallable;
 import com.google.auth.Credentials;
 import com.google.common.collect.ImmutableList;
 import com.google.common.truth.Truth;
@@ -158,6 +160,36 @@ class ServerStreamingCallableTest {
     Truth.assertThat(actualContext.getCredentials()).isSameInstanceAs(credentials);
   }
 
+  @Test
+  void testPrefetchingSurvivesDefaultCallContext() {
+    MockServerStreamingCallable<Integer, Integer> mockCallable =
+        new MockServerStreamingCallable<>();
+    ServerStreamingCallable<Integer, Integer> callable =
+        Callables.prefetching(
+                mockCallable,
+                ServerStreamingCallSettings.<Integer, Integer>newBuilder()
+                    .setPrefetchSize(16)
+                    .build())
+            .withDefaultCallContext(FakeCallContext.createDefault());
+
+    callable.call(1);
+
+    MockServerStreamingCall<Integer, Integer> call = mockCallable.popLastCall();
+    Truth.assertThat(call.getRequest()).isEqualTo(1);
+    Truth.assertThat(call.getController().popLastPull()).isEqualTo(16);
+  }
+
+  @Test
+  void testPrefetchingDisabledByDefault() {
+    ServerStreamingStashCallable<Integer, Integer> stashCallable =
+        new ServerStreamingStashCallable<>();
+
+    Truth.assertThat(
+            Callables.prefetching(
+                stashCallable, ServerStreamingCallSettings.<Integer, Integer>newBuilder().build()))
+        .isSameInstanceAs(stashCallable);
+  }
+
   @Test
   void testFirstElementCall() {
     ServerStreamingStashCallable<Integer, Integer> callIntList =
@@ -294,6 +294,69 @@ class WatchdogTest {
     assertThat(actual).isTrue();
   }
 
+  @Test
+  void testRunOnlyVisitsDueStreams() {
+    for (int streamCount : new int[] {100, 1_000, 10_000}) {
+      Watchdog underTest =
+          Watchdog.createDuration(
+              clock, checkInterval, getMockExecutorService(Mockito.mock(ScheduledFuture.class)));
+      MockServerStreamingCallable<String, String> idleCallable =
+          new MockServerStreamingCallable<>();
+      for (int i = 0; i < streamCount; i++) {
+        idleCallable.call(
+            "request",
+            underTest.watchDuration(new AccumulatingObserver<String>(), waitTime, idleTime));
+      }
+
+      // The streams are visited once after they start, to arm them with their idle deadline
+      underTest.run();
+      assertThat(underTest.getLastRunVisitCount()).isEqualTo(streamCount);
+
+      // No stream is due until the idle timeout expires, so the checks in between are free
+      for (long elapsed = checkInterval.toMillis();
+          elapsed < idleTime.toMillis();
+          elapsed += checkInterval.toMillis()) {
+        clock.incrementNanoTime(checkInterval.toNanos());
+        underTest.run();
+        assertThat(underTest.getLastRunVisitCount()).isEqualTo(0);
+      }
+
+      clock.incrementNanoTime(checkInterval.toNanos());
+      underTest.run();
+      assertThat(underTest.getLastRunVisitCount()).isEqualTo(streamCount);
+      assertThat(idleCallable.popLastCall().getController().isCancelled()).isTrue();
+      assertThat(underTest.getWatchedStreamCount()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  void testRequestOnIdleStreamBringsDeadlineForward() throws Exception {
+    innerObserver.controller.get(1, TimeUnit.MILLISECONDS);
+    // Arm the idle stream with its idle deadline
+    watchdog.run();
+
+    clock.incrementNanoTime(java.time.Duration.ofMinutes(1).toNanos());
+    innerObserver.controller.get().request(1);
+
+    clock.incrementNanoTime(waitTime.toNanos() - 1);
+    watchdog.run();
+    assertThat(call.getController().isCancelled()).isFalse();
+
+    clock.incrementNanoTime(1);
+    watchdog.run();
+    assertThat(call.getController().isCancelled()).isTrue();
+  }
+
+  @Test
+  void testClosedStreamIsNoLongerWatched() throws Exception {
+    assertThat(watchdog.getWatchedStreamCount()).isEqualTo(1);
+
+    call.getController().getObserver().onComplete();
+    innerObserver.done.get(1, TimeUnit.SECONDS);
+
+    assertThat(watchdog.getWatchedStreamCount()).isEqualTo(0);
+  }
+
   private ScheduledExecutorService getMockExecutorService(ScheduledFuture future) {
     ScheduledExecutorService mockExecutor = Mockito.mock(ScheduledExecutorService.class);
     Mockito.when(
@@ -60,6 +60,8 @@ class OpenTelemetryMetricsRecorderTest {
   private static final String OPERATION_COUNT = SERVICE_NAME + "/operation_count";
   private static final String ATTEMPT_LATENCY = SERVICE_NAME + "/attempt_latency";
   private static final String OPERATION_LATENCY = SERVICE_NAME + "/operation_latency";
+  private static final String RETRY_BUDGET_EXHAUSTED_COUNT =
+      SERVICE_NAME + "/retry_budget_exhausted_count";
   private static final String DEFAULT_METHOD_NAME = "fake_service.fake_method";
 
   private OpenTelemetryMetricsRecorder otelMetricsRecorder;
@@ -74,6 +76,8 @@ class OpenTelemetryMetricsRecorderTest {
   @Mock private DoubleHistogramBuilder operationLatencyRecorderBuilder;
   @Mock private LongCounter operationCountRecorder;
   @Mock private LongCounterBuilder operationCountRecorderBuilder;
+  @Mock private LongCounter retryBudgetExhaustedCountRecorder;
+  @Mock private LongCounterBuilder retryBudgetExhaustedCountRecorderBuilder;
 
   @BeforeEach
   void setUp() {
@@ -86,6 +90,7 @@ class OpenTelemetryMetricsRecorderTest {
     setupAttemptLatencyRecorder();
     setupOperationLatencyRecorder();
     setupOperationCountRecorder();
+    setupRetryBudgetExhaustedCountRecorder();
 
     otelMetricsRecorder = new OpenTelemetryMetricsRecorder(openTelemetry, SERVICE_NAME);
   }
@@ -144,6 +149,17 @@ class OpenTelemetryMetricsRecorderTest {
     verifyNoMoreInteractions(operationLatencyRecorder);
   }
 
+  @Test
+  void testRetryBudgetExhaustedCountRecorder_recordsAttributes() {
+    Map<String, String> attributes = getAttributes(Code.UNAVAILABLE);
+
+    Attributes otelAttributes = otelMetricsRecorder.toOtelAttributes(attributes);
+    otelMetricsRecorder.recordRetryBudgetExhaustedCount(1, attributes);
+
+    verify(retryBudgetExhaustedCountRecorder).add(1, otelAttributes);
+    verifyNoMoreInteractions(retryBudgetExhaustedCountRecorder);
+  }
+
   @Test
   void testToOtelAttributes_correctConversion() {
     Map<String, String> attributes = getAttributes(Code.OK);
@@ -185,6 +201,18 @@ class OpenTelemetryMetricsRecorderTest {
     Mockito.when(operationCountRecorderBuilder.build()).thenReturn(operationCountRecorder);
   }
 
+  private void setupRetryBudgetExhaustedCountRecorder() {
+    // Configure chained mocking for retryBudgetExhaustedCountRecorder
+    Mockito.when(meter.counterBuilder(RETRY_BUDGET_EXHAUSTED_COUNT))
+        .thenReturn(retryBudgetExhaustedCountRecorderBuilder);
+    Mockito.when(retryBudgetExhaustedCountRecorderBuilder.setDescription(Mockito.anyString()))
+        .thenReturn(retryBudgetExhaustedCountRecorderBuilder);
+    Mockito.when(retryBudgetExhaustedCountRecorderBuilder.setUnit("1"))
+        .thenReturn(retryBudgetExhaustedCountRecorderBuilder);
+    Mockito.when(retryBudgetExhaustedCountRecorderBuilder.build())
+        .thenReturn(retryBudgetExhaustedCountRecorder);
+  }
+
   private void setupAttemptLatencyRecorder() {
     // Configure chained mocking for attemptLatencyRecorder
     Mockito.when(meter.histogramBuilder(ATTEMPT_LATENCY)).thenReturn(attemptLatencyRecorderBuilder);
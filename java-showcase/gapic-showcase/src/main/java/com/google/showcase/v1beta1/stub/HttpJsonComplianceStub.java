@@ -88,9 +88,7 @@ public class HttpJsonComplianceStub extends ComplianceStub {
                             return fields;
                           })
                       .setRequestBodyExtractor(
-                          request ->
-                              ProtoRestSerializer.create()
-                                  .toBody("*", request.toBuilder().build(), false))
+                          request -> ProtoRestSerializer.create().toBody("*", request, false))
                       .build())
               .setResponseParser(
                   ProtoMessageResponseParser.<RepeatResponse>newBuilder()
@@ -411,9 +409,7 @@ public class HttpJsonComplianceStub extends ComplianceStub {
                             return fields;
                           })
                       .setRequestBodyExtractor(
-                          request ->
-                              ProtoRestSerializer.create()
-                                  .toBody("*", request.toBuilder().build(), false))
+                          request -> ProtoRestSerializer.create().toBody("*", request, false))
                       .build())
               .setResponseParser(
                   ProtoMessageResponseParser.<RepeatResponse>newBuilder()
@@ -446,9 +442,7 @@ public class HttpJsonComplianceStub extends ComplianceStub {
                             return fields;
                           })
                       .setRequestBodyExtractor(
-                          request ->
-                              ProtoRestSerializer.create()
-                                  .toBody("*", request.toBuilder().build(), false))
+                          request -> ProtoRestSerializer.create().toBody("*", request, false))
                       .build())
               .setResponseParser(
                   ProtoMessageResponseParser.<RepeatResponse>newBuilder()
@@ -115,9 +115,7 @@ public class HttpJsonEchoStub extends EchoStub {
                         return fields;
                       })
                   .setRequestBodyExtractor(
-                      request ->
-                          ProtoRestSerializer.create()
-                              .toBody("*", request.toBuilder().build(), false))
+                      request -> ProtoRestSerializer.create().toBody("*", request, false))
                   .build())
           .setResponseParser(
               ProtoMessageResponseParser.<EchoResponse>newBuilder()
@@ -150,9 +148,7 @@ public class HttpJsonEchoStub extends EchoStub {
                             return fields;
                           })
                       .setRequestBodyExtractor(
-                          request ->
-                              ProtoRestSerializer.create()
-                                  .toBody("*", request.toBuilder().build(), false))
+                          request -> ProtoRestSerializer.create().toBody("*", request, false))
                       .build())
               .setResponseParser(
                   ProtoMessageResponseParser.<EchoErrorDetailsResponse>newBuilder()
@@ -185,9 +181,7 @@ public class HttpJsonEchoStub extends EchoStub {
                             return fields;
                           })
                       .setRequestBodyExtractor(
-                          request ->
-                              ProtoRestSerializer.create()
-                                  .toBody("*", request.toBuilder().build(), false))
+                          request -> ProtoRestSerializer.create().toBody("*", request, false))
                       .build())
               .setResponseParser(
                   ProtoMessageResponseParser.<FailEchoWithDetailsResponse>newBuilder()
@@ -219,9 +213,7 @@ public class HttpJsonEchoStub extends EchoStub {
                         return fields;
                       })
                   .setRequestBodyExtractor(
-                      request ->
-                          ProtoRestSerializer.create()
-                              .toBody("*", request.toBuilder().build(), false))
+                      request -> ProtoRestSerializer.create().toBody("*", request, false))
                   .build())
           .setResponseParser(
               ProtoMessageResponseParser.<EchoResponse>newBuilder()
@@ -254,9 +246,7 @@ public class HttpJsonEchoStub extends EchoStub {
                             return fields;
                           })
                       .setRequestBodyExtractor(
-                          request ->
-                              ProtoRestSerializer.create()
-                                  .toBody("*", request.toBuilder().build(), false))
+                          request -> ProtoRestSerializer.create().toBody("*", request, false))
                       .build())
               .setResponseParser(
                   ProtoMessageResponseParser.<PagedExpandResponse>newBuilder()
@@ -289,9 +279,7 @@ public class HttpJsonEchoStub extends EchoStub {
                             return fields;
                           })
                       .setRequestBodyExtractor(
-                          request ->
-                              ProtoRestSerializer.create()
-                                  .toBody("*", request.toBuilder().build(), false))
+                          request -> ProtoRestSerializer.create().toBody("*", request, false))
                       .build())
               .setResponseParser(
                   ProtoMessageResponseParser.<PagedExpandResponse>newBuilder()
@@ -324,9 +312,7 @@ public class HttpJsonEchoStub extends EchoStub {
                             return fields;
                           })
                       .setRequestBodyExtractor(
-                          request ->
-                              ProtoRestSerializer.create()
-                                  .toBody("*", request.toBuilder().build(), false))
+                          request -> ProtoRestSerializer.create().toBody("*", request, false))
                       .build())
               .setResponseParser(
                   ProtoMessageResponseParser.<PagedExpandLegacyMappedResponse>newBuilder()
@@ -356,9 +342,7 @@ public class HttpJsonEchoStub extends EchoStub {
                         return fields;
                       })
                   .setRequestBodyExtractor(
-                      request ->
-                          ProtoRestSerializer.create()
-                              .toBody("*", request.toBuilder().build(), false))
+                      request -> ProtoRestSerializer.create().toBody("*", request, false))
                   .build())
           .setResponseParser(
               ProtoMessageResponseParser.<Operation>newBuilder()
@@ -391,9 +375,7 @@ public class HttpJsonEchoStub extends EchoStub {
                         return fields;
                       })
                   .setRequestBodyExtractor(
-                      request ->
-                          ProtoRestSerializer.create()
-                              .toBody("*", request.toBuilder().build(), false))
+                      request -> ProtoRestSerializer.create().toBody("*", request, false))
                   .build())
           .setResponseParser(
               ProtoMessageResponseParser.<BlockResponse>newBuilder()
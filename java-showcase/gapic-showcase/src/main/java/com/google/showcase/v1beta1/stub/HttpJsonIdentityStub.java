@@ -92,9 +92,7 @@ public class HttpJsonIdentityStub extends IdentityStub {
                         return fields;
                       })
                   .setRequestBodyExtractor(
-                      request ->
-                          ProtoRestSerializer.create()
-                              .toBody("*", request.toBuilder().build(), false))
+                      request -> ProtoRestSerializer.create().toBody("*", request, false))
                   .build())
           .setResponseParser(
               ProtoMessageResponseParser.<User>newBuilder()
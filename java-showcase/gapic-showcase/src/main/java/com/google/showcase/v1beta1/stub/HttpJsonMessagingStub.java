@@ -120,9 +120,7 @@ public class HttpJsonMessagingStub extends MessagingStub {
                         return fields;
                       })
                   .setRequestBodyExtractor(
-                      request ->
-                          ProtoRestSerializer.create()
-                              .toBody("*", request.toBuilder().build(), false))
+                      request -> ProtoRestSerializer.create().toBody("*", request, false))
                   .build())
           .setResponseParser(
               ProtoMessageResponseParser.<Room>newBuilder()
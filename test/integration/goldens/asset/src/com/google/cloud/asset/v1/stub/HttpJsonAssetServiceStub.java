@@ -354,9 +354,7 @@ public class HttpJsonAssetServiceStub extends AssetServiceStub {
                         return fields;
                       })
                   .setRequestBodyExtractor(
-                      request ->
-                          ProtoRestSerializer.create()
-                              .toBody("*", request.toBuilder().build(), true))
+                      request -> ProtoRestSerializer.create().toBody("*", request, true))
                   .build())
           .setResponseParser(
               ProtoMessageResponseParser.<Feed>newBuilder()
@@ -553,9 +551,7 @@ public class HttpJsonAssetServiceStub extends AssetServiceStub {
                             return fields;
                           })
                       .setRequestBodyExtractor(
-                          request ->
-                              ProtoRestSerializer.create()
-                                  .toBody("*", request.toBuilder().build(), true))
+                          request -> ProtoRestSerializer.create().toBody("*", request, true))
                       .build())
               .setResponseParser(
                   ProtoMessageResponseParser.<Operation>newBuilder()